@@ -1,6 +1,7 @@
 package com.sdg.ast;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
@@ -11,8 +12,16 @@ import com.github.javaparser.ast.stmt.ForStmt;
 import com.github.javaparser.ast.stmt.IfStmt;
 import com.sdg.logging.LoggerUtil;
 import com.sdg.graph.GraphDatabaseOperations;
-
+import com.sdg.graph.GraphDelta;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Analyzes Java Abstract Syntax Trees (AST) and stores the analysis results in a graph database.
@@ -25,7 +34,8 @@ import java.util.Map;
  * - Interface implementations
  * - Class fields
  * 
- * The analysis results are stored using {@link GraphDatabaseOperations}.
+ * The analysis results are collected in a {@link GraphDelta} per file, which is stored using
+ * {@link GraphDatabaseOperations}.
  *
  * The analyzer can be configured to analyze different parts of the AST by passing an {@link ASTAnalyzerConfig}.
  * By default, the analyzer will analyze all parts of the AST.
@@ -69,34 +79,161 @@ public class ASTAnalyzer {
      */
 
     public void analyzeAndStore(CompilationUnit cu, Map<String, Integer> methodCallsMap) {
+        analyzeAndStore(cu, methodCallsMap, Map.of());
+    }
+
+    /**
+     * Analyze the given AST and store the analysis results in the graph database. Methods are included if they
+     * are called according to the method calls map, or if a call matching their name and number of parameters
+     * was counted in the approximate calls map, see {@link MethodCallAnalyzer#approximateCallKey(String, int)}.
+     *
+     * @param cu the AST to analyze
+     * @param methodCallsMap the number of calls per qualified method signature
+     * @param approximateCallsMap the number of calls per method name and number of arguments
+     */
+    public void analyzeAndStore(CompilationUnit cu, Map<String, Integer> methodCallsMap,
+                                Map<String, Integer> approximateCallsMap) {
+        analyzeAndStore(cu, null, methodCallsMap, approximateCallsMap);
+    }
+
+    /**
+     * Analyze the given AST and store the analysis results in the graph database, recording the file the classes
+     * are declared in so that they can be replaced when the file changes.
+     *
+     * @param cu the AST to analyze
+     * @param sourceFile the path of the file the AST was parsed from, or null to not record it
+     * @param methodCallsMap the number of calls per qualified method signature
+     * @param approximateCallsMap the number of calls per method name and number of arguments
+     */
+    public void analyzeAndStore(CompilationUnit cu, String sourceFile, Map<String, Integer> methodCallsMap,
+                                Map<String, Integer> approximateCallsMap) {
+        dbOps.write(analyze(cu, sourceFile, methodCallsMap, approximateCallsMap));
+    }
+
+    /**
+     * Analyze the given AST and collect the analysis results in memory, so that they can be written to the graph
+     * database together with the results of other files.
+     *
+     * @param cu the AST to analyze
+     * @param sourceFile the path of the file the AST was parsed from, or null to not record it
+     * @param methodCallsMap the number of calls per qualified method signature
+     * @param approximateCallsMap the number of calls per method name and number of arguments
+     * @return the graph contents extracted from the AST
+     */
+    public GraphDelta analyze(CompilationUnit cu, String sourceFile, Map<String, Integer> methodCallsMap,
+                              Map<String, Integer> approximateCallsMap) {
         LoggerUtil.debug(getClass(), "Starting AST analysis");
-        analyzeClass(cu, methodCallsMap);
-        LoggerUtil.debug(getClass(), "AST analysis completed");
+        GraphDelta delta = new GraphDelta();
+        analyzeClass(delta, cu, sourceFile, methodCallsMap, approximateCallsMap);
+        LoggerUtil.debug(getClass(), "AST analysis completed: {}", delta);
+        return delta;
     }
 
-    private void analyzeClass(CompilationUnit cu, Map<String, Integer> methodCallsMap) {
-        cu.findAll(ClassOrInterfaceDeclaration.class).forEach(classDecl -> {
+    private void analyzeClass(GraphDelta delta, CompilationUnit cu, String sourceFile,
+                              Map<String, Integer> methodCallsMap, Map<String, Integer> approximateCallsMap) {
+        // Extract package name
+        String packageName = cu.getPackageDeclaration()
+                .map(NodeWithName::getNameAsString)
+                .orElse("<None>");
+
+        collectClasses(cu).forEach(classInfo -> {
+            ClassOrInterfaceDeclaration classDecl = classInfo.declaration();
             String className = classDecl.getNameAsString();
 
             LoggerUtil.debug(getClass(), "Analyzing class: {}", className);
 
-            // Extract package name
-            String packageName = cu.getPackageDeclaration()
-                    .map(NodeWithName::getNameAsString)
-                    .orElse("<None>");
-
             LoggerUtil.debug(getClass(), "Found package for class {}: {}", className, packageName);
-            dbOps.createClassNode(className, packageName);
+            if (sourceFile == null) {
+                delta.createClassNode(className, packageName);
+            } else {
+                delta.createClassNode(className, packageName, sourceFile);
+            }
 
-            analyzeInheritance(classDecl, className);
-            analyzeInterfaceImplementations(classDecl, className);
-            analyzeImports(cu, className);
-            analyzeFields(classDecl, className);
-            analyzeMethods(classDecl, className, methodCallsMap);
+            analyzeInheritance(delta, classDecl, className);
+            analyzeInterfaceImplementations(delta, classDecl, className);
+            analyzeImports(delta, cu, className);
+            analyzeFields(delta, classDecl, className);
+            analyzeMethods(delta, classInfo, className, methodCallsMap, approximateCallsMap);
         });
     }
 
-    private void analyzeImports(CompilationUnit cu, String className) {
+    /**
+     * Collects the classes of the AST and the method calls and control flow statements of their methods in a single
+     * walk of the AST, instead of searching the subtree of each method once per kind of node.
+     *
+     * The nodes are visited in the same order as {@link Node#findAll(Class)} visits them, so the classes and the
+     * nodes of each method are in the order they are found by searching for them. Nodes of classes declared inside
+     * a method belong to the enclosing method as well as to the method of the inner class they are declared in.
+     *
+     * Fields and imports are not collected by the walk: {@link ClassOrInterfaceDeclaration#getFields()} and
+     * {@link CompilationUnit#getImports()} read the members of a class and the imports of the compilation unit
+     * directly, without searching a subtree, so collecting them here would save no work.
+     */
+    private List<ClassInfo> collectClasses(CompilationUnit cu) {
+        boolean collectMethods = config.isAnalyzeMethods();
+        boolean collectMethodCalls = collectMethods && config.isAnalyzeMethodCalls();
+        boolean collectControlFlow = collectMethods && config.isAnalyzeControlFlow();
+
+        List<ClassInfo> classes = new ArrayList<>();
+        // AST nodes compare by structure, so identical classes must be told apart by identity
+        Map<Node, ClassInfo> classesByDeclaration = new IdentityHashMap<>();
+        List<MethodInfo> enclosingMethods = new ArrayList<>();
+
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(cu);
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            if (next instanceof MethodInfo) {
+                // All nodes of the method have been visited
+                enclosingMethods.remove(enclosingMethods.size() - 1);
+                continue;
+            }
+
+            Node node = (Node) next;
+            if (node instanceof ClassOrInterfaceDeclaration classDecl) {
+                ClassInfo classInfo = new ClassInfo(classDecl, privateMethodNames(classDecl), new ArrayList<>());
+                classes.add(classInfo);
+                classesByDeclaration.put(classDecl, classInfo);
+            } else if (node instanceof MethodDeclaration method && collectMethods) {
+                // Only methods declared directly in a class are analyzed, as ClassOrInterfaceDeclaration#getMethods()
+                // returns them
+                ClassInfo classInfo = method.getParentNode().map(classesByDeclaration::get).orElse(null);
+                if (classInfo != null) {
+                    MethodInfo methodInfo = new MethodInfo(method, new ArrayList<>(), new ArrayList<>(),
+                            new ArrayList<>());
+                    classInfo.methods().add(methodInfo);
+                    enclosingMethods.add(methodInfo);
+                    pending.push(methodInfo);
+                }
+            } else if (node instanceof MethodCallExpr methodCall && collectMethodCalls) {
+                enclosingMethods.forEach(methodInfo -> methodInfo.methodCalls().add(methodCall));
+            } else if (node instanceof IfStmt ifStmt && collectControlFlow) {
+                enclosingMethods.forEach(methodInfo -> methodInfo.ifStatements().add(ifStmt));
+            } else if (node instanceof ForStmt forStmt && collectControlFlow) {
+                enclosingMethods.forEach(methodInfo -> methodInfo.forStatements().add(forStmt));
+            }
+
+            List<Node> children = node.getChildNodes();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(children.get(i));
+            }
+        }
+        return classes;
+    }
+
+    private Set<String> privateMethodNames(ClassOrInterfaceDeclaration classDecl) {
+        if (!config.isOmitPrivateMethodCalls()) {
+            return Set.of();
+        }
+
+        Set<String> privateMethodNames = new HashSet<>();
+        classDecl.getMethods().stream()
+                .filter(MethodDeclaration::isPrivate)
+                .forEach(method -> privateMethodNames.add(method.getNameAsString()));
+        return privateMethodNames;
+    }
+
+    private void analyzeImports(GraphDelta delta, CompilationUnit cu, String className) {
         if (!config.isAnalyzeImports()) {
             LoggerUtil.debug(getClass(), "Skipping imports analysis due to configuration");
             return;
@@ -105,11 +242,11 @@ public class ASTAnalyzer {
         cu.getImports().forEach(importDecl -> {
             String importName = importDecl.getNameAsString();
             LoggerUtil.debug(getClass(), "Found import in {}: {}", className, importName);
-            dbOps.createImportRelationship(className, importName);
+            delta.createImportRelationship(className, importName);
         });
     }
 
-    private void analyzeInheritance(ClassOrInterfaceDeclaration classDecl, String className) {
+    private void analyzeInheritance(GraphDelta delta, ClassOrInterfaceDeclaration classDecl, String className) {
         if (!config.isAnalyzeInheritance()) {
             LoggerUtil.debug(getClass(), "Skipping inheritance analysis due to configuration");
             return;
@@ -118,12 +255,13 @@ public class ASTAnalyzer {
         classDecl.getExtendedTypes().forEach(extendedType -> {
             String parentName = extendedType.getNameAsString();
             LoggerUtil.debug(getClass(), "Found inheritance: {} extends {}", className, parentName);
-            dbOps.createClassNode(parentName); // Creates a class node if it does not already exist
-            dbOps.createInheritanceRelationship(className, parentName);
+            delta.createClassNode(parentName); // Creates a class node if it does not already exist
+            delta.createInheritanceRelationship(className, parentName);
         });
     }
 
-    private void analyzeInterfaceImplementations(ClassOrInterfaceDeclaration classDecl, String className) {
+    private void analyzeInterfaceImplementations(GraphDelta delta, ClassOrInterfaceDeclaration classDecl,
+                                                 String className) {
         if (!config.isAnalyzeInterfaceImplementations()) {
             LoggerUtil.debug(getClass(), "Skipping interface implementations analysis due to configuration");
             return;
@@ -132,11 +270,12 @@ public class ASTAnalyzer {
         classDecl.getImplementedTypes().forEach(implementedType -> {
             String interfaceName = implementedType.getNameAsString();
             LoggerUtil.debug(getClass(), "Found interface implementation: {} implements {}", className, interfaceName);
-            dbOps.createInterfaceImplementation(className, interfaceName);
+            delta.createInterfaceImplementation(className, interfaceName);
         });
     }
 
-    private void analyzeMethods(ClassOrInterfaceDeclaration classDecl, String className, Map<String, Integer> methodCallsMap) {
+    private void analyzeMethods(GraphDelta delta, ClassInfo classInfo, String className,
+                                Map<String, Integer> methodCallsMap, Map<String, Integer> approximateCallsMap) {
         if (!config.isAnalyzeMethods()) {
             LoggerUtil.debug(getClass(), "Skipping methods analysis due to configuration");
             return;
@@ -145,13 +284,15 @@ public class ASTAnalyzer {
         LoggerUtil.debug(getClass(), "Analyzing methods for class: {} (only analyze public methods: {})",
                 className, config.isOnlyAnalyzePublicMethods());
 
-        classDecl.getMethods().forEach(method -> {
+        ClassOrInterfaceDeclaration classDecl = classInfo.declaration();
+        classInfo.methods().forEach(methodInfo -> {
+            MethodDeclaration method = methodInfo.declaration();
             boolean isPublic = method.isPublic();
             String methodName = method.getNameAsString();
 
             String methodFullyQualifiedName = classDecl.getFullyQualifiedName().get() + "." + method.getSignature();
 
-            if (!methodCallsMap.containsKey(methodFullyQualifiedName)) {
+            if (!methodCallsMap.containsKey(methodFullyQualifiedName) && !isApproximatelyCalled(method, approximateCallsMap)) {
                 LoggerUtil.debug(getClass(), "Skipping method due to no calls: {}", methodFullyQualifiedName);
                 return;
             } else {
@@ -175,10 +316,10 @@ public class ASTAnalyzer {
                 LoggerUtil.debug(getClass(), "Analyzing method: {}.{} with visibility {}",
                         className, methodName, visibility);
 
-                dbOps.createMethodNode(className, methodName, visibility, returnType, paramBuilder.toString());
+                delta.createMethodNode(className, methodName, visibility, returnType, paramBuilder.toString());
 
-                analyzeMethodCalls(method, methodName);
-                analyzeControlFlow(method, methodName);
+                analyzeMethodCalls(delta, methodInfo, classInfo.privateMethodNames(), methodName);
+                analyzeControlFlow(delta, methodInfo, methodName);
             } else {
                 LoggerUtil.debug(getClass(), "Skipping non-public method due to onlyAnalyzePublicMethods=true: {}.{}",
                         className, methodName);
@@ -186,7 +327,34 @@ public class ASTAnalyzer {
         });
     }
 
-    private void analyzeFields(ClassOrInterfaceDeclaration classDecl, String className) {
+    /**
+     * Checks if a call matching the method's name and number of parameters was counted for a call that could not
+     * be resolved within its budget.
+     */
+    private boolean isApproximatelyCalled(MethodDeclaration method, Map<String, Integer> approximateCallsMap) {
+        if (approximateCallsMap.isEmpty()) {
+            return false;
+        }
+
+        String methodName = method.getNameAsString();
+        int parameterCount = method.getParameters().size();
+        boolean variadic = parameterCount > 0 && method.getParameter(parameterCount - 1).isVarArgs();
+        if (!variadic) {
+            return approximateCallsMap.containsKey(MethodCallAnalyzer.approximateCallKey(methodName, parameterCount));
+        }
+
+        // A variadic method accepts any number of arguments from its number of parameters minus one
+        for (String key : approximateCallsMap.keySet()) {
+            int separator = key.lastIndexOf('/');
+            if (key.substring(0, separator).equals(methodName)
+                    && Integer.parseInt(key.substring(separator + 1)) >= parameterCount - 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void analyzeFields(GraphDelta delta, ClassOrInterfaceDeclaration classDecl, String className) {
         if (!config.isAnalyzeClassFields()) {
             LoggerUtil.debug(getClass(), "Skipping class fields analysis due to configuration");
             return;
@@ -200,12 +368,13 @@ public class ASTAnalyzer {
             field.getVariables().forEach(var -> {
                 String fieldName = var.getNameAsString();
                 LoggerUtil.debug(getClass(), "Found field: {}.{} ({} {})", className, fieldName, accessModifier, fieldType);
-                dbOps.createClassField(className, fieldName, fieldType, accessModifier);
+                delta.createClassField(className, fieldName, fieldType, accessModifier);
             });
         });
     }
 
-    private void analyzeMethodCalls(MethodDeclaration method, String methodName) {
+    private void analyzeMethodCalls(GraphDelta delta, MethodInfo methodInfo, Set<String> privateMethodNames,
+                                    String methodName) {
         if (!config.isAnalyzeMethodCalls()) {
             LoggerUtil.debug(getClass(), "Skipping method calls analysis due to configuration");
             return;
@@ -214,50 +383,58 @@ public class ASTAnalyzer {
         LoggerUtil.debug(getClass(), "Analyzing method calls for method: {} (omit private method calls: {})",
                 methodName, config.isOmitPrivateMethodCalls());
 
-        // Get the parent class declaration to check for private methods if needed
-        ClassOrInterfaceDeclaration parentClass = method.findAncestor(ClassOrInterfaceDeclaration.class)
-                .orElse(null);
-        
-        method.findAll(MethodCallExpr.class).forEach(methodCall -> {
+        methodInfo.methodCalls().forEach(methodCall -> {
             String methodCallName = methodCall.getNameAsString();
-            boolean shouldAnalyze = true;
-            
+
             // Omit private method calls within the same class if specified by configuration
-            if (config.isOmitPrivateMethodCalls() && parentClass != null) {
-                // Check if the called method exists in the same class and is private
-                boolean isPrivateMethodInSameClass = parentClass.getMethods().stream()
-                    .anyMatch(m -> m.getNameAsString().equals(methodCallName) && m.isPrivate());
-                
-                if (isPrivateMethodInSameClass) {
-                    LoggerUtil.debug(getClass(), "Skipping private method call within same class: {} -> {}", 
-                            methodName, methodCallName);
-                    shouldAnalyze = false;
-                }
-            }
-            
-            if (shouldAnalyze) {
-                LoggerUtil.debug(getClass(), "Found method call: {} -> {}", methodName, methodCallName);
-                dbOps.createMethodCallNode(methodName, methodCallName);
+            if (privateMethodNames.contains(methodCallName)) {
+                LoggerUtil.debug(getClass(), "Skipping private method call within same class: {} -> {}",
+                        methodName, methodCallName);
+                return;
             }
+
+            LoggerUtil.debug(getClass(), "Found method call: {} -> {}", methodName, methodCallName);
+            delta.createMethodCallNode(methodName, methodCallName);
         });
     }
 
-    private void analyzeControlFlow(MethodDeclaration method, String methodName) {
+    private void analyzeControlFlow(GraphDelta delta, MethodInfo methodInfo, String methodName) {
         if (!config.isAnalyzeControlFlow()) {
             LoggerUtil.debug(getClass(), "Skipping control flow analysis due to configuration");
             return;
         }
 
-        method.findAll(IfStmt.class).forEach(ifStmt -> {
+        methodInfo.ifStatements().forEach(ifStmt -> {
             String condition = ifStmt.getCondition().toString();
             LoggerUtil.debug(getClass(), "Found if statement in {}: {}", methodName, condition);
-            dbOps.createControlFlowNode(methodName, "if", condition);
+            delta.createControlFlowNode(methodName, "if", condition);
         });
 
-        method.findAll(ForStmt.class).forEach(forStmt -> {
+        methodInfo.forStatements().forEach(forStmt -> {
             String condition = forStmt.toString();
             LoggerUtil.debug(getClass(), "Found for loop in {}: {}", methodName, condition);
-            dbOps.createControlFlowNode(methodName, "for", condition);
+            delta.createControlFlowNode(methodName, "for", condition);
         });
     }
+
+    /**
+     * A class of the AST with the methods declared directly in it.
+     *
+     * @param declaration the class declaration
+     * @param privateMethodNames the names of the private methods of the class, if private method calls are omitted
+     * @param methods the methods of the class, in the order they are declared
+     */
+    private record ClassInfo(ClassOrInterfaceDeclaration declaration, Set<String> privateMethodNames,
+                             List<MethodInfo> methods) {}
+
+    /**
+     * A method with the method calls and control flow statements found in it.
+     *
+     * @param declaration the method declaration
+     * @param methodCalls the method calls in the method, if method calls are analyzed
+     * @param ifStatements the if statements in the method, if control flow is analyzed
+     * @param forStatements the for loops in the method, if control flow is analyzed
+     */
+    private record MethodInfo(MethodDeclaration declaration, List<MethodCallExpr> methodCalls,
+                              List<IfStmt> ifStatements, List<ForStmt> forStatements) {}
 }
@@ -0,0 +1,148 @@
+package com.sdg.ast;
+
+import com.sdg.logging.LoggerUtil;
+import com.sdg.model.FileHashes;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * The time the method call analysis of each file of a source tree took in earlier runs, kept on disk to estimate how
+ * long each file will take in the next run.
+ *
+ * Files are analyzed in order of their estimated cost, largest first, so that the longest jobs start while other
+ * workers can still take the short ones, instead of a few large files found late keeping one worker busy after the
+ * others are idle. A file that was timed before is estimated by its last timing, other files by their size and the
+ * time per byte of the timed files, or by their size alone if no file was timed.
+ *
+ * The timings of a source tree are stored in one file per root directory. Instances can be shared between threads.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class AnalysisTimings {
+    private static final String TIMINGS_SUFFIX = ".timings";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path timingsFile;
+    private final Map<String, Long> previousMicros;
+    private final Map<String, Long> recordedMicros = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the timings of a source tree recorded by earlier runs.
+     *
+     * @param directory the directory the timings are stored in, created when they are saved
+     * @param root the root of the source tree
+     */
+    public AnalysisTimings(Path directory, Path root) {
+        String key = FileHashes.sha256(root.toAbsolutePath().normalize().toUri().toString()).substring(0, 32);
+        this.timingsFile = directory.resolve(key + TIMINGS_SUFFIX);
+        this.previousMicros = load(timingsFile);
+    }
+
+    /**
+     * Records how long the analysis of a file took.
+     *
+     * @param file the analyzed file
+     * @param nanos the duration of the analysis in nanoseconds
+     */
+    public void record(Path file, long nanos) {
+        recordedMicros.put(keyOf(file), nanos / 1000);
+    }
+
+    /**
+     * Orders files by their estimated analysis cost, the most expensive first. Files of equal cost keep their order.
+     *
+     * @param files the files to order
+     * @param sizeOf returns the size of a file in bytes
+     * @return the files, most expensive first
+     */
+    public List<Path> orderByCost(Collection<Path> files, ToLongFunction<Path> sizeOf) {
+        long timedMicros = 0;
+        long timedBytes = 0;
+        for (Path file : files) {
+            Long micros = previousMicros.get(keyOf(file));
+            if (micros != null) {
+                timedMicros += micros;
+                timedBytes += sizeOf.applyAsLong(file);
+            }
+        }
+
+        double microsPerByte = timedMicros > 0 && timedBytes > 0 ? (double) timedMicros / timedBytes : 1;
+        Map<Path, Double> costs = new HashMap<>();
+        for (Path file : files) {
+            Long micros = previousMicros.get(keyOf(file));
+            costs.put(file, micros != null ? micros : sizeOf.applyAsLong(file) * microsPerByte);
+        }
+        return files.stream().sorted(Comparator.comparing(costs::get, Comparator.reverseOrder())).toList();
+    }
+
+    /**
+     * Saves the timings of the given files, replacing the timings of earlier runs. Files that were not analyzed in
+     * this run, e.g. because their call counts were cached, keep their earlier timing.
+     *
+     * @param files the files of the source tree
+     */
+    public void save(Collection<Path> files) {
+        Path tempFile = null;
+        try {
+            Files.createDirectories(timingsFile.getParent());
+            tempFile = Files.createTempFile(timingsFile.getParent(), "timings", TEMP_SUFFIX);
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile)) {
+                for (Path file : files) {
+                    String key = keyOf(file);
+                    Long micros = recordedMicros.getOrDefault(key, previousMicros.get(key));
+                    if (micros != null) {
+                        writer.write(micros + "\t" + key);
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(tempFile, timingsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+        } catch (IOException e) {
+            LoggerUtil.warn(getClass(), "Could not save analysis timings to {}: {}", timingsFile, e.getMessage());
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    LoggerUtil.debug(getClass(), "Could not delete {}: {}", tempFile, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static Map<String, Long> load(Path timingsFile) {
+        Map<String, Long> timings = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(timingsFile)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                int separator = line.indexOf('\t');
+                timings.put(line.substring(separator + 1), Long.parseLong(line.substring(0, separator)));
+            }
+        } catch (NoSuchFileException e) {
+            LoggerUtil.debug(AnalysisTimings.class, "No analysis timings recorded in {}", timingsFile);
+        } catch (IOException | RuntimeException e) {
+            LoggerUtil.warn(AnalysisTimings.class, "Ignoring unreadable analysis timings {}: {}", timingsFile,
+                    e.getMessage());
+            timings.clear();
+        }
+        return timings;
+    }
+
+    private static String keyOf(Path file) {
+        return file.toAbsolutePath().normalize().toUri().toString();
+    }
+}
@@ -0,0 +1,128 @@
+package com.sdg.ast;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+
+/**
+ * Root type solver that enforces a deadline on symbol resolution.
+ *
+ * The symbol solver cannot be interrupted, but it looks up types through the root type solver many times while
+ * resolving a single call. This solver is installed as the root and throws a {@link ResolutionBudgetExceededException}
+ * from the first type lookup after the deadline, which aborts the resolution. Between resolutions no deadline is set.
+ *
+ * Like the other type solvers, an instance is not thread-safe.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+class BudgetedTypeSolver implements TypeSolver {
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final TypeSolver delegate;
+    private long deadlineNanos = NO_DEADLINE;
+
+    /**
+     * Creates a budgeted solver and installs it as the parent of the given solver.
+     *
+     * @param delegate the solver to delegate lookups to, must not have a parent
+     */
+    BudgetedTypeSolver(TypeSolver delegate) {
+        this.delegate = delegate;
+        delegate.setParent(this);
+    }
+
+    /**
+     * Returns the deadline for a budget starting now.
+     *
+     * @param startNanos the start of the budget as a {@link System#nanoTime()} value
+     * @param budgetMillis the budget in milliseconds, 0 for no limit
+     * @return the deadline as a {@link System#nanoTime()} value
+     */
+    static long deadlineAfter(long startNanos, long budgetMillis) {
+        return budgetMillis == 0 ? NO_DEADLINE : startNanos + budgetMillis * 1_000_000;
+    }
+
+    /**
+     * Returns the earlier of two deadlines.
+     */
+    static long earlierDeadline(long deadline, long otherDeadline) {
+        if (deadline == NO_DEADLINE || otherDeadline == NO_DEADLINE) {
+            return deadline == NO_DEADLINE ? otherDeadline : deadline;
+        }
+        return deadline - otherDeadline < 0 ? deadline : otherDeadline;
+    }
+
+    /**
+     * Checks if a deadline has passed.
+     *
+     * @param deadlineNanos the deadline as a {@link System#nanoTime()} value
+     * @return true if the deadline has passed
+     */
+    static boolean isPast(long deadlineNanos) {
+        return deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos > 0;
+    }
+
+    /**
+     * Checks if an exception was caused by an exceeded budget. The symbol solver wraps some exceptions, so the
+     * whole cause chain is checked.
+     *
+     * @param throwable the exception thrown during resolution
+     * @return true if resolution was aborted because its budget was exceeded
+     */
+    static boolean isBudgetExceeded(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ResolutionBudgetExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the deadline of the following lookups.
+     *
+     * @param deadlineNanos the deadline as a {@link System#nanoTime()} value
+     */
+    void setDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Removes the deadline.
+     */
+    void clearDeadline() {
+        this.deadlineNanos = NO_DEADLINE;
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return null;
+    }
+
+    /**
+     * A budgeted type solver wraps the root of a type solver hierarchy, so it cannot have a parent.
+     *
+     * @param parent the parent type solver
+     * @throws IllegalStateException always
+     */
+    @Override
+    public void setParent(TypeSolver parent) {
+        throw new IllegalStateException("A budgeted type solver is always the root");
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        if (isPast(deadlineNanos)) {
+            throw new ResolutionBudgetExceededException(name);
+        }
+        return delegate.tryToSolveType(name);
+    }
+
+    @Override
+    public String toString() {
+        return "BudgetedTypeSolver{" +
+                "delegate=" + delegate +
+                '}';
+    }
+}
@@ -0,0 +1,305 @@
+package com.sdg.ast;
+
+import com.sdg.logging.LoggerUtil;
+import com.sdg.model.FileHashes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * A persistent on-disk cache of the method call counts of files, so that unchanged files are neither parsed nor
+ * resolved again in later analysis runs.
+ *
+ * An entry is keyed by the SHA-256 hash of the file's content, the {@link MethodCallAnalyzer#ANALYZER_VERSION}, the
+ * format version and the fingerprint of the type solvers. Since the calls of a file resolve against other files, each
+ * entry also records the content hashes of the project types the counts depend on; an entry is only used while all of
+ * them are unchanged. Names the counts depend on that are not declared by the project are recorded with an empty
+ * hash, so declaring such a type invalidates the entry, and packages imported on demand are recorded with the hash of
+ * the names of their types. Keying dependencies by type name instead of path lets entries be reused by other clones
+ * of the same repository.
+ *
+ * Entries are written to a temporary file and atomically moved into place, so concurrent runs sharing a cache
+ * directory never read partially written entries. Unreadable entries are deleted and treated as misses. The
+ * cache is bounded by {@link #evict()}, which removes the least recently used entries by modification time.
+ *
+ * Instances can be shared between threads.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class CallCountCache {
+    private static final int MAGIC = 0x53444743;
+    private static final int FORMAT_VERSION = 2;
+    private static final String ENTRY_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Duration ABANDONED_TEMP_FILE_AGE = Duration.ofHours(1);
+
+    private final Path directory;
+    private final long maxBytes;
+    private final TypeIndex typeIndex;
+    private final FileHashes fileHashes;
+    private final String keyPrefix;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleEntries = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache for the results of the given analyzer.
+     *
+     * @param directory the directory the entries are stored in, created if needed
+     * @param maxBytes the size the cache is shrunk to by {@link #evict()}
+     * @param analyzer the analyzer whose results are cached, for its type index and solver fingerprint
+     * @param fileHashes the hashes of the analyzed files
+     * @throws IllegalArgumentException if maxBytes is negative
+     */
+    public CallCountCache(Path directory, long maxBytes, MethodCallAnalyzer analyzer, FileHashes fileHashes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Maximum cache size must not be negative");
+        }
+
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.typeIndex = analyzer.getTypeIndex();
+        this.fileHashes = fileHashes;
+        this.keyPrefix = MethodCallAnalyzer.ANALYZER_VERSION + ":" + FORMAT_VERSION + ":"
+                + analyzer.getSolverFingerprint() + ":";
+    }
+
+    /**
+     * Returns the cached call counts of a file, if the file and the types its counts depend on are unchanged.
+     *
+     * @param file the source file
+     * @return the cached call counts, or an empty result on a miss
+     */
+    public Optional<MethodCallAnalyzer.CallCounts> get(Path file) {
+        String contentHash = fileHashes.hash(file);
+        Path entry = entryPath(contentHash);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !contentHash.equals(in.readUTF())) {
+                throw new IOException("Unexpected header");
+            }
+
+            int dependencyCount = in.readInt();
+            for (int i = 0; i < dependencyCount; i++) {
+                String typeName = in.readUTF();
+                String dependencyHash = in.readUTF();
+                if (!dependencyHash.equals(currentHash(typeName))) {
+                    LoggerUtil.debug(getClass(), "Cached call counts of {} are stale, {} changed", file, typeName);
+                    staleEntries.increment();
+                    misses.increment();
+                    return Optional.empty();
+                }
+            }
+
+            Map<String, Integer> resolvedCalls = readCounts(in);
+            Map<String, Integer> approximateCalls = readCounts(in);
+            touch(entry);
+            hits.increment();
+            return Optional.of(new MethodCallAnalyzer.CallCounts(resolvedCalls, approximateCalls, false));
+        } catch (NoSuchFileException e) {
+            misses.increment();
+            return Optional.empty();
+        } catch (IOException | UncheckedIOException e) {
+            LoggerUtil.warn(getClass(), "Deleting unreadable call count cache entry {}: {}", entry, e.getMessage());
+            deleteQuietly(entry);
+            misses.increment();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the call counts of a file. Results of files that exceeded their resolution budget are not stored,
+     * since a later run may be able to resolve them exactly.
+     *
+     * @param file the source file
+     * @param callCounts the call counts of the file
+     * @param dependencies the names of the types and packages the counts depend on,
+     *                     see {@link MethodCallAnalyzer#findDependencies}
+     */
+    public void put(Path file, MethodCallAnalyzer.CallCounts callCounts, Set<String> dependencies) {
+        if (callCounts.degraded()) {
+            return;
+        }
+
+        String contentHash = fileHashes.hash(file);
+        Path entry = entryPath(contentHash);
+        Path tempFile = null;
+        try {
+            Files.createDirectories(entry.getParent());
+            tempFile = Files.createTempFile(entry.getParent(), contentHash.substring(0, 8), TEMP_SUFFIX);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(contentHash);
+
+                List<String> typeNames = new ArrayList<>(dependencies);
+                out.writeInt(typeNames.size());
+                for (String typeName : typeNames) {
+                    out.writeUTF(typeName);
+                    out.writeUTF(currentHash(typeName));
+                }
+
+                writeCounts(out, callCounts.resolvedCalls());
+                writeCounts(out, callCounts.approximateCalls());
+            }
+            Files.move(tempFile, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+            writes.increment();
+        } catch (IOException | UncheckedIOException e) {
+            LoggerUtil.warn(getClass(), "Could not cache call counts of {}: {}", file, e.getMessage());
+        } finally {
+            if (tempFile != null) {
+                deleteQuietly(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Shrinks the cache to its maximum size by deleting the least recently used entries, and removes temporary
+     * files abandoned by interrupted runs.
+     */
+    public void evict() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        List<CachedFile> entries = new ArrayList<>();
+        Instant abandonedBefore = Instant.now().minus(ABANDONED_TEMP_FILE_AGE);
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(ENTRY_SUFFIX) || name.endsWith(TEMP_SUFFIX)) {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (name.endsWith(ENTRY_SUFFIX)) {
+                        entries.add(new CachedFile(file, attributes.size(), attributes.lastModifiedTime()));
+                    } else if (attributes.lastModifiedTime().toInstant().isBefore(abandonedBefore)) {
+                        deleteQuietly(file);
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LoggerUtil.warn(getClass(), "Could not list call count cache {}: {}", directory, e.getMessage());
+            return;
+        }
+
+        long size = entries.stream().mapToLong(CachedFile::size).sum();
+        entries.sort(Comparator.comparing(CachedFile::lastModified));
+        for (CachedFile entry : entries) {
+            if (size <= maxBytes) {
+                break;
+            }
+            deleteQuietly(entry.path());
+            size -= entry.size();
+            evictions.increment();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getStaleEntryCount() {
+        return staleEntries.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CallCountCache{" +
+                "directory=" + directory +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", staleEntries=" + getStaleEntryCount() +
+                ", writes=" + getWriteCount() +
+                ", evictions=" + getEvictionCount() +
+                '}';
+    }
+
+    private Path entryPath(String contentHash) {
+        String key = FileHashes.sha256(keyPrefix + contentHash);
+        return directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+    }
+
+    /**
+     * Returns the content hash of the file declaring a project type, or an empty string if the type is not indexed.
+     * The hash of a package dependency is the hash of the names of the types the package declares.
+     */
+    private String currentHash(String dependency) {
+        if (dependency.startsWith(MethodCallAnalyzer.PACKAGE_DEPENDENCY_PREFIX)) {
+            List<String> types = typeIndex.findTypesInPackage(
+                    dependency.substring(MethodCallAnalyzer.PACKAGE_DEPENDENCY_PREFIX.length()));
+            return types.isEmpty() ? "" : FileHashes.sha256(String.join("\n", types));
+        }
+        return typeIndex.findTopLevelType(dependency).flatMap(typeIndex::findFile).map(fileHashes::hash).orElse("");
+    }
+
+    private static Map<String, Integer> readCounts(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, Integer> counts = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            counts.put(in.readUTF(), in.readInt());
+        }
+        return counts;
+    }
+
+    private static void writeCounts(DataOutputStream out, Map<String, Integer> counts) throws IOException {
+        out.writeInt(counts.size());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            LoggerUtil.debug(CallCountCache.class, "Could not update access time of {}: {}", entry, e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LoggerUtil.debug(CallCountCache.class, "Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    private record CachedFile(Path path, long size, FileTime lastModified) {}
+}
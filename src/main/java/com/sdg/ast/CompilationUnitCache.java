@@ -0,0 +1,82 @@
+package com.sdg.ast;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.sdg.logging.LoggerUtil;
+
+import java.lang.ref.SoftReference;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the ASTs produced during method call counting until {@link ASTAnalyzer} has consumed them,
+ * so each file is parsed once per run.
+ *
+ * The ASTs are held through {@link SoftReference}s: if the heap runs low the garbage collector may release them,
+ * in which case {@link #take(Path)} returns an empty result and the caller has to parse the file again.
+ * An AST is removed from the cache as soon as it is taken.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class CompilationUnitCache {
+    private final Map<Path, SoftReference<CompilationUnit>> compilationUnits = new ConcurrentHashMap<>();
+    private final AtomicInteger released = new AtomicInteger(0);
+
+    /**
+     * Stores the AST of a file until it is taken.
+     *
+     * @param file the file the AST was parsed from
+     * @param compilationUnit the AST
+     */
+    public void put(Path file, CompilationUnit compilationUnit) {
+        compilationUnits.put(file, new SoftReference<>(compilationUnit));
+    }
+
+    /**
+     * Removes and returns the AST of a file.
+     *
+     * @param file the file the AST was parsed from
+     * @return the AST, or an empty result if it was never stored or has been released by the garbage collector
+     */
+    public Optional<CompilationUnit> take(Path file) {
+        SoftReference<CompilationUnit> reference = compilationUnits.remove(file);
+        if (reference == null) {
+            return Optional.empty();
+        }
+
+        CompilationUnit compilationUnit = reference.get();
+        if (compilationUnit == null) {
+            LoggerUtil.debug(getClass(), "AST of file {} was released due to memory pressure", file);
+            released.incrementAndGet();
+        }
+        return Optional.ofNullable(compilationUnit);
+    }
+
+    /**
+     * Returns the number of ASTs that were released by the garbage collector before being taken.
+     *
+     * @return the number of released ASTs
+     */
+    public int getReleasedCount() {
+        return released.get();
+    }
+
+    /**
+     * Returns the number of ASTs currently held.
+     *
+     * @return the number of held ASTs
+     */
+    public int size() {
+        return compilationUnits.size();
+    }
+
+    /**
+     * Drops all held ASTs.
+     */
+    public void clear() {
+        compilationUnits.clear();
+    }
+}
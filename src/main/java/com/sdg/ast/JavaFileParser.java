@@ -1,45 +1,125 @@
 package com.sdg.ast;
 
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.resolution.SymbolResolver;
 import com.sdg.logging.LoggerUtil;
+import com.sdg.model.SourceReader;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Parses Java source files into Abstract Syntax Trees (AST) using JavaParser.
  * This class provides a simple interface to parse Java files into {@link CompilationUnit}
- * objects that can be analyzed by {@link ASTAnalyzer}.
- * 
+ * objects that can be analyzed by {@link ASTAnalyzer} and {@link MethodCallAnalyzer}.
+ *
+ * Each instance owns its own {@link JavaParser} so the global {@code StaticJavaParser} configuration is never touched.
+ * An instance is not thread-safe and should be confined to one thread.
+ *
  * Handles file reading and parsing errors with appropriate logging and exception handling.
- * 
+ *
  * @author Joakim Colloz
- * @version 1.0
+ * @version 1.1
  */
 public class JavaFileParser {
+    private final JavaParser javaParser;
+
+    /**
+     * Creates a parser without symbol resolution.
+     */
+    public JavaFileParser() {
+        this(null);
+    }
+
+    /**
+     * Creates a parser that attaches the given symbol resolver to every parsed AST,
+     * so that nodes of the returned {@link CompilationUnit} can be resolved.
+     *
+     * @param symbolResolver the symbol resolver to attach, or null for none
+     */
+    public JavaFileParser(SymbolResolver symbolResolver) {
+        ParserConfiguration config = new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21)
+                // Below configuration is for optimization, though, not sure if it makes a difference
+                .setStoreTokens(false)
+                .setAttributeComments(false)
+                .setIgnoreAnnotationsWhenAttributingComments(true);
+        if (symbolResolver != null) {
+            config.setSymbolResolver(symbolResolver);
+        }
+        this.javaParser = new JavaParser(config);
+    }
+
     /**
      * Parses a Java file into an Abstract Syntax Tree (AST).
-     * 
+     *
      * @param filePath The path to the Java file to be parsed.
      * @return A CompilationUnit representing the parsed Java file.
      */
     public CompilationUnit parseFile(String filePath) {
-        ParserConfiguration config = new ParserConfiguration();
-        config.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21);
-        StaticJavaParser.setConfiguration(config);
-        LoggerUtil.debug(getClass(), "Parsing Java file: {}", filePath);
+        return parse(Path.of(filePath));
+    }
+
+    /**
+     * Parses a Java file into an Abstract Syntax Tree (AST).
+     *
+     * @param file The path to the Java file to be parsed.
+     * @return A CompilationUnit representing the parsed Java file.
+     */
+    public CompilationUnit parse(Path file) {
+        LoggerUtil.debug(getClass(), "Parsing Java file: {}", file);
         try {
-            CompilationUnit cu = StaticJavaParser.parse(new FileInputStream(filePath));
-            LoggerUtil.debug(getClass(), "Successfully parsed Java file: {}", filePath);
-            return cu;
+            return resultOf(file, javaParser.parse(file.toFile()));
         } catch (FileNotFoundException e) {
-            LoggerUtil.error(getClass(), "Failed to parse Java file: {}. File not found.", filePath, e);
-            throw new RuntimeException("Failed to parse Java file: " + filePath, e);
+            LoggerUtil.error(getClass(), "Failed to parse Java file: {}. File not found.", file, e);
+            throw new RuntimeException("Failed to parse Java file: " + file, e);
         } catch (Exception e) {
-            LoggerUtil.error(getClass(), "Error parsing Java file: {}", filePath, e);
-            throw new RuntimeException("Error parsing Java file: " + filePath, e);
+            LoggerUtil.error(getClass(), "Error parsing Java file: {}", file, e);
+            throw new RuntimeException("Error parsing Java file: " + file, e);
+        }
+    }
+
+    /**
+     * Parses a Java file read with the given reader into an Abstract Syntax Tree (AST). The storage of the returned
+     * CompilationUnit refers to the given path, whether or not it exists on disk.
+     *
+     * @param file The path identifying the Java file to be parsed.
+     * @param sourceReader The reader of the file's content.
+     * @return A CompilationUnit representing the parsed Java file.
+     */
+    public CompilationUnit parse(Path file, SourceReader sourceReader) {
+        LoggerUtil.debug(getClass(), "Parsing Java file: {}", file);
+        try {
+            return resultOf(file, javaParser.parse(sourceReader.read(file))).setStorage(file);
+        } catch (IOException e) {
+            LoggerUtil.error(getClass(), "Failed to read Java file: {}", file, e);
+            throw new RuntimeException("Failed to read Java file: " + file, e);
+        } catch (Exception e) {
+            LoggerUtil.error(getClass(), "Error parsing Java file: {}", file, e);
+            throw new RuntimeException("Error parsing Java file: " + file, e);
+        }
+    }
+
+    /**
+     * Returns the AST of a parse result. A file with syntax errors is still analyzed with the AST JavaParser
+     * recovered from it, so that one error does not lose the graph contents of the whole file.
+     *
+     * @throws ParseProblemException if no AST could be recovered
+     */
+    private CompilationUnit resultOf(Path file, ParseResult<CompilationUnit> result) {
+        if (result.getResult().isEmpty()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        if (result.isSuccessful()) {
+            LoggerUtil.debug(getClass(), "Successfully parsed Java file: {}", file);
+        } else {
+            LoggerUtil.warn(getClass(), "Parsed Java file {} partially: {}", file, result.getProblems());
         }
+        return result.getResult().get();
     }
 }
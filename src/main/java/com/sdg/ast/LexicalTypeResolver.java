@@ -0,0 +1,436 @@
+package com.sdg.ast;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.ClassExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.expr.TextBlockLiteralExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.ThisExpr;
+import com.github.javaparser.ast.expr.TypePatternExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.nodeTypes.NodeWithStatements;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.TryStmt;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.TypeParameter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Determines the type of a method call's scope from the source code of a single file, without the symbol solver.
+ *
+ * Only declarations that are visible in the file are considered: local variables, parameters, fields of the
+ * enclosing types, literals and type names. Type names are qualified with the file's imports, the package of the
+ * file as recorded in the {@link TypeIndex}, and java.lang. Whenever the answer could depend on information that
+ * is not available, e.g. an inherited field, a wildcard import of a library package or a {@code var} declaration,
+ * no type is returned. The resolver is therefore cheap but incomplete, and only suitable for decisions that have a safe
+ * fallback to the symbol solver.
+ *
+ * An instance belongs to one {@link CompilationUnit} and is confined to the thread analyzing it.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+final class LexicalTypeResolver {
+    private static final String JAVA_LANG_PACKAGE = "java.lang";
+    private static final Map<String, Boolean> JDK_CLASS_EXISTS = new ConcurrentHashMap<>();
+
+    private final TypeIndex typeIndex;
+    private final String packageName;
+    private final Map<String, String> singleTypeImports = new HashMap<>();
+    private final List<String> onDemandImports = new ArrayList<>();
+    private final Set<String> declaredTypeNames = new HashSet<>();
+
+    /**
+     * The result of looking up a variable: either its declared type, not declared in the file, or unknown.
+     */
+    private record VariableLookup(boolean known, Type type) {
+        private static final VariableLookup UNKNOWN = new VariableLookup(false, null);
+        private static final VariableLookup NOT_DECLARED = new VariableLookup(true, null);
+    }
+
+    /**
+     * Creates a resolver for the given file.
+     *
+     * @param compilationUnit the AST of the file
+     * @param typeIndex the index of the project's types, used to find types of the file's package
+     */
+    LexicalTypeResolver(CompilationUnit compilationUnit, TypeIndex typeIndex) {
+        this.typeIndex = typeIndex;
+        this.packageName = compilationUnit.getPackageDeclaration().map(pkg -> pkg.getNameAsString()).orElse("");
+
+        for (ImportDeclaration importDeclaration : compilationUnit.getImports()) {
+            if (importDeclaration.isStatic()) {
+                continue;
+            }
+            String qualifiedName = importDeclaration.getNameAsString();
+            if (importDeclaration.isAsterisk()) {
+                onDemandImports.add(qualifiedName);
+            } else {
+                singleTypeImports.put(qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1), qualifiedName);
+            }
+        }
+        onDemandImports.add(JAVA_LANG_PACKAGE);
+
+        // Type parameters are included since they shadow type names just like declared types
+        compilationUnit.walk(node -> {
+            if (node instanceof TypeDeclaration<?> type) {
+                declaredTypeNames.add(type.getNameAsString());
+            }
+        });
+        compilationUnit.findAll(TypeParameter.class).forEach(type -> declaredTypeNames.add(type.getNameAsString()));
+    }
+
+    /**
+     * Returns the qualified name of the static type of a method call's scope.
+     *
+     * @param methodCall the method call
+     * @return the qualified type name, or an empty result if the call has no scope or its type is not known lexically
+     */
+    Optional<String> resolveScopeType(MethodCallExpr methodCall) {
+        return methodCall.getScope().flatMap(this::resolveExpressionType);
+    }
+
+    /**
+     * Checks if a method call is made on a receiver whose type is part of the Java standard library, so that the
+     * called method is declared in the standard library as well. Besides scopes with a lexically known type, this
+     * includes field accesses on such scopes, e.g. {@code System.out}, since fields of standard library types have
+     * standard library types. Chained calls such as {@code list.stream().map(...)} are not classified.
+     *
+     * @param methodCall the method call
+     * @return true if the call is known to be a call of a standard library method
+     */
+    boolean hasJdkScope(MethodCallExpr methodCall) {
+        Optional<Expression> scope = methodCall.getScope();
+        while (scope.isPresent()) {
+            Optional<String> scopeType = resolveExpressionType(scope.get());
+            if (scopeType.isPresent()) {
+                return isJdkTypeName(scopeType.get());
+            }
+            scope = scope.get() instanceof FieldAccessExpr fieldAccess ? Optional.of(fieldAccess.getScope())
+                    : Optional.empty();
+        }
+        return false;
+    }
+
+    /**
+     * Returns the qualified name of the static type of an expression, for variable names, {@code this.field}
+     * accesses, type names, string literals and class literals.
+     *
+     * @param expression the expression
+     * @return the qualified type name, or an empty result if the type is not known lexically
+     */
+    Optional<String> resolveExpressionType(Expression expression) {
+        if (expression instanceof StringLiteralExpr || expression instanceof TextBlockLiteralExpr) {
+            return Optional.of("java.lang.String");
+        }
+
+        if (expression instanceof ClassExpr) {
+            return Optional.of("java.lang.Class");
+        }
+
+        if (expression instanceof NameExpr nameExpr) {
+            String name = nameExpr.getNameAsString();
+            VariableLookup lookup = findVariable(nameExpr, name);
+            if (!lookup.known()) {
+                return Optional.empty();
+            }
+            if (lookup.type() != null) {
+                return qualify(lookup.type());
+            }
+            // Not a variable, by convention an upper case name is then a type, as in a static method call
+            return Character.isUpperCase(name.charAt(0)) ? qualifyTypeName(name) : Optional.empty();
+        }
+
+        if (expression instanceof FieldAccessExpr fieldAccess && fieldAccess.getScope() instanceof ThisExpr thisExpr
+                && thisExpr.getTypeName().isEmpty()) {
+            return enclosingType(fieldAccess)
+                    .map(type -> findField(type, fieldAccess.getNameAsString()))
+                    .filter(lookup -> lookup.known() && lookup.type() != null)
+                    .flatMap(lookup -> qualify(lookup.type()));
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Qualifies a simple or partially qualified type name as written in the source code of the file.
+     *
+     * @param name the type name
+     * @return the qualified type name, or an empty result if it is not known lexically
+     */
+    Optional<String> qualifyType(String name) {
+        return qualifyTypeName(name);
+    }
+
+    /**
+     * Returns the type of the file's package a type name as written in the source code would refer to if the
+     * package declared it, since such a type shadows the types imported on demand, including java.lang. Names of
+     * types declared in the file, single-type imports and fully qualified names cannot be shadowed.
+     *
+     * @param name the type name
+     * @return the qualified name of the type in the file's package, whether it is declared or not, or an empty
+     *         result if no type of the package could be referred to by the name
+     */
+    Optional<String> samePackageType(String name) {
+        int firstDot = name.indexOf('.');
+        String firstSegment = firstDot < 0 ? name : name.substring(0, firstDot);
+        if (firstSegment.isEmpty() || !Character.isUpperCase(firstSegment.charAt(0))
+                || declaredTypeNames.contains(firstSegment) || singleTypeImports.containsKey(firstSegment)) {
+            return Optional.empty();
+        }
+        return Optional.of(packageName.isEmpty() ? firstSegment : packageName + "." + firstSegment);
+    }
+
+    /**
+     * Qualifies a type as written in the source code with the single-type imports of the file.
+     */
+    private Optional<String> qualify(Type type) {
+        if (type instanceof ClassOrInterfaceType classType) {
+            return qualifyTypeName(classType.getNameWithScope());
+        }
+        // Primitive, array, var, union and intersection types
+        return Optional.empty();
+    }
+
+    /**
+     * Qualifies a simple or partially qualified type name. Names of types declared in the file and names that could
+     * refer to a type outside the project and the JDK are not known.
+     */
+    private Optional<String> qualifyTypeName(String name) {
+        int firstDot = name.indexOf('.');
+        String firstSegment = firstDot < 0 ? name : name.substring(0, firstDot);
+        if (declaredTypeNames.contains(firstSegment)) {
+            return Optional.empty();
+        }
+
+        if (firstDot >= 0 && Character.isLowerCase(firstSegment.charAt(0)) && !singleTypeImports.containsKey(firstSegment)) {
+            // A qualified name that does not start with a type is taken to be fully qualified
+            return Optional.of(name);
+        }
+
+        return qualifySimpleTypeName(firstSegment)
+                .map(qualified -> firstDot < 0 ? qualified : qualified + name.substring(firstDot));
+    }
+
+    /**
+     * Qualifies a simple type name following the shadowing rules of the JLS: single-type imports, then types of
+     * the same package, then on-demand imports including java.lang.
+     */
+    private Optional<String> qualifySimpleTypeName(String simpleName) {
+        String imported = singleTypeImports.get(simpleName);
+        if (imported != null) {
+            return Optional.of(imported);
+        }
+
+        String samePackageName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        if (typeIndex.contains(samePackageName)) {
+            return Optional.of(samePackageName);
+        }
+
+        String match = null;
+        for (String onDemandImport : onDemandImports) {
+            String candidate = onDemandImport + "." + simpleName;
+            boolean exists;
+            if (typeIndex.contains(candidate)) {
+                exists = true;
+            } else if (isJdkPackage(onDemandImport)) {
+                exists = jdkClassExists(candidate);
+            } else {
+                // A library package or the members of a type, which cannot be checked here
+                return Optional.empty();
+            }
+
+            if (exists) {
+                if (match != null) {
+                    return Optional.empty();
+                }
+                match = candidate;
+            }
+        }
+        return Optional.ofNullable(match);
+    }
+
+    /**
+     * Checks if a package name belongs to the Java standard library, as opposed to a type import on demand
+     * such as {@code import java.util.Map.*}.
+     */
+    private static boolean isJdkPackage(String name) {
+        return isJdkTypeName(name) && Character.isLowerCase(name.charAt(name.lastIndexOf('.') + 1));
+    }
+
+    /**
+     * Checks if a qualified type name belongs to the Java standard library.
+     *
+     * @param qualifiedName a qualified type name
+     * @return true if the name is in a java or javax package
+     */
+    static boolean isJdkTypeName(String qualifiedName) {
+        return qualifiedName.startsWith("java.") || qualifiedName.startsWith("javax.");
+    }
+
+    private static boolean jdkClassExists(String qualifiedName) {
+        return JDK_CLASS_EXISTS.computeIfAbsent(qualifiedName, name -> {
+            try {
+                Class.forName(name, false, ClassLoader.getPlatformClassLoader());
+                return true;
+            } catch (ClassNotFoundException | LinkageError e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Finds the declaration of a variable visible at the given node by walking outwards through the enclosing
+     * blocks, callables and types.
+     */
+    private VariableLookup findVariable(Node node, String name) {
+        Node child = node;
+        Optional<Node> parent = node.getParentNode();
+
+        while (parent.isPresent()) {
+            Node current = parent.get();
+            Type type = null;
+
+            if (current instanceof NodeWithStatements<?> block) {
+                type = findInStatements(block.getStatements(), child, name);
+            } else if (current instanceof ForStmt forStmt) {
+                type = findInVariableDeclarations(forStmt.getInitialization(), name);
+            } else if (current instanceof ForEachStmt forEachStmt) {
+                type = findInVariableDeclarations(List.of(forEachStmt.getVariable()), name);
+            } else if (current instanceof TryStmt tryStmt) {
+                type = findInVariableDeclarations(tryStmt.getResources(), name);
+            } else if (current instanceof CatchClause catchClause) {
+                type = findInParameters(List.of(catchClause.getParameter()), name);
+            } else if (current instanceof LambdaExpr lambda) {
+                if (hasPatternVariable(lambda, name)) {
+                    return VariableLookup.UNKNOWN;
+                }
+                type = findInParameters(lambda.getParameters(), name);
+            } else if (current instanceof CallableDeclaration<?> callable) {
+                if (hasPatternVariable(callable, name)) {
+                    return VariableLookup.UNKNOWN;
+                }
+                type = findInParameters(callable.getParameters(), name);
+            } else if (current instanceof TypeDeclaration<?> typeDeclaration) {
+                VariableLookup lookup = findField(typeDeclaration, name);
+                if (lookup.type() != null || !lookup.known()) {
+                    return lookup;
+                }
+            } else if (current instanceof ObjectCreationExpr creation && creation.getAnonymousClassBody().isPresent()) {
+                // Anonymous classes inherit fields of their super type
+                return VariableLookup.UNKNOWN;
+            }
+
+            if (type != null) {
+                return new VariableLookup(true, type);
+            }
+            child = current;
+            parent = current.getParentNode();
+        }
+        return VariableLookup.NOT_DECLARED;
+    }
+
+    private static Optional<TypeDeclaration<?>> enclosingType(Node node) {
+        Optional<Node> parent = node.getParentNode();
+        while (parent.isPresent()) {
+            if (parent.get() instanceof TypeDeclaration<?> typeDeclaration) {
+                return Optional.of(typeDeclaration);
+            }
+            parent = parent.get().getParentNode();
+        }
+        return Optional.empty();
+    }
+
+    private VariableLookup findField(TypeDeclaration<?> typeDeclaration, String name) {
+        for (FieldDeclaration field : typeDeclaration.getFields()) {
+            for (VariableDeclarator variable : field.getVariables()) {
+                if (variable.getNameAsString().equals(name)) {
+                    return new VariableLookup(true, variable.getType());
+                }
+            }
+        }
+
+        // Fields may be inherited from types that are not declared in this file
+        boolean hasSuperTypes = typeDeclaration.isClassOrInterfaceDeclaration()
+                && (!typeDeclaration.asClassOrInterfaceDeclaration().getExtendedTypes().isEmpty()
+                || !typeDeclaration.asClassOrInterfaceDeclaration().getImplementedTypes().isEmpty());
+        boolean hasInterfaces = (typeDeclaration.isEnumDeclaration()
+                && !typeDeclaration.asEnumDeclaration().getImplementedTypes().isEmpty())
+                || (typeDeclaration.isRecordDeclaration()
+                && !typeDeclaration.asRecordDeclaration().getImplementedTypes().isEmpty());
+        return hasSuperTypes || hasInterfaces ? VariableLookup.UNKNOWN : VariableLookup.NOT_DECLARED;
+    }
+
+    /**
+     * Finds a local variable declared in the statements preceding the statement containing the node.
+     */
+    private Type findInStatements(List<Statement> statements, Node child, String name) {
+        for (Statement statement : statements) {
+            if (statement == child) {
+                break;
+            }
+            if (statement instanceof ExpressionStmt expressionStmt
+                    && expressionStmt.getExpression() instanceof VariableDeclarationExpr declaration) {
+                Type type = findInVariableDeclarations(List.of(declaration), name);
+                if (type != null) {
+                    return type;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Type findInVariableDeclarations(List<? extends Expression> expressions, String name) {
+        for (Expression expression : expressions) {
+            if (expression instanceof VariableDeclarationExpr declaration) {
+                for (VariableDeclarator variable : declaration.getVariables()) {
+                    if (variable.getNameAsString().equals(name)) {
+                        return variable.getType();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private Type findInParameters(List<Parameter> parameters, String name) {
+        for (Parameter parameter : parameters) {
+            if (parameter.getNameAsString().equals(name)) {
+                return parameter.getType();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pattern variables, as in {@code o instanceof Foo foo}, are scoped by flow analysis, which is not replicated here.
+     */
+    private boolean hasPatternVariable(Node node, String name) {
+        return !node.findAll(TypePatternExpr.class, pattern -> pattern.getNameAsString().equals(name)).isEmpty();
+    }
+}
@@ -1,5 +1,6 @@
 package com.sdg.ast;
 
+import com.github.javaparser.ast.CompilationUnit;
 import com.sdg.logging.LoggerUtil;
 import io.reactivex.rxjava3.annotations.NonNull;
 
@@ -20,14 +21,26 @@ public class MethodAnalysisHelper {
     private double methodFilterPercentage = 0.5;
     
     /**
-     * Record representing the result using {@link MethodCallAnalyzer#analyze(Path)} 
+     * Record representing the result using {@link MethodCallAnalyzer#analyze(Path)}.
+     * The approximate calls are counted by method name and number of arguments, see
+     * {@link MethodCallAnalyzer#approximateCallKey(String, int)}.
      */
-    public record MethodAnalysisResult(Path file, Map<String, Integer> methodCallsMap) {}
+    public record MethodAnalysisResult(Path file, Map<String, Integer> methodCallsMap,
+                                       Map<String, Integer> approximateCallsMap) {
+        public MethodAnalysisResult(Path file, Map<String, Integer> methodCallsMap) {
+            this(file, methodCallsMap, Map.of());
+        }
+    }
     
     /**
      * Record representing the processed result of a method analysis.
      */
-    public record ProcessedMethodAnalysisResult(List<Path> files, Map<String, Integer> methodCallsMap) {}
+    public record ProcessedMethodAnalysisResult(List<Path> files, Map<String, Integer> methodCallsMap,
+                                                Map<String, Integer> approximateCallsMap) {
+        public ProcessedMethodAnalysisResult(List<Path> files, Map<String, Integer> methodCallsMap) {
+            this(files, methodCallsMap, Map.of());
+        }
+    }
 
     /**
      * Default constructor with default method filter percentage (0.5)
@@ -84,7 +97,13 @@ public class MethodAnalysisHelper {
             methodCallsMap = filterMethodsByCallFrequency(methodCallsMap);
         }
 
-        return new ProcessedMethodAnalysisResult(files, methodCallsMap);
+        // Approximate counts cannot be grouped by class, so they are not filtered
+        Map<String, Integer> approximateCallsMap = new HashMap<>();
+        for (MethodAnalysisResult result : methodAnalysisResults) {
+            result.approximateCallsMap().forEach((key, count) -> approximateCallsMap.merge(key, count, Integer::sum));
+        }
+
+        return new ProcessedMethodAnalysisResult(files, methodCallsMap, approximateCallsMap);
     }
 
     /**
@@ -98,6 +117,20 @@ public class MethodAnalysisHelper {
         return new MethodAnalysisResult(file, analyzer.analyze(file));
     }
 
+    /**
+     * Counts method calls in an already parsed Java source file using the provided {@link MethodCallAnalyzer}.
+     *
+     * @param file The path to the Java source file the AST was parsed from
+     * @param compilationUnit The AST of the file, parsed with {@link MethodCallAnalyzer#parse(Path)}
+     * @param analyzer The MethodCallAnalyzer instance to use for analysis
+     * @return A MethodAnalysisResult containing the file path and a map of method calls with their frequencies
+     */
+    public static MethodAnalysisResult countMethodCalls(Path file, CompilationUnit compilationUnit,
+                                                        MethodCallAnalyzer analyzer) {
+        MethodCallAnalyzer.CallCounts callCounts = analyzer.countCalls(compilationUnit);
+        return new MethodAnalysisResult(file, callCounts.resolvedCalls(), callCounts.approximateCalls());
+    }
+
     /**
      * Merges multiple method call maps into a single map, summing up the call counts.
      * 
@@ -1,202 +1,590 @@
 package com.sdg.ast;
 
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParseResult;
-import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.resolution.TypeSolver;
 import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.types.ResolvedType;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
 import com.sdg.logging.LoggerUtil;
+import com.sdg.model.SourceReader;
+import com.sdg.model.SourceTreeScanner;
 
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Class for performing an initial analysis of Java Abstract Syntax Trees (AST) to count method calls using JavaParser.
  * The method analyze() takes a Java file as input and returns a map of method names and the number of times they are called.
  *
+ * The type and symbol solvers of an instance are not thread-safe. To analyze files in parallel, create one instance
+ * per thread with {@link #newWorkerInstance()}, or use a {@link MethodCallAnalyzerPool}.
+ *
+ * The methods of resolved types are memoized in a {@link ResolutionCache} that is shared by all worker instances,
+ * so a type is only resolved once per run. A call is resolved from the cache when its method name and number of
+ * arguments identify a single method of the receiver type; overloads are still resolved by the symbol solver.
+ * Calls that fail because their scope type cannot be resolved are remembered by scope type and method name,
+ * so that the same failure is not attempted again in other files. Calls on receivers that are lexically known to
+ * have a standard library type are not resolved at all, since standard library calls are not counted.
+ *
+ * Resolution is bounded by a time budget per call and per file, see {@link MethodCallAnalyzerConfig}. A call that
+ * exceeds its budget is counted by method name and number of arguments instead, and when a file exceeds its budget,
+ * all its remaining calls are counted that way.
+ *
  * @author Joakim Colloz
  * @version 1.0
  */
 public class MethodCallAnalyzer {
+    /**
+     * Version of the call counting logic. It is part of the key of persisted results and must be incremented
+     * whenever a change makes the analyzer count calls differently.
+     */
+    public static final int ANALYZER_VERSION = 1;
+
+    /**
+     * Prefix of the dependencies returned by {@link #findDependencies} on the types a package declares, as opposed to
+     * a single type.
+     */
+    public static final String PACKAGE_DEPENDENCY_PREFIX = "package ";
+
+    private static final long UNRESOLVABLE_CALL_CACHE_MAX_BYTES = 4L * 1024 * 1024;
+
     private TypeSolver reflectionTypeSolver = new ReflectionTypeSolver();
     private CombinedTypeSolver combinedTypeSolver = new CombinedTypeSolver();
+    private BudgetedTypeSolver budgetedTypeSolver;
     private JavaSymbolSolver symbolSolver;
+    private JavaFileParser parser;
     private boolean isTest = false; // TODO: temporary workaround to include all directories when testing
+    private TypeIndex typeIndex;
+    private final SourceReader sourceReader;
+    private final MethodCallAnalyzerConfig config;
+    private final ResolutionCache<String, MethodTable> methodTableCache;
+    private final ResolutionCache<String, Long> unresolvableCallCache;
+    private final ResolutionStatistics statistics;
+
+    /**
+     * Record representing the method calls counted in a file.
+     *
+     * @param resolvedCalls the number of calls per qualified method signature
+     * @param approximateCalls the number of calls per method name and number of arguments, for calls that exceeded
+     *                         their resolution budget, keyed by {@link #approximateCallKey(String, int)}
+     * @param degraded true if the file exceeded its resolution budget
+     */
+    public record CallCounts(Map<String, Integer> resolvedCalls, Map<String, Integer> approximateCalls,
+                             boolean degraded) {}
 
     public MethodCallAnalyzer(final String rootDir) {
-        initTypeSolvers(rootDir);
+        this(rootDir, new MethodCallAnalyzerConfig());
     }
 
     public MethodCallAnalyzer(final String rootDir, boolean isTest) {
+        this(rootDir, isTest, new MethodCallAnalyzerConfig());
+    }
+
+    /**
+     * Creates an analyzer with the given configuration.
+     *
+     * @param rootDir the root directory of the analyzed project
+     * @param config the resolution cache and budget configuration
+     */
+    public MethodCallAnalyzer(final String rootDir, final MethodCallAnalyzerConfig config) {
+        this(rootDir, false, config);
+    }
+
+    private MethodCallAnalyzer(final String rootDir, boolean isTest, final MethodCallAnalyzerConfig config) {
         this.isTest = isTest;
+        this.sourceReader = SourceReader.FILE_SYSTEM;
+        this.config = config;
+        this.methodTableCache = createMethodTableCache(config.getResolutionCacheMaxBytes());
+        this.unresolvableCallCache = createUnresolvableCallCache();
+        this.statistics = new ResolutionStatistics();
         initTypeSolvers(rootDir);
     }
 
+    /**
+     * Creates an analyzer for a scanned source tree, indexing all of its Java files. For a Maven or Gradle
+     * project these are the files in the source directories of its modules.
+     *
+     * @param sourceTree the scanned source tree
+     * @param sourceReader the reader of the files' content
+     * @param config the resolution cache and budget configuration
+     */
+    public MethodCallAnalyzer(final SourceTreeScanner.SourceTree sourceTree, final SourceReader sourceReader,
+                              final MethodCallAnalyzerConfig config) {
+        // Excluded directories were already pruned by the scan
+        this(TypeIndex.build(sourceTree.javaFiles(), sourceReader), sourceReader, config);
+
+        LoggerUtil.debug(getClass(), "Created MethodCallAnalyzer with {} files in source roots: {}",
+                sourceTree.files().size(), sourceTree.sourceRoots());
+    }
+
+    /**
+     * Creates an analyzer for the types of an index that was built before, e.g. the index of a watched source tree
+     * updated with the files that changed, without indexing the files again.
+     *
+     * @param typeIndex the index of the project's types
+     * @param sourceReader the reader of the files' content
+     * @param config the resolution cache and budget configuration
+     */
+    public MethodCallAnalyzer(final TypeIndex typeIndex, final SourceReader sourceReader,
+                              final MethodCallAnalyzerConfig config) {
+        this.sourceReader = sourceReader;
+        this.config = config;
+        this.methodTableCache = createMethodTableCache(config.getResolutionCacheMaxBytes());
+        this.unresolvableCallCache = createUnresolvableCallCache();
+        this.statistics = new ResolutionStatistics();
+        this.typeIndex = typeIndex;
+        createSolvers();
+    }
+
+    /**
+     * Creates an analyzer for a project whose files are not necessarily on disk, e.g. blobs of a Git revision.
+     * Files in excluded directories below the root, like build output and test directories, are not indexed.
+     *
+     * @param root the path the project's files are located under
+     * @param javaFiles the Java files of the project
+     * @param sourceReader the reader of the files' content
+     * @param config the resolution cache and budget configuration
+     */
+    public MethodCallAnalyzer(final Path root, final Collection<Path> javaFiles, final SourceReader sourceReader,
+                              final MethodCallAnalyzerConfig config) {
+        this.sourceReader = sourceReader;
+        this.config = config;
+        this.methodTableCache = createMethodTableCache(config.getResolutionCacheMaxBytes());
+        this.unresolvableCallCache = createUnresolvableCallCache();
+        this.statistics = new ResolutionStatistics();
+        this.typeIndex = TypeIndex.build(javaFiles.stream()
+                .filter(file -> !isInExcludedDirectory(root, file))
+                .toList(), sourceReader);
+        createSolvers();
+
+        LoggerUtil.debug(getClass(), "Created MethodCallAnalyzer with {} files under root: {}", javaFiles.size(), root);
+    }
+
+    private MethodCallAnalyzer(final MethodCallAnalyzer prototype) {
+        this.isTest = prototype.isTest;
+        this.sourceReader = prototype.sourceReader;
+        this.config = prototype.config;
+        this.typeIndex = prototype.typeIndex;
+        this.methodTableCache = prototype.methodTableCache;
+        this.unresolvableCallCache = prototype.unresolvableCallCache;
+        this.statistics = prototype.statistics;
+        createSolvers();
+    }
+
+    private static ResolutionCache<String, MethodTable> createMethodTableCache(long maxBytes) {
+        return new ResolutionCache<>(maxBytes, (typeName, methodTable) -> 2L * typeName.length() + methodTable.estimateWeight());
+    }
+
+    private static ResolutionCache<String, Long> createUnresolvableCallCache() {
+        return new ResolutionCache<>(UNRESOLVABLE_CALL_CACHE_MAX_BYTES, (key, nanos) -> 2L * key.length() + 64);
+    }
+
+    /**
+     * Creates a new analyzer sharing the {@link TypeIndex}, resolution caches and statistics of this one, without
+     * scanning the directory tree again.
+     * The new analyzer has its own type and symbol solvers, so it can be used concurrently with this analyzer
+     * as long as each analyzer is confined to one thread.
+     *
+     * @return a new analyzer with its own solver instances
+     */
+    public MethodCallAnalyzer newWorkerInstance() {
+        return new MethodCallAnalyzer(this);
+    }
+
+    /**
+     * Returns the index of the project's types used by the type solvers.
+     *
+     * @return the type index
+     */
+    public TypeIndex getTypeIndex() {
+        return typeIndex;
+    }
+
+    /**
+     * Returns a fingerprint of the type solvers' configuration besides the project's own types, i.e. the Java
+     * version whose standard library is resolved by reflection.
+     *
+     * @return the fingerprint of the type solvers
+     */
+    public String getSolverFingerprint() {
+        return "reflection:" + Runtime.version().feature() + ",project";
+    }
+
+    /**
+     * Returns the names the call counts of a file depend on: the types declaring the called methods and the types
+     * the file refers to by name or import. If none of these names and the file itself change, the file's calls are
+     * counted the same way. The file's own types are not included.
+     *
+     * Names that do not resolve to a project type are included too, since declaring them later can change how the
+     * file's calls resolve: imported names, names written fully qualified, and for every simple type name the type of
+     * the file's package it would refer to, which shadows the types imported on demand. Each package imported on
+     * demand is included as {@link #PACKAGE_DEPENDENCY_PREFIX} followed by the package name, a dependency on the set of
+     * types the package declares.
+     *
+     * @param compilationUnit the AST of the file
+     * @param callCounts the call counts of the file
+     * @return the qualified names of the top-level types, absent types and packages the counts depend on
+     */
+    public Set<String> findDependencies(CompilationUnit compilationUnit, CallCounts callCounts) {
+        Set<String> dependencies = new TreeSet<>();
+        for (String signature : callCounts.resolvedCalls().keySet()) {
+            String method = signature.substring(0, signature.indexOf('('));
+            typeIndex.findTopLevelType(method.substring(0, method.lastIndexOf('.'))).ifPresent(dependencies::add);
+        }
+
+        compilationUnit.getImports().forEach(importDeclaration -> {
+            String name = importDeclaration.getNameAsString();
+            Optional<String> topLevelType = typeIndex.findTopLevelType(name);
+            if (importDeclaration.isAsterisk() && !importDeclaration.isStatic() && topLevelType.isEmpty()) {
+                dependencies.add(PACKAGE_DEPENDENCY_PREFIX + name);
+            } else {
+                dependencies.add(topLevelType.orElse(name));
+            }
+        });
+
+        LexicalTypeResolver lexicalTypeResolver = new LexicalTypeResolver(compilationUnit, typeIndex);
+        compilationUnit.findAll(ClassOrInterfaceType.class).forEach(type ->
+                addReferencedType(type.getNameWithScope(), lexicalTypeResolver, dependencies));
+        compilationUnit.findAll(NameExpr.class, name -> Character.isUpperCase(name.getNameAsString().charAt(0)))
+                .forEach(name -> addReferencedType(name.getNameAsString(), lexicalTypeResolver, dependencies));
+
+        // The file's own types are covered by the file's content
+        compilationUnit.getTypes().forEach(type -> type.getFullyQualifiedName().ifPresent(dependencies::remove));
+        return dependencies;
+    }
+
+    private void addReferencedType(String name, LexicalTypeResolver lexicalTypeResolver, Set<String> dependencies) {
+        lexicalTypeResolver.qualifyType(name)
+                .map(qualifiedName -> typeIndex.findTopLevelType(qualifiedName).orElse(qualifiedName))
+                .ifPresent(dependencies::add);
+        lexicalTypeResolver.samePackageType(name).ifPresent(dependencies::add);
+    }
+
+    /**
+     * Returns the statistics of the resolution cache shared by this analyzer and its worker instances.
+     *
+     * @return the statistics of the resolution cache
+     */
+    public ResolutionCache.Stats getResolutionCacheStats() {
+        return methodTableCache.getStats();
+    }
+
+    /**
+     * Returns the resolution counters shared by this analyzer and its worker instances.
+     *
+     * @return the resolution statistics
+     */
+    public ResolutionStatistics getResolutionStatistics() {
+        return statistics;
+    }
+
     /**
      * Analyze a Java file and return a map of the method signatures and the number of times they are called.
      * @param file the Java file to analyze
      * @return a map of the method signatures and the number of times they are called
      */
     public Map<String, Integer> analyze(final Path file) {
-        LoggerUtil.debug(getClass(), "Starting method call analysis for file {}", file.toString());
+        return analyze(parse(file));
+    }
 
-        Map<String, Integer> methodCallsMap = new HashMap<>();
+    /**
+     * Analyze an already parsed Java file and return a map of the method signatures and the number of times they
+     * are called. The AST must have been parsed with this analyzer's symbol solver attached, see {@link #parse(Path)}.
+     * @param compilationUnit the AST of the Java file to analyze
+     * @return a map of the method signatures and the number of times they are called
+     */
+    public Map<String, Integer> analyze(final CompilationUnit compilationUnit) {
+        return countCalls(compilationUnit).resolvedCalls();
+    }
 
-        JavaParser javaParser = new JavaParser();
-        javaParser.getParserConfiguration()
-                .setSymbolResolver(symbolSolver)
-                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21)
-                // Below configuration is for optimization, though, not sure if it makes a difference
-                .setStoreTokens(false)
-                .setAttributeComments(false)
-                .setIgnoreAnnotationsWhenAttributingComments(true);
+    /**
+     * Counts the method calls of an already parsed Java file, including the calls that could only be counted by
+     * method name and number of arguments because they exceeded their resolution budget.
+     * @param compilationUnit the AST of the Java file to analyze, parsed with {@link #parse(Path)}
+     * @return the method call counts of the file
+     */
+    public CallCounts countCalls(final CompilationUnit compilationUnit) {
+        String fileName = compilationUnit.getStorage().map(storage -> storage.getPath().toString()).orElse("<unknown>");
+        LoggerUtil.debug(getClass(), "Starting method call analysis for file {}", fileName);
 
-        try {
-            ParseResult<CompilationUnit> compilationUnit = javaParser.parse(new File(file.toString()));
-            resolveMethodCalls(compilationUnit.getResult().get(), methodCallsMap);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
-        }
+        CallCounts callCounts = resolveMethodCalls(compilationUnit, fileName);
 
-        LoggerUtil.debug(getClass(), "method call analysis of file {} completed", file.toString());
+        LoggerUtil.debug(getClass(), "method call analysis of file {} completed", fileName);
 
-        return methodCallsMap;
+        return callCounts;
+    }
+
+    /**
+     * Returns the key under which a call is counted when it could not be resolved within its budget.
+     *
+     * @param methodName the name of the called method
+     * @param argumentCount the number of arguments of the call
+     * @return the key of the approximate call count
+     */
+    public static String approximateCallKey(String methodName, int argumentCount) {
+        return methodName + "/" + argumentCount;
+    }
+
+    /**
+     * Parses a Java file with this analyzer's symbol solver attached. The returned AST can be passed to
+     * {@link #analyze(CompilationUnit)} and afterwards be reused by {@link ASTAnalyzer}, so that each file
+     * only needs to be parsed once.
+     * @param file the Java file to parse
+     * @return the AST of the file
+     */
+    public CompilationUnit parse(final Path file) {
+        return parser.parse(file, sourceReader);
     }
 
     private void initTypeSolvers(String rootDir) {
+        // Index the types declared in all Java files in rootDir
+        this.typeIndex = TypeIndex.build(new SourceTreeScanner(!isTest).scan(Path.of(rootDir)).javaFiles());
+        createSolvers();
+
+        LoggerUtil.debug(getClass(), "Created MethodCallAnalyzer with rootDir: {}", rootDir);
+    }
+
+    private void createSolvers() {
         // Create solvers
         reflectionTypeSolver = new ReflectionTypeSolver();
         combinedTypeSolver = new CombinedTypeSolver();
         combinedTypeSolver.add(reflectionTypeSolver);
-
-        // Add all directories in rootDir as source roots
-        List<String> allDirsInRoot = getAllDirectoriesInRoot(rootDir);
-        addDirectoriesToTypeSolvers(allDirsInRoot, combinedTypeSolver);
+        combinedTypeSolver.add(new ProjectTypeSolver(typeIndex, sourceReader));
+        budgetedTypeSolver = new BudgetedTypeSolver(combinedTypeSolver);
 
         // Create and configure the symbol solver
-        this.symbolSolver = new JavaSymbolSolver(combinedTypeSolver);
+        this.symbolSolver = new JavaSymbolSolver(budgetedTypeSolver);
+        this.parser = new JavaFileParser(symbolSolver);
+    }
 
-        LoggerUtil.debug(getClass(), "Created MethodCallAnalyzer with rootDir: {}", rootDir);
+    private boolean isInExcludedDirectory(Path root, Path file) {
+        Path directory = root.relativize(file).getParent();
+        if (directory != null) {
+            for (Path name : directory) {
+                if (isExcludedDirectory(name.toString())) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
-    /**
-     * Returns a list of all directory paths under the given root directory.
-     */
-    private List<String> getAllDirectoriesInRoot(String rootDir) {
-        List<String> dirs = new ArrayList<>();
-        File root = new File(rootDir);
-        if (root.exists() && root.isDirectory()) {
-            collectDirectories(root, dirs);
+    private boolean isExcludedDirectory(String name) {
+        return !isTest && SourceTreeScanner.isExcludedDirectory(name);
+    }
+
+    private CallCounts resolveMethodCalls(CompilationUnit compilationUnit, String fileName) {
+        LexicalTypeResolver lexicalTypeResolver = new LexicalTypeResolver(compilationUnit, typeIndex);
+        Map<String, Integer> methodCallsMap = new HashMap<>();
+        Map<String, Integer> approximateCallsMap = new HashMap<>();
+        int prefilteredCalls = 0;
+        int solverCalls = 0;
+        long fileDeadline = BudgetedTypeSolver.deadlineAfter(System.nanoTime(), config.getFileBudgetMillis());
+        boolean degraded = false;
+
+        for (MethodCallExpr methodCall : compilationUnit.findAll(MethodCallExpr.class)) {
+            // Calls on standard library types are ignored, no need to resolve them
+            if (lexicalTypeResolver.hasJdkScope(methodCall)) {
+                prefilteredCalls++;
+                continue;
+            }
+
+            if (degraded) {
+                approximateCallsMap.merge(approximateCallKey(methodCall), 1, Integer::sum);
+                continue;
+            }
+            solverCalls++;
+
+            // Key of calls that cannot be resolved because their scope type is unknown to the type solvers
+            Optional<String> scopeType = lexicalTypeResolver.resolveScopeType(methodCall);
+            String unresolvableCallKey = scopeType.map(type -> type + "#" + methodCall.getNameAsString())
+                    .orElse(null);
+            if (unresolvableCallKey != null) {
+                Long failedNanos = unresolvableCallCache.get(unresolvableCallKey);
+                if (failedNanos != null) {
+                    statistics.recordNegativeCacheHit(failedNanos);
+                    LoggerUtil.debug(getClass(), "Skipped unresolvable method call: {}", methodCall);
+                    continue;
+                }
+            }
+
+            long start = System.nanoTime();
+            budgetedTypeSolver.setDeadline(BudgetedTypeSolver.earlierDeadline(fileDeadline,
+                    BudgetedTypeSolver.deadlineAfter(start, config.getCallBudgetMillis())));
+
+            try {
+                String resolvedSignature = resolveSignature(methodCall);
+
+                // For now, ignore calls to java.* methods (standard library)
+                if (isStandardLibrarySignature(resolvedSignature)) {
+                    continue;
+                }
+
+                // Increment method call count
+                methodCallsMap.merge(resolvedSignature, 1, Integer::sum);
+                LoggerUtil.debug(getClass(), "Resolved method call: {} in {} ms", methodCall, elapsedMillis(start));
+
+            } catch (Exception e) {
+                long elapsed = System.nanoTime() - start;
+
+                if (BudgetedTypeSolver.isBudgetExceeded(e)) {
+                    // Count the call by name and arity instead
+                    statistics.recordBudgetExceededCall(elapsed);
+                    approximateCallsMap.merge(approximateCallKey(methodCall), 1, Integer::sum);
+                    LoggerUtil.debug(getClass(), "Resolution budget exceeded: {} after {} ms", methodCall,
+                            elapsedMillis(start));
+
+                    if (BudgetedTypeSolver.isPast(fileDeadline)) {
+                        LoggerUtil.warn(getClass(), "Resolution budget of {} ms exceeded for file {}, counting " +
+                                "remaining method calls by name", config.getFileBudgetMillis(), fileName);
+                        degraded = true;
+                    }
+
+                } else if (e instanceof UnsolvedSymbolException unsolvedSymbolException) {
+                    statistics.recordUnresolvedCall(elapsed);
+                    if (unresolvableCallKey != null && namesType(unsolvedSymbolException, scopeType.get())) {
+                        unresolvableCallCache.put(unresolvableCallKey, elapsed);
+                    }
+
+                    String scope = methodCall.getScope().map(Object::toString).orElse("this");
+                    LoggerUtil.debug(getClass(), "Failed to resolve: " + scope + "." +
+                            methodCall.getNameAsString() + "() - " + e.getMessage());
+                    LoggerUtil.debug(getClass(), "Failed to resolve:: {} in {} ms", methodCall, elapsedMillis(start));
+
+                } else {
+                    statistics.recordUnresolvedCall(elapsed);
+                    LoggerUtil.debug(getClass(), "Failed to resolve:: {} in {} ms", methodCall, elapsedMillis(start));
+                }
+            } finally {
+                budgetedTypeSolver.clearDeadline();
+            }
         }
-        return dirs;
+
+        statistics.recordFile(prefilteredCalls, solverCalls);
+        if (degraded) {
+            statistics.recordDegradedFile(fileName);
+        }
+        LoggerUtil.debug(getClass(), "{} method calls skipped as standard library calls, {} passed to the symbol solver",
+                prefilteredCalls, solverCalls);
+
+        return new CallCounts(methodCallsMap, approximateCallsMap, degraded);
+    }
+
+    private static String approximateCallKey(MethodCallExpr methodCall) {
+        return approximateCallKey(methodCall.getNameAsString(), methodCall.getArguments().size());
+    }
+
+    private static boolean isStandardLibrarySignature(String signature) {
+        return signature.startsWith("java");
     }
 
-    private boolean isExcludedDirectory(File dir) {
-        String name = dir.getName();
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
 
-        if (isTest) {
+    /**
+     * Checks if a resolution failed because of the given type, and not e.g. because of an argument type,
+     * in which case other calls of the same method could still succeed.
+     */
+    private static boolean namesType(UnsolvedSymbolException e, String qualifiedTypeName) {
+        String name = e.getName();
+        if (name == null) {
             return false;
-        } else {
-            return name.equals("target") ||
-                    name.equals("build") ||
-                    name.equals("out") ||
-                    name.equals("bin") ||
-                    name.equals("node_modules") ||
-                    name.equals(".idea") ||
-                    name.equals(".vscode") ||
-                    name.equals(".settings") ||
-                    name.equals("dist") ||
-                    name.equals("lib") ||
-                    name.equals("logs") ||
-                    name.equals("tmp") ||
-                    name.equals("test-output") ||
-                    name.equals("test") ||
-                    name.equals("resources") ||
-                    name.equals("scripts") ||
-                    name.equals("scala") ||
-                    name.equals("python") ||
-                    name.equals("javascript") ||
-                    name.equals("rust") ||
-                    name.startsWith("."); // hidden dirs
         }
+        String simpleName = qualifiedTypeName.substring(qualifiedTypeName.lastIndexOf('.') + 1);
+        return name.equals(qualifiedTypeName) || name.equals(simpleName) || name.endsWith("." + simpleName);
     }
 
-    private void collectDirectories(File dir, List<String> dirs) {
-        // Exclude certain directories
-        if (isExcludedDirectory(dir)) {
-            return;
-        }
+    private String resolveSignature(MethodCallExpr methodCall) {
+        return findReceiverType(methodCall)
+                .flatMap(type -> getMethodTable(type)
+                        .findUniqueSignature(methodCall.getNameAsString(), methodCall.getArguments().size()))
+                .orElseGet(() -> {
+                    statistics.recordResolveInvocation();
+                    return methodCall.resolve().getQualifiedSignature();
+                });
+    }
 
-        if (dir.isDirectory()) {
-            dirs.add(dir.getAbsolutePath());
-            File[] children = dir.listFiles(File::isDirectory);
-            if (children != null) {
-                for (File child : children) {
-                    collectDirectories(child, dirs);
-                }
+    /**
+     * Finds the type whose methods an unambiguous call can be looked up in: the type of the scope expression,
+     * or the enclosing type for calls without scope. Returns an empty result if the type cannot be determined
+     * cheaply, in which case the call is resolved by the symbol solver.
+     */
+    private Optional<ResolvedReferenceTypeDeclaration> findReceiverType(MethodCallExpr methodCall) {
+        try {
+            Optional<Expression> scope = methodCall.getScope();
+            if (scope.isPresent()) {
+                ResolvedType scopeType = scope.get().calculateResolvedType();
+                return scopeType.isReferenceType() ? scopeType.asReferenceType().getTypeDeclaration() : Optional.empty();
             }
+            return findEnclosingNamedType(methodCall).map(TypeDeclaration::resolve);
+        } catch (RuntimeException e) {
+            if (BudgetedTypeSolver.isBudgetExceeded(e)) {
+                throw e;
+            }
+            // Also thrown for scopes that are type names, e.g. static calls, which are left to the symbol solver
+            return Optional.empty();
         }
     }
 
-    private void addDirectoriesToTypeSolvers(List<String> files, CombinedTypeSolver combinedTypeSolver) {
-        Set<String> directories = new HashSet<>();
-        for (String filePath : files) {
-            File file = new File(filePath);
-            String directoryPath = file.getParent();
-            if (directoryPath != null && !directories.contains(directoryPath)) {
-                try {
-                    combinedTypeSolver.add(new JavaParserTypeSolver(new File(directoryPath)));
-                    directories.add(directoryPath);
-                    LoggerUtil.debug(getClass(), "Added directory to type solver: " + directoryPath);
-                } catch (Exception e) {
-                    LoggerUtil.error(getClass(), "Could not add directory to type solver: " + directoryPath);
+    /**
+     * Returns the innermost type declaration enclosing a node, unless the node is inside an anonymous class, an enum
+     * constant body or a local class, where methods of outer types are visible as well and resolution is left to
+     * the symbol solver.
+     */
+    private Optional<TypeDeclaration<?>> findEnclosingNamedType(Node node) {
+        Optional<Node> parent = node.getParentNode();
+        while (parent.isPresent()) {
+            Node current = parent.get();
+            if ((current instanceof ObjectCreationExpr creation && creation.getAnonymousClassBody().isPresent())
+                    || current instanceof EnumConstantDeclaration) {
+                return Optional.empty();
+            }
+            if (current instanceof TypeDeclaration<?> typeDeclaration) {
+                if (current instanceof ClassOrInterfaceDeclaration classDecl && classDecl.isLocalClassDeclaration()) {
+                    return Optional.empty();
                 }
+                return Optional.of(typeDeclaration);
             }
+            parent = current.getParentNode();
         }
+        return Optional.empty();
     }
 
-    private void resolveMethodCalls(CompilationUnit compilationUnit, Map<String, Integer> methodCallsMap) {
-        compilationUnit.findAll(MethodCallExpr.class)
-                .forEach(methodCall -> {
-                    long start = System.currentTimeMillis(); // TODO for debugging
-
-                    try {
-                        String resolvedSignature = methodCall.resolve().getQualifiedSignature();
-
-                        // For now, ignore calls to java.* methods (standard library)
-                        if (resolvedSignature.startsWith("java")) {
-                            return;
-                        }
-
-                        // Increment method call count
-                        methodCallsMap.merge(resolvedSignature, 1, Integer::sum);
-                        LoggerUtil.debug(getClass(), "Resolved method call: {} in {} ms", methodCall,
-                                System.currentTimeMillis() - start);
-                        
-                    } catch (UnsolvedSymbolException e) {
-                        String scope = methodCall.getScope().map(Object::toString).orElse("this");
-                        LoggerUtil.debug(getClass(), "Failed to resolve: " + scope + "." +
-                                methodCall.getNameAsString() + "() - " + e.getMessage());
-                        LoggerUtil.debug(getClass(), "Failed to resolve:: {} in {} ms", methodCall,
-                                System.currentTimeMillis() - start);
-
-                    } catch (Exception e) {
-                        LoggerUtil.debug(getClass(), "Failed to resolve:: {} in {} ms", methodCall,
-                                System.currentTimeMillis() - start);
-                    }
-                });
+    private MethodTable getMethodTable(ResolvedReferenceTypeDeclaration type) {
+        String typeName = type.getQualifiedName();
+        MethodTable methodTable = methodTableCache.get(typeName);
+        if (methodTable == null) {
+            // Concurrent workers may build the same table, the result is identical
+            try {
+                methodTable = MethodTable.of(type);
+            } catch (RuntimeException e) {
+                if (BudgetedTypeSolver.isBudgetExceeded(e)) {
+                    // Not a property of the type, the table is built again by the next call
+                    throw e;
+                }
+                LoggerUtil.debug(getClass(), "Could not resolve ancestors of {}: {}", typeName, e.getMessage());
+                methodTable = MethodTable.empty();
+            }
+            methodTableCache.put(typeName, methodTable);
+        }
+        return methodTable;
     }
 }
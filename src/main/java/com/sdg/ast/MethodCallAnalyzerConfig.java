@@ -0,0 +1,95 @@
+package com.sdg.ast;
+
+/**
+ * Configuration class for the {@link MethodCallAnalyzer}.
+ *
+ * Decides how much memory and time symbol resolution may use. Resolution of a call that exceeds its time budget
+ * is abandoned and the call is counted by method name and number of arguments only.
+ *
+ * @author Joakim Colloz
+ */
+public class MethodCallAnalyzerConfig {
+    private long resolutionCacheMaxBytes = 64L * 1024 * 1024;
+    private long callBudgetMillis = 2_000;
+    private long fileBudgetMillis = 30_000;
+
+    public MethodCallAnalyzerConfig resolutionCacheMaxBytes(long resolutionCacheMaxBytes) {
+        setResolutionCacheMaxBytes(resolutionCacheMaxBytes);
+        return this;
+    }
+
+    public MethodCallAnalyzerConfig callBudgetMillis(long callBudgetMillis) {
+        setCallBudgetMillis(callBudgetMillis);
+        return this;
+    }
+
+    public MethodCallAnalyzerConfig fileBudgetMillis(long fileBudgetMillis) {
+        setFileBudgetMillis(fileBudgetMillis);
+        return this;
+    }
+
+    // Setters
+
+    /**
+     * Sets the memory ceiling of the symbol resolution cache shared by all analysis workers.
+     *
+     * @param resolutionCacheMaxBytes the memory ceiling in bytes, 0 disables the cache
+     * @throws IllegalArgumentException if resolutionCacheMaxBytes is negative
+     */
+    public void setResolutionCacheMaxBytes(long resolutionCacheMaxBytes) {
+        if (resolutionCacheMaxBytes < 0) {
+            throw new IllegalArgumentException("Resolution cache size must not be negative");
+        }
+        this.resolutionCacheMaxBytes = resolutionCacheMaxBytes;
+    }
+
+    /**
+     * Sets the time budget for resolving a single method call.
+     *
+     * @param callBudgetMillis the budget in milliseconds, 0 for no limit
+     * @throws IllegalArgumentException if callBudgetMillis is negative
+     */
+    public void setCallBudgetMillis(long callBudgetMillis) {
+        if (callBudgetMillis < 0) {
+            throw new IllegalArgumentException("Call budget must not be negative");
+        }
+        this.callBudgetMillis = callBudgetMillis;
+    }
+
+    /**
+     * Sets the time budget for resolving all method calls of a file. When it is used up, the remaining calls of
+     * the file are counted by method name and number of arguments.
+     *
+     * @param fileBudgetMillis the budget in milliseconds, 0 for no limit
+     * @throws IllegalArgumentException if fileBudgetMillis is negative
+     */
+    public void setFileBudgetMillis(long fileBudgetMillis) {
+        if (fileBudgetMillis < 0) {
+            throw new IllegalArgumentException("File budget must not be negative");
+        }
+        this.fileBudgetMillis = fileBudgetMillis;
+    }
+
+    // Getters
+
+    public long getResolutionCacheMaxBytes() {
+        return resolutionCacheMaxBytes;
+    }
+
+    public long getCallBudgetMillis() {
+        return callBudgetMillis;
+    }
+
+    public long getFileBudgetMillis() {
+        return fileBudgetMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodCallAnalyzerConfig{" +
+                "resolutionCacheMaxBytes=" + resolutionCacheMaxBytes +
+                ", callBudgetMillis=" + callBudgetMillis +
+                ", fileBudgetMillis=" + fileBudgetMillis +
+                '}';
+    }
+}
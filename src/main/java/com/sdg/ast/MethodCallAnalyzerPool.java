@@ -0,0 +1,107 @@
+package com.sdg.ast;
+
+import com.sdg.logging.LoggerUtil;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed pool of worker threads for running {@link MethodCallAnalyzer} in parallel.
+ *
+ * The symbol solvers used by {@link MethodCallAnalyzer} are not thread-safe, therefore every worker thread
+ * gets its own analyzer, created lazily from a prototype with {@link MethodCallAnalyzer#newWorkerInstance()}.
+ * Work is submitted through {@link #getScheduler()} and the analyzer of the current worker is retrieved with
+ * {@link #getAnalyzer()}.
+ *
+ * Example usage:
+ * ```java
+ * try (MethodCallAnalyzerPool pool = new MethodCallAnalyzerPool(new MethodCallAnalyzer(rootDir), 8)) {
+ *     files.flatMap(file -> Observable.fromCallable(() -> pool.getAnalyzer().analyze(file))
+ *             .subscribeOn(pool.getScheduler()), pool.getParallelism());
+ * }
+ * ```
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class MethodCallAnalyzerPool implements AutoCloseable {
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final Scheduler scheduler;
+    private final ThreadLocal<MethodCallAnalyzer> workerAnalyzers;
+
+    /**
+     * Creates a pool of worker threads.
+     *
+     * @param prototype the analyzer the worker analyzers are created from
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public MethodCallAnalyzerPool(MethodCallAnalyzer prototype, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+
+        this.parallelism = parallelism;
+        this.executor = Executors.newFixedThreadPool(parallelism, new WorkerThreadFactory());
+        this.scheduler = Schedulers.from(executor);
+        this.workerAnalyzers = ThreadLocal.withInitial(() -> {
+            LoggerUtil.debug(getClass(), "Creating method call analyzer for worker {}", Thread.currentThread().getName());
+            return prototype.newWorkerInstance();
+        });
+
+        LoggerUtil.info(getClass(), "Created method call analyzer pool with {} workers", parallelism);
+    }
+
+    /**
+     * Returns the scheduler that runs work on the pool's worker threads.
+     *
+     * @return the scheduler of the pool
+     */
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Returns the analyzer owned by the current worker thread.
+     * Must only be called from a thread of this pool.
+     *
+     * @return the analyzer of the current worker
+     */
+    public MethodCallAnalyzer getAnalyzer() {
+        return workerAnalyzers.get();
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return the number of worker threads
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Shuts down the worker threads. Work already submitted is completed.
+     */
+    @Override
+    public void close() {
+        LoggerUtil.debug(getClass(), "Shutting down method call analyzer pool");
+        executor.shutdown();
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "sdg-analysis-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
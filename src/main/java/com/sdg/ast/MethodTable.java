@@ -0,0 +1,146 @@
+package com.sdg.ast;
+
+import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.types.ResolvedReferenceType;
+import com.sdg.logging.LoggerUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The resolved methods of a type, including inherited ones, grouped by method name.
+ *
+ * A method table is built once per type and cached in a {@link ResolutionCache} shared by all files of an analysis
+ * run. It only holds strings, so it can be shared between threads and does not keep any AST or solver alive.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+final class MethodTable {
+    private static final long BASE_WEIGHT = 64;
+    private static final long CANDIDATE_WEIGHT = 48;
+
+    private final Map<String, List<Candidate>> methodsByName;
+    private final Set<String> incompleteNames;
+
+    /**
+     * A method a call can resolve to.
+     *
+     * @param parameterCount the number of declared parameters
+     * @param variadic true if the last parameter is a varargs parameter
+     * @param qualifiedSignature the qualified signature of the method
+     */
+    record Candidate(int parameterCount, boolean variadic, String qualifiedSignature) {
+        boolean accepts(int argumentCount) {
+            return variadic ? argumentCount >= parameterCount - 1 : argumentCount == parameterCount;
+        }
+    }
+
+    private MethodTable(Map<String, List<Candidate>> methodsByName, Set<String> incompleteNames) {
+        this.methodsByName = methodsByName;
+        this.incompleteNames = incompleteNames;
+    }
+
+    /**
+     * Builds the method table of a type from its declared and inherited methods. Methods overridden in a subtype
+     * are only included once, with the signature of the most specific declaration. Methods whose signature cannot
+     * be resolved, e.g. because a parameter type is not on the type solver's path, mark their name as incomplete.
+     *
+     * @param type the resolved type declaration
+     * @return the method table of the type
+     * @throws RuntimeException if the ancestors of the type cannot be resolved or the resolution budget is exceeded
+     */
+    static MethodTable of(ResolvedReferenceTypeDeclaration type) {
+        List<ResolvedReferenceTypeDeclaration> types = new ArrayList<>();
+        types.add(type);
+        for (ResolvedReferenceType ancestor : type.getAllAncestors()) {
+            ancestor.getTypeDeclaration().ifPresent(types::add);
+        }
+
+        Map<String, List<Candidate>> methodsByName = new HashMap<>();
+        Set<String> incompleteNames = new HashSet<>();
+        Set<String> seenSignatures = new HashSet<>();
+
+        for (ResolvedReferenceTypeDeclaration declaringType : types) {
+            for (ResolvedMethodDeclaration method : declaringType.getDeclaredMethods()) {
+                String name = method.getName();
+                try {
+                    if (seenSignatures.add(method.getSignature())) {
+                        methodsByName.computeIfAbsent(name, key -> new ArrayList<>(1))
+                                .add(new Candidate(method.getNumberOfParams(), method.hasVariadicParameter(),
+                                        method.getQualifiedSignature()));
+                    }
+                } catch (RuntimeException e) {
+                    if (BudgetedTypeSolver.isBudgetExceeded(e)) {
+                        throw e;
+                    }
+                    LoggerUtil.debug(MethodTable.class, "Could not resolve method {} of {}: {}", name,
+                            declaringType.getQualifiedName(), e.getMessage());
+                    incompleteNames.add(name);
+                }
+            }
+        }
+
+        methodsByName.replaceAll((name, candidates) -> List.copyOf(candidates));
+        return new MethodTable(Map.copyOf(methodsByName), Set.copyOf(incompleteNames));
+    }
+
+    /**
+     * Returns an empty method table, for types whose methods cannot be determined. All lookups are left to
+     * the symbol solver.
+     *
+     * @return an empty method table
+     */
+    static MethodTable empty() {
+        return new MethodTable(Map.of(), Set.of());
+    }
+
+    /**
+     * Returns the signature of the method a call resolves to, if it can be decided from the method name and the
+     * number of arguments alone, i.e. if exactly one method of the given name accepts that many arguments.
+     * Overloads with the same arity need argument types to be told apart and are left to the symbol solver.
+     *
+     * @param name the name of the called method
+     * @param argumentCount the number of arguments of the call
+     * @return the qualified signature of the called method, or an empty result if it is ambiguous or unknown
+     */
+    Optional<String> findUniqueSignature(String name, int argumentCount) {
+        List<Candidate> candidates = methodsByName.get(name);
+        if (candidates == null || incompleteNames.contains(name)) {
+            return Optional.empty();
+        }
+
+        String match = null;
+        for (Candidate candidate : candidates) {
+            if (candidate.accepts(argumentCount)) {
+                if (match != null && !match.equals(candidate.qualifiedSignature())) {
+                    return Optional.empty();
+                }
+                match = candidate.qualifiedSignature();
+            }
+        }
+        return Optional.ofNullable(match);
+    }
+
+    /**
+     * Returns an estimate of the memory used by this table in bytes.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimateWeight() {
+        long weight = BASE_WEIGHT;
+        for (Map.Entry<String, List<Candidate>> entry : methodsByName.entrySet()) {
+            weight += BASE_WEIGHT + 2L * entry.getKey().length();
+            for (Candidate candidate : entry.getValue()) {
+                weight += CANDIDATE_WEIGHT + 2L * candidate.qualifiedSignature().length();
+            }
+        }
+        return weight;
+    }
+}
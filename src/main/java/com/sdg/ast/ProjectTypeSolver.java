@@ -0,0 +1,160 @@
+package com.sdg.ast;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.resolution.Navigator;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.sdg.logging.LoggerUtil;
+import com.sdg.model.SourceReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Type solver for the source files of the analyzed project, backed by a {@link TypeIndex}.
+ *
+ * A lookup is a single hash probe in the index followed by parsing the declaring file, instead of probing one
+ * {@link com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver} per source directory.
+ * Nested types are found by looking up the longest prefix of the name that is a top-level type in the index.
+ *
+ * Parsed files and solved types are cached per instance. Like the JavaParser type solvers, an instance is not
+ * thread-safe; the index itself can be shared between instances on different threads.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class ProjectTypeSolver implements TypeSolver {
+    private static final int MAX_CACHED_COMPILATION_UNITS = 1000;
+    private static final int MAX_CACHED_TYPES = 10000;
+
+    private final TypeIndex typeIndex;
+    private final SourceReader sourceReader;
+    private final JavaParser javaParser;
+    private final Map<Path, Optional<CompilationUnit>> parsedFiles;
+    private final Map<String, SymbolReference<ResolvedReferenceTypeDeclaration>> solvedTypes;
+    private TypeSolver parent;
+
+    /**
+     * Creates a type solver for the types in the given index.
+     *
+     * @param typeIndex the index of the project's types
+     */
+    public ProjectTypeSolver(TypeIndex typeIndex) {
+        this(typeIndex, SourceReader.FILE_SYSTEM);
+    }
+
+    /**
+     * Creates a type solver for the types in the given index, reading the declaring files with the given reader.
+     *
+     * @param typeIndex the index of the project's types
+     * @param sourceReader the reader of the files' content
+     */
+    public ProjectTypeSolver(TypeIndex typeIndex, SourceReader sourceReader) {
+        this.typeIndex = typeIndex;
+        this.sourceReader = sourceReader;
+        this.javaParser = new JavaParser(new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21)
+                .setStoreTokens(false)
+                .setAttributeComments(false));
+        // Least recently used entries are dropped to bound memory, they are solved again when needed
+        this.parsedFiles = createLruMap(MAX_CACHED_COMPILATION_UNITS);
+        this.solvedTypes = createLruMap(MAX_CACHED_TYPES);
+    }
+
+    private static <K, V> Map<K, V> createLruMap(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        Objects.requireNonNull(parent);
+        if (this.parent != null) {
+            throw new IllegalStateException("This TypeSolver already has a parent.");
+        }
+        if (parent == this) {
+            throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+        }
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        SymbolReference<ResolvedReferenceTypeDeclaration> solved = solvedTypes.get(name);
+        if (solved == null) {
+            solved = tryToSolveTypeUncached(name);
+            solvedTypes.put(name, solved);
+        }
+        return solved;
+    }
+
+    private SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveTypeUncached(String name) {
+        // Find the longest prefix of the name that is a top-level type, the rest of the name denotes nested types
+        String topLevelName = name;
+        while (true) {
+            Optional<Path> file = typeIndex.findFile(topLevelName);
+            if (file.isPresent()) {
+                String simpleName = topLevelName.substring(topLevelName.lastIndexOf('.') + 1);
+                String relativeName = simpleName + name.substring(topLevelName.length());
+                Optional<TypeDeclaration<?>> typeDeclaration = parse(file.get())
+                        .flatMap(cu -> Navigator.findType(cu, relativeName));
+                if (typeDeclaration.isPresent()) {
+                    return SymbolReference.solved(JavaParserFacade.get(this).getTypeDeclaration(typeDeclaration.get()));
+                }
+            }
+
+            int lastDot = topLevelName.lastIndexOf('.');
+            if (lastDot < 0) {
+                return SymbolReference.unsolved();
+            }
+            topLevelName = topLevelName.substring(0, lastDot);
+        }
+    }
+
+    private Optional<CompilationUnit> parse(Path file) {
+        Optional<CompilationUnit> compilationUnit = parsedFiles.get(file);
+        if (compilationUnit == null) {
+            compilationUnit = parseUncached(file);
+            parsedFiles.put(file, compilationUnit);
+        }
+        return compilationUnit;
+    }
+
+    private Optional<CompilationUnit> parseUncached(Path file) {
+        try {
+            ParseResult<CompilationUnit> result = javaParser.parse(sourceReader.read(file));
+            result.getResult().ifPresent(cu -> cu.setStorage(file));
+            return result.getResult();
+        } catch (IOException e) {
+            LoggerUtil.warn(getClass(), "Could not parse file for type solving: {}", file);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectTypeSolver{" +
+                "types=" + typeIndex.size() +
+                ", parent=" + parent +
+                '}';
+    }
+}
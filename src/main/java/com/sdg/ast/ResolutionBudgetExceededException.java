@@ -0,0 +1,18 @@
+package com.sdg.ast;
+
+/**
+ * Thrown by a {@link BudgetedTypeSolver} when symbol resolution runs past its deadline.
+ *
+ * Unlike {@link com.github.javaparser.resolution.UnsolvedSymbolException}, this exception does not tell anything
+ * about the symbol being resolved, so results must not be cached when it is thrown.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+class ResolutionBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    ResolutionBudgetExceededException(String name) {
+        super("Resolution budget exceeded while solving type " + name);
+    }
+}
@@ -0,0 +1,166 @@
+package com.sdg.ast;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A concurrent, size-bounded memo cache for symbol resolution results that are shared between all files
+ * and worker threads of an analysis run.
+ *
+ * The size of the cache is bounded by an estimated memory ceiling: each entry is weighed with a weigher function
+ * and least recently used entries are evicted when the ceiling is exceeded. To keep contention low, the cache is
+ * split into segments that are locked independently, each with an equal share of the ceiling.
+ *
+ * Values must be immutable and must not reference JavaParser AST nodes or solver instances, since these are
+ * confined to the worker thread that created them.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class ResolutionCache<K, V> {
+    private static final int SEGMENT_COUNT = 16;
+
+    private final List<Segment> segments = new ArrayList<>(SEGMENT_COUNT);
+    private final ToLongBiFunction<K, V> weigher;
+    private final long maxWeight;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Statistics of a cache.
+     *
+     * @param hitCount the number of lookups that found a value
+     * @param missCount the number of lookups that did not find a value
+     * @param evictionCount the number of entries evicted to stay below the memory ceiling
+     * @param entryCount the number of entries currently cached
+     * @param weight the estimated size in bytes of the cached entries
+     * @param maxWeight the memory ceiling in bytes
+     */
+    public record Stats(long hitCount, long missCount, long evictionCount, long entryCount, long weight, long maxWeight) {
+        /**
+         * Returns the ratio of lookups that found a value, or 0 if there were no lookups.
+         *
+         * @return the hit rate between 0.0 and 1.0
+         */
+        public double hitRate() {
+            long lookups = hitCount + missCount;
+            return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d (hit rate %.1f%%), evictions=%d, entries=%d, size=%d/%d KB",
+                    hitCount, missCount, hitRate() * 100, evictionCount, entryCount, weight / 1024, maxWeight / 1024);
+        }
+    }
+
+    /**
+     * Creates a cache with the given memory ceiling.
+     *
+     * @param maxWeight the memory ceiling in bytes, 0 disables caching
+     * @param weigher estimates the size in bytes of an entry
+     * @throws IllegalArgumentException if maxWeight is negative
+     */
+    public ResolutionCache(long maxWeight, ToLongBiFunction<K, V> weigher) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Maximum cache weight must not be negative");
+        }
+
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments.add(new Segment(maxWeight / SEGMENT_COUNT));
+        }
+    }
+
+    /**
+     * Returns the value cached for a key.
+     *
+     * @param key the key to look up
+     * @return the cached value, or null if there is none
+     */
+    public V get(K key) {
+        V value = segmentFor(key).get(key);
+        if (value == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Caches a value for a key, evicting least recently used entries if the memory ceiling is exceeded.
+     * Entries that alone exceed the ceiling of a segment are not cached.
+     *
+     * @param key the key
+     * @param value the value, must not be null
+     */
+    public void put(K key, V value) {
+        segmentFor(key).put(key, value, weigher.applyAsLong(key, value));
+    }
+
+    /**
+     * Returns the current statistics of the cache.
+     *
+     * @return the statistics
+     */
+    public Stats getStats() {
+        long entries = 0;
+        long weight = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                entries += segment.entries.size();
+                weight += segment.weight;
+            }
+        }
+        return new Stats(hitCount.sum(), missCount.sum(), evictionCount.sum(), entries, weight, maxWeight);
+    }
+
+    private Segment segmentFor(K key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments.get(Math.floorMod(hash, SEGMENT_COUNT));
+    }
+
+    private final class Segment {
+        private final LinkedHashMap<K, WeightedValue<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxWeight;
+        private long weight;
+
+        private Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        private synchronized V get(K key) {
+            WeightedValue<V> entry = entries.get(key);
+            return entry == null ? null : entry.value();
+        }
+
+        private synchronized void put(K key, V value, long entryWeight) {
+            if (entryWeight > maxWeight) {
+                return;
+            }
+
+            WeightedValue<V> previous = entries.put(key, new WeightedValue<>(value, entryWeight));
+            weight += entryWeight - (previous == null ? 0 : previous.weight());
+
+            Iterator<Map.Entry<K, WeightedValue<V>>> leastRecentlyUsed = entries.entrySet().iterator();
+            while (weight > maxWeight && leastRecentlyUsed.hasNext()) {
+                weight -= leastRecentlyUsed.next().getValue().weight();
+                leastRecentlyUsed.remove();
+                evictionCount.increment();
+            }
+        }
+    }
+
+    private record WeightedValue<V>(V value, long weight) {}
+}
@@ -0,0 +1,170 @@
+package com.sdg.ast;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the symbol resolution work done by a {@link MethodCallAnalyzer} and its worker instances.
+ *
+ * The counters are shared by all worker threads of an analysis run and can be updated concurrently.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public final class ResolutionStatistics {
+    private final LongAdder analyzedFiles = new LongAdder();
+    private final LongAdder prefilteredCalls = new LongAdder();
+    private final LongAdder solverCalls = new LongAdder();
+    private final LongAdder resolveInvocations = new LongAdder();
+    private final LongAdder unresolvedCalls = new LongAdder();
+    private final LongAdder unresolvedNanos = new LongAdder();
+    private final LongAdder negativeCacheHits = new LongAdder();
+    private final LongAdder negativeCacheSavedNanos = new LongAdder();
+    private final LongAdder budgetExceededCalls = new LongAdder();
+    private final LongAdder budgetExceededNanos = new LongAdder();
+    private final Queue<String> degradedFiles = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Records the method calls of an analyzed file.
+     *
+     * @param prefiltered the number of calls skipped as standard library calls without resolving them
+     * @param passedToSolver the number of calls passed on to resolution
+     */
+    void recordFile(int prefiltered, int passedToSolver) {
+        analyzedFiles.increment();
+        prefilteredCalls.add(prefiltered);
+        solverCalls.add(passedToSolver);
+    }
+
+    /**
+     * Records a call of {@link com.github.javaparser.ast.expr.MethodCallExpr#resolve()}, i.e. a call that could
+     * not be resolved from the method table cache.
+     */
+    void recordResolveInvocation() {
+        resolveInvocations.increment();
+    }
+
+    /**
+     * Records a call that could not be resolved by the symbol solver.
+     *
+     * @param nanos the time spent on the failed resolution
+     */
+    void recordUnresolvedCall(long nanos) {
+        unresolvedCalls.increment();
+        unresolvedNanos.add(nanos);
+    }
+
+    /**
+     * Records a call that was skipped because an earlier call with the same scope type and method name failed.
+     *
+     * @param savedNanos the time the earlier failed resolution took, as an estimate of the time saved
+     */
+    void recordNegativeCacheHit(long savedNanos) {
+        negativeCacheHits.increment();
+        negativeCacheSavedNanos.add(savedNanos);
+    }
+
+    /**
+     * Records a call whose resolution was aborted because it exceeded its time budget.
+     *
+     * @param nanos the time spent on the call until it was aborted
+     */
+    void recordBudgetExceededCall(long nanos) {
+        budgetExceededCalls.increment();
+        budgetExceededNanos.add(nanos);
+    }
+
+    /**
+     * Records a file that exceeded its resolution budget, so that its remaining calls were counted by name.
+     *
+     * @param file the path of the file
+     */
+    void recordDegradedFile(String file) {
+        degradedFiles.add(file);
+    }
+
+    public long getAnalyzedFiles() {
+        return analyzedFiles.sum();
+    }
+
+    public long getPrefilteredCalls() {
+        return prefilteredCalls.sum();
+    }
+
+    public long getSolverCalls() {
+        return solverCalls.sum();
+    }
+
+    public long getResolveInvocations() {
+        return resolveInvocations.sum();
+    }
+
+    /**
+     * Returns the average number of {@link com.github.javaparser.ast.expr.MethodCallExpr#resolve()} calls per file.
+     *
+     * @return the average number of resolve() calls per analyzed file, or 0 if no file was analyzed
+     */
+    public double getResolveInvocationsPerFile() {
+        long files = getAnalyzedFiles();
+        return files == 0 ? 0.0 : (double) getResolveInvocations() / files;
+    }
+
+    public long getUnresolvedCalls() {
+        return unresolvedCalls.sum();
+    }
+
+    public long getUnresolvedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(unresolvedNanos.sum());
+    }
+
+    public long getNegativeCacheHits() {
+        return negativeCacheHits.sum();
+    }
+
+    /**
+     * Returns the estimated time saved by skipping calls known to be unresolvable.
+     *
+     * @return the estimated time saved in milliseconds
+     */
+    public long getNegativeCacheSavedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(negativeCacheSavedNanos.sum());
+    }
+
+    public long getBudgetExceededCalls() {
+        return budgetExceededCalls.sum();
+    }
+
+    public long getBudgetExceededMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(budgetExceededNanos.sum());
+    }
+
+    /**
+     * Returns the files that exceeded their resolution budget.
+     *
+     * @return the paths of the degraded files
+     */
+    public List<String> getDegradedFiles() {
+        return List.copyOf(degradedFiles);
+    }
+
+    @Override
+    public String toString() {
+        return "ResolutionStatistics{" +
+                "analyzedFiles=" + getAnalyzedFiles() +
+                ", prefilteredCalls=" + getPrefilteredCalls() +
+                ", solverCalls=" + getSolverCalls() +
+                ", resolveInvocations=" + getResolveInvocations() +
+                String.format(" (%.1f per file)", getResolveInvocationsPerFile()) +
+                ", unresolvedCalls=" + getUnresolvedCalls() +
+                ", unresolvedMillis=" + getUnresolvedMillis() +
+                ", negativeCacheHits=" + getNegativeCacheHits() +
+                ", negativeCacheSavedMillis=" + getNegativeCacheSavedMillis() +
+                ", budgetExceededCalls=" + getBudgetExceededCalls() +
+                ", budgetExceededMillis=" + getBudgetExceededMillis() +
+                ", degradedFiles=" + degradedFiles.size() +
+                '}';
+    }
+}
@@ -0,0 +1,312 @@
+package com.sdg.ast;
+
+import com.sdg.logging.LoggerUtil;
+import com.sdg.model.SourceReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Index from the fully qualified name of every top-level type in a project to the source file declaring it.
+ *
+ * The index is built upfront, in parallel, by a lexical scan of each file for its package declaration and
+ * top-level type declarations, without parsing the files. Because types are looked up by their declared package
+ * and not by their location on disk, the index works for any number of source roots, e.g. in multi-module projects.
+ *
+ * The index is immutable once built and can be shared between threads. When files change, an updated index is
+ * derived from it with {@link #update}, which only scans the changed files again.
+ *
+ * @see ProjectTypeSolver
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public final class TypeIndex {
+    private static final Pattern PACKAGE_PATTERN = Pattern.compile("\\bpackage\\s+([\\w.\\s]+?)\\s*;");
+    private static final Set<String> TYPE_KEYWORDS = Set.of("class", "interface", "enum", "record");
+
+    private final Map<Path, List<String>> fileToTypes;
+    private final Map<String, Path> typeToFile;
+    private final Map<String, List<String>> packageToTypes;
+    private final int duplicateDeclarations;
+
+    private TypeIndex(Map<Path, List<String>> fileToTypes) {
+        this.fileToTypes = Map.copyOf(fileToTypes);
+
+        Map<String, Path> typeToFile = new HashMap<>();
+        List<Path> files = new ArrayList<>(this.fileToTypes.keySet());
+        files.sort(Comparator.comparing(Path::toString));
+        int duplicates = 0;
+        for (Path file : files) {
+            for (String type : this.fileToTypes.get(file)) {
+                if (typeToFile.putIfAbsent(type, file) != null) {
+                    LoggerUtil.debug(TypeIndex.class, "Type {} is declared in several files, using {}", type,
+                            typeToFile.get(type));
+                    duplicates++;
+                }
+            }
+        }
+        this.typeToFile = Map.copyOf(typeToFile);
+        this.duplicateDeclarations = duplicates;
+
+        Map<String, List<String>> packageToTypes = new HashMap<>();
+        for (String type : this.typeToFile.keySet()) {
+            String packageName = type.substring(0, Math.max(type.lastIndexOf('.'), 0));
+            packageToTypes.computeIfAbsent(packageName, name -> new ArrayList<>()).add(type);
+        }
+        packageToTypes.values().forEach(types -> types.sort(Comparator.naturalOrder()));
+        this.packageToTypes = Map.copyOf(packageToTypes);
+    }
+
+    /**
+     * Builds an index of the top-level types declared in the given files.
+     * If several files declare the same type, the file with the lexicographically smallest path is used.
+     *
+     * @param javaFiles the Java source files to index
+     * @return the index
+     */
+    public static TypeIndex build(Collection<Path> javaFiles) {
+        return build(javaFiles, SourceReader.FILE_SYSTEM);
+    }
+
+    /**
+     * Builds an index of the top-level types declared in the given files, reading them with the given reader.
+     * If several files declare the same type, the file with the lexicographically smallest path is used.
+     *
+     * @param javaFiles the Java source files to index
+     * @param sourceReader the reader of the files' content
+     * @return the index
+     */
+    public static TypeIndex build(Collection<Path> javaFiles, SourceReader sourceReader) {
+        long start = System.currentTimeMillis();
+
+        TypeIndex typeIndex = new TypeIndex(scanFiles(javaFiles, sourceReader));
+
+        LoggerUtil.info(TypeIndex.class, "Indexed {} types from {} files in {} ms ({} duplicate declarations)",
+                typeIndex.size(), javaFiles.size(), System.currentTimeMillis() - start,
+                typeIndex.duplicateDeclarations);
+        return typeIndex;
+    }
+
+    /**
+     * Derives the index of a project whose files changed from the index built before the changes. Only the changed
+     * files are scanned, the types of the other files are taken from this index.
+     *
+     * @param deletedFiles the indexed files that were deleted
+     * @param updatedFiles the files that were added or modified
+     * @param sourceReader the reader of the files' content
+     * @return the updated index
+     */
+    public TypeIndex update(Collection<Path> deletedFiles, Collection<Path> updatedFiles, SourceReader sourceReader) {
+        long start = System.currentTimeMillis();
+
+        Map<Path, List<String>> updatedFileToTypes = new HashMap<>(fileToTypes);
+        deletedFiles.forEach(updatedFileToTypes::remove);
+        updatedFileToTypes.putAll(scanFiles(updatedFiles, sourceReader));
+        TypeIndex typeIndex = new TypeIndex(updatedFileToTypes);
+
+        LoggerUtil.info(TypeIndex.class, "Updated index of {} types with {} deleted and {} updated files in {} ms",
+                typeIndex.size(), deletedFiles.size(), updatedFiles.size(), System.currentTimeMillis() - start);
+        return typeIndex;
+    }
+
+    private static Map<Path, List<String>> scanFiles(Collection<Path> javaFiles, SourceReader sourceReader) {
+        return javaFiles.parallelStream().distinct().collect(Collectors.toConcurrentMap(file -> file,
+                file -> scanDeclaredTypes(file, sourceReader)));
+    }
+
+    /**
+     * Returns the source file declaring the given top-level type.
+     *
+     * @param qualifiedName the fully qualified name of a top-level type
+     * @return the file declaring the type, or an empty result if the type is not part of the project
+     */
+    public Optional<Path> findFile(String qualifiedName) {
+        return Optional.ofNullable(typeToFile.get(qualifiedName));
+    }
+
+    /**
+     * Returns the top-level type of the project that declares the given type or member, i.e. the longest prefix of
+     * the qualified name that is an indexed top-level type.
+     *
+     * @param qualifiedName the qualified name of a type, a nested type or a member
+     * @return the qualified name of the top-level type, or an empty result if the name is not part of the project
+     */
+    public Optional<String> findTopLevelType(String qualifiedName) {
+        String name = qualifiedName;
+        while (!typeToFile.containsKey(name)) {
+            int lastDot = name.lastIndexOf('.');
+            if (lastDot < 0) {
+                return Optional.empty();
+            }
+            name = name.substring(0, lastDot);
+        }
+        return Optional.of(name);
+    }
+
+    /**
+     * Returns the top-level types of the project declared in a package.
+     *
+     * @param packageName the name of the package, or an empty string for the unnamed package
+     * @return the sorted qualified names of the types, empty if the package declares no types of the project
+     */
+    public List<String> findTypesInPackage(String packageName) {
+        return List.copyOf(packageToTypes.getOrDefault(packageName, List.of()));
+    }
+
+    /**
+     * Checks if the given top-level type is declared in the project.
+     *
+     * @param qualifiedName the fully qualified name of a top-level type
+     * @return true if the type is declared in the project
+     */
+    public boolean contains(String qualifiedName) {
+        return typeToFile.containsKey(qualifiedName);
+    }
+
+    /**
+     * Returns the number of indexed types.
+     *
+     * @return the number of indexed types
+     */
+    public int size() {
+        return typeToFile.size();
+    }
+
+    /**
+     * Returns the fully qualified names of the top-level types declared in a file.
+     * If the file cannot be read, an empty list is returned.
+     */
+    static List<String> scanDeclaredTypes(Path file) {
+        return scanDeclaredTypes(file, SourceReader.FILE_SYSTEM);
+    }
+
+    /**
+     * Returns the fully qualified names of the top-level types declared in a file read with the given reader.
+     * If the file cannot be read, an empty list is returned.
+     */
+    static List<String> scanDeclaredTypes(Path file, SourceReader sourceReader) {
+        String source;
+        try {
+            source = sourceReader.read(file);
+        } catch (IOException e) {
+            LoggerUtil.warn(TypeIndex.class, "Could not read file for type index: {}", file);
+            return List.of();
+        }
+
+        String code = stripCommentsAndLiterals(source);
+        String packagePrefix = "";
+        Matcher packageMatcher = PACKAGE_PATTERN.matcher(code);
+        if (packageMatcher.find()) {
+            packagePrefix = packageMatcher.group(1).replaceAll("\\s+", "") + ".";
+        }
+
+        List<String> types = new ArrayList<>();
+        for (String typeName : findTopLevelTypeNames(code)) {
+            types.add(packagePrefix + typeName);
+        }
+
+        if (types.isEmpty()) {
+            // Fall back to the file name, which matches the public top-level type by convention
+            String fileName = file.getFileName().toString();
+            types.add(packagePrefix + fileName.substring(0, fileName.length() - ".java".length()));
+        }
+        return types;
+    }
+
+    /**
+     * Finds the names of type declarations at brace depth zero.
+     */
+    private static List<String> findTopLevelTypeNames(String code) {
+        List<String> names = new ArrayList<>();
+        int depth = 0;
+        String lastWord = null; // null if the last token was a symbol
+        char symbolBeforeLastWord = ' ';
+        char lastSymbol = ' ';
+        int i = 0;
+
+        while (i < code.length()) {
+            char c = code.charAt(i);
+            if (Character.isJavaIdentifierStart(c)) {
+                int end = i + 1;
+                while (end < code.length() && Character.isJavaIdentifierPart(code.charAt(end))) {
+                    end++;
+                }
+                String word = code.substring(i, end);
+                // A keyword preceded by a dot is a member access such as Foo.class
+                if (depth == 0 && lastWord != null && TYPE_KEYWORDS.contains(lastWord) && symbolBeforeLastWord != '.') {
+                    names.add(word);
+                }
+                symbolBeforeLastWord = lastWord == null ? lastSymbol : ' ';
+                lastWord = word;
+                i = end;
+                continue;
+            }
+
+            if (!Character.isWhitespace(c)) {
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}') {
+                    depth--;
+                }
+                lastWord = null;
+                lastSymbol = c;
+            }
+            i++;
+        }
+        return names;
+    }
+
+    /**
+     * Replaces comments, string literals, text blocks and character literals with spaces,
+     * so that braces and keywords inside them are not mistaken for code.
+     */
+    static String stripCommentsAndLiterals(String source) {
+        StringBuilder code = new StringBuilder(source.length());
+        int i = 0;
+        int length = source.length();
+
+        while (i < length) {
+            char c = source.charAt(i);
+            char next = i + 1 < length ? source.charAt(i + 1) : '\0';
+
+            if (c == '/' && next == '/') {
+                while (i < length && source.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && next == '*') {
+                int end = source.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                code.append(' ');
+            } else if (c == '"' && source.startsWith("\"\"\"", i)) {
+                int end = source.indexOf("\"\"\"", i + 3);
+                while (end > 0 && source.charAt(end - 1) == '\\') {
+                    end = source.indexOf("\"\"\"", end + 1);
+                }
+                i = end < 0 ? length : end + 3;
+                code.append(' ');
+            } else if (c == '"' || c == '\'') {
+                i++;
+                while (i < length && source.charAt(i) != c && source.charAt(i) != '\n') {
+                    i += source.charAt(i) == '\\' ? 2 : 1;
+                }
+                i++;
+                code.append(' ');
+            } else {
+                code.append(c);
+                i++;
+            }
+        }
+        return code.toString();
+    }
+}
@@ -0,0 +1,459 @@
+package com.sdg.graph;
+
+import com.sdg.logging.LoggerUtil;
+import com.sdg.model.FileHashes;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the graph contents of analyzed files as CSV files for {@code neo4j-admin database import}, so that the
+ * graph of a large source tree can be built offline instead of through the database driver.
+ *
+ * Each kind of node and relationship is written to a header file and a data file, appended to delta by delta. The
+ * options naming the files are written to {@value #ARGUMENTS_FILE} when the exporter is closed; import them into an
+ * empty database with:
+ * <pre>
+ * neo4j-admin database import full @&lt;directory&gt;/import.args &lt;database&gt;
+ * </pre>
+ *
+ * Nodes shared by several files, e.g. imports and method calls, are written once per file and deduplicated by the
+ * import, which keeps the first node of each id. Classes declared in the files are written before the placeholder
+ * classes of parents declared elsewhere, so a declared class keeps its package and source file.
+ *
+ * The import does not deduplicate relationships, so each relationship is written once for the whole export, as
+ * merging it into the database would. Relationships to nodes matched by name, e.g. of a method call to the methods of
+ * that name, are connected to the nodes of that name in the delta they were extracted from and every delta written
+ * before, as the database queries connect them when the deltas are written in the same order. Since those nodes are
+ * only known once every delta has been written, the relationships and the nodes matched by name are spilled to files
+ * and sorted by name when the exporter is closed, connected by merging the sorted files, and sorted again to drop
+ * duplicates before they are written, see {@link SpilledRows}. Memory use therefore does not grow with the size of
+ * the graph: at most {@value #DEFAULT_ROWS_PER_RUN} rows of each spilled file are sorted in memory, besides one row
+ * per sorted run and the nodes of the one name being connected.
+ *
+ * Replaced and deleted files are ignored, since the import creates a new database.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class CsvGraphExporter implements AutoCloseable {
+    private static final String ARGUMENTS_FILE = "import.args";
+    private static final String PLACEHOLDER_CLASSES = "Class-placeholders";
+    static final int DEFAULT_ROWS_PER_RUN = 100_000;
+    // The kind of a spilled value that is the id of a node instead of a name to match nodes by
+    private static final String NODE_ID = "";
+
+    private final Path directory;
+    private final Map<String, BufferedWriter> writers = new LinkedHashMap<>();
+    private final Map<String, List<String>> nodeFiles = new LinkedHashMap<>();
+    private final Map<String, List<String>> relationshipFiles = new LinkedHashMap<>();
+    private final int rowsPerRun;
+    private Path spillDirectory;
+    // Rows of label, name, node id and delta index
+    private SpilledRows namedNodes;
+    // Rows of end kind, end, type, start kind, start and delta index
+    private SpilledRows relationships;
+    private int deltaCount;
+    private long nodeCount;
+    private long relationshipCount;
+
+    /**
+     * Creates the header files and empty data files in a directory.
+     *
+     * @param directory the directory to write the files to, created if it does not exist
+     * @throws UncheckedIOException if the files cannot be created
+     */
+    public CsvGraphExporter(Path directory) {
+        this(directory, DEFAULT_ROWS_PER_RUN);
+    }
+
+    /**
+     * Creates the header files and empty data files in a directory, sorting the given number of spilled rows at a
+     * time.
+     */
+    CsvGraphExporter(Path directory, int rowsPerRun) {
+        this.directory = directory;
+        this.rowsPerRun = rowsPerRun;
+        try {
+            Files.createDirectories(directory);
+            addNodeFile(CypherConstants.LABEL_CLASS, CypherConstants.LABEL_CLASS,
+                    CypherConstants.PROP_CLASS_NAME + ":ID(Class)", CypherConstants.PROP_PACKAGE_NAME,
+                    CypherConstants.PROP_SOURCE_FILE);
+            nodeFiles.get(CypherConstants.LABEL_CLASS).add(createDataFile(PLACEHOLDER_CLASSES));
+            addNodeFile(CypherConstants.LABEL_METHOD, CypherConstants.LABEL_METHOD, ":ID(Method)",
+                    CypherConstants.PROP_METHOD_NAME, CypherConstants.PROP_METHOD_VISIBILITY,
+                    CypherConstants.PROP_METHOD_RETURN_TYPE, CypherConstants.PROP_METHOD_PARAMETERS);
+            addNodeFile(CypherConstants.LABEL_METHOD_CALL, CypherConstants.LABEL_METHOD_CALL,
+                    CypherConstants.PROP_CALLED_METHOD + ":ID(MethodCall)");
+            addNodeFile(CypherConstants.LABEL_INTERFACE, CypherConstants.LABEL_INTERFACE,
+                    CypherConstants.PROP_INTERFACE_NAME + ":ID(Interface)");
+            addNodeFile(CypherConstants.LABEL_IMPORT, CypherConstants.LABEL_IMPORT,
+                    CypherConstants.PROP_IMPORT_NAME + ":ID(Import)");
+            addNodeFile(CypherConstants.LABEL_CLASS_FIELD, CypherConstants.LABEL_CLASS_FIELD, ":ID(ClassField)",
+                    CypherConstants.PROP_FIELD_NAME, CypherConstants.PROP_FIELD_TYPE, CypherConstants.PROP_VISIBILITY);
+            addNodeFile(CypherConstants.LABEL_CONTROL_FLOW, CypherConstants.LABEL_CONTROL_FLOW, ":ID(ControlFlow)",
+                    CypherConstants.PROP_TYPE, CypherConstants.PROP_CONDITION);
+            addNodeFile(CypherConstants.LABEL_SOURCE_FILE, CypherConstants.LABEL_SOURCE_FILE,
+                    CypherConstants.PROP_PATH + ":ID(SourceFile)", CypherConstants.PROP_CONTENT_HASH,
+                    CypherConstants.PROP_SELECTION_DIGEST);
+
+            addRelationshipFile(CypherConstants.REL_HAS_METHOD, "Class", "Method");
+            addRelationshipFile(CypherConstants.REL_CALLS, "Method", "MethodCall");
+            addRelationshipFile(CypherConstants.REL_EXTENDS, "Class", "Class");
+            addRelationshipFile(CypherConstants.REL_IMPLEMENTS, "Class", "Interface");
+            addRelationshipFile(CypherConstants.REL_IMPORTS, "Class", "Import");
+            addRelationshipFile(CypherConstants.REL_HAS_FIELD, "Class", "ClassField");
+            addRelationshipFile(CypherConstants.REL_CONTAINS, "Method", "ControlFlow");
+            spillDirectory = Files.createTempDirectory(directory, "spill");
+            namedNodes = new SpilledRows(spillDirectory, "nodes", rowsPerRun);
+            relationships = new SpilledRows(spillDirectory, "relationships", rowsPerRun);
+        } catch (IOException e) {
+            closeWriters();
+            deleteSpillDirectory();
+            throw new UncheckedIOException("Could not create import files in " + directory, e);
+        }
+        LoggerUtil.info(getClass(), "Exporting graph for neo4j-admin import to {}", directory);
+    }
+
+    /**
+     * Appends the nodes and relationships of a delta to the data files.
+     *
+     * @param delta the graph contents to export
+     * @throws UncheckedIOException if the files cannot be written
+     */
+    public void write(GraphDelta delta) {
+        try {
+            writeNodes(delta);
+            writeRelationships(delta);
+            deltaCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write import files in " + directory, e);
+        }
+    }
+
+    private void writeNodes(GraphDelta delta) throws IOException {
+        for (Map.Entry<String, Map<String, Object>> entry : delta.getClassProperties().entrySet()) {
+            Map<String, Object> properties = entry.getValue();
+            writeNode(properties.isEmpty() ? PLACEHOLDER_CLASSES : CypherConstants.LABEL_CLASS, entry.getKey(),
+                    properties.get(CypherConstants.PROP_PACKAGE_NAME), properties.get(CypherConstants.PROP_SOURCE_FILE));
+        }
+        for (Map<String, Object> row : delta.getMethodRows()) {
+            writeNode(CypherConstants.LABEL_METHOD, methodId(row), row.get(CypherConstants.PROP_METHOD_NAME),
+                    row.get(CypherConstants.PROP_METHOD_VISIBILITY), row.get(CypherConstants.PROP_METHOD_RETURN_TYPE),
+                    row.get(CypherConstants.PROP_METHOD_PARAMETERS));
+        }
+        for (Map<String, Object> row : delta.getMethodCallRows()) {
+            writeNode(CypherConstants.LABEL_METHOD_CALL, row.get(CypherConstants.PROP_CALLED_METHOD));
+        }
+        for (Map<String, Object> row : delta.getInterfaceImplementationRows()) {
+            writeNode(CypherConstants.LABEL_INTERFACE, row.get(CypherConstants.PROP_INTERFACE_NAME));
+        }
+        for (Map<String, Object> row : delta.getImportRows()) {
+            writeNode(CypherConstants.LABEL_IMPORT, row.get(CypherConstants.PROP_IMPORT_NAME));
+        }
+        for (Map<String, Object> row : delta.getClassFieldRows()) {
+            writeNode(CypherConstants.LABEL_CLASS_FIELD, classFieldId(row), row.get(CypherConstants.PROP_FIELD_NAME),
+                    row.get(CypherConstants.PROP_FIELD_TYPE), row.get(CypherConstants.PROP_VISIBILITY));
+        }
+        for (Map<String, Object> row : delta.getControlFlowRows()) {
+            writeNode(CypherConstants.LABEL_CONTROL_FLOW, controlFlowId(row), row.get(CypherConstants.PROP_TYPE),
+                    row.get(CypherConstants.PROP_CONDITION));
+        }
+        for (Map.Entry<String, SourceFileManifest.Entry> entry : delta.getRecordedSourceFiles().entrySet()) {
+            writeNode(CypherConstants.LABEL_SOURCE_FILE, entry.getKey(), entry.getValue().contentHash(),
+                    entry.getValue().selectionDigest());
+        }
+    }
+
+    private void writeRelationships(GraphDelta delta) throws IOException {
+        String deltaIndex = Integer.toString(deltaCount);
+        for (Map<String, Object> row : delta.getMethodRows()) {
+            namedNodes.add(CypherConstants.LABEL_METHOD, row.get(CypherConstants.PROP_METHOD_NAME).toString(),
+                    methodId(row), deltaIndex);
+        }
+        for (Map<String, Object> row : delta.getClassFieldRows()) {
+            namedNodes.add(CypherConstants.LABEL_CLASS_FIELD, row.get(CypherConstants.PROP_FIELD_NAME).toString(),
+                    classFieldId(row), deltaIndex);
+        }
+        for (Map<String, Object> row : delta.getControlFlowRows()) {
+            namedNodes.add(CypherConstants.LABEL_CONTROL_FLOW, row.get(CypherConstants.PROP_CONDITION).toString(),
+                    controlFlowId(row), deltaIndex);
+        }
+
+        for (Map<String, Object> row : delta.getMethodRows()) {
+            spillRelationship(CypherConstants.REL_HAS_METHOD, NODE_ID, row.get(CypherConstants.PROP_CLASS_NAME),
+                    CypherConstants.LABEL_METHOD, row.get(CypherConstants.PROP_METHOD_NAME), deltaIndex);
+        }
+        for (Map<String, Object> row : delta.getMethodCallRows()) {
+            spillRelationship(CypherConstants.REL_CALLS, CypherConstants.LABEL_METHOD,
+                    row.get(CypherConstants.PROP_METHOD_NAME), NODE_ID, row.get(CypherConstants.PROP_CALLED_METHOD),
+                    deltaIndex);
+        }
+        for (Map<String, Object> row : delta.getInheritanceRows()) {
+            spillRelationship(CypherConstants.REL_EXTENDS, NODE_ID, row.get(CypherConstants.PROP_CLASS_NAME),
+                    NODE_ID, row.get(CypherConstants.PROP_PARENT_NAME), deltaIndex);
+        }
+        for (Map<String, Object> row : delta.getInterfaceImplementationRows()) {
+            spillRelationship(CypherConstants.REL_IMPLEMENTS, NODE_ID, row.get(CypherConstants.PROP_CLASS_NAME),
+                    NODE_ID, row.get(CypherConstants.PROP_INTERFACE_NAME), deltaIndex);
+        }
+        for (Map<String, Object> row : delta.getImportRows()) {
+            spillRelationship(CypherConstants.REL_IMPORTS, NODE_ID, row.get(CypherConstants.PROP_CLASS_NAME),
+                    NODE_ID, row.get(CypherConstants.PROP_IMPORT_NAME), deltaIndex);
+        }
+        for (Map<String, Object> row : delta.getClassFieldRows()) {
+            spillRelationship(CypherConstants.REL_HAS_FIELD, NODE_ID, row.get(CypherConstants.PROP_CLASS_NAME),
+                    CypherConstants.LABEL_CLASS_FIELD, row.get(CypherConstants.PROP_FIELD_NAME), deltaIndex);
+        }
+        for (Map<String, Object> row : delta.getControlFlowRows()) {
+            spillRelationship(CypherConstants.REL_CONTAINS, CypherConstants.LABEL_METHOD,
+                    row.get(CypherConstants.PROP_METHOD_NAME), CypherConstants.LABEL_CONTROL_FLOW,
+                    row.get(CypherConstants.PROP_CONDITION), deltaIndex);
+        }
+    }
+
+    /**
+     * Spills a relationship between nodes given by their id, or by the label and name to match them by.
+     */
+    private void spillRelationship(String type, String startKind, Object start, String endKind, Object end,
+                                   String deltaIndex) throws IOException {
+        relationships.add(endKind, end.toString(), type, startKind, start.toString(), deltaIndex);
+    }
+
+    /**
+     * Connects the spilled relationships to the nodes matched by name, first by their end and then by their start
+     * nodes, and writes each relationship once.
+     */
+    private void writeSpilledRelationships() throws IOException {
+        try (SpilledRows endsConnected = new SpilledRows(spillDirectory, "ends", rowsPerRun);
+             SpilledRows connected = new SpilledRows(spillDirectory, "connected", rowsPerRun)) {
+            try (SpilledRows.RowReader rows = relationships.sorted();
+                 NamedNodes ends = new NamedNodes(namedNodes.sorted())) {
+                for (String[] row = rows.next(); row != null; row = rows.next()) {
+                    for (String endId : ends.idsOf(row[0], row[1], Integer.parseInt(row[5]))) {
+                        endsConnected.add(row[3], row[4], row[2], endId, row[5]);
+                    }
+                }
+            }
+            relationships.close();
+
+            try (SpilledRows.RowReader rows = endsConnected.sorted();
+                 NamedNodes starts = new NamedNodes(namedNodes.sorted())) {
+                for (String[] row = rows.next(); row != null; row = rows.next()) {
+                    for (String startId : starts.idsOf(row[0], row[1], Integer.parseInt(row[4]))) {
+                        connected.add(row[2], startId, row[3]);
+                    }
+                }
+            }
+            namedNodes.close();
+
+            // Duplicates are next to each other once sorted
+            try (SpilledRows.RowReader rows = connected.sorted()) {
+                String[] previous = null;
+                for (String[] row = rows.next(); row != null; row = rows.next()) {
+                    if (!Arrays.equals(row, previous)) {
+                        writeRow(writers.get(row[0]), row[1], row[2]);
+                        relationshipCount++;
+                    }
+                    previous = row;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the options of {@code neo4j-admin database import} for the exported files and closes them.
+     *
+     * @throws UncheckedIOException if the files cannot be written
+     */
+    @Override
+    public void close() {
+        try {
+            writeSpilledRelationships();
+            for (BufferedWriter writer : writers.values()) {
+                writer.close();
+            }
+
+            List<String> arguments = new ArrayList<>();
+            nodeFiles.forEach((label, files) -> arguments.add("--nodes=" + label + "=" + String.join(",", files)));
+            relationshipFiles.forEach((type, files) ->
+                    arguments.add("--relationships=" + type + "=" + String.join(",", files)));
+            // Nodes shared by several files are written once per file, and conditions can span lines
+            arguments.add("--skip-duplicate-nodes=true");
+            arguments.add("--multiline-fields=true");
+            Files.write(directory.resolve(ARGUMENTS_FILE), arguments);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write import files in " + directory, e);
+        } finally {
+            closeWriters();
+            deleteSpillDirectory();
+        }
+        LoggerUtil.info(getClass(), "Exported {} nodes and {} relationships to {}", nodeCount, relationshipCount,
+                directory);
+    }
+
+    private void addNodeFile(String label, String name, String... header) throws IOException {
+        List<String> files = new ArrayList<>();
+        files.add(createHeaderFile(name, header));
+        files.add(createDataFile(name));
+        nodeFiles.put(label, files);
+    }
+
+    private void addRelationshipFile(String type, String startIdSpace, String endIdSpace) throws IOException {
+        List<String> files = new ArrayList<>();
+        files.add(createHeaderFile(type, ":START_ID(" + startIdSpace + ")", ":END_ID(" + endIdSpace + ")"));
+        files.add(createDataFile(type));
+        relationshipFiles.put(type, files);
+    }
+
+    private String createHeaderFile(String name, String... header) throws IOException {
+        Path file = directory.resolve(name + "-header.csv");
+        Files.writeString(file, String.join(",", header) + "\n");
+        return file.toAbsolutePath().toString();
+    }
+
+    private String createDataFile(String name) throws IOException {
+        Path file = directory.resolve(name + ".csv");
+        writers.put(name, Files.newBufferedWriter(file));
+        return file.toAbsolutePath().toString();
+    }
+
+    private void writeNode(String name, Object... values) throws IOException {
+        writeRow(writers.get(name), values);
+        nodeCount++;
+    }
+
+    /**
+     * Writes a row of quoted values. Missing values are written as empty unquoted fields, which sets no property.
+     */
+    private static void writeRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write('"');
+                writer.write(values[i].toString().replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+        writer.write('\n');
+    }
+
+    private void closeWriters() {
+        for (BufferedWriter writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LoggerUtil.debug(getClass(), "Could not close import file: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void deleteSpillDirectory() {
+        if (namedNodes != null) {
+            namedNodes.close();
+        }
+        if (relationships != null) {
+            relationships.close();
+        }
+        if (spillDirectory != null) {
+            try {
+                Files.deleteIfExists(spillDirectory);
+            } catch (IOException e) {
+                LoggerUtil.debug(getClass(), "Could not delete {}: {}", spillDirectory, e.getMessage());
+            }
+        }
+    }
+
+    // Nodes merged on several properties are identified by a hash of them
+
+    private static String methodId(Map<String, Object> row) {
+        return idOf(row, CypherConstants.PROP_METHOD_NAME, CypherConstants.PROP_METHOD_VISIBILITY,
+                CypherConstants.PROP_METHOD_RETURN_TYPE, CypherConstants.PROP_METHOD_PARAMETERS);
+    }
+
+    private static String classFieldId(Map<String, Object> row) {
+        return idOf(row, CypherConstants.PROP_FIELD_NAME, CypherConstants.PROP_FIELD_TYPE,
+                CypherConstants.PROP_VISIBILITY);
+    }
+
+    private static String controlFlowId(Map<String, Object> row) {
+        return idOf(row, CypherConstants.PROP_TYPE, CypherConstants.PROP_CONDITION);
+    }
+
+    private static String idOf(Map<String, Object> row, String... keyProperties) {
+        StringBuilder key = new StringBuilder();
+        for (String keyProperty : keyProperties) {
+            key.append(row.get(keyProperty)).append('\0');
+        }
+        return FileHashes.sha256(key.toString());
+    }
+
+    /**
+     * Looks up the ids of the nodes matched by name in the sorted spilled nodes, for names looked up in sorted order,
+     * holding only the nodes of the last name in memory.
+     */
+    private static class NamedNodes implements AutoCloseable {
+        private final SpilledRows.RowReader nodes;
+        private final Map<String, Integer> firstDeltas = new LinkedHashMap<>();
+        private String[] next;
+        private String label;
+        private String name;
+
+        NamedNodes(SpilledRows.RowReader nodes) throws IOException {
+            this.nodes = nodes;
+            this.next = nodes.next();
+        }
+
+        /**
+         * Returns the ids of the nodes of a label and name written in the given delta or before, or the given name if
+         * it is the id of a node.
+         */
+        List<String> idsOf(String label, String name, int delta) throws IOException {
+            if (label.equals(NODE_ID)) {
+                return List.of(name);
+            }
+
+            if (!label.equals(this.label) || !name.equals(this.name)) {
+                this.label = label;
+                this.name = name;
+                firstDeltas.clear();
+                while (next != null && compare(next, label, name) < 0) {
+                    next = nodes.next();
+                }
+                while (next != null && compare(next, label, name) == 0) {
+                    firstDeltas.merge(next[2], Integer.parseInt(next[3]), Math::min);
+                    next = nodes.next();
+                }
+            }
+
+            List<String> ids = new ArrayList<>();
+            firstDeltas.forEach((id, firstDelta) -> {
+                if (firstDelta <= delta) {
+                    ids.add(id);
+                }
+            });
+            return ids;
+        }
+
+        private static int compare(String[] node, String label, String name) {
+            int order = node[0].compareTo(label);
+            return order != 0 ? order : node[1].compareTo(name);
+        }
+
+        @Override
+        public void close() throws IOException {
+            nodes.close();
+        }
+    }
+}
@@ -27,6 +27,33 @@ public final class CypherConstants {
     public static final String PROP_METHOD_VISIBILITY = "methodVisibility";
     public static final String PROP_METHOD_RETURN_TYPE = "returnType";
     public static final String PROP_METHOD_PARAMETERS = "parameters";
+    public static final String PROP_SOURCE_FILE = "sourceFile";
+    public static final String PROP_PATH = "path";
+    public static final String PROP_CONTENT_HASH = "contentHash";
+    public static final String PROP_SELECTION_DIGEST = "selectionDigest";
+    public static final String PROP_ROWS = "rows";
+    public static final String PROP_PROPERTIES = "properties";
+    public static final String PROP_ID = "id";
+    public static final String PROP_ROW_INDEX = "rowIndex";
+    public static final String PROP_FROM = "from";
+    public static final String PROP_TO = "to";
+
+    // Node labels and relationship types
+    public static final String LABEL_CLASS = "Class";
+    public static final String LABEL_METHOD = "Method";
+    public static final String LABEL_METHOD_CALL = "MethodCall";
+    public static final String LABEL_INTERFACE = "Interface";
+    public static final String LABEL_IMPORT = "Import";
+    public static final String LABEL_CLASS_FIELD = "ClassField";
+    public static final String LABEL_CONTROL_FLOW = "ControlFlow";
+    public static final String LABEL_SOURCE_FILE = "SourceFile";
+    public static final String REL_HAS_METHOD = "HAS_METHOD";
+    public static final String REL_CALLS = "CALLS";
+    public static final String REL_EXTENDS = "EXTENDS";
+    public static final String REL_IMPLEMENTS = "IMPLEMENTS";
+    public static final String REL_IMPORTS = "IMPORTS";
+    public static final String REL_HAS_FIELD = "HAS_FIELD";
+    public static final String REL_CONTAINS = "CONTAINS";
 
     /** Query to create a new Class node. Parameters: name */
     public static final String CREATE_CLASS = 
@@ -37,6 +64,12 @@ public final class CypherConstants {
         "MERGE (c:Class {className: $className}) " +
         "SET c.packageName = $packageName";
 
+    /** Query to create a new Class node with package information and the file it was declared in.
+     * Parameters: className, packageName, sourceFile */
+    public static final String CREATE_CLASS_WITH_SOURCE =
+        "MERGE (c:Class {className: $className}) " +
+        "SET c.packageName = $packageName, c.sourceFile = $sourceFile";
+
     /** Query to create a new Method node. Parameters: methodName, methodVisibility */
     public static final String CREATE_METHOD =
         "MERGE (m:Method {methodName: $methodName, methodVisibility: $methodVisibility, " +
@@ -77,6 +110,48 @@ public final class CypherConstants {
     public static final String DELETE_ALL = 
         "MATCH (n) DETACH DELETE n";
 
+    /**
+     * Query to delete the relationships of the classes declared in a file, together with the methods, fields,
+     * imports and interfaces no other class refers to any more and the method calls and control flow only those
+     * methods referred to. Parameters: sourceFile
+     */
+    public static final String DELETE_FILE_MEMBERS =
+        "MATCH (c:Class {sourceFile: $sourceFile})-[r:HAS_METHOD|HAS_FIELD|IMPORTS|EXTENDS|IMPLEMENTS]->(n) " +
+        "DELETE r " +
+        "WITH DISTINCT n " +
+        "WHERE (n:Method OR n:ClassField OR n:Import OR n:Interface) AND NOT EXISTS { ()-->(n) } " +
+        "OPTIONAL MATCH (n)-[:CALLS|CONTAINS]->(x) " +
+        "WITH collect(DISTINCT n) AS orphans, collect(DISTINCT x) AS targets " +
+        "FOREACH (orphan IN orphans | DETACH DELETE orphan) " +
+        "WITH targets " +
+        "UNWIND targets AS target " +
+        "WITH target WHERE NOT EXISTS { ()-->(target) } " +
+        "DELETE target";
+
+    /**
+     * Query to detach the classes declared in a file from it. Classes other classes still extend are kept as
+     * placeholders, like the ones created for parent classes outside the project. Parameters: sourceFile
+     */
+    public static final String DELETE_FILE_CLASSES =
+        "MATCH (c:Class {sourceFile: $sourceFile}) " +
+        "REMOVE c.sourceFile " +
+        "WITH c WHERE NOT EXISTS { ()-->(c) } " +
+        "DELETE c";
+
+    /** Query to create or update the manifest entry of a stored file. Parameters: path, contentHash, selectionDigest */
+    public static final String MERGE_SOURCE_FILE =
+        "MERGE (s:SourceFile {path: $path}) " +
+        "SET s.contentHash = $contentHash, s.selectionDigest = $selectionDigest";
+
+    /** Query to delete the manifest entry of a file. Parameters: path */
+    public static final String DELETE_SOURCE_FILE =
+        "MATCH (s:SourceFile {path: $path}) DELETE s";
+
+    /** Query to get the manifest of the stored files in a directory, or of a single file. Parameters: path */
+    public static final String GET_SOURCE_FILES =
+        "MATCH (s:SourceFile) WHERE s.path = $path OR s.path STARTS WITH $path + '/' " +
+        "RETURN s.path as path, s.contentHash as contentHash, s.selectionDigest as selectionDigest";
+
     /** Query to connect Class to its parent class. Parameters: className, parentName */
     public static final String CONNECT_CLASS_INHERITANCE = 
         "MATCH (c:Class {className: $className}), (p:Class {className: $parentName}) " +
@@ -163,11 +238,167 @@ public final class CypherConstants {
         "MATCH (c:Class {className: $className})-[:IMPORTS]->(i:Import) " +
         "RETURN i.importName as importName";
 
+    /*
+     * Queries writing a GraphDelta. Each takes a list of rows with the parameters of the corresponding query above,
+     * so that a batch of files is written with one statement per kind of node and relationship.
+     */
+
+    /** Query to detach the classes of files from them and delete their members, see DELETE_FILE_MEMBERS.
+     * Parameters: rows of sourceFile */
+    public static final String UNWIND_DELETE_FILE_MEMBERS =
+        "UNWIND $rows AS row " +
+        "MATCH (c:Class {sourceFile: row.sourceFile})-[r:HAS_METHOD|HAS_FIELD|IMPORTS|EXTENDS|IMPLEMENTS]->(n) " +
+        "DELETE r " +
+        "WITH DISTINCT n " +
+        "WHERE (n:Method OR n:ClassField OR n:Import OR n:Interface) AND NOT EXISTS { ()-->(n) } " +
+        "OPTIONAL MATCH (n)-[:CALLS|CONTAINS]->(x) " +
+        "WITH collect(DISTINCT n) AS orphans, collect(DISTINCT x) AS targets " +
+        "FOREACH (orphan IN orphans | DETACH DELETE orphan) " +
+        "WITH targets " +
+        "UNWIND targets AS target " +
+        "WITH target WHERE NOT EXISTS { ()-->(target) } " +
+        "DELETE target";
+
+    /** Query to detach the classes of files from them, see DELETE_FILE_CLASSES. Parameters: rows of sourceFile */
+    public static final String UNWIND_DELETE_FILE_CLASSES =
+        "UNWIND $rows AS row " +
+        "MATCH (c:Class {sourceFile: row.sourceFile}) " +
+        "REMOVE c.sourceFile " +
+        "WITH c WHERE NOT EXISTS { ()-->(c) } " +
+        "DELETE c";
+
+    /** Query to create Class nodes and set the given properties, e.g. packageName and sourceFile.
+     * Parameters: rows of className, properties */
+    public static final String UNWIND_CREATE_CLASSES =
+        "UNWIND $rows AS row " +
+        "MERGE (c:Class {className: row.className}) " +
+        "SET c += row.properties";
+
+    /** Query to create Method nodes. Parameters: rows of className, methodName, methodVisibility, returnType,
+     * parameters */
+    public static final String UNWIND_CREATE_METHODS =
+        "UNWIND $rows AS row " +
+        "MERGE (m:Method {methodName: row.methodName, methodVisibility: row.methodVisibility, " +
+                "returnType: row.returnType, parameters: row.parameters})";
+
+    /** Query to connect Methods to their Classes. Parameters: rows of className, methodName */
+    public static final String UNWIND_CONNECT_METHODS_TO_CLASSES =
+        "UNWIND $rows AS row " +
+        "MATCH (c:Class {className: row.className}), (m:Method {methodName: row.methodName}) " +
+        "MERGE (c)-[:HAS_METHOD]->(m)";
+
+    /** Query to create MethodCall nodes. Parameters: rows of calledMethod */
+    public static final String UNWIND_CREATE_METHOD_CALLS =
+        "UNWIND $rows AS row " +
+        "MERGE (f:MethodCall {calledMethod: row.calledMethod})";
+
+    /** Query to connect MethodCalls to Methods. Parameters: rows of methodName, calledMethod */
+    public static final String UNWIND_CONNECT_CALLS_TO_METHODS =
+        "UNWIND $rows AS row " +
+        "MATCH (m:Method {methodName: row.methodName}), (f:MethodCall {calledMethod: row.calledMethod}) " +
+        "MERGE (m)-[:CALLS]->(f)";
+
+    /** Query to connect Classes to their parent classes. Parameters: rows of className, parentName */
+    public static final String UNWIND_CONNECT_CLASS_INHERITANCE =
+        "UNWIND $rows AS row " +
+        "MATCH (c:Class {className: row.className}), (p:Class {className: row.parentName}) " +
+        "MERGE (c)-[:EXTENDS]->(p)";
+
+    /** Query to create Interface nodes. Parameters: rows of interfaceName */
+    public static final String UNWIND_CREATE_INTERFACES =
+        "UNWIND $rows AS row " +
+        "MERGE (i:Interface {interfaceName: row.interfaceName})";
+
+    /** Query to connect Classes to implemented interfaces. Parameters: rows of className, interfaceName */
+    public static final String UNWIND_CONNECT_INTERFACE_IMPLEMENTATIONS =
+        "UNWIND $rows AS row " +
+        "MATCH (c:Class {className: row.className}), (i:Interface {interfaceName: row.interfaceName}) " +
+        "MERGE (c)-[:IMPLEMENTS]->(i)";
+
+    /** Query to create Import nodes. Parameters: rows of importName */
+    public static final String UNWIND_CREATE_IMPORTS =
+        "UNWIND $rows AS row " +
+        "MERGE (i:Import {importName: row.importName})";
+
+    /** Query to connect Classes to their imports. Parameters: rows of className, importName */
+    public static final String UNWIND_CONNECT_CLASS_IMPORTS =
+        "UNWIND $rows AS row " +
+        "MATCH (c:Class {className: row.className}), (i:Import {importName: row.importName}) " +
+        "MERGE (c)-[:IMPORTS]->(i)";
+
+    /** Query to create ClassField nodes. Parameters: rows of fieldName, fieldType, visibility */
+    public static final String UNWIND_CREATE_CLASS_FIELDS =
+        "UNWIND $rows AS row " +
+        "MERGE (f:ClassField {fieldName: row.fieldName, fieldType: row.fieldType, visibility: row.visibility})";
+
+    /** Query to connect ClassFields to their Classes. Parameters: rows of className, fieldName */
+    public static final String UNWIND_CONNECT_FIELDS_TO_CLASSES =
+        "UNWIND $rows AS row " +
+        "MATCH (c:Class {className: row.className}), (f:ClassField {fieldName: row.fieldName}) " +
+        "MERGE (c)-[:HAS_FIELD]->(f)";
+
+    /** Query to create ControlFlow nodes. Parameters: rows of type, condition */
+    public static final String UNWIND_CREATE_CONTROL_FLOW =
+        "UNWIND $rows AS row " +
+        "MERGE (ctrl:ControlFlow {type: row.type, condition: row.condition})";
+
+    /** Query to connect ControlFlow to Methods. Parameters: rows of methodName, condition */
+    public static final String UNWIND_CONNECT_CONTROL_TO_METHODS =
+        "UNWIND $rows AS row " +
+        "MATCH (m:Method {methodName: row.methodName}), (ctrl:ControlFlow {condition: row.condition}) " +
+        "MERGE (m)-[:CONTAINS]->(ctrl)";
+
+    /** Query to create or update manifest entries. Parameters: rows of path, contentHash, selectionDigest */
+    public static final String UNWIND_MERGE_SOURCE_FILES =
+        "UNWIND $rows AS row " +
+        "MERGE (s:SourceFile {path: row.path}) " +
+        "SET s.contentHash = row.contentHash, s.selectionDigest = row.selectionDigest";
+
+    /** Query to delete manifest entries. Parameters: rows of path */
+    public static final String UNWIND_DELETE_SOURCE_FILES =
+        "UNWIND $rows AS row " +
+        "MATCH (s:SourceFile {path: row.path}) DELETE s";
+
+    /** Query to delete the manifest entries of files whose contents are replaced, so that they are stored again if
+     * the new contents are not written. Parameters: rows of sourceFile */
+    public static final String UNWIND_DELETE_REPLACED_SOURCE_FILES =
+        "UNWIND $rows AS row " +
+        "MATCH (s:SourceFile {path: row.sourceFile}) DELETE s";
+
+    /*
+     * Queries loading a GraphDelta into an empty database, with the nodes deduplicated by a GraphIdentityMap. Nodes
+     * are created without looking them up first and relationships refer to nodes by their element id.
+     */
+
+    /** Query to create nodes with the properties of each row, returning their element ids by row index.
+     * Format arguments: label. Parameters: rows */
+    public static final String CREATE_NODES_FORMAT =
+        "UNWIND range(0, size($rows) - 1) AS i " +
+        "CREATE (n:%s) " +
+        "SET n = $rows[i] " +
+        "RETURN i AS rowIndex, elementId(n) AS id";
+
+    /** Query to create relationships between nodes given by their element ids.
+     * Format arguments: relationship type. Parameters: rows of from, to */
+    public static final String CREATE_RELATIONSHIPS_FORMAT =
+        "UNWIND $rows AS row " +
+        "MATCH (a) WHERE elementId(a) = row.from " +
+        "MATCH (b) WHERE elementId(b) = row.to " +
+        "CREATE (a)-[:%s]->(b)";
+
+    /** Query to set properties of nodes given by their element ids. Parameters: rows of id, properties */
+    public static final String SET_NODE_PROPERTIES =
+        "UNWIND $rows AS row " +
+        "MATCH (n) WHERE elementId(n) = row.id " +
+        "SET n += row.properties";
+
     /** Neo4j constraints. */
     public static final String CREATE_CLASS_CONSTRAINTS =
             "CREATE CONSTRAINT IF NOT EXISTS FOR (c:Class) REQUIRE c.className IS UNIQUE";
     public static final String CREATE_INTERFACE_CONSTRAINTS =
             "CREATE CONSTRAINT IF NOT EXISTS FOR (i:Interface) REQUIRE i.interfaceName IS UNIQUE";
+    public static final String CREATE_SOURCE_FILE_CONSTRAINTS =
+            "CREATE CONSTRAINT IF NOT EXISTS FOR (s:SourceFile) REQUIRE s.path IS UNIQUE";
 
     /** Neo4j indexes. */
     public static final String CREATE_METHOD_INDEXES =
@@ -178,6 +409,8 @@ public final class CypherConstants {
             "CREATE INDEX IF NOT EXISTS FOR (mc:MethodCall) ON (mc.calledMethod)";
     public static final String CREATE_CLASS_FIELD_INDEXES =
             "CREATE INDEX IF NOT EXISTS FOR (f:ClassField) ON (f.fieldName, f.fieldType)";
+    public static final String CREATE_CLASS_SOURCE_FILE_INDEXES =
+            "CREATE INDEX IF NOT EXISTS FOR (c:Class) ON (c.sourceFile)";
     public static final String CREATE_CONTROL_FLOW_INDEXES =
             "CREATE INDEX IF NOT EXISTS FOR (ctrl:ControlFlow) ON (ctrl.condition, ctrl.type)";
 }
@@ -8,7 +8,13 @@ import org.neo4j.driver.Session;
 import org.neo4j.driver.Transaction;
 import org.neo4j.driver.Value;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
 import static org.neo4j.driver.Values.parameters;
 
@@ -23,6 +29,8 @@ import static org.neo4j.driver.Values.parameters;
  * @see CypherConstants
  */
 public class GraphDatabaseOperations implements AutoCloseable {
+    static final int ROWS_PER_STATEMENT = 10_000;
+
     private final Driver driver;
     private Session batchSession;
     private Transaction batchTransaction;
@@ -200,6 +208,25 @@ public class GraphDatabaseOperations implements AutoCloseable {
                           CypherConstants.PROP_PACKAGE_NAME, packageName));
     }
 
+    /**
+     * Creates a node representing a Java class in the graph database with package information and the file it is
+     * declared in, so that it can be replaced when the file changes.
+     *
+     * @param className the name of the class to create
+     * @param packageName the package name of the class
+     * @param sourceFile the path of the file declaring the class, see {@link SourceFileManifest#pathOf}
+     * @throws IllegalStateException if no batch transaction is active
+     */
+    public void createClassNode(String className, String packageName, String sourceFile) throws IllegalStateException {
+        verifyBatchTransactionActive("create class node with source file");
+        LoggerUtil.debug(getClass(), "Creating class node in batch transaction: {} in package {} from {}",
+                className, packageName, sourceFile);
+        executeInBatchTransaction(CypherConstants.CREATE_CLASS_WITH_SOURCE,
+                parameters(CypherConstants.PROP_CLASS_NAME, className,
+                          CypherConstants.PROP_PACKAGE_NAME, packageName,
+                          CypherConstants.PROP_SOURCE_FILE, sourceFile));
+    }
+
     /**
      * Creates a node representing a method with specified visibility/access modifier and connects it to its containing class.
      *
@@ -361,6 +388,299 @@ public class GraphDatabaseOperations implements AutoCloseable {
                         CypherConstants.PROP_CONDITION, condition));
     }
 
+    /**
+     * Deletes the part of the graph extracted from a file: the classes declared in it and their methods, fields,
+     * imports and relationships. Nodes shared with classes of other files are kept.
+     *
+     * @param sourceFile the path of the file, see {@link SourceFileManifest#pathOf}
+     * @throws IllegalStateException if no batch transaction is active
+     */
+    public void deleteFileContents(String sourceFile) {
+        verifyBatchTransactionActive("delete file contents");
+        LoggerUtil.debug(getClass(), "Deleting graph contents of file in batch transaction: {}", sourceFile);
+
+        executeInBatchTransaction(CypherConstants.DELETE_FILE_MEMBERS,
+                parameters(CypherConstants.PROP_SOURCE_FILE, sourceFile));
+        executeInBatchTransaction(CypherConstants.DELETE_FILE_CLASSES,
+                parameters(CypherConstants.PROP_SOURCE_FILE, sourceFile));
+    }
+
+    /**
+     * Records the state a file was stored in, in the manifest of stored files.
+     *
+     * @param path the path of the file, see {@link SourceFileManifest#pathOf}
+     * @param entry the state of the file
+     * @throws IllegalStateException if no batch transaction is active
+     */
+    public void recordSourceFile(String path, SourceFileManifest.Entry entry) {
+        verifyBatchTransactionActive("record source file");
+        executeInBatchTransaction(CypherConstants.MERGE_SOURCE_FILE,
+                parameters(CypherConstants.PROP_PATH, path,
+                        CypherConstants.PROP_CONTENT_HASH, entry.contentHash(),
+                        CypherConstants.PROP_SELECTION_DIGEST, entry.selectionDigest()));
+    }
+
+    /**
+     * Removes a file from the manifest of stored files.
+     *
+     * @param path the path of the file, see {@link SourceFileManifest#pathOf}
+     * @throws IllegalStateException if no batch transaction is active
+     */
+    public void deleteSourceFile(String path) {
+        verifyBatchTransactionActive("delete source file");
+        executeInBatchTransaction(CypherConstants.DELETE_SOURCE_FILE, parameters(CypherConstants.PROP_PATH, path));
+    }
+
+    /**
+     * Writes the graph contents collected in a delta with one statement per kind of node and relationship. The
+     * contents of the files the delta replaces are deleted first, then the nodes are created before the
+     * relationships between them.
+     *
+     * @param delta the graph contents to write
+     * @throws IllegalStateException if no batch transaction is active
+     */
+    public void write(GraphDelta delta) {
+        verifyBatchTransactionActive("write graph delta");
+        LoggerUtil.debug(getClass(), "Writing graph delta in batch transaction: {}", delta);
+
+        executeForRows(CypherConstants.UNWIND_DELETE_FILE_MEMBERS, delta.getReplacedSourceFileRows());
+        executeForRows(CypherConstants.UNWIND_DELETE_FILE_CLASSES, delta.getReplacedSourceFileRows());
+
+        executeForRows(CypherConstants.UNWIND_CREATE_CLASSES, delta.getClassRows());
+        executeForRows(CypherConstants.UNWIND_CREATE_METHODS, delta.getMethodRows());
+        executeForRows(CypherConstants.UNWIND_CREATE_METHOD_CALLS, delta.getMethodCallRows());
+        executeForRows(CypherConstants.UNWIND_CREATE_INTERFACES, delta.getInterfaceImplementationRows());
+        executeForRows(CypherConstants.UNWIND_CREATE_IMPORTS, delta.getImportRows());
+        executeForRows(CypherConstants.UNWIND_CREATE_CLASS_FIELDS, delta.getClassFieldRows());
+        executeForRows(CypherConstants.UNWIND_CREATE_CONTROL_FLOW, delta.getControlFlowRows());
+
+        executeForRows(CypherConstants.UNWIND_CONNECT_METHODS_TO_CLASSES, delta.getMethodRows());
+        executeForRows(CypherConstants.UNWIND_CONNECT_CALLS_TO_METHODS, delta.getMethodCallRows());
+        executeForRows(CypherConstants.UNWIND_CONNECT_CLASS_INHERITANCE, delta.getInheritanceRows());
+        executeForRows(CypherConstants.UNWIND_CONNECT_INTERFACE_IMPLEMENTATIONS,
+                delta.getInterfaceImplementationRows());
+        executeForRows(CypherConstants.UNWIND_CONNECT_CLASS_IMPORTS, delta.getImportRows());
+        executeForRows(CypherConstants.UNWIND_CONNECT_FIELDS_TO_CLASSES, delta.getClassFieldRows());
+        executeForRows(CypherConstants.UNWIND_CONNECT_CONTROL_TO_METHODS, delta.getControlFlowRows());
+
+        executeForRows(CypherConstants.UNWIND_MERGE_SOURCE_FILES, delta.getRecordedSourceFileRows());
+        executeForRows(CypherConstants.UNWIND_DELETE_SOURCE_FILES, delta.getDeletedSourceFileRows());
+    }
+
+    /**
+     * Loads the graph contents collected in a delta into a database that was empty when the load started. Nodes the
+     * identity map does not know yet are created without looking them up, and relationships are created between
+     * nodes given by their element ids. The resulting graph is the same as with {@link #write(GraphDelta)}.
+     *
+     * @param delta the graph contents to create
+     * @param identityMap the nodes and relationships created by the load so far, updated with the ones created now
+     * @throws IllegalStateException if no batch transaction is active
+     * @throws IllegalArgumentException if the delta replaces the contents of a file that was stored by the load
+     */
+    public void create(GraphDelta delta, GraphIdentityMap identityMap) {
+        verifyBatchTransactionActive("create graph delta");
+        LoggerUtil.debug(getClass(), "Creating graph delta in batch transaction: {}", delta);
+
+        // Replacing the contents of files stored by the load would delete nodes the identity map refers to
+        for (Map<String, Object> row : delta.getReplacedSourceFileRows()) {
+            String sourceFile = (String) row.get(CypherConstants.PROP_SOURCE_FILE);
+            if (identityMap.isSourceFileStored(sourceFile)) {
+                throw new IllegalArgumentException("Contents of " + sourceFile + " were already stored by this load");
+            }
+        }
+
+        Map<Map<String, Object>, Map<String, Object>> newClasses = new LinkedHashMap<>();
+        List<Map<String, Object>> classUpdates = new ArrayList<>();
+        delta.getClassProperties().forEach((className, properties) -> {
+            Map<String, Object> key = Map.of(CypherConstants.PROP_CLASS_NAME, className);
+            Optional<String> id = identityMap.getId(CypherConstants.LABEL_CLASS, key);
+            if (id.isEmpty()) {
+                Map<String, Object> allProperties = new HashMap<>(properties);
+                allProperties.putAll(key);
+                newClasses.put(key, allProperties);
+            } else if (!properties.isEmpty()) {
+                classUpdates.add(Map.of(CypherConstants.PROP_ID, id.get(),
+                        CypherConstants.PROP_PROPERTIES, properties));
+            }
+            if (properties.get(CypherConstants.PROP_SOURCE_FILE) instanceof String sourceFile) {
+                identityMap.addStoredSourceFile(sourceFile);
+            }
+        });
+        createNodes(CypherConstants.LABEL_CLASS, newClasses, identityMap);
+        executeForRows(CypherConstants.SET_NODE_PROPERTIES, classUpdates);
+
+        createNodes(CypherConstants.LABEL_METHOD, newNodes(CypherConstants.LABEL_METHOD, delta.getMethodRows(),
+                identityMap, CypherConstants.PROP_METHOD_NAME, CypherConstants.PROP_METHOD_VISIBILITY,
+                CypherConstants.PROP_METHOD_RETURN_TYPE, CypherConstants.PROP_METHOD_PARAMETERS), identityMap);
+        createNodes(CypherConstants.LABEL_METHOD_CALL, newNodes(CypherConstants.LABEL_METHOD_CALL,
+                delta.getMethodCallRows(), identityMap, CypherConstants.PROP_CALLED_METHOD), identityMap);
+        createNodes(CypherConstants.LABEL_INTERFACE, newNodes(CypherConstants.LABEL_INTERFACE,
+                delta.getInterfaceImplementationRows(), identityMap, CypherConstants.PROP_INTERFACE_NAME), identityMap);
+        createNodes(CypherConstants.LABEL_IMPORT, newNodes(CypherConstants.LABEL_IMPORT, delta.getImportRows(),
+                identityMap, CypherConstants.PROP_IMPORT_NAME), identityMap);
+        createNodes(CypherConstants.LABEL_CLASS_FIELD, newNodes(CypherConstants.LABEL_CLASS_FIELD,
+                delta.getClassFieldRows(), identityMap, CypherConstants.PROP_FIELD_NAME,
+                CypherConstants.PROP_FIELD_TYPE, CypherConstants.PROP_VISIBILITY), identityMap);
+        createNodes(CypherConstants.LABEL_CONTROL_FLOW, newNodes(CypherConstants.LABEL_CONTROL_FLOW,
+                delta.getControlFlowRows(), identityMap, CypherConstants.PROP_TYPE, CypherConstants.PROP_CONDITION),
+                identityMap);
+
+        // Relationships match the same nodes as the queries of write(GraphDelta), e.g. all methods of a name
+        createRelationships(CypherConstants.REL_HAS_METHOD, delta.getMethodRows(),
+                row -> classId(identityMap, row.get(CypherConstants.PROP_CLASS_NAME)),
+                row -> methodIds(identityMap, row),
+                identityMap);
+        createRelationships(CypherConstants.REL_CALLS, delta.getMethodCallRows(),
+                row -> methodIds(identityMap, row),
+                row -> nodeId(identityMap, CypherConstants.LABEL_METHOD_CALL, row, CypherConstants.PROP_CALLED_METHOD),
+                identityMap);
+        createRelationships(CypherConstants.REL_EXTENDS, delta.getInheritanceRows(),
+                row -> classId(identityMap, row.get(CypherConstants.PROP_CLASS_NAME)),
+                row -> classId(identityMap, row.get(CypherConstants.PROP_PARENT_NAME)),
+                identityMap);
+        createRelationships(CypherConstants.REL_IMPLEMENTS, delta.getInterfaceImplementationRows(),
+                row -> classId(identityMap, row.get(CypherConstants.PROP_CLASS_NAME)),
+                row -> nodeId(identityMap, CypherConstants.LABEL_INTERFACE, row, CypherConstants.PROP_INTERFACE_NAME),
+                identityMap);
+        createRelationships(CypherConstants.REL_IMPORTS, delta.getImportRows(),
+                row -> classId(identityMap, row.get(CypherConstants.PROP_CLASS_NAME)),
+                row -> nodeId(identityMap, CypherConstants.LABEL_IMPORT, row, CypherConstants.PROP_IMPORT_NAME),
+                identityMap);
+        createRelationships(CypherConstants.REL_HAS_FIELD, delta.getClassFieldRows(),
+                row -> classId(identityMap, row.get(CypherConstants.PROP_CLASS_NAME)),
+                row -> identityMap.getIdsMatching(CypherConstants.LABEL_CLASS_FIELD,
+                        row.get(CypherConstants.PROP_FIELD_NAME)),
+                identityMap);
+        createRelationships(CypherConstants.REL_CONTAINS, delta.getControlFlowRows(),
+                row -> methodIds(identityMap, row),
+                row -> identityMap.getIdsMatching(CypherConstants.LABEL_CONTROL_FLOW,
+                        row.get(CypherConstants.PROP_CONDITION)),
+                identityMap);
+
+        Map<Map<String, Object>, Map<String, Object>> newSourceFiles = new LinkedHashMap<>();
+        List<Map<String, Object>> sourceFileUpdates = new ArrayList<>();
+        delta.getRecordedSourceFiles().forEach((path, entry) -> {
+            Map<String, Object> key = Map.of(CypherConstants.PROP_PATH, path);
+            Map<String, Object> properties = Map.of(CypherConstants.PROP_CONTENT_HASH, entry.contentHash(),
+                    CypherConstants.PROP_SELECTION_DIGEST, entry.selectionDigest());
+            Optional<String> id = identityMap.getId(CypherConstants.LABEL_SOURCE_FILE, key);
+            if (id.isEmpty()) {
+                Map<String, Object> allProperties = new HashMap<>(properties);
+                allProperties.putAll(key);
+                newSourceFiles.put(key, allProperties);
+            } else {
+                sourceFileUpdates.add(Map.of(CypherConstants.PROP_ID, id.get(),
+                        CypherConstants.PROP_PROPERTIES, properties));
+            }
+        });
+        createNodes(CypherConstants.LABEL_SOURCE_FILE, newSourceFiles, identityMap);
+        executeForRows(CypherConstants.SET_NODE_PROPERTIES, sourceFileUpdates);
+        executeForRows(CypherConstants.UNWIND_DELETE_SOURCE_FILES, delta.getDeletedSourceFileRows());
+        delta.getDeletedSourceFileRows().forEach(row -> identityMap.remove(CypherConstants.LABEL_SOURCE_FILE, row));
+    }
+
+    /**
+     * Returns the nodes of a label the identity map does not know yet, by the properties they are identified by.
+     */
+    private static Map<Map<String, Object>, Map<String, Object>> newNodes(String label, List<Map<String, Object>> rows,
+                                                                         GraphIdentityMap identityMap,
+                                                                         String... keyProperties) {
+        Map<Map<String, Object>, Map<String, Object>> nodes = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> key = new HashMap<>();
+            for (String keyProperty : keyProperties) {
+                key.put(keyProperty, row.get(keyProperty));
+            }
+            if (identityMap.getId(label, key).isEmpty()) {
+                nodes.putIfAbsent(key, key);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates nodes with the given properties and records their element ids in the identity map.
+     */
+    private void createNodes(String label, Map<Map<String, Object>, Map<String, Object>> nodes,
+                             GraphIdentityMap identityMap) {
+        List<Map<String, Object>> keys = new ArrayList<>(nodes.keySet());
+        List<Map<String, Object>> properties = new ArrayList<>(nodes.values());
+        String query = String.format(CypherConstants.CREATE_NODES_FORMAT, label);
+        for (int from = 0; from < properties.size(); from += ROWS_PER_STATEMENT) {
+            int offset = from;
+            List<Map<String, Object>> chunk = properties.subList(from,
+                    Math.min(from + ROWS_PER_STATEMENT, properties.size()));
+            batchTransaction.run(query, parameters(CypherConstants.PROP_ROWS, chunk)).forEachRemaining(record ->
+                    identityMap.put(label, keys.get(offset + record.get(CypherConstants.PROP_ROW_INDEX).asInt()),
+                            record.get(CypherConstants.PROP_ID).asString()));
+        }
+    }
+
+    /**
+     * Creates the relationships between the start and end nodes of each row that were not created before.
+     */
+    private void createRelationships(String type, List<Map<String, Object>> rows,
+                                     Function<Map<String, Object>, List<String>> fromIds,
+                                     Function<Map<String, Object>, List<String>> toIds,
+                                     GraphIdentityMap identityMap) {
+        List<Map<String, Object>> relationships = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            List<String> toIdsOfRow = toIds.apply(row);
+            for (String fromId : fromIds.apply(row)) {
+                for (String toId : toIdsOfRow) {
+                    if (identityMap.addRelationship(type, fromId, toId)) {
+                        relationships.add(Map.of(CypherConstants.PROP_FROM, fromId, CypherConstants.PROP_TO, toId));
+                    }
+                }
+            }
+        }
+        executeForRows(String.format(CypherConstants.CREATE_RELATIONSHIPS_FORMAT, type), relationships);
+    }
+
+    private static List<String> classId(GraphIdentityMap identityMap, Object className) {
+        return identityMap.getId(CypherConstants.LABEL_CLASS, Map.of(CypherConstants.PROP_CLASS_NAME, className))
+                .stream().toList();
+    }
+
+    private static List<String> methodIds(GraphIdentityMap identityMap, Map<String, Object> row) {
+        return identityMap.getIdsMatching(CypherConstants.LABEL_METHOD, row.get(CypherConstants.PROP_METHOD_NAME));
+    }
+
+    private static List<String> nodeId(GraphIdentityMap identityMap, String label, Map<String, Object> row,
+                                       String keyProperty) {
+        return identityMap.getId(label, Map.of(keyProperty, row.get(keyProperty))).stream().toList();
+    }
+
+    /**
+     * Executes a query taking a list of rows within the current batch transaction, in chunks of at most
+     * {@link #ROWS_PER_STATEMENT} rows so that a large batch does not become one huge statement.
+     */
+    private void executeForRows(String query, List<Map<String, Object>> rows) {
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            List<Map<String, Object>> chunk = rows.subList(from, Math.min(from + ROWS_PER_STATEMENT, rows.size()));
+            executeInBatchTransaction(query, parameters(CypherConstants.PROP_ROWS, chunk));
+        }
+    }
+
+    /**
+     * Reads the manifest of the stored files in a directory.
+     *
+     * @param root the path of the directory or of a single file, see {@link SourceFileManifest#pathOf}
+     * @return the manifest of the stored files below the root
+     */
+    public SourceFileManifest getSourceFileManifest(String root) {
+        try (Session session = driver.session()) {
+            return session.executeRead(tx -> {
+                Map<String, SourceFileManifest.Entry> entries = new HashMap<>();
+                tx.run(CypherConstants.GET_SOURCE_FILES, parameters(CypherConstants.PROP_PATH, root))
+                        .forEachRemaining(record -> entries.put(record.get(CypherConstants.PROP_PATH).asString(),
+                                new SourceFileManifest.Entry(record.get(CypherConstants.PROP_CONTENT_HASH).asString(),
+                                        record.get(CypherConstants.PROP_SELECTION_DIGEST).asString())));
+                return new SourceFileManifest(entries);
+            });
+        }
+    }
+
     /**
      * Deletes all data from the graph database.
      * This should be called at the start of each test, not between processing individual files.
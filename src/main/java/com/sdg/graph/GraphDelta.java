@@ -0,0 +1,332 @@
+package com.sdg.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The graph contents extracted from one or more files, collected in memory so that they can be written with a few
+ * statements per kind of node and relationship instead of one or two statements per element.
+ *
+ * The methods mirror the operations of {@link GraphDatabaseOperations}. Elements that are added more than once are
+ * kept once, since they are merged into the graph. The deltas of several files are combined with
+ * {@link #addAll(GraphDelta)} and written with {@link GraphDatabaseOperations#write(GraphDelta)}, which replaces the
+ * contents of the files before the new contents are stored.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class GraphDelta {
+    private final Set<String> replacedSourceFiles = new LinkedHashSet<>();
+    private final Map<String, Map<String, Object>> classes = new LinkedHashMap<>();
+    private final Set<Map<String, Object>> methods = new LinkedHashSet<>();
+    private final Set<Map<String, Object>> methodCalls = new LinkedHashSet<>();
+    private final Set<Map<String, Object>> inheritance = new LinkedHashSet<>();
+    private final Set<Map<String, Object>> interfaceImplementations = new LinkedHashSet<>();
+    private final Set<Map<String, Object>> imports = new LinkedHashSet<>();
+    private final Set<Map<String, Object>> classFields = new LinkedHashSet<>();
+    private final Set<Map<String, Object>> controlFlow = new LinkedHashSet<>();
+    private final Map<String, SourceFileManifest.Entry> recordedSourceFiles = new LinkedHashMap<>();
+    private final Set<String> deletedSourceFiles = new LinkedHashSet<>();
+
+    /**
+     * Adds a class without package information, e.g. a parent class declared outside the analyzed files.
+     *
+     * @param className the name of the class
+     */
+    public void createClassNode(String className) {
+        classes.computeIfAbsent(className, name -> new HashMap<>());
+    }
+
+    /**
+     * Adds a class with package information.
+     *
+     * @param className the name of the class
+     * @param packageName the package name of the class
+     */
+    public void createClassNode(String className, String packageName) {
+        createClassNode(className);
+        classes.get(className).put(CypherConstants.PROP_PACKAGE_NAME, packageName);
+    }
+
+    /**
+     * Adds a class with package information and the file it is declared in.
+     *
+     * @param className the name of the class
+     * @param packageName the package name of the class
+     * @param sourceFile the path of the file declaring the class, see {@link SourceFileManifest#pathOf}
+     */
+    public void createClassNode(String className, String packageName, String sourceFile) {
+        createClassNode(className, packageName);
+        classes.get(className).put(CypherConstants.PROP_SOURCE_FILE, sourceFile);
+    }
+
+    /**
+     * Adds a method and connects it to its containing class.
+     *
+     * @param className the name of the class containing the method
+     * @param methodName the name of the method
+     * @param visibility the access modifier of the method (public, private, protected, package-private)
+     * @param returnType the return type of the method
+     * @param parameters the parameters of the method
+     */
+    public void createMethodNode(String className, String methodName, String visibility, String returnType,
+                                 String parameters) {
+        methods.add(Map.of(CypherConstants.PROP_CLASS_NAME, className,
+                CypherConstants.PROP_METHOD_NAME, methodName,
+                CypherConstants.PROP_METHOD_VISIBILITY, visibility,
+                CypherConstants.PROP_METHOD_RETURN_TYPE, returnType,
+                CypherConstants.PROP_METHOD_PARAMETERS, parameters));
+    }
+
+    /**
+     * Adds a method call between two methods.
+     *
+     * @param callerMethod the name of the method making the call
+     * @param calledMethod the name of the method being called
+     */
+    public void createMethodCallNode(String callerMethod, String calledMethod) {
+        methodCalls.add(Map.of(CypherConstants.PROP_METHOD_NAME, callerMethod,
+                CypherConstants.PROP_CALLED_METHOD, calledMethod));
+    }
+
+    /**
+     * Adds an inheritance relationship between two classes.
+     *
+     * @param childClass the name of the child class
+     * @param parentClass the name of the parent class
+     */
+    public void createInheritanceRelationship(String childClass, String parentClass) {
+        inheritance.add(Map.of(CypherConstants.PROP_CLASS_NAME, childClass,
+                CypherConstants.PROP_PARENT_NAME, parentClass));
+    }
+
+    /**
+     * Adds an interface and its implementation by a class.
+     *
+     * @param implementingClass the name of the class implementing the interface
+     * @param interfaceName the name of the interface being implemented
+     */
+    public void createInterfaceImplementation(String implementingClass, String interfaceName) {
+        interfaceImplementations.add(Map.of(CypherConstants.PROP_CLASS_NAME, implementingClass,
+                CypherConstants.PROP_INTERFACE_NAME, interfaceName));
+    }
+
+    /**
+     * Adds an import statement of a class.
+     *
+     * @param className the name of the class with the import
+     * @param importName the name of the imported package or class
+     */
+    public void createImportRelationship(String className, String importName) {
+        imports.add(Map.of(CypherConstants.PROP_CLASS_NAME, className,
+                CypherConstants.PROP_IMPORT_NAME, importName));
+    }
+
+    /**
+     * Adds a field of a class.
+     *
+     * @param className the name of the class containing the field
+     * @param fieldName the name of the field
+     * @param fieldType the type of the field
+     * @param accessModifier the access modifier of the field (public, private, etc.)
+     */
+    public void createClassField(String className, String fieldName, String fieldType, String accessModifier) {
+        classFields.add(Map.of(CypherConstants.PROP_CLASS_NAME, className,
+                CypherConstants.PROP_FIELD_NAME, fieldName,
+                CypherConstants.PROP_FIELD_TYPE, fieldType,
+                CypherConstants.PROP_VISIBILITY, accessModifier));
+    }
+
+    /**
+     * Adds a control flow statement of a method.
+     *
+     * @param methodName the name of the method containing the control flow
+     * @param controlFlowType the type of control flow (if, for, while, etc.)
+     * @param condition the condition of the control flow statement
+     */
+    public void createControlFlowNode(String methodName, String controlFlowType, String condition) {
+        controlFlow.add(Map.of(CypherConstants.PROP_METHOD_NAME, methodName,
+                CypherConstants.PROP_TYPE, controlFlowType,
+                CypherConstants.PROP_CONDITION, condition));
+    }
+
+    /**
+     * Replaces what an earlier run stored for a file: its contents are deleted before the contents of this delta
+     * are written.
+     *
+     * @param sourceFile the path of the file, see {@link SourceFileManifest#pathOf}
+     */
+    public void deleteFileContents(String sourceFile) {
+        replacedSourceFiles.add(sourceFile);
+    }
+
+    /**
+     * Records the state a file was stored in, in the manifest of stored files.
+     *
+     * @param path the path of the file, see {@link SourceFileManifest#pathOf}
+     * @param entry the state of the file
+     */
+    public void recordSourceFile(String path, SourceFileManifest.Entry entry) {
+        deletedSourceFiles.remove(path);
+        recordedSourceFiles.put(path, entry);
+    }
+
+    /**
+     * Removes a file from the manifest of stored files.
+     *
+     * @param path the path of the file, see {@link SourceFileManifest#pathOf}
+     */
+    public void deleteSourceFile(String path) {
+        recordedSourceFiles.remove(path);
+        deletedSourceFiles.add(path);
+    }
+
+    /**
+     * Adds the contents of another delta, e.g. of the next file of a batch. Properties of a class that are set by
+     * both deltas take the value of the other delta.
+     *
+     * @param other the delta to add
+     */
+    public void addAll(GraphDelta other) {
+        replacedSourceFiles.addAll(other.replacedSourceFiles);
+        other.classes.forEach((className, properties) ->
+                classes.computeIfAbsent(className, name -> new HashMap<>()).putAll(properties));
+        methods.addAll(other.methods);
+        methodCalls.addAll(other.methodCalls);
+        inheritance.addAll(other.inheritance);
+        interfaceImplementations.addAll(other.interfaceImplementations);
+        imports.addAll(other.imports);
+        classFields.addAll(other.classFields);
+        controlFlow.addAll(other.controlFlow);
+        other.recordedSourceFiles.forEach(this::recordSourceFile);
+        other.deletedSourceFiles.forEach(this::deleteSourceFile);
+    }
+
+    /**
+     * Checks if the delta changes nothing.
+     *
+     * @return true if nothing was added to the delta
+     */
+    public boolean isEmpty() {
+        return replacedSourceFiles.isEmpty() && classes.isEmpty() && methods.isEmpty() && methodCalls.isEmpty()
+                && inheritance.isEmpty() && interfaceImplementations.isEmpty() && imports.isEmpty()
+                && classFields.isEmpty() && controlFlow.isEmpty() && recordedSourceFiles.isEmpty()
+                && deletedSourceFiles.isEmpty();
+    }
+
+    // Rows of the statements that write the delta, see CypherConstants
+
+    List<Map<String, Object>> getReplacedSourceFileRows() {
+        return replacedSourceFiles.stream()
+                .map(sourceFile -> Map.<String, Object>of(CypherConstants.PROP_SOURCE_FILE, sourceFile))
+                .toList();
+    }
+
+    List<Map<String, Object>> getClassRows() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        classes.forEach((className, properties) -> rows.add(Map.of(CypherConstants.PROP_CLASS_NAME, className,
+                CypherConstants.PROP_PROPERTIES, Map.copyOf(properties))));
+        return rows;
+    }
+
+    Map<String, Map<String, Object>> getClassProperties() {
+        return classes;
+    }
+
+    List<Map<String, Object>> getMethodRows() {
+        return List.copyOf(methods);
+    }
+
+    List<Map<String, Object>> getMethodCallRows() {
+        return List.copyOf(methodCalls);
+    }
+
+    List<Map<String, Object>> getInheritanceRows() {
+        return List.copyOf(inheritance);
+    }
+
+    List<Map<String, Object>> getInterfaceImplementationRows() {
+        return List.copyOf(interfaceImplementations);
+    }
+
+    List<Map<String, Object>> getImportRows() {
+        return List.copyOf(imports);
+    }
+
+    List<Map<String, Object>> getClassFieldRows() {
+        return List.copyOf(classFields);
+    }
+
+    List<Map<String, Object>> getControlFlowRows() {
+        return List.copyOf(controlFlow);
+    }
+
+    List<Map<String, Object>> getRecordedSourceFileRows() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        recordedSourceFiles.forEach((path, entry) -> rows.add(Map.of(CypherConstants.PROP_PATH, path,
+                CypherConstants.PROP_CONTENT_HASH, entry.contentHash(),
+                CypherConstants.PROP_SELECTION_DIGEST, entry.selectionDigest())));
+        return rows;
+    }
+
+    Map<String, SourceFileManifest.Entry> getRecordedSourceFiles() {
+        return recordedSourceFiles;
+    }
+
+    List<Map<String, Object>> getDeletedSourceFileRows() {
+        return deletedSourceFiles.stream()
+                .map(path -> Map.<String, Object>of(CypherConstants.PROP_PATH, path))
+                .toList();
+    }
+
+    /**
+     * Checks if another delta has the same contents, whatever the order they were added in.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GraphDelta other)) {
+            return false;
+        }
+        return replacedSourceFiles.equals(other.replacedSourceFiles) && classes.equals(other.classes)
+                && methods.equals(other.methods) && methodCalls.equals(other.methodCalls)
+                && inheritance.equals(other.inheritance)
+                && interfaceImplementations.equals(other.interfaceImplementations)
+                && imports.equals(other.imports) && classFields.equals(other.classFields)
+                && controlFlow.equals(other.controlFlow) && recordedSourceFiles.equals(other.recordedSourceFiles)
+                && deletedSourceFiles.equals(other.deletedSourceFiles);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(replacedSourceFiles, classes, methods, methodCalls, inheritance, interfaceImplementations,
+                imports, classFields, controlFlow, recordedSourceFiles, deletedSourceFiles);
+    }
+
+    @Override
+    public String toString() {
+        return "GraphDelta{" +
+                "replacedSourceFiles=" + replacedSourceFiles.size() +
+                ", classes=" + classes.size() +
+                ", methods=" + methods.size() +
+                ", methodCalls=" + methodCalls.size() +
+                ", inheritance=" + inheritance.size() +
+                ", interfaceImplementations=" + interfaceImplementations.size() +
+                ", imports=" + imports.size() +
+                ", classFields=" + classFields.size() +
+                ", controlFlow=" + controlFlow.size() +
+                ", recordedSourceFiles=" + recordedSourceFiles.size() +
+                ", deletedSourceFiles=" + deletedSourceFiles.size() +
+                '}';
+    }
+}
@@ -0,0 +1,141 @@
+package com.sdg.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The nodes and relationships created while loading a knowledge graph into an empty database, so that nodes can be
+ * deduplicated in memory and created with CREATE instead of MERGE, and relationships can refer to nodes by their
+ * element id instead of looking them up by their properties.
+ *
+ * Nodes are identified by their label and the properties they are merged on in {@link CypherConstants}. The
+ * queries connecting nodes match some of them by a single property, e.g. methods by their name, so nodes can also
+ * be looked up by that property.
+ *
+ * An identity map is only valid for the transactions whose nodes it recorded. If one of them is rolled back, the
+ * map must no longer be used. Instances are not thread-safe.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class GraphIdentityMap {
+    // The property each label's nodes are matched by when they are connected, see CypherConstants
+    private static final Map<String, String> MATCHED_PROPERTIES = Map.of(
+            CypherConstants.LABEL_METHOD, CypherConstants.PROP_METHOD_NAME,
+            CypherConstants.LABEL_CLASS_FIELD, CypherConstants.PROP_FIELD_NAME,
+            CypherConstants.LABEL_CONTROL_FLOW, CypherConstants.PROP_CONDITION);
+
+    private final Map<String, Map<Map<String, Object>, String>> nodeIds = new HashMap<>();
+    private final Map<String, Map<Object, List<String>>> nodeIdsByMatchedProperty = new HashMap<>();
+    private final Map<String, Set<String>> relationships = new HashMap<>();
+    private final Set<String> storedSourceFiles = new HashSet<>();
+    private int nodeCount;
+    private int relationshipCount;
+
+    /**
+     * Returns the element id of a node.
+     *
+     * @param label the label of the node
+     * @param key the properties the node is identified by
+     * @return the element id, or an empty result if the node was not created
+     */
+    public Optional<String> getId(String label, Map<String, Object> key) {
+        return Optional.ofNullable(nodeIds.getOrDefault(label, Map.of()).get(key));
+    }
+
+    /**
+     * Returns the element ids of the nodes of a label that are matched by a value, e.g. of all methods with a name.
+     *
+     * @param label the label of the nodes, one of the labels whose nodes are matched by a single property
+     * @param value the value of the matched property
+     * @return the element ids, in the order the nodes were created
+     * @throws IllegalArgumentException if the nodes of the label are not matched by a single property
+     */
+    public List<String> getIdsMatching(String label, Object value) {
+        if (!MATCHED_PROPERTIES.containsKey(label)) {
+            throw new IllegalArgumentException("Nodes are not matched by a single property: " + label);
+        }
+        return nodeIdsByMatchedProperty.getOrDefault(label, Map.of()).getOrDefault(value, List.of());
+    }
+
+    /**
+     * Records a created node.
+     *
+     * @param label the label of the node
+     * @param key the properties the node is identified by
+     * @param id the element id of the node
+     */
+    public void put(String label, Map<String, Object> key, String id) {
+        if (nodeIds.computeIfAbsent(label, l -> new HashMap<>()).put(key, id) == null) {
+            nodeCount++;
+        }
+        String matchedProperty = MATCHED_PROPERTIES.get(label);
+        if (matchedProperty != null) {
+            nodeIdsByMatchedProperty.computeIfAbsent(label, l -> new HashMap<>())
+                    .computeIfAbsent(key.get(matchedProperty), value -> new ArrayList<>()).add(id);
+        }
+    }
+
+    /**
+     * Forgets a deleted node.
+     *
+     * @param label the label of the node
+     * @param key the properties the node is identified by
+     */
+    public void remove(String label, Map<String, Object> key) {
+        String id = nodeIds.getOrDefault(label, new HashMap<>()).remove(key);
+        if (id == null) {
+            return;
+        }
+        nodeCount--;
+        String matchedProperty = MATCHED_PROPERTIES.get(label);
+        if (matchedProperty != null) {
+            nodeIdsByMatchedProperty.get(label).get(key.get(matchedProperty)).remove(id);
+        }
+    }
+
+    /**
+     * Records a relationship unless it was created before.
+     *
+     * @param type the type of the relationship
+     * @param fromId the element id of the start node
+     * @param toId the element id of the end node
+     * @return true if the relationship is new and must be created
+     */
+    public boolean addRelationship(String type, String fromId, String toId) {
+        boolean added = relationships.computeIfAbsent(type, t -> new HashSet<>()).add(fromId + '\n' + toId);
+        if (added) {
+            relationshipCount++;
+        }
+        return added;
+    }
+
+    /**
+     * Records that the classes of a file were stored.
+     *
+     * @param sourceFile the path of the file, see {@link SourceFileManifest#pathOf}
+     */
+    public void addStoredSourceFile(String sourceFile) {
+        storedSourceFiles.add(sourceFile);
+    }
+
+    /**
+     * Checks if classes of a file were stored, in which case replacing the file's contents requires deleting nodes.
+     *
+     * @param sourceFile the path of the file, see {@link SourceFileManifest#pathOf}
+     * @return true if classes of the file were stored
+     */
+    public boolean isSourceFileStored(String sourceFile) {
+        return storedSourceFiles.contains(sourceFile);
+    }
+
+    @Override
+    public String toString() {
+        return nodeCount + " nodes, " + relationshipCount + " relationships";
+    }
+}
@@ -0,0 +1,269 @@
+package com.sdg.graph;
+
+import com.sdg.logging.LoggerUtil;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.neo4j.driver.Values.parameters;
+
+/**
+ * A fixed pool of worker threads writing the graph contents of a {@link GraphDelta} in parallel, each worker with
+ * its own session and transaction.
+ *
+ * The rows of a delta are partitioned by the key of the node they merge, so that every node is merged by a single
+ * worker and two workers never create the same node. Relationships are partitioned by the key their start nodes are
+ * matched by, so that the relationships of a start node are merged by a single worker. Workers still lock the end
+ * nodes they share, e.g. a class extended by classes of several partitions, in no particular order, so their
+ * transactions can deadlock. The contents of replaced files are deleted before the partitions are written, nodes are
+ * created by all workers before relationships, and the files are recorded in the manifest once everything else is
+ * written.
+ *
+ * Each transaction is run with {@link Session#executeWrite}, which retries it on transient errors such as the
+ * deadlocks detected by the database. The manifest entries of the replaced files are deleted in the same
+ * transaction as their contents, and recorded again once everything else is written. If a transaction fails
+ * nonetheless, the transactions of the other workers are still committed, but the files of the delta are left out
+ * of the manifest, so the next update stores them again even if they did not change. Since each step commits on its
+ * own, readers of the graph can see the files deleted or partly written until the manifest is written, see
+ * {@link ProcessingConfig#setWriteParallelism(int)}.
+ *
+ * Example usage:
+ * ```java
+ * try (GraphWriterPool pool = new GraphWriterPool(dbOps.getDriver(), 8)) {
+ *     pool.write(delta);
+ * }
+ * ```
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class GraphWriterPool implements AutoCloseable {
+    private final ExecutorService executor;
+    private final List<Session> sessions = new ArrayList<>();
+
+    private record Statement(String query, List<Map<String, Object>> rows) {}
+
+    /**
+     * Creates a pool of worker threads with a session each.
+     *
+     * @param driver the driver to open the sessions with
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public GraphWriterPool(Driver driver, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+
+        this.executor = Executors.newFixedThreadPool(parallelism, new WorkerThreadFactory());
+        for (int i = 0; i < parallelism; i++) {
+            sessions.add(driver.session());
+        }
+        LoggerUtil.info(getClass(), "Created graph writer pool with {} workers", parallelism);
+    }
+
+    /**
+     * Writes the graph contents collected in a delta, replacing the contents of the files it replaces.
+     *
+     * @param delta the graph contents to write
+     * @throws RuntimeException the error of the first failed transaction, after all transactions have ended
+     */
+    public synchronized void write(GraphDelta delta) {
+        LoggerUtil.debug(getClass(), "Writing graph delta in {} partitions: {}", sessions.size(), delta);
+
+        List<Map<String, Object>> replacedSourceFiles = delta.getReplacedSourceFileRows();
+        execute(sessions.get(0), List.of(
+                new Statement(CypherConstants.UNWIND_DELETE_FILE_MEMBERS, replacedSourceFiles),
+                new Statement(CypherConstants.UNWIND_DELETE_FILE_CLASSES, replacedSourceFiles),
+                new Statement(CypherConstants.UNWIND_DELETE_REPLACED_SOURCE_FILES, replacedSourceFiles)));
+
+        List<List<Statement>> nodes = partitions();
+        partition(nodes, CypherConstants.UNWIND_CREATE_CLASSES, delta.getClassRows(),
+                key(CypherConstants.PROP_CLASS_NAME), key());
+        partition(nodes, CypherConstants.UNWIND_CREATE_METHODS, delta.getMethodRows(),
+                key(CypherConstants.PROP_METHOD_NAME, CypherConstants.PROP_METHOD_VISIBILITY,
+                        CypherConstants.PROP_METHOD_RETURN_TYPE, CypherConstants.PROP_METHOD_PARAMETERS), key());
+        partition(nodes, CypherConstants.UNWIND_CREATE_METHOD_CALLS, delta.getMethodCallRows(),
+                key(CypherConstants.PROP_CALLED_METHOD), key());
+        partition(nodes, CypherConstants.UNWIND_CREATE_INTERFACES, delta.getInterfaceImplementationRows(),
+                key(CypherConstants.PROP_INTERFACE_NAME), key());
+        partition(nodes, CypherConstants.UNWIND_CREATE_IMPORTS, delta.getImportRows(),
+                key(CypherConstants.PROP_IMPORT_NAME), key());
+        partition(nodes, CypherConstants.UNWIND_CREATE_CLASS_FIELDS, delta.getClassFieldRows(),
+                key(CypherConstants.PROP_FIELD_NAME, CypherConstants.PROP_FIELD_TYPE, CypherConstants.PROP_VISIBILITY),
+                key());
+        partition(nodes, CypherConstants.UNWIND_CREATE_CONTROL_FLOW, delta.getControlFlowRows(),
+                key(CypherConstants.PROP_TYPE, CypherConstants.PROP_CONDITION), key());
+        executeInParallel(nodes);
+
+        List<List<Statement>> relationships = partitions();
+        partition(relationships, CypherConstants.UNWIND_CONNECT_METHODS_TO_CLASSES, delta.getMethodRows(),
+                key(CypherConstants.PROP_CLASS_NAME), key(CypherConstants.PROP_METHOD_NAME));
+        partition(relationships, CypherConstants.UNWIND_CONNECT_CALLS_TO_METHODS, delta.getMethodCallRows(),
+                key(CypherConstants.PROP_METHOD_NAME), key(CypherConstants.PROP_CALLED_METHOD));
+        partition(relationships, CypherConstants.UNWIND_CONNECT_CLASS_INHERITANCE, delta.getInheritanceRows(),
+                key(CypherConstants.PROP_CLASS_NAME), key(CypherConstants.PROP_PARENT_NAME));
+        partition(relationships, CypherConstants.UNWIND_CONNECT_INTERFACE_IMPLEMENTATIONS,
+                delta.getInterfaceImplementationRows(),
+                key(CypherConstants.PROP_CLASS_NAME), key(CypherConstants.PROP_INTERFACE_NAME));
+        partition(relationships, CypherConstants.UNWIND_CONNECT_CLASS_IMPORTS, delta.getImportRows(),
+                key(CypherConstants.PROP_CLASS_NAME), key(CypherConstants.PROP_IMPORT_NAME));
+        partition(relationships, CypherConstants.UNWIND_CONNECT_FIELDS_TO_CLASSES, delta.getClassFieldRows(),
+                key(CypherConstants.PROP_CLASS_NAME), key(CypherConstants.PROP_FIELD_NAME));
+        partition(relationships, CypherConstants.UNWIND_CONNECT_CONTROL_TO_METHODS, delta.getControlFlowRows(),
+                key(CypherConstants.PROP_METHOD_NAME), key(CypherConstants.PROP_CONDITION));
+        executeInParallel(relationships);
+
+        execute(sessions.get(0), List.of(
+                new Statement(CypherConstants.UNWIND_MERGE_SOURCE_FILES, delta.getRecordedSourceFileRows()),
+                new Statement(CypherConstants.UNWIND_DELETE_SOURCE_FILES, delta.getDeletedSourceFileRows())));
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return the number of worker threads
+     */
+    public int getParallelism() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes the sessions and shuts down the worker threads, waiting for a write in progress to end.
+     */
+    @Override
+    public synchronized void close() {
+        LoggerUtil.debug(getClass(), "Shutting down graph writer pool");
+        executor.shutdown();
+        sessions.forEach(Session::close);
+    }
+
+    /**
+     * Splits rows into partitions by the hash of their partition key, and orders the rows of each partition by their
+     * order key. The same key is always assigned to the same partition.
+     */
+    static List<List<Map<String, Object>>> partition(List<Map<String, Object>> rows, int partitionCount,
+                                                     Function<Map<String, Object>, List<Object>> partitionKey,
+                                                     Function<Map<String, Object>, List<Object>> orderKey) {
+        List<List<Map<String, Object>>> partitions = new ArrayList<>();
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (Map<String, Object> row : rows) {
+            partitions.get(Math.floorMod(partitionKey.apply(row).hashCode(), partitionCount)).add(row);
+        }
+        Comparator<Map<String, Object>> order = Comparator.comparing(row -> orderKey.apply(row).toString());
+        partitions.forEach(partition -> partition.sort(order));
+        return partitions;
+    }
+
+    /**
+     * Returns the values of the given properties of a row; without properties, every row has the same key.
+     */
+    static Function<Map<String, Object>, List<Object>> key(String... properties) {
+        return row -> {
+            List<Object> key = new ArrayList<>(properties.length);
+            for (String property : properties) {
+                key.add(row.get(property));
+            }
+            return key;
+        };
+    }
+
+    private List<List<Statement>> partitions() {
+        List<List<Statement>> partitions = new ArrayList<>();
+        for (int i = 0; i < sessions.size(); i++) {
+            partitions.add(new ArrayList<>());
+        }
+        return partitions;
+    }
+
+    private void partition(List<List<Statement>> partitions, String query, List<Map<String, Object>> rows,
+                           Function<Map<String, Object>, List<Object>> partitionKey,
+                           Function<Map<String, Object>, List<Object>> orderKey) {
+        List<List<Map<String, Object>>> partitionRows = partition(rows, partitions.size(), partitionKey, orderKey);
+        for (int i = 0; i < partitions.size(); i++) {
+            if (!partitionRows.get(i).isEmpty()) {
+                partitions.get(i).add(new Statement(query, partitionRows.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Executes the statements of each partition in a transaction of the partition's worker, and waits for all of
+     * them to end, so that no session is used by two workers.
+     */
+    private void executeInParallel(List<List<Statement>> partitions) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            Session session = sessions.get(i);
+            List<Statement> statements = partitions.get(i);
+            if (!statements.isEmpty()) {
+                futures.add(executor.submit(() -> execute(session, statements)));
+            }
+        }
+
+        RuntimeException error = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = error != null ? error : new IllegalStateException("Interrupted while writing graph delta", e);
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof RuntimeException cause
+                            ? cause
+                            : new IllegalStateException("Could not write graph delta", e.getCause());
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Executes statements in a transaction that is retried on transient errors. The statements merge their rows, so
+     * running them again has no further effect.
+     */
+    private static void execute(Session session, List<Statement> statements) {
+        if (statements.stream().allMatch(statement -> statement.rows().isEmpty())) {
+            return;
+        }
+
+        session.executeWrite(tx -> {
+            for (Statement statement : statements) {
+                List<Map<String, Object>> rows = statement.rows();
+                int rowsPerStatement = GraphDatabaseOperations.ROWS_PER_STATEMENT;
+                for (int from = 0; from < rows.size(); from += rowsPerStatement) {
+                    List<Map<String, Object>> chunk = rows.subList(from, Math.min(from + rowsPerStatement, rows.size()));
+                    tx.run(statement.query(), parameters(CypherConstants.PROP_ROWS, chunk)).consume();
+                }
+            }
+            return null;
+        });
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "sdg-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -3,40 +3,83 @@ package com.sdg.graph;
 import com.github.javaparser.ast.CompilationUnit;
 import com.sdg.ast.ASTAnalyzer;
 import com.sdg.ast.ASTAnalyzerConfig;
+import com.sdg.ast.AnalysisTimings;
+import com.sdg.ast.CallCountCache;
+import com.sdg.ast.CompilationUnitCache;
 import com.sdg.ast.JavaFileParser;
 import com.sdg.ast.MethodAnalysisHelper;
 import com.sdg.ast.MethodCallAnalyzer;
+import com.sdg.ast.MethodCallAnalyzerPool;
+import com.sdg.ast.TypeIndex;
+import com.sdg.graph.ProcessingConfig.GeneratedFileLane;
 import com.sdg.llm.GeminiApiClient;
 import com.sdg.llm.LLMService;
 import com.sdg.logging.LoggerUtil;
+import com.sdg.model.DuplicateFiles;
+import com.sdg.model.FileHashes;
+import com.sdg.model.GeneratedFileClassifier;
+import com.sdg.model.GeneratedFileClassifier.Classification;
+import com.sdg.model.GitCloneCache;
+import com.sdg.model.GitTreeSnapshot;
 import com.sdg.model.InputHandler;
 import com.sdg.model.InputHandler.ProcessingResult;
+import com.sdg.model.SourceFile;
+import com.sdg.model.SourceReader;
+import com.sdg.model.SourceTreeScanner;
+import com.sdg.model.SourceTreeWatcher;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This class orchestrates the creation of a knowledge graph from Java source code and generates
  * a high-level description using {@link LLMService}. //TODO: extract usage of LLMService to separate class?
  * It delegates the different responsibilities to specialized classes:
  * - {@link JavaFileParser}
+ * - {@link MethodCallAnalyzer}
  * - {@link ASTAnalyzer}
  * - {@link GraphDatabaseOperations}
  *
+ * Each file is parsed once: the AST produced while counting method calls is kept in a {@link CompilationUnitCache}
+ * and handed to the {@link ASTAnalyzer} when the file is stored in the graph database. Files whose call counts are
+ * found in the persistent {@link CallCountCache} are not parsed until they are stored.
+ *
+ * The graph contents of each file are collected in a {@link GraphDelta}, and the deltas of a batch of files are
+ * written together with a few statements per kind of node and relationship when the batch is committed.
+ * After the database is reset, the graph is created without merging, with the nodes deduplicated by a
+ * {@link GraphIdentityMap}.
+ *
  * @author Joakim Colloz
  * @version 1.0
  */
 public class KnowledgeGraphService implements AutoCloseable {
     private final JavaFileParser parser;
     private final GraphDatabaseOperations dbOps;
+    // Writes each batch in parallel transactions instead of the batch transaction, if configured
+    private final Optional<GraphWriterPool> writerPool;
     private final ASTAnalyzer analyzer;
     private final InputHandler inputHandler;
     private final LLMService llmService;
@@ -44,6 +87,15 @@ public class KnowledgeGraphService implements AutoCloseable {
     private static final int BATCH_COMMIT_THRESHOLD = 10; // Commit after every 10 files
     private String systemName;
     private final MethodAnalysisHelper methodAnalysisHelper;
+    private final CompilationUnitCache compilationUnitCache = new CompilationUnitCache();
+    // Graph contents of the files stored since the last commit, written together when the batch is committed
+    private GraphDelta pendingDelta = new GraphDelta();
+    // Nodes created since the database was reset, while the graph is loaded without merging
+    private Optional<GraphIdentityMap> freshLoad = Optional.empty();
+    // Exporter of the graph contents while they are exported for neo4j-admin instead of written to the database
+    private Optional<CsvGraphExporter> export = Optional.empty();
+    private final ProcessingConfig processingConfig;
+    private final ASTAnalyzerConfig astAnalyzerConfig;
 
     /**
      * Default constructor initializes the service components.
@@ -58,14 +110,30 @@ public class KnowledgeGraphService implements AutoCloseable {
      * @param config the configuration for the ASTAnalyzer
      */
     public KnowledgeGraphService(final ASTAnalyzerConfig config) {
-        LoggerUtil.info(getClass(), "Initializing KnowledgeGraphService");
+        this(config, new ProcessingConfig());
+    }
+
+    /**
+     * Constructor accepting a {@link ASTAnalyzerConfig} and a {@link ProcessingConfig}.
+     *
+     * @param config the configuration for the ASTAnalyzer
+     * @param processingConfig the configuration for the processing pipeline
+     */
+    public KnowledgeGraphService(final ASTAnalyzerConfig config, final ProcessingConfig processingConfig) {
+        LoggerUtil.info(getClass(), "Initializing KnowledgeGraphService with configuration: {}", processingConfig);
+        this.processingConfig = processingConfig;
+        this.astAnalyzerConfig = config;
 
         this.dbOps = new GraphDatabaseOperations();
         initializeSchema();
+        this.writerPool = processingConfig.getWriteParallelism() > 1
+                ? Optional.of(new GraphWriterPool(dbOps.getDriver(), processingConfig.getWriteParallelism()))
+                : Optional.empty();
 
         this.parser = new JavaFileParser();
         this.analyzer = new ASTAnalyzer(dbOps, config);
-        this.inputHandler = new InputHandler();  // Initialize InputHandler
+        this.inputHandler = new InputHandler(new GitCloneCache(processingConfig.getGitCloneCacheDirectory(),
+                processingConfig.getGitCloneCacheMaxBytes(), processingConfig.getGitCloneCacheMaxAge()));
         this.llmService = new LLMService(new GeminiApiClient());
         this.methodAnalysisHelper = new MethodAnalysisHelper();
     }
@@ -109,45 +177,534 @@ public class KnowledgeGraphService implements AutoCloseable {
      */
     public Observable<ProcessingResult> processKnowledgeGraph(String inputPath, boolean resetDatabase) {
         if (resetDatabase) {
-            dbOps.deleteAllData();
+            resetDatabase();
+        }
+
+        return withLocalSourcePath(inputPath, sourcePath ->
+                processKnowledgeGraph(inputPath, sourcePath, Optional.empty(), new FileHashes()));
+    }
+
+    /**
+     * Exports the knowledge graph of the source files as CSV files for {@code neo4j-admin database import} instead
+     * of writing it to the graph database, so that the graph of a large source tree can be loaded offline. The
+     * files are written like a fresh load and can be imported into an empty database, see {@link CsvGraphExporter}.
+     *
+     * @param inputPath path to the source files
+     * @param outputDirectory the directory to write the CSV files to
+     * @return Observable stream of processing results
+     * @throws UncheckedIOException if the files cannot be created
+     */
+    public Observable<ProcessingResult> exportKnowledgeGraph(String inputPath, Path outputDirectory) {
+        CsvGraphExporter exporter = new CsvGraphExporter(outputDirectory);
+        export = Optional.of(exporter);
+        try {
+            return withLocalSourcePath(inputPath, sourcePath ->
+                    processKnowledgeGraph(inputPath, sourcePath, Optional.empty(), new FileHashes()))
+                    .doFinally(() -> endExport(exporter));
+        } catch (RuntimeException e) {
+            endExport(exporter);
+            throw e;
+        }
+    }
+
+    private void endExport(CsvGraphExporter exporter) {
+        export = Optional.empty();
+        exporter.close();
+    }
+
+    /**
+     * Updates the knowledge graph of a directory, Java file or Git repository incrementally. The files stored by earlier
+     * runs are compared with the current files by their content hashes: the parts of the graph extracted from
+     * deleted and changed files are removed and only added and changed files are stored again. Files whose
+     * content did not change are stored again too if calls to their methods were added or removed elsewhere,
+     * since that changes which of their methods are included.
+     *
+     * The files of a Git repository URL are kept in the same directory of the clone cache across runs, so they are
+     * compared with the files stored by earlier runs like the files of a local directory.
+     *
+     * @param inputPath path to the source files
+     * @return Observable stream of processing results
+     */
+    public Observable<ProcessingResult> updateKnowledgeGraph(String inputPath) {
+        return withLocalSourcePath(inputPath, sourcePath -> {
+            SourceFileManifest storedManifest =
+                    dbOps.getSourceFileManifest(SourceFileManifest.pathOf(Path.of(sourcePath)));
+            LoggerUtil.info(getClass(), "Updating knowledge graph for path: {} ({} files stored)", inputPath,
+                    storedManifest.size());
+            return processKnowledgeGraph(inputPath, sourcePath, Optional.of(storedManifest), new FileHashes());
+        });
+    }
+
+    /**
+     * Updates the knowledge graph of a local Git work tree incrementally like {@link #updateKnowledgeGraph(String)},
+     * using the diff between two revisions instead of reading every file to find the changed ones. Files the diff
+     * does not report as changed are assumed to be stored as they are, so the graph must have been built from the
+     * old revision and the work tree must be checked out at the new revision.
+     *
+     * @param inputPath path to the work tree of the repository, or a directory inside it
+     * @param oldRevision the revision the graph was built from
+     * @param newRevision the revision checked out in the work tree
+     * @return Observable stream of processing results
+     * @throws IllegalArgumentException if the path is not in a Git work tree or a revision cannot be resolved
+     * @throws UncheckedIOException if the repository cannot be read
+     */
+    public Observable<ProcessingResult> updateKnowledgeGraph(String inputPath, String oldRevision, String newRevision) {
+        Set<String> changedFiles = new HashSet<>();
+        try {
+            for (InputHandler.JavaFileChange change : inputHandler.diffJavaFiles(Path.of(inputPath), oldRevision,
+                    newRevision)) {
+                Stream.of(change.oldFile(), change.newFile()).filter(Objects::nonNull)
+                        .forEach(file -> changedFiles.add(SourceFileManifest.pathOf(file)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not diff " + oldRevision + " and " + newRevision, e);
+        }
+
+        SourceFileManifest storedManifest = dbOps.getSourceFileManifest(SourceFileManifest.pathOf(Path.of(inputPath)));
+        LoggerUtil.info(getClass(), "Updating knowledge graph for path: {} from {} to {} ({} files stored)", inputPath,
+                oldRevision, newRevision, storedManifest.size());
+
+        // Unchanged files keep their stored content hash, so they are not read unless their calls must be counted
+        FileHashes fileHashes = new FileHashes();
+        storedManifest.entries().forEach((path, entry) -> {
+            if (!changedFiles.contains(path)) {
+                fileHashes.remember(Path.of(path), entry.contentHash());
+            }
+        });
+        return processKnowledgeGraph(inputPath, inputPath, Optional.of(storedManifest), fileHashes);
+    }
+
+    /**
+     * Updates the knowledge graph of a directory incrementally like {@link #updateKnowledgeGraph(String)}, then
+     * keeps watching the directory and updates the graph again after each burst of changes to its Java files.
+     *
+     * Between updates, the scanned files, the type index, the classification and the hashes of the files are kept
+     * and only updated with the changed files, so the source tree is not scanned again and unchanged files are not
+     * read to index, classify or hash them. The calls of all files are counted again, since they select the methods
+     * that are stored; with the call count cache enabled, the counts of unchanged files that do not depend on changed
+     * files are taken from the cache without reading the files. Only the graph contents of changed files, and of
+     * files whose selection of methods changed, are replaced.
+     *
+     * @param inputPath path to the source directory
+     * @return Observable stream of processing results, one per update, which watches until it is disposed
+     * @throws IllegalArgumentException if the path is not a local directory
+     * @throws UncheckedIOException if the directory cannot be watched
+     */
+    public Observable<ProcessingResult> watchKnowledgeGraph(String inputPath) {
+        Path root = Path.of(inputPath);
+        if (inputHandler.isRemoteRepository(inputPath) || !Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Only local directories can be watched: " + inputPath);
         }
 
+        // Watch before the first update, so that no change made during it is missed
+        SourceTreeWatcher watcher;
+        try {
+            watcher = new SourceTreeWatcher(root, processingConfig.getWatchQuietPeriod(),
+                    processingConfig.getWatchMaxBatchLatency());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not watch " + inputPath, e);
+        }
+
+        WatchedSourceTree sourceTree = new WatchedSourceTree(root);
+        return Observable.defer(() -> {
+                    sourceTree.scan();
+                    return updateKnowledgeGraph(inputPath, sourceTree);
+                })
+                .concatWith(watcher.changes().concatMap(batch -> Observable.defer(() -> {
+                    LoggerUtil.info(getClass(), "Updating knowledge graph for {} changed files",
+                            batch.changedFiles().size());
+                    if (batch.overflowed()) {
+                        sourceTree.scan();
+                    } else {
+                        sourceTree.update(batch.changedFiles());
+                    }
+                    return updateKnowledgeGraph(inputPath, sourceTree);
+                })))
+                .doFinally(watcher::close);
+    }
+
+    private Observable<ProcessingResult> updateKnowledgeGraph(String inputPath, WatchedSourceTree sourceTree) {
+        SourceFileManifest storedManifest = dbOps.getSourceFileManifest(SourceFileManifest.pathOf(Path.of(inputPath)));
+        LoggerUtil.info(getClass(), "Processing knowledge graph for path: {}", inputPath);
+        this.systemName = inputHandler.extractSystemName(inputPath);
+
+        long start = System.currentTimeMillis();
+        MethodCallAnalyzer prototypeAnalyzer = new MethodCallAnalyzer(sourceTree.typeIndex, sourceTree.sourceReader,
+                processingConfig.getMethodCallAnalyzerConfig());
+        return processSourceFiles(sourceTree.root, sourceTree.relevantFiles, sourceTree.classifications::get,
+                prototypeAnalyzer, sourceTree.sourceReader, Optional.of(storedManifest), sourceTree.fileHashes, start);
+    }
+
+    /**
+     * Processes the Java files of a revision of a Git repository to build the knowledge graph, reading them straight
+     * from the repository's object database instead of a checkout. The revision of a remote repository is fetched
+     * into the clone cache without history, so it must be a branch or tag.
+     *
+     * The blob ids of the files are used as their content hashes, so call counts cached for one revision are reused
+     * for every other revision, branch or tag containing the same files without reading them.
+     *
+     * @param repository the URL of a remote repository, or the path of a local repository or a directory inside it
+     * @param revision the revision to process, e.g. a commit id, branch or tag
+     * @param resetDatabase whether to delete all data from the graph database first
+     * @return Observable stream of processing results
+     * @throws IllegalArgumentException if the repository cannot be found or the revision cannot be resolved
+     * @throws UncheckedIOException if the repository cannot be cloned or read
+     */
+    public Observable<ProcessingResult> processGitRevision(String repository, String revision, boolean resetDatabase) {
+        if (resetDatabase) {
+            resetDatabase();
+        }
+
+        LoggerUtil.info(getClass(), "Processing knowledge graph for revision {} of {}", revision, repository);
+        this.systemName = inputHandler.extractSystemName(repository);
+
+        long start = System.currentTimeMillis();
+        GitTreeSnapshot snapshot;
+        try {
+            snapshot = inputHandler.openGitRevision(repository, revision);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open revision " + revision + " of " + repository, e);
+        }
+
+        FileHashes fileHashes = new FileHashes();
+        snapshot.getJavaFiles().forEach(file -> fileHashes.remember(file, snapshot.getBlobId(file)));
+        MethodCallAnalyzer prototypeAnalyzer = new MethodCallAnalyzer(snapshot.getRoot(), snapshot.getJavaFiles(),
+                snapshot, processingConfig.getMethodCallAnalyzerConfig());
+        List<Path> relevantFiles = new ArrayList<>(inputHandler.getRelevantJavaFiles(snapshot));
+        Set<Path> generatedFiles = findGeneratedFiles(relevantFiles, (classifier, file) ->
+                classifier.classify(file, snapshot.getSize(file), snapshot));
+        DuplicateFiles javaFiles = DuplicateFiles.find(relevantFiles, snapshot::getSize, fileHashes);
+        return processFiles(snapshot.getRoot(), javaFiles, generatedFiles, prototypeAnalyzer, snapshot,
+                Optional.empty(), fileHashes, start)
+                .doFinally(snapshot::close);
+    }
+
+    /**
+     * Deletes all data from the graph database. Since the graph is built from scratch, it is loaded with CREATE
+     * statements if enabled, with the nodes deduplicated in memory instead of merged one by one.
+     */
+    private void resetDatabase() {
+        dbOps.deleteAllData();
+        if (processingConfig.isFreshLoadEnabled()) {
+            freshLoad = Optional.of(new GraphIdentityMap());
+        }
+    }
+
+    /**
+     * Processes the local path of the source files, which for a Git repository URL is the directory its Java files
+     * are written to in the clone cache. The directory is leased until the processing terminates, so that it is not
+     * evicted while its files are read.
+     */
+    private Observable<ProcessingResult> withLocalSourcePath(String inputPath,
+                                                             Function<String, Observable<ProcessingResult>> processing) {
+        if (!inputHandler.isRemoteRepository(inputPath)) {
+            return processing.apply(inputPath);
+        }
+
+        GitCloneCache.Lease<Path> checkout;
+        try {
+            checkout = inputHandler.checkoutRemoteRepository(inputPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not clone " + inputPath, e);
+        }
+        try {
+            return processing.apply(checkout.get().toString()).doFinally(checkout::close);
+        } catch (RuntimeException e) {
+            checkout.close();
+            throw e;
+        }
+    }
+
+    private Observable<ProcessingResult> processKnowledgeGraph(String inputPath, String sourcePath,
+                                                               Optional<SourceFileManifest> storedManifest,
+                                                               FileHashes fileHashes) {
         LoggerUtil.info(getClass(), "Processing knowledge graph for path: {}", inputPath);
 
         // Extract system name from input path
         this.systemName = inputHandler.extractSystemName(inputPath);
 
         long start = System.currentTimeMillis();
-        ensureBatchSession();
-        MethodCallAnalyzer methodCallAnalyzer = new MethodCallAnalyzer(inputPath);
+        // Archives are read in place through their zip file system, which stays open until processing ends
+        Optional<FileSystem> archive = openArchive(sourcePath);
+        Path root = archive.map(inputHandler::archiveRoot).orElse(Path.of(sourcePath));
 
-        return inputHandler.processFilesRx(inputPath)
-                .subscribeOn(Schedulers.io())
-                .map(ProcessingResult::file)
-                .observeOn(Schedulers.computation())
-                .flatMap(file -> Observable.fromCallable(() -> {
-                    try {
-                        LoggerUtil.debug(getClass(), "Processing file: {}", file);
-                        return MethodAnalysisHelper.countMethodCalls(file, methodCallAnalyzer);
-                    } catch (StackOverflowError e) {
-                        LoggerUtil.error(getClass(),"StackOverflow when processing file: {}", file, e);
-                        throw e;
-                    }
-                }))
+        // A single scan of the source tree yields both the files to process and the files to resolve types in.
+        // Contents are only read when a file is parsed, which also records its hash
+        SourceTreeScanner.SourceTree sourceTree = inputHandler.scanSourceTree(root);
+        SourceReader sourceReader = SourceReader.fileSystem(fileHashes);
+        MethodCallAnalyzer prototypeAnalyzer = new MethodCallAnalyzer(sourceTree, sourceReader,
+                processingConfig.getMethodCallAnalyzerConfig());
+        List<SourceFile> relevantFiles = inputHandler.getRelevantJavaFiles(sourceTree);
+        Map<Path, Classification> classifications = classifySourceFiles(relevantFiles);
+        Observable<ProcessingResult> results = processSourceFiles(Path.of(sourcePath), relevantFiles,
+                classifications::get, prototypeAnalyzer, sourceReader, storedManifest, fileHashes, start);
+        return archive.map(fileSystem -> results.doFinally(fileSystem::close)).orElse(results);
+    }
+
+    /**
+     * Processes the relevant files of a scanned source tree, grouping them by content and setting the generated and
+     * oversized ones aside by their classification.
+     */
+    private Observable<ProcessingResult> processSourceFiles(Path inputRoot, List<SourceFile> relevantFiles,
+                                                            Function<Path, Classification> classification,
+                                                            MethodCallAnalyzer prototypeAnalyzer,
+                                                            SourceReader sourceReader,
+                                                            Optional<SourceFileManifest> storedManifest,
+                                                            FileHashes fileHashes, long start) {
+        List<SourceFile> files = new ArrayList<>(relevantFiles);
+        Set<Path> generatedFiles = flagGeneratedFiles(files, file -> classification.apply(file.path())).stream()
+                .map(SourceFile::path).collect(Collectors.toSet());
+        DuplicateFiles javaFiles = DuplicateFiles.find(files, fileHashes);
+        return processFiles(inputRoot, javaFiles, generatedFiles, prototypeAnalyzer, sourceReader, storedManifest,
+                fileHashes, start);
+    }
+
+    private Optional<FileSystem> openArchive(String sourcePath) {
+        if (!inputHandler.isArchive(sourcePath)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(inputHandler.openArchive(Path.of(sourcePath)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open archive " + sourcePath, e);
+        }
+    }
+
+    /**
+     * Classifies the files in parallel and returns the generated and oversized ones. If they are skipped, they are
+     * removed from the files and an empty set is returned.
+     */
+    private <T> Set<T> findGeneratedFiles(List<T> files,
+                                          BiFunction<GeneratedFileClassifier, T, Classification> classification) {
+        GeneratedFileClassifier classifier = new GeneratedFileClassifier(processingConfig.getOversizedFileBytes());
+        Map<T, Classification> classifications = files.parallelStream()
+                .collect(Collectors.toConcurrentMap(file -> file, file -> classification.apply(classifier, file),
+                        (first, second) -> first));
+        return flagGeneratedFiles(files, classifications::get);
+    }
+
+    /**
+     * Classifies discovered files in parallel, reading only the head of each file.
+     */
+    private Map<Path, Classification> classifySourceFiles(Collection<SourceFile> files) {
+        GeneratedFileClassifier classifier = new GeneratedFileClassifier(processingConfig.getOversizedFileBytes());
+        return files.parallelStream().collect(Collectors.toConcurrentMap(SourceFile::path, classifier::classify,
+                (first, second) -> first));
+    }
+
+    /**
+     * Returns the generated and oversized files by their classification. If they are skipped, they are removed from
+     * the files and an empty set is returned.
+     */
+    private <T> Set<T> flagGeneratedFiles(List<T> files, Function<T, Classification> classification) {
+        Map<Classification, List<T>> filesByClassification = files.stream()
+                .collect(Collectors.groupingBy(classification));
+        List<T> generatedFiles = filesByClassification.getOrDefault(Classification.GENERATED, List.of());
+        List<T> oversizedFiles = filesByClassification.getOrDefault(Classification.OVERSIZED, List.of());
+        GeneratedFileLane lane = processingConfig.getGeneratedFileLane();
+        LoggerUtil.info(getClass(), "Found {} generated and {} oversized files, processed as {}", generatedFiles.size(),
+                oversizedFiles.size(), lane);
+
+        Set<T> flaggedFiles = new HashSet<>(generatedFiles);
+        flaggedFiles.addAll(oversizedFiles);
+        if (lane == GeneratedFileLane.SKIP) {
+            files.removeIf(flaggedFiles::contains);
+            return Set.of();
+        }
+        return flaggedFiles;
+    }
+
+    /**
+     * Counts the method calls of the given files in parallel, then stores the files in the graph database one by
+     * one. With a stored manifest, only the files that were added or changed since it was recorded are stored.
+     *
+     * Each distinct content is analyzed and stored once, for the representative of the files with that content.
+     * The counts of the representative are counted for every file with the content, and the other files are only
+     * recorded in the manifest.
+     *
+     * Generated and oversized files are counted after all other files, or not at all if only their structure is
+     * stored.
+     */
+    private Observable<ProcessingResult> processFiles(Path inputRoot, DuplicateFiles javaFiles,
+                                                      Set<Path> generatedFiles, MethodCallAnalyzer prototypeAnalyzer,
+                                                      SourceReader sourceReader,
+                                                      Optional<SourceFileManifest> storedManifest,
+                                                      FileHashes fileHashes, long start) {
+        if (export.isEmpty()) {
+            ensureBatchSession();
+        }
+        MethodCallAnalyzerPool analyzerPool = new MethodCallAnalyzerPool(prototypeAnalyzer,
+                processingConfig.getAnalysisParallelism());
+        Optional<CallCountCache> callCountCache = processingConfig.isCallCountCacheEnabled()
+                ? Optional.of(new CallCountCache(processingConfig.getCallCountCacheDirectory(),
+                        processingConfig.getCallCountCacheMaxBytes(), prototypeAnalyzer, fileHashes))
+                : Optional.empty();
+        AnalysisTimings analysisTimings = new AnalysisTimings(processingConfig.getAnalysisTimingsDirectory(),
+                inputRoot);
+
+        // The most expensive files are started first, so that no worker is left with a large file after the
+        // others are done. Idle workers take the next file as soon as they finish one.
+        Map<Boolean, List<Path>> filesByLane = javaFiles.representatives().stream()
+                .collect(Collectors.partitioningBy(generatedFiles::contains));
+        List<Path> regularFiles = analysisTimings.orderByCost(filesByLane.get(false), javaFiles::getSize);
+        Observable<MethodAnalysisHelper.MethodAnalysisResult> generatedFileCounts =
+                processingConfig.getGeneratedFileLane() == GeneratedFileLane.STRUCTURE_ONLY
+                        ? Observable.fromIterable(filesByLane.get(true))
+                                .map(file -> new MethodAnalysisHelper.MethodAnalysisResult(file, Map.of(), Map.of()))
+                        : countMethodCalls(analysisTimings.orderByCost(filesByLane.get(true), javaFiles::getSize),
+                                analyzerPool, callCountCache, analysisTimings);
+
+        return Observable.concat(countMethodCalls(regularFiles, analyzerPool, callCountCache, analysisTimings),
+                        generatedFileCounts)
+                .concatMapIterable(result -> javaFiles.filesOf(result.file()).stream()
+                        .map(file -> new MethodAnalysisHelper.MethodAnalysisResult(file, result.methodCallsMap(),
+                                result.approximateCallsMap()))
+                        .toList())
                 .toList()
+                .doFinally(() -> {
+                    analyzerPool.close();
+                    analysisTimings.save(javaFiles.representatives());
+                    callCountCache.ifPresent(cache -> {
+                        cache.evict();
+                        LoggerUtil.info(getClass(), "Call count cache: {}", cache);
+                    });
+                    LoggerUtil.info(getClass(), "Resolution cache: {}", prototypeAnalyzer.getResolutionCacheStats());
+                    LoggerUtil.info(getClass(), "Resolution statistics: {}", prototypeAnalyzer.getResolutionStatistics());
+                    prototypeAnalyzer.getResolutionStatistics().getDegradedFiles().forEach(degradedFile ->
+                            LoggerUtil.warn(getClass(), "Method calls partially counted by name due to resolution " +
+                                    "budget: {}", degradedFile));
+                })
                 .map(methodAnalysisHelper::processMethodAnalysisResult)
                 .flatMapObservable(methodAnalysisResult -> {
                     Map<String, Integer> methodCallsMap = methodAnalysisResult.methodCallsMap();
+                    Map<String, Integer> approximateCallsMap = methodAnalysisResult.approximateCallsMap();
+                    Map<String, Path> filesByPath = new HashMap<>();
+                    methodAnalysisResult.files().forEach(file -> filesByPath.put(SourceFileManifest.pathOf(file), file));
+                    SourceFileManifest currentManifest = buildManifest(methodAnalysisResult,
+                            prototypeAnalyzer.getTypeIndex(), fileHashes);
+
+                    Collection<String> deletedFiles = List.of();
+                    Collection<String> filesToStore = filesByPath.keySet();
+                    Set<String> replacedHashes = new HashSet<>();
+                    if (storedManifest.isPresent()) {
+                        SourceFileManifest.Changes changes = storedManifest.get().diff(currentManifest);
+                        LoggerUtil.info(getClass(), "Changes since the last update: {}", changes);
+                        deletedFiles = changes.deleted();
+                        filesToStore = new ArrayList<>(changes.added());
+                        filesToStore.addAll(changes.changed());
+                        Stream.concat(changes.deleted().stream(), changes.changed().stream()).forEach(path ->
+                                replacedHashes.add(storedManifest.get().get(path).orElseThrow().contentHash()));
+                    }
+
+                    // A duplicate is only recorded, but its representative is stored again since the group's
+                    // graph contents may have been stored for the duplicate by an earlier run. Removing or changing
+                    // a file may remove the graph contents stored for other files with its old content as well.
+                    Set<Path> duplicatesToStore = new TreeSet<>();
+                    Set<Path> representativesToStore = new TreeSet<>();
+                    for (String path : filesToStore) {
+                        Path file = filesByPath.get(path);
+                        Path representative = javaFiles.representativeOf(file);
+                        if (!representative.equals(file)) {
+                            duplicatesToStore.add(file);
+                        }
+                        representativesToStore.add(representative);
+                    }
+                    for (Path representative : javaFiles.representatives()) {
+                        if (replacedHashes.contains(fileHashes.hash(representative))) {
+                            representativesToStore.add(representative);
+                        }
+                    }
+
                     // Chain file processing as a Completable, then emit ProcessingResult after all files processed
-                    return Observable.fromIterable(methodAnalysisResult.files())
+                    return Observable.fromIterable(deletedFiles)
                             .observeOn(Schedulers.io())
-                            .flatMapCompletable(file -> Completable.fromAction(() -> processFile(file, methodCallsMap)))
-                            .doOnComplete(() -> finalizeProcessing(start))
+                            .flatMapCompletable(path -> Completable.fromAction(() -> processDeletedFile(path)))
+                            .andThen(Observable.fromIterable(duplicatesToStore))
+                            .flatMapCompletable(file -> Completable.fromAction(() ->
+                                    processDuplicateFile(file, currentManifest.get(SourceFileManifest.pathOf(file))
+                                            .orElseThrow())))
+                            .andThen(Observable.fromIterable(representativesToStore))
+                            .flatMapCompletable(file -> Completable.fromAction(() ->
+                                    processFile(file, currentManifest.get(SourceFileManifest.pathOf(file))
+                                                    .orElseThrow(), sourceReader, methodCallsMap,
+                                            approximateCallsMap)))
+                            .doOnComplete(() -> {
+                                LoggerUtil.info(getClass(), "Duplicate files: {}", javaFiles);
+                                finalizeProcessing(start);
+                            })
                             .doOnError(this::handleError)
-                            .andThen(Observable.just(new ProcessingResult(Path.of(inputPath), 0, "")));
+                            .andThen(Observable.just(new ProcessingResult(inputRoot, 0, "")));
                 });
     }
 
+    /**
+     * Counts the method calls of the given files in parallel on the analyzer pool.
+     */
+    private Observable<MethodAnalysisHelper.MethodAnalysisResult> countMethodCalls(
+            List<Path> files, MethodCallAnalyzerPool analyzerPool, Optional<CallCountCache> callCountCache,
+            AnalysisTimings analysisTimings) {
+        return Observable.fromIterable(files)
+                .subscribeOn(Schedulers.io())
+                .flatMap(file -> Observable.fromCallable(() -> {
+                    try {
+                        LoggerUtil.debug(getClass(), "Processing file: {}", file);
+                        return countMethodCalls(file, analyzerPool.getAnalyzer(), callCountCache, analysisTimings);
+                    } catch (StackOverflowError e) {
+                        LoggerUtil.error(getClass(),"StackOverflow when processing file: {}", file, e);
+                        throw e;
+                    }
+                }).subscribeOn(analyzerPool.getScheduler()), analyzerPool.getParallelism());
+    }
+
+    /**
+     * Builds the manifest of the analyzed files, with the methods of each file that are included in the graph.
+     */
+    private SourceFileManifest buildManifest(MethodAnalysisHelper.ProcessedMethodAnalysisResult methodAnalysisResult,
+                                             TypeIndex typeIndex, FileHashes fileHashes) {
+        Map<Path, List<String>> signaturesByFile = new HashMap<>();
+        for (String signature : methodAnalysisResult.methodCallsMap().keySet()) {
+            String member = signature.substring(0, signature.indexOf('('));
+            typeIndex.findTopLevelType(member).flatMap(typeIndex::findFile).ifPresent(file ->
+                    signaturesByFile.computeIfAbsent(file.toAbsolutePath().normalize(), key -> new ArrayList<>())
+                            .add(signature));
+        }
+
+        // Methods called by name only cannot be attributed to a file, so they are part of every file's selection
+        String configuration = astAnalyzerConfig + ";" + new TreeSet<>(methodAnalysisResult.approximateCallsMap().keySet());
+        Map<String, SourceFileManifest.Entry> entries = new HashMap<>();
+        for (Path file : methodAnalysisResult.files()) {
+            List<String> signatures = signaturesByFile.getOrDefault(file.toAbsolutePath().normalize(), List.of());
+            entries.put(SourceFileManifest.pathOf(file), new SourceFileManifest.Entry(fileHashes.hash(file),
+                    SourceFileManifest.selectionDigest(configuration, signatures)));
+        }
+        return new SourceFileManifest(entries);
+    }
+
+    /**
+     * Counts the method calls of a file, reusing the counts of an earlier run if the file and the types it depends
+     * on are unchanged. Otherwise the file is parsed once and its AST kept for the graph extraction stage, and the
+     * time the analysis took is recorded.
+     */
+    private MethodAnalysisHelper.MethodAnalysisResult countMethodCalls(Path file, MethodCallAnalyzer methodCallAnalyzer,
+                                                                       Optional<CallCountCache> callCountCache,
+                                                                       AnalysisTimings analysisTimings) {
+        Optional<MethodCallAnalyzer.CallCounts> cachedCounts = callCountCache.flatMap(cache -> cache.get(file));
+        if (cachedCounts.isPresent()) {
+            return new MethodAnalysisHelper.MethodAnalysisResult(file, cachedCounts.get().resolvedCalls(),
+                    cachedCounts.get().approximateCalls());
+        }
+
+        long start = System.nanoTime();
+        CompilationUnit cu = methodCallAnalyzer.parse(file);
+        compilationUnitCache.put(file, cu);
+        MethodCallAnalyzer.CallCounts callCounts = methodCallAnalyzer.countCalls(cu);
+        analysisTimings.record(file, System.nanoTime() - start);
+        callCountCache.ifPresent(cache -> cache.put(file, callCounts, methodCallAnalyzer.findDependencies(cu, callCounts)));
+        return new MethodAnalysisHelper.MethodAnalysisResult(file, callCounts.resolvedCalls(),
+                callCounts.approximateCalls());
+    }
+
     /**
      * Ensures a batch session is active before processing files.
      */
@@ -162,57 +719,139 @@ public class KnowledgeGraphService implements AutoCloseable {
      */
     private void finalizeProcessing(long start) {
         LoggerUtil.info(getClass(), "All files analyzed successfully.");
+        if (compilationUnitCache.getReleasedCount() > 0) {
+            LoggerUtil.info(getClass(), "{} files were parsed twice because their AST was released due to memory pressure",
+                    compilationUnitCache.getReleasedCount());
+        }
+        compilationUnitCache.clear();
         commitRemainingTransactions();
+        endFreshLoad();
         LoggerUtil.info(getClass(), "Processing took {} seconds.", (System.currentTimeMillis() - start) / 1000);
     }
 
     private void commitRemainingTransactions() {
+        writePendingDelta();
         if (dbOps.isBatchTransactionActive()) {
-            dbOps.commitBatchTransaction();
+            try {
+                dbOps.commitBatchTransaction();
+            } catch (RuntimeException e) {
+                endFreshLoad();
+                throw e;
+            }
         }
     }
 
-    private void processFile(Path file, Map<String, Integer> methodCallsMap) {
+    /**
+     * Writes the graph contents of the files stored since the last commit.
+     */
+    private void writePendingDelta() {
+        if (pendingDelta.isEmpty()) {
+            return;
+        }
+
+        GraphDelta delta = pendingDelta;
+        pendingDelta = new GraphDelta();
+        if (export.isPresent()) {
+            export.get().write(delta);
+            return;
+        }
+        if (freshLoad.isEmpty() && writerPool.isPresent()) {
+            try {
+                writerPool.get().write(delta);
+            } catch (Exception e) {
+                // The replaced files were removed from the manifest with their contents, so they are stored again
+                // by the next update
+                LoggerUtil.error(getClass(), "Error writing {}: {}", delta, e.getMessage(), e);
+            }
+            return;
+        }
+
+        ensureActiveBatchTransaction();
+        try {
+            if (freshLoad.isPresent()) {
+                dbOps.create(delta, freshLoad.get());
+            } else {
+                dbOps.write(delta);
+            }
+        } catch (Exception e) {
+            LoggerUtil.error(getClass(), "Error writing {}: {}", delta, e.getMessage(), e);
+            // The identity map refers to nodes that are rolled back, so the rest of the graph is merged
+            endFreshLoad();
+            rollbackTransactionSafely();
+        }
+    }
+
+    private void endFreshLoad() {
+        freshLoad.ifPresent(identityMap -> LoggerUtil.info(getClass(), "Fresh load created {}", identityMap));
+        freshLoad = Optional.empty();
+    }
+
+    private void processFile(Path file, SourceFileManifest.Entry manifestEntry, SourceReader sourceReader,
+                             Map<String, Integer> methodCallsMap, Map<String, Integer> approximateCallsMap) {
         ProcessingResult result = new ProcessingResult(file, 0, "");
         LoggerUtil.debug(getClass(), "Processing file: {}", result.file());
-        ensureActiveBatchTransaction();
 
         try {
-            insertToGraphDatabase(file, methodCallsMap);
+            String sourceFile = SourceFileManifest.pathOf(file);
+            GraphDelta fileDelta = extractGraphDelta(file, sourceFile, sourceReader, methodCallsMap,
+                    approximateCallsMap);
+            // Replace what an earlier run stored for the file; a no-op for files stored for the first time
+            fileDelta.deleteFileContents(sourceFile);
+            fileDelta.recordSourceFile(sourceFile, manifestEntry);
+            pendingDelta.addAll(fileDelta);
             manageBatchCommits();
         } catch (Exception e) {
-            handleFileProcessingError(e);
+            // Nothing of the file has been added to the pending delta, so it is neither stored nor recorded
+            LoggerUtil.error(getClass(), "Error processing file: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * Records a file whose content is stored for another file, removing what an earlier run stored for it.
+     */
+    private void processDuplicateFile(Path file, SourceFileManifest.Entry manifestEntry) {
+        LoggerUtil.debug(getClass(), "Recording duplicate file: {}", file);
+        String sourceFile = SourceFileManifest.pathOf(file);
+        pendingDelta.deleteFileContents(sourceFile);
+        pendingDelta.recordSourceFile(sourceFile, manifestEntry);
+        manageBatchCommits();
+    }
+
+    private void processDeletedFile(String sourceFile) {
+        LoggerUtil.debug(getClass(), "Removing deleted file: {}", sourceFile);
+        pendingDelta.deleteFileContents(sourceFile);
+        pendingDelta.deleteSourceFile(sourceFile);
+        manageBatchCommits();
+    }
+
     private void ensureActiveBatchTransaction() {
         if (!dbOps.isBatchTransactionActive()) {
             dbOps.startBatchTransaction();
         }
     }
 
-    private void insertToGraphDatabase(Path filePath, Map<String, Integer> methodCallsMap) {
-        CompilationUnit cu = parser.parseFile(filePath.toString());
-        analyzer.analyzeAndStore(cu, methodCallsMap);
+    private GraphDelta extractGraphDelta(Path filePath, String sourceFile, SourceReader sourceReader,
+                                         Map<String, Integer> methodCallsMap,
+                                         Map<String, Integer> approximateCallsMap) {
+        // Reuse the AST from the method call counting stage; it is released once taken
+        CompilationUnit cu = compilationUnitCache.take(filePath).orElseGet(() -> parser.parse(filePath, sourceReader));
+        return analyzer.analyze(cu, sourceFile, methodCallsMap, approximateCallsMap);
     }
 
     private synchronized void manageBatchCommits() {
         if (processedFilesCount.incrementAndGet() % BATCH_COMMIT_THRESHOLD == 0) {
             commitRemainingTransactions();
-            dbOps.startBatchTransaction();
         }
     }
 
     private void handleError(Throwable throwable) {
         LoggerUtil.error(getClass(), "Error processing file: {}", throwable.getMessage(), throwable);
+        compilationUnitCache.clear();
+        pendingDelta = new GraphDelta();
+        endFreshLoad();
         dbOps.endBatchSession();
     }
 
-    private void handleFileProcessingError(Exception e) {
-        LoggerUtil.error(getClass(), "Error processing file: {}", e.getMessage(), e);
-        rollbackTransactionSafely();
-    }
-
     private void rollbackTransactionSafely() {
         if (dbOps.isBatchTransactionActive()) {
             try {
@@ -252,6 +891,7 @@ public class KnowledgeGraphService implements AutoCloseable {
     @Override
     public void close() {
         commitRemainingTransactions();
+        writerPool.ifPresent(GraphWriterPool::close);
         dbOps.endBatchSession();
         dbOps.close();
     }
@@ -259,4 +899,54 @@ public class KnowledgeGraphService implements AutoCloseable {
     private void initializeSchema() {
         new SchemaInitializer(dbOps.getDriver()).initializeSchema();
     }
+
+    /**
+     * The state of a watched source tree kept between updates: its Java files, the index of their types, the
+     * classification of the relevant files and the hashes of the files. After the initial scan, the state is only
+     * updated with the files that changed.
+     */
+    private final class WatchedSourceTree {
+        private final Path root;
+        private final FileHashes fileHashes = new FileHashes();
+        private final SourceReader sourceReader = SourceReader.fileSystem(fileHashes);
+        private final Map<Path, Classification> classifications = new HashMap<>();
+        private SourceTreeScanner.SourceTree sourceTree;
+        private List<SourceFile> relevantFiles;
+        private TypeIndex typeIndex;
+
+        private WatchedSourceTree(Path root) {
+            this.root = root;
+        }
+
+        /**
+         * Scans the whole source tree, discarding the state of earlier scans.
+         */
+        private void scan() {
+            fileHashes.clear();
+            sourceTree = inputHandler.scanSourceTree(root);
+            relevantFiles = inputHandler.getRelevantJavaFiles(sourceTree);
+            typeIndex = TypeIndex.build(sourceTree.javaFiles(), sourceReader);
+            classifications.clear();
+            classifications.putAll(classifySourceFiles(relevantFiles));
+        }
+
+        /**
+         * Updates the state with the files that were created, modified or deleted since the last update.
+         */
+        private void update(Set<Path> changedFiles) {
+            changedFiles.forEach(fileHashes::forget);
+            sourceTree = sourceTree.withChangedFiles(changedFiles);
+            relevantFiles = inputHandler.getRelevantJavaFiles(sourceTree);
+
+            List<Path> updatedFiles = sourceTree.javaFiles().stream().filter(changedFiles::contains).toList();
+            Set<Path> deletedFiles = new HashSet<>(changedFiles);
+            updatedFiles.forEach(deletedFiles::remove);
+            typeIndex = typeIndex.update(deletedFiles, updatedFiles, sourceReader);
+
+            changedFiles.forEach(classifications::remove);
+            classifications.putAll(classifySourceFiles(relevantFiles.stream()
+                    .filter(file -> changedFiles.contains(file.path()))
+                    .toList()));
+        }
+    }
 }
@@ -0,0 +1,403 @@
+package com.sdg.graph;
+
+import com.sdg.ast.MethodCallAnalyzerConfig;
+import com.sdg.model.GitCloneCache;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration class for the processing pipeline of the {@link KnowledgeGraphService}.
+ *
+ * While {@link com.sdg.ast.ASTAnalyzerConfig} decides what is extracted from the source code,
+ * this class decides how the pipeline runs, e.g. how many files are analyzed in parallel.
+ *
+ * @author Joakim Colloz
+ */
+public class ProcessingConfig {
+    private int analysisParallelism = Runtime.getRuntime().availableProcessors();
+    private MethodCallAnalyzerConfig methodCallAnalyzerConfig = new MethodCallAnalyzerConfig();
+    private boolean callCountCacheEnabled = true;
+    private Path callCountCacheDirectory = Path.of(System.getProperty("user.home"), ".sdg", "cache", "call-counts");
+    private long callCountCacheMaxBytes = 256L * 1024 * 1024;
+    private Path analysisTimingsDirectory = Path.of(System.getProperty("user.home"), ".sdg", "cache",
+            "analysis-timings");
+    private Path gitCloneCacheDirectory = GitCloneCache.DEFAULT_DIRECTORY;
+    private long gitCloneCacheMaxBytes = GitCloneCache.DEFAULT_MAX_BYTES;
+    private Duration gitCloneCacheMaxAge = GitCloneCache.DEFAULT_MAX_AGE;
+    private GeneratedFileLane generatedFileLane = GeneratedFileLane.DEFERRED;
+    private long oversizedFileBytes = 1024 * 1024;
+    private Duration watchQuietPeriod = Duration.ofMillis(250);
+    private Duration watchMaxBatchLatency = Duration.ofSeconds(5);
+    private boolean freshLoadEnabled = true;
+    private int writeParallelism = 1;
+
+    /**
+     * How generated and oversized files are processed, see {@link com.sdg.model.GeneratedFileClassifier}.
+     */
+    public enum GeneratedFileLane {
+        /** The files are not processed at all. Types declared in them are still resolved. */
+        SKIP,
+        /** The classes and methods of the files are stored, but the method calls in them are not counted. */
+        STRUCTURE_ONLY,
+        /** The files are processed like other files, but their method calls are counted after all other files. */
+        DEFERRED
+    }
+
+    public ProcessingConfig analysisParallelism(int analysisParallelism) {
+        setAnalysisParallelism(analysisParallelism);
+        return this;
+    }
+
+    public ProcessingConfig methodCallAnalyzerConfig(MethodCallAnalyzerConfig methodCallAnalyzerConfig) {
+        setMethodCallAnalyzerConfig(methodCallAnalyzerConfig);
+        return this;
+    }
+
+    public ProcessingConfig callCountCacheEnabled(boolean callCountCacheEnabled) {
+        setCallCountCacheEnabled(callCountCacheEnabled);
+        return this;
+    }
+
+    public ProcessingConfig callCountCacheDirectory(Path callCountCacheDirectory) {
+        setCallCountCacheDirectory(callCountCacheDirectory);
+        return this;
+    }
+
+    public ProcessingConfig callCountCacheMaxBytes(long callCountCacheMaxBytes) {
+        setCallCountCacheMaxBytes(callCountCacheMaxBytes);
+        return this;
+    }
+
+    public ProcessingConfig analysisTimingsDirectory(Path analysisTimingsDirectory) {
+        setAnalysisTimingsDirectory(analysisTimingsDirectory);
+        return this;
+    }
+
+    public ProcessingConfig gitCloneCacheDirectory(Path gitCloneCacheDirectory) {
+        setGitCloneCacheDirectory(gitCloneCacheDirectory);
+        return this;
+    }
+
+    public ProcessingConfig gitCloneCacheMaxBytes(long gitCloneCacheMaxBytes) {
+        setGitCloneCacheMaxBytes(gitCloneCacheMaxBytes);
+        return this;
+    }
+
+    public ProcessingConfig gitCloneCacheMaxAge(Duration gitCloneCacheMaxAge) {
+        setGitCloneCacheMaxAge(gitCloneCacheMaxAge);
+        return this;
+    }
+
+    public ProcessingConfig generatedFileLane(GeneratedFileLane generatedFileLane) {
+        setGeneratedFileLane(generatedFileLane);
+        return this;
+    }
+
+    public ProcessingConfig oversizedFileBytes(long oversizedFileBytes) {
+        setOversizedFileBytes(oversizedFileBytes);
+        return this;
+    }
+
+    public ProcessingConfig watchQuietPeriod(Duration watchQuietPeriod) {
+        setWatchQuietPeriod(watchQuietPeriod);
+        return this;
+    }
+
+    public ProcessingConfig watchMaxBatchLatency(Duration watchMaxBatchLatency) {
+        setWatchMaxBatchLatency(watchMaxBatchLatency);
+        return this;
+    }
+
+    public ProcessingConfig freshLoadEnabled(boolean freshLoadEnabled) {
+        setFreshLoadEnabled(freshLoadEnabled);
+        return this;
+    }
+
+    public ProcessingConfig writeParallelism(int writeParallelism) {
+        setWriteParallelism(writeParallelism);
+        return this;
+    }
+
+    // Setters
+
+    /**
+     * Sets the number of files whose method calls are analyzed in parallel.
+     * Each worker thread gets its own symbol solver.
+     *
+     * @param analysisParallelism the number of worker threads, at least 1
+     * @throws IllegalArgumentException if analysisParallelism is less than 1
+     */
+    public void setAnalysisParallelism(int analysisParallelism) {
+        if (analysisParallelism < 1) {
+            throw new IllegalArgumentException("Analysis parallelism must be at least 1");
+        }
+        this.analysisParallelism = analysisParallelism;
+    }
+
+    /**
+     * Sets the configuration of the method call analysis, i.e. the resolution cache size and time budgets.
+     *
+     * @param methodCallAnalyzerConfig the configuration of the {@link com.sdg.ast.MethodCallAnalyzer}
+     */
+    public void setMethodCallAnalyzerConfig(MethodCallAnalyzerConfig methodCallAnalyzerConfig) {
+        this.methodCallAnalyzerConfig = methodCallAnalyzerConfig;
+    }
+
+    /**
+     * Enables or disables the persistent cache of method call counts, which lets unchanged files skip parsing and
+     * symbol resolution in later runs.
+     *
+     * @param callCountCacheEnabled true to use the cache
+     */
+    public void setCallCountCacheEnabled(boolean callCountCacheEnabled) {
+        this.callCountCacheEnabled = callCountCacheEnabled;
+    }
+
+    /**
+     * Sets the directory of the persistent cache of method call counts. It can be shared by several projects.
+     *
+     * @param callCountCacheDirectory the cache directory
+     * @throws IllegalArgumentException if callCountCacheDirectory is null
+     */
+    public void setCallCountCacheDirectory(Path callCountCacheDirectory) {
+        if (callCountCacheDirectory == null) {
+            throw new IllegalArgumentException("Call count cache directory must not be null");
+        }
+        this.callCountCacheDirectory = callCountCacheDirectory;
+    }
+
+    /**
+     * Sets the size the persistent cache of method call counts is shrunk to after each run.
+     *
+     * @param callCountCacheMaxBytes the maximum size in bytes
+     * @throws IllegalArgumentException if callCountCacheMaxBytes is negative
+     */
+    public void setCallCountCacheMaxBytes(long callCountCacheMaxBytes) {
+        if (callCountCacheMaxBytes < 0) {
+            throw new IllegalArgumentException("Call count cache size must not be negative");
+        }
+        this.callCountCacheMaxBytes = callCountCacheMaxBytes;
+    }
+
+    /**
+     * Sets the directory in which the analysis time of each file is kept between runs, to analyze the files that
+     * took longest first.
+     *
+     * @param analysisTimingsDirectory the timings directory
+     * @throws IllegalArgumentException if analysisTimingsDirectory is null
+     */
+    public void setAnalysisTimingsDirectory(Path analysisTimingsDirectory) {
+        if (analysisTimingsDirectory == null) {
+            throw new IllegalArgumentException("Analysis timings directory must not be null");
+        }
+        this.analysisTimingsDirectory = analysisTimingsDirectory;
+    }
+
+    /**
+     * Sets the directory in which clones of remote Git repositories are kept between runs.
+     *
+     * @param gitCloneCacheDirectory the cache directory
+     * @throws IllegalArgumentException if gitCloneCacheDirectory is null
+     */
+    public void setGitCloneCacheDirectory(Path gitCloneCacheDirectory) {
+        if (gitCloneCacheDirectory == null) {
+            throw new IllegalArgumentException("Git clone cache directory must not be null");
+        }
+        this.gitCloneCacheDirectory = gitCloneCacheDirectory;
+    }
+
+    /**
+     * Sets the size the cache of remote Git repositories is shrunk to after a repository is fetched.
+     *
+     * @param gitCloneCacheMaxBytes the maximum size in bytes
+     * @throws IllegalArgumentException if gitCloneCacheMaxBytes is negative
+     */
+    public void setGitCloneCacheMaxBytes(long gitCloneCacheMaxBytes) {
+        if (gitCloneCacheMaxBytes < 0) {
+            throw new IllegalArgumentException("Git clone cache size must not be negative");
+        }
+        this.gitCloneCacheMaxBytes = gitCloneCacheMaxBytes;
+    }
+
+    /**
+     * Sets the time after which a cached remote Git repository that was not used is removed.
+     *
+     * @param gitCloneCacheMaxAge the maximum age
+     * @throws IllegalArgumentException if gitCloneCacheMaxAge is null or negative
+     */
+    public void setGitCloneCacheMaxAge(Duration gitCloneCacheMaxAge) {
+        if (gitCloneCacheMaxAge == null || gitCloneCacheMaxAge.isNegative()) {
+            throw new IllegalArgumentException("Git clone cache age must not be negative");
+        }
+        this.gitCloneCacheMaxAge = gitCloneCacheMaxAge;
+    }
+
+    /**
+     * Sets how generated and oversized files are processed.
+     *
+     * @param generatedFileLane the lane of generated and oversized files
+     * @throws IllegalArgumentException if generatedFileLane is null
+     */
+    public void setGeneratedFileLane(GeneratedFileLane generatedFileLane) {
+        if (generatedFileLane == null) {
+            throw new IllegalArgumentException("Generated file lane must not be null");
+        }
+        this.generatedFileLane = generatedFileLane;
+    }
+
+    /**
+     * Sets the size above which a file is processed in the lane of generated files.
+     *
+     * @param oversizedFileBytes the maximum size of a regular file in bytes
+     * @throws IllegalArgumentException if oversizedFileBytes is not positive
+     */
+    public void setOversizedFileBytes(long oversizedFileBytes) {
+        if (oversizedFileBytes < 1) {
+            throw new IllegalArgumentException("Oversized file threshold must be positive");
+        }
+        this.oversizedFileBytes = oversizedFileBytes;
+    }
+
+    /**
+     * Sets how long no file may change in watch mode before the changed files are processed, so that a burst of
+     * changes is processed at once.
+     *
+     * @param watchQuietPeriod the quiet period
+     * @throws IllegalArgumentException if watchQuietPeriod is null or negative
+     */
+    public void setWatchQuietPeriod(Duration watchQuietPeriod) {
+        if (watchQuietPeriod == null || watchQuietPeriod.isNegative()) {
+            throw new IllegalArgumentException("Watch quiet period must not be negative");
+        }
+        this.watchQuietPeriod = watchQuietPeriod;
+    }
+
+    /**
+     * Sets how long after the first change in watch mode the changed files are processed at the latest, even if
+     * files keep changing without a quiet period.
+     *
+     * @param watchMaxBatchLatency the maximum latency of a batch of changes
+     * @throws IllegalArgumentException if watchMaxBatchLatency is null or negative
+     */
+    public void setWatchMaxBatchLatency(Duration watchMaxBatchLatency) {
+        if (watchMaxBatchLatency == null || watchMaxBatchLatency.isNegative()) {
+            throw new IllegalArgumentException("Watch maximum batch latency must not be negative");
+        }
+        this.watchMaxBatchLatency = watchMaxBatchLatency;
+    }
+
+    /**
+     * Sets whether a graph built after resetting the database is loaded with CREATE statements, deduplicating the
+     * nodes in memory, instead of merging each node and relationship into the graph.
+     *
+     * @param freshLoadEnabled true to create the graph of a reset database without merging
+     */
+    public void setFreshLoadEnabled(boolean freshLoadEnabled) {
+        this.freshLoadEnabled = freshLoadEnabled;
+    }
+
+    /**
+     * Sets the number of transactions a batch of files is written in parallel, see {@link GraphWriterPool}. With 1,
+     * the default, each batch is written in a single transaction. A graph loaded with CREATE statements is always
+     * written in a single transaction per batch.
+     *
+     * With N greater than 1, a batch is written in 2N + 2 transactions that commit one after the other: the contents
+     * and manifest entries of the replaced files are deleted in one, the nodes in N, the relationships in N and the
+     * manifest entries recorded in one. The deletion commits before the new contents are written, so until the last
+     * transaction commits, readers of the graph see the files without contents or partly written, and if a
+     * transaction fails they stay that way until the next update stores the files again.
+     *
+     * @param writeParallelism the number of writer threads, at least 1
+     * @throws IllegalArgumentException if writeParallelism is less than 1
+     */
+    public void setWriteParallelism(int writeParallelism) {
+        if (writeParallelism < 1) {
+            throw new IllegalArgumentException("Write parallelism must be at least 1");
+        }
+        this.writeParallelism = writeParallelism;
+    }
+
+    // Getters
+
+    public int getAnalysisParallelism() {
+        return analysisParallelism;
+    }
+
+    public MethodCallAnalyzerConfig getMethodCallAnalyzerConfig() {
+        return methodCallAnalyzerConfig;
+    }
+
+    public boolean isCallCountCacheEnabled() {
+        return callCountCacheEnabled;
+    }
+
+    public Path getCallCountCacheDirectory() {
+        return callCountCacheDirectory;
+    }
+
+    public long getCallCountCacheMaxBytes() {
+        return callCountCacheMaxBytes;
+    }
+
+    public Path getAnalysisTimingsDirectory() {
+        return analysisTimingsDirectory;
+    }
+
+    public Path getGitCloneCacheDirectory() {
+        return gitCloneCacheDirectory;
+    }
+
+    public long getGitCloneCacheMaxBytes() {
+        return gitCloneCacheMaxBytes;
+    }
+
+    public Duration getGitCloneCacheMaxAge() {
+        return gitCloneCacheMaxAge;
+    }
+
+    public GeneratedFileLane getGeneratedFileLane() {
+        return generatedFileLane;
+    }
+
+    public long getOversizedFileBytes() {
+        return oversizedFileBytes;
+    }
+
+    public Duration getWatchQuietPeriod() {
+        return watchQuietPeriod;
+    }
+
+    public Duration getWatchMaxBatchLatency() {
+        return watchMaxBatchLatency;
+    }
+
+    public boolean isFreshLoadEnabled() {
+        return freshLoadEnabled;
+    }
+
+    public int getWriteParallelism() {
+        return writeParallelism;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessingConfig{" +
+                "analysisParallelism=" + analysisParallelism +
+                ", methodCallAnalyzerConfig=" + methodCallAnalyzerConfig +
+                ", callCountCacheEnabled=" + callCountCacheEnabled +
+                ", callCountCacheDirectory=" + callCountCacheDirectory +
+                ", callCountCacheMaxBytes=" + callCountCacheMaxBytes +
+                ", analysisTimingsDirectory=" + analysisTimingsDirectory +
+                ", gitCloneCacheDirectory=" + gitCloneCacheDirectory +
+                ", gitCloneCacheMaxBytes=" + gitCloneCacheMaxBytes +
+                ", gitCloneCacheMaxAge=" + gitCloneCacheMaxAge +
+                ", generatedFileLane=" + generatedFileLane +
+                ", oversizedFileBytes=" + oversizedFileBytes +
+                ", watchQuietPeriod=" + watchQuietPeriod +
+                ", watchMaxBatchLatency=" + watchMaxBatchLatency +
+                ", freshLoadEnabled=" + freshLoadEnabled +
+                ", writeParallelism=" + writeParallelism +
+                '}';
+    }
+}
@@ -37,6 +37,7 @@ public class SchemaInitializer {
                         "Creating uniqueness constraints for primary entities to improve MERGE performance");
                 tx.run(CypherConstants.CREATE_CLASS_CONSTRAINTS);
                 tx.run(CypherConstants.CREATE_INTERFACE_CONSTRAINTS);
+                tx.run(CypherConstants.CREATE_SOURCE_FILE_CONSTRAINTS);
 
                 LoggerUtil.debug(getClass(), "Creating indexes for performance");
                 tx.run(CypherConstants.CREATE_IMPORT_INDEXES);
@@ -44,6 +45,7 @@ public class SchemaInitializer {
                 tx.run(CypherConstants.CREATE_METHOD_CALL_INDEXES);
                 tx.run(CypherConstants.CREATE_CLASS_FIELD_INDEXES);
                 tx.run(CypherConstants.CREATE_CONTROL_FLOW_INDEXES);
+                tx.run(CypherConstants.CREATE_CLASS_SOURCE_FILE_INDEXES);
 
                 return null;
             });
@@ -0,0 +1,144 @@
+package com.sdg.graph;
+
+import com.sdg.model.FileHashes;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The source files a knowledge graph was built from, with the state each file was stored in.
+ *
+ * Comparing the manifest stored in the graph database with the manifest of the current input gives the files that
+ * were added, changed or deleted since the last run, so that only their part of the graph has to be replaced.
+ * A file is changed if its content changed or if the selection of its methods included in the graph changed,
+ * which happens when calls to them are added or removed in other files.
+ *
+ * Files are identified by their absolute, normalized path with '/' as separator, see {@link #pathOf(Path)}. Entries
+ * of archives are identified as if the archive was a directory.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public final class SourceFileManifest {
+    private static final String ARCHIVE_URI_SCHEME = "jar";
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * The state a file was stored in.
+     *
+     * @param contentHash the SHA-256 hash of the file's content
+     * @param selectionDigest a digest of the methods of the file that were included in the graph and of the
+     *                        configuration they were extracted with
+     */
+    public record Entry(String contentHash, String selectionDigest) {}
+
+    /**
+     * The differences between two manifests.
+     *
+     * @param added the files that are new
+     * @param changed the files whose content or selection of methods changed
+     * @param deleted the files that no longer exist
+     */
+    public record Changes(Set<String> added, Set<String> changed, Set<String> deleted) {
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && deleted.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "added=" + added.size() + ", changed=" + changed.size() + ", deleted=" + deleted.size();
+        }
+    }
+
+    /**
+     * Creates a manifest from the given entries.
+     *
+     * @param entries the state of each file by path
+     */
+    public SourceFileManifest(Map<String, Entry> entries) {
+        this.entries = Map.copyOf(entries);
+    }
+
+    /**
+     * Returns the state of a file.
+     *
+     * @param path the path of the file, see {@link #pathOf(Path)}
+     * @return the state of the file, or an empty result if the file is not in the manifest
+     */
+    public Optional<Entry> get(String path) {
+        return Optional.ofNullable(entries.get(path));
+    }
+
+    /**
+     * Returns the state of all files in the manifest.
+     *
+     * @return the state of each file by path
+     */
+    public Map<String, Entry> entries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Compares this manifest, describing what is stored, with the manifest of the current input.
+     *
+     * @param current the manifest of the current input
+     * @return the files added, changed and deleted in the current input
+     */
+    public Changes diff(SourceFileManifest current) {
+        Set<String> added = new TreeSet<>();
+        Set<String> changed = new TreeSet<>();
+        current.entries.forEach((path, entry) -> {
+            Entry stored = entries.get(path);
+            if (stored == null) {
+                added.add(path);
+            } else if (!stored.equals(entry)) {
+                changed.add(path);
+            }
+        });
+
+        Set<String> deleted = new TreeSet<>(entries.keySet());
+        deleted.removeAll(current.entries.keySet());
+        return new Changes(added, changed, deleted);
+    }
+
+    /**
+     * Returns the path that identifies a file in a manifest and in the graph. An entry of an archive opened as a
+     * zip file system is identified by the path of the archive followed by the path of the entry, so that the
+     * entries of an archive are below the archive's path like the files of a directory.
+     *
+     * @param file the file
+     * @return the absolute, normalized path of the file with '/' as separator
+     */
+    public static String pathOf(Path file) {
+        Path absoluteFile = file.toAbsolutePath().normalize();
+        if (ARCHIVE_URI_SCHEME.equals(absoluteFile.getFileSystem().provider().getScheme())) {
+            // The URI of an entry is jar:<URI of the archive>!<path of the entry>
+            String uri = absoluteFile.toUri().toString();
+            Path archive = Path.of(URI.create(uri.substring(ARCHIVE_URI_SCHEME.length() + 1, uri.indexOf("!/"))));
+            return pathOf(archive) + absoluteFile;
+        }
+        return absoluteFile.toString().replace('\\', '/');
+    }
+
+    /**
+     * Computes the selection digest of a file, which changes whenever the file's part of the graph would be
+     * extracted differently although its content did not change.
+     *
+     * @param configuration a description of the extraction configuration and of other inputs shared by all files
+     * @param includedSignatures the qualified signatures of the file's methods that are included in the graph
+     * @return the digest as a lower case hex string
+     */
+    public static String selectionDigest(String configuration, Collection<String> includedSignatures) {
+        return FileHashes.sha256(configuration + "\n" + String.join("\n", new TreeSet<>(includedSignatures)));
+    }
+}
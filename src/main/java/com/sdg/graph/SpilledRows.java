@@ -0,0 +1,222 @@
+package com.sdg.graph;
+
+import com.sdg.logging.LoggerUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Rows of strings spilled to files and read back in sorted order, so that any number of rows can be sorted with a
+ * bounded number of rows in memory.
+ *
+ * Rows are buffered until a run of rows is full, which is then sorted and written to a file of its own. Reading the
+ * rows merges the runs, holding one row and an open file of each run. Rows are ordered by their values from first
+ * to last, so a row can be sorted by any key by adding the values of the key first.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+class SpilledRows implements AutoCloseable {
+    static final Comparator<String[]> ORDER = Arrays::compare;
+
+    private final Path directory;
+    private final String name;
+    private final int rowsPerRun;
+    private final List<String[]> buffer = new ArrayList<>();
+    private final List<Run> runs = new ArrayList<>();
+
+    private record Run(Path file, long rowCount) {}
+
+    /**
+     * A sorted sequence of rows.
+     */
+    interface RowReader extends AutoCloseable {
+        /**
+         * Returns the next row, or null if all rows have been read.
+         */
+        String[] next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Creates an empty sequence of rows spilled to a directory.
+     *
+     * @param directory the directory to write the runs to, which must exist
+     * @param name the prefix of the names of the run files
+     * @param rowsPerRun the number of rows sorted in memory before they are written to a run
+     * @throws IllegalArgumentException if rowsPerRun is less than 1
+     */
+    SpilledRows(Path directory, String name, int rowsPerRun) {
+        if (rowsPerRun < 1) {
+            throw new IllegalArgumentException("Rows per run must be at least 1");
+        }
+        this.directory = directory;
+        this.name = name;
+        this.rowsPerRun = rowsPerRun;
+    }
+
+    /**
+     * Adds a row, writing the buffered rows to a run if the run is full.
+     *
+     * @param row the values of the row, none of them null
+     * @throws IOException if the run cannot be written
+     */
+    void add(String... row) throws IOException {
+        buffer.add(row);
+        if (buffer.size() >= rowsPerRun) {
+            writeRun();
+        }
+    }
+
+    /**
+     * Reads all rows added so far in sorted order. The rows can be read more than once.
+     *
+     * @return the rows in sorted order, to be closed once read
+     * @throws IOException if the runs cannot be written or read
+     */
+    RowReader sorted() throws IOException {
+        writeRun();
+
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (Run run : runs) {
+                readers.add(new RunReader(run));
+            }
+            return new MergingReader(readers);
+        } catch (IOException e) {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the runs.
+     */
+    @Override
+    public void close() {
+        buffer.clear();
+        for (Run run : runs) {
+            try {
+                Files.deleteIfExists(run.file());
+            } catch (IOException e) {
+                LoggerUtil.debug(getClass(), "Could not delete {}: {}", run.file(), e.getMessage());
+            }
+        }
+        runs.clear();
+    }
+
+    private void writeRun() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        buffer.sort(ORDER);
+        Path file = directory.resolve(name + "-" + runs.size() + ".bin");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (String[] row : buffer) {
+                out.writeInt(row.length);
+                for (String value : row) {
+                    // Conditions can be longer than DataOutputStream#writeUTF allows
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+        runs.add(new Run(file, buffer.size()));
+        buffer.clear();
+    }
+
+    private static class RunReader {
+        private final DataInputStream in;
+        private long remaining;
+        private String[] current;
+
+        RunReader(Run run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file())));
+            this.remaining = run.rowCount();
+        }
+
+        /**
+         * Reads the next row into current, which is null once the run has been read.
+         */
+        void advance() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                return;
+            }
+            String[] row = new String[in.readInt()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+            }
+            remaining--;
+            current = row;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static class MergingReader implements RowReader {
+        private final List<RunReader> readers;
+        private final PriorityQueue<RunReader> pending =
+                new PriorityQueue<>(Comparator.comparing(reader -> reader.current, ORDER));
+
+        MergingReader(List<RunReader> readers) throws IOException {
+            this.readers = readers;
+            for (RunReader reader : readers) {
+                reader.advance();
+                if (reader.current != null) {
+                    pending.add(reader);
+                }
+            }
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            RunReader reader = pending.poll();
+            if (reader == null) {
+                return null;
+            }
+            String[] row = reader.current;
+            reader.advance();
+            if (reader.current != null) {
+                pending.add(reader);
+            }
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (RunReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    error = error != null ? error : e;
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
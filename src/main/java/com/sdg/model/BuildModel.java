@@ -0,0 +1,287 @@
+package com.sdg.model;
+
+import com.sdg.logging.LoggerUtil;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The modules of a Maven or Gradle build and the directories their main Java sources are declared in, so that only
+ * those directories are scanned and indexed instead of every directory of the project that is not excluded by name.
+ *
+ * Maven modules are read from the {@code <modules>} of the root {@code pom.xml} and of its profiles, recursively,
+ * with the {@code <sourceDirectory>} of each module. Gradle modules are read from the {@code include} statements
+ * and {@code projectDir} assignments of {@code settings.gradle} or {@code settings.gradle.kts}, with the
+ * {@code srcDir} and {@code srcDirs} of the main Java source set of each module's build script. Build scripts are
+ * not evaluated, so source directories computed by code are not found; the conventional {@code src/main/java} is
+ * used instead.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public final class BuildModel {
+    private static final String POM_FILE = "pom.xml";
+    private static final List<String> GRADLE_SETTINGS_FILES = List.of("settings.gradle", "settings.gradle.kts");
+    private static final List<String> GRADLE_BUILD_FILES = List.of("build.gradle", "build.gradle.kts");
+    private static final Path DEFAULT_SOURCE_DIRECTORY = Path.of("src", "main", "java");
+
+    private static final Pattern GRADLE_COMMENT = Pattern.compile("//[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern GRADLE_STRING = Pattern.compile("['\"]([^'\"$]+)['\"]");
+    private static final Pattern GRADLE_INCLUDE = Pattern.compile("\\binclude\\b\\s*\\(?([^\\n)]*)");
+    private static final Pattern GRADLE_PROJECT_DIR = Pattern.compile(
+            "project\\(\\s*['\"]([^'\"]+)['\"]\\s*\\)\\.projectDir\\s*=\\s*"
+                    + "(?:new\\s+File\\(\\s*(?:rootDir|settingsDir)\\s*,\\s*|file\\(\\s*)['\"]([^'\"]+)['\"]");
+    private static final Pattern GRADLE_MAIN_JAVA = Pattern.compile(
+            "\\bmain\\s*\\{[^{}]*?\\bjava\\s*\\{([^{}]*)}|\\bsourceSets\\.main\\.java\\.([^\\n]*)");
+    private static final Pattern GRADLE_SOURCE_DIRS = Pattern.compile(
+            "\\b(setSrcDirs|srcDirs|srcDir)\\b\\s*(=)?([^\\n]*)");
+
+    private final Path root;
+    private final List<Module> modules;
+
+    /**
+     * A module of the build.
+     *
+     * @param directory the directory of the module
+     * @param sourceRoots the existing directories the module's main Java sources are declared in
+     */
+    public record Module(Path directory, List<Path> sourceRoots) {}
+
+    private BuildModel(Path root, List<Module> modules) {
+        this.root = root;
+        this.modules = List.copyOf(modules);
+    }
+
+    /**
+     * Reads the build model of a project from its Maven POM, or else from its Gradle settings.
+     *
+     * @param root the root directory of the project
+     * @return the build model, or an empty result if the directory has no build files or declares no existing
+     *         source directory
+     */
+    public static Optional<BuildModel> detect(Path root) {
+        List<Module> modules = new ArrayList<>();
+        if (Files.isRegularFile(root.resolve(POM_FILE))) {
+            readMavenModule(root, new HashSet<>(), modules);
+        } else {
+            findFile(root, GRADLE_SETTINGS_FILES).ifPresent(settings -> readGradleModules(root, settings, modules));
+        }
+
+        modules.removeIf(module -> module.sourceRoots().isEmpty());
+        if (modules.isEmpty()) {
+            return Optional.empty();
+        }
+
+        BuildModel buildModel = new BuildModel(root, modules);
+        LoggerUtil.info(BuildModel.class, "Found {} modules with {} source roots in {}", modules.size(),
+                buildModel.sourceRoots().size(), root);
+        return Optional.of(buildModel);
+    }
+
+    /**
+     * Returns the root directory of the project.
+     *
+     * @return the root directory
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the modules that declare at least one existing source directory.
+     *
+     * @return the modules, in the order they are declared
+     */
+    public List<Module> getModules() {
+        return modules;
+    }
+
+    /**
+     * Returns the source directories of all modules.
+     *
+     * @return the distinct source directories
+     */
+    public List<Path> sourceRoots() {
+        Set<Path> sourceRoots = new LinkedHashSet<>();
+        modules.forEach(module -> sourceRoots.addAll(module.sourceRoots()));
+        return new ArrayList<>(sourceRoots);
+    }
+
+    private static void readMavenModule(Path directory, Set<Path> visited, List<Module> modules) {
+        Path normalizedDirectory = directory.toAbsolutePath().normalize();
+        Path pom = directory.resolve(POM_FILE);
+        if (!visited.add(normalizedDirectory) || !Files.isRegularFile(pom)) {
+            return;
+        }
+
+        Element project;
+        try {
+            project = parseXml(pom).getDocumentElement();
+        } catch (IOException | SAXException | ParserConfigurationException e) {
+            LoggerUtil.warn(BuildModel.class, "Could not read {}: {}", pom, e.getMessage());
+            return;
+        }
+
+        if (!"pom".equals(childText(project, "packaging").orElse(""))) {
+            Path sourceDirectory = childElement(project, "build").flatMap(build -> childText(build, "sourceDirectory"))
+                    .map(BuildModel::withoutBasedir)
+                    .map(Path::of)
+                    .orElse(DEFAULT_SOURCE_DIRECTORY);
+            modules.add(new Module(directory, sourceRoots(directory, List.of(sourceDirectory), pom)));
+        }
+
+        List<Element> moduleLists = new ArrayList<>();
+        childElement(project, "modules").ifPresent(moduleLists::add);
+        childElement(project, "profiles").ifPresent(profiles -> childElements(profiles, "profile").forEach(profile ->
+                childElement(profile, "modules").ifPresent(moduleLists::add)));
+        for (Element moduleList : moduleLists) {
+            for (Element module : childElements(moduleList, "module")) {
+                Path modulePath = directory.resolve(module.getTextContent().trim());
+                // A module can be given as the path of its POM instead of its directory
+                readMavenModule(modulePath.toString().endsWith(".xml") ? modulePath.getParent() : modulePath,
+                        visited, modules);
+            }
+        }
+    }
+
+    private static void readGradleModules(Path root, Path settings, List<Module> modules) {
+        String script;
+        try {
+            script = GRADLE_COMMENT.matcher(Files.readString(settings)).replaceAll("");
+        } catch (IOException e) {
+            LoggerUtil.warn(BuildModel.class, "Could not read {}: {}", settings, e.getMessage());
+            return;
+        }
+
+        Set<String> projectPaths = new LinkedHashSet<>();
+        Matcher includes = GRADLE_INCLUDE.matcher(script);
+        while (includes.find()) {
+            Matcher names = GRADLE_STRING.matcher(includes.group(1));
+            while (names.find()) {
+                projectPaths.add(names.group(1));
+            }
+        }
+
+        modules.add(readGradleModule(root));
+        for (String projectPath : projectPaths) {
+            // The directory of project ':a:b' is a/b unless it is assigned in the settings
+            String directory = projectPath.replaceFirst("^:", "").replace(':', '/');
+            Matcher projectDir = GRADLE_PROJECT_DIR.matcher(script);
+            while (projectDir.find()) {
+                if (projectDir.group(1).replaceFirst("^:", "").equals(projectPath.replaceFirst("^:", ""))) {
+                    directory = projectDir.group(2);
+                }
+            }
+            modules.add(readGradleModule(root.resolve(directory)));
+        }
+    }
+
+    private static Module readGradleModule(Path directory) {
+        Optional<Path> buildFile = findFile(directory, GRADLE_BUILD_FILES);
+        if (buildFile.isEmpty()) {
+            return new Module(directory, existingDirectories(directory, List.of(DEFAULT_SOURCE_DIRECTORY)));
+        }
+
+        String script;
+        try {
+            script = GRADLE_COMMENT.matcher(Files.readString(buildFile.get())).replaceAll("");
+        } catch (IOException e) {
+            LoggerUtil.warn(BuildModel.class, "Could not read {}: {}", buildFile.get(), e.getMessage());
+            return new Module(directory, existingDirectories(directory, List.of(DEFAULT_SOURCE_DIRECTORY)));
+        }
+
+        Set<Path> sourceDirectories = new LinkedHashSet<>(List.of(DEFAULT_SOURCE_DIRECTORY));
+        Matcher mainJava = GRADLE_MAIN_JAVA.matcher(script);
+        while (mainJava.find()) {
+            String declarations = mainJava.group(1) != null ? mainJava.group(1) : mainJava.group(2);
+            Matcher sourceDirs = GRADLE_SOURCE_DIRS.matcher(declarations);
+            while (sourceDirs.find()) {
+                // Assigning the directories replaces the conventional one, adding them keeps it
+                if (sourceDirs.group(1).equals("setSrcDirs") || sourceDirs.group(2) != null) {
+                    sourceDirectories.clear();
+                }
+                Matcher names = GRADLE_STRING.matcher(sourceDirs.group(3));
+                while (names.find()) {
+                    sourceDirectories.add(Path.of(names.group(1)));
+                }
+            }
+        }
+        return new Module(directory, sourceRoots(directory, new ArrayList<>(sourceDirectories), buildFile.get()));
+    }
+
+    /**
+     * Returns the existing source directories of a module. If none of the declared directories exists, e.g. because
+     * its path uses a property that is not resolved, the conventional directory is used instead, so that the files
+     * of the module are not dropped silently.
+     */
+    private static List<Path> sourceRoots(Path directory, List<Path> sourceDirectories, Path buildFile) {
+        List<Path> sourceRoots = existingDirectories(directory, sourceDirectories);
+        if (sourceRoots.isEmpty() && !sourceDirectories.equals(List.of(DEFAULT_SOURCE_DIRECTORY))) {
+            LoggerUtil.warn(BuildModel.class, "Source directories {} declared in {} do not exist, using {}",
+                    sourceDirectories, buildFile, DEFAULT_SOURCE_DIRECTORY);
+            return existingDirectories(directory, List.of(DEFAULT_SOURCE_DIRECTORY));
+        }
+        return sourceRoots;
+    }
+
+    private static List<Path> existingDirectories(Path directory, List<Path> sourceDirectories) {
+        return sourceDirectories.stream()
+                .map(sourceDirectory -> directory.resolve(sourceDirectory.toString()).normalize())
+                .filter(Files::isDirectory)
+                .toList();
+    }
+
+    private static Optional<Path> findFile(Path directory, List<String> names) {
+        return names.stream().map(directory::resolve).filter(Files::isRegularFile).findFirst();
+    }
+
+    private static String withoutBasedir(String path) {
+        return path.replace("${project.basedir}/", "").replace("${basedir}/", "");
+    }
+
+    private static Document parseXml(Path file) throws IOException, SAXException, ParserConfigurationException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        // POMs do not need a DTD, and external entities must never be resolved
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        try (InputStream in = Files.newInputStream(file)) {
+            return factory.newDocumentBuilder().parse(in);
+        }
+    }
+
+    private static Optional<Element> childElement(Element parent, String name) {
+        return childElements(parent, name).stream().findFirst();
+    }
+
+    private static List<Element> childElements(Element parent, String name) {
+        List<Element> children = new ArrayList<>();
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element element && name.equals(element.getTagName())) {
+                children.add(element);
+            }
+        }
+        return children;
+    }
+
+    private static Optional<String> childText(Element parent, String name) {
+        return childElement(parent, name).map(element -> element.getTextContent().trim());
+    }
+}
@@ -0,0 +1,198 @@
+package com.sdg.model;
+
+import com.sdg.logging.LoggerUtil;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * The Java files of an input grouped by identical content, so that each distinct content is analyzed once and the
+ * results are used for every file with that content, e.g. for generated stubs, vendored copies and files that are
+ * repeated in several modules.
+ *
+ * Only files that share their size with another file can have the same content, so only those are hashed to find
+ * the duplicates. The hashes are recorded in the given {@link FileHashes}, which is why a file is not hashed again
+ * when it is read later. Each group is represented by its file with the smallest path, so the same file represents
+ * a group across runs as long as the group's files do not change.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public final class DuplicateFiles {
+    private final Map<Path, List<Path>> filesByRepresentative;
+    private final Map<Path, Path> representatives;
+    private final Map<Path, Long> sizes;
+    private final int skippedFiles;
+    private final long skippedBytes;
+
+    private DuplicateFiles(Map<Path, List<Path>> filesByRepresentative, Map<Path, Long> sizes, int skippedFiles,
+                           long skippedBytes) {
+        this.filesByRepresentative = filesByRepresentative;
+        this.sizes = sizes;
+        this.representatives = new HashMap<>();
+        filesByRepresentative.forEach((representative, files) ->
+                files.forEach(file -> representatives.put(file, representative)));
+        this.skippedFiles = skippedFiles;
+        this.skippedBytes = skippedBytes;
+    }
+
+    /**
+     * Finds the files with identical content among discovered files.
+     *
+     * @param files the discovered files
+     * @param fileHashes the hashes to look up and record the files' hashes in
+     * @return the files grouped by content
+     */
+    public static DuplicateFiles find(Collection<SourceFile> files, FileHashes fileHashes) {
+        Map<Path, Long> sizes = new HashMap<>();
+        files.forEach(file -> sizes.put(file.path(), file.size()));
+        return find(files.stream().map(SourceFile::path).toList(), sizes::get, fileHashes);
+    }
+
+    /**
+     * Finds the files with identical content among files whose size is known without reading them, e.g. the blobs
+     * of a Git revision.
+     *
+     * @param files the files
+     * @param sizeOf returns the size of a file in bytes
+     * @param fileHashes the hashes to look up and record the files' hashes in
+     * @return the files grouped by content
+     */
+    public static DuplicateFiles find(Collection<Path> files, ToLongFunction<Path> sizeOf, FileHashes fileHashes) {
+        Map<Long, List<Path>> filesBySize = files.stream()
+                .collect(Collectors.groupingBy(sizeOf::applyAsLong, LinkedHashMap::new, Collectors.toList()));
+
+        // Files of a unique size are their own group and are not hashed
+        List<Path> candidates = filesBySize.values().stream().filter(sameSize -> sameSize.size() > 1)
+                .flatMap(List::stream).toList();
+        Map<Path, String> hashes = new HashMap<>();
+        candidates.parallelStream().forEach(file -> {
+            String hash = hashOf(file, fileHashes);
+            synchronized (hashes) {
+                hashes.put(file, hash);
+            }
+        });
+
+        Map<Path, List<Path>> filesByRepresentative = new LinkedHashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        int skippedFiles = 0;
+        long skippedBytes = 0;
+        for (List<Path> sameSize : filesBySize.values()) {
+            // Files that could not be hashed have a null hash and are each kept on their own
+            Map<String, List<Path>> sameContent = new LinkedHashMap<>();
+            for (Path file : sameSize) {
+                String hash = hashes.get(file);
+                sameContent.computeIfAbsent(hash == null ? file.toString() : hash, key -> new ArrayList<>())
+                        .add(file);
+            }
+            for (List<Path> group : sameContent.values()) {
+                group.sort(null);
+                filesByRepresentative.put(group.get(0), List.copyOf(group));
+                sizes.put(group.get(0), sizeOf.applyAsLong(group.get(0)));
+                skippedFiles += group.size() - 1;
+                skippedBytes += (group.size() - 1) * sizeOf.applyAsLong(group.get(0));
+            }
+        }
+
+        DuplicateFiles duplicateFiles = new DuplicateFiles(filesByRepresentative, sizes, skippedFiles,
+                skippedBytes);
+        LoggerUtil.info(DuplicateFiles.class, "Hashed {} of {} files to find duplicates: {}", candidates.size(),
+                files.size(), duplicateFiles);
+        return duplicateFiles;
+    }
+
+    private static String hashOf(Path file, FileHashes fileHashes) {
+        try {
+            return fileHashes.hash(file);
+        } catch (UncheckedIOException e) {
+            LoggerUtil.warn(DuplicateFiles.class, "Could not hash {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns one file of each distinct content, in the order the files were given.
+     *
+     * @return the files to analyze
+     */
+    public List<Path> representatives() {
+        return new ArrayList<>(filesByRepresentative.keySet());
+    }
+
+    /**
+     * Returns the file that represents the content of a file.
+     *
+     * @param file one of the files
+     * @return the representative of the file's group, which is the file itself if its content is unique
+     * @throws IllegalArgumentException if the file is not one of the files
+     */
+    public Path representativeOf(Path file) {
+        Path representative = representatives.get(file);
+        if (representative == null) {
+            throw new IllegalArgumentException("Unknown file: " + file);
+        }
+        return representative;
+    }
+
+    /**
+     * Returns all files with the same content as a representative.
+     *
+     * @param representative the representative of a group
+     * @return the files of the group, sorted, starting with the representative
+     * @throws IllegalArgumentException if the file is not a representative
+     */
+    public List<Path> filesOf(Path representative) {
+        List<Path> files = filesByRepresentative.get(representative);
+        if (files == null) {
+            throw new IllegalArgumentException("Not a representative: " + representative);
+        }
+        return files;
+    }
+
+    /**
+     * Returns the size of a representative's content.
+     *
+     * @param representative the representative of a group
+     * @return the size in bytes
+     * @throws IllegalArgumentException if the file is not a representative
+     */
+    public long getSize(Path representative) {
+        Long size = sizes.get(representative);
+        if (size == null) {
+            throw new IllegalArgumentException("Not a representative: " + representative);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of files that are not analyzed because their content is analyzed for another file.
+     *
+     * @return the number of duplicates
+     */
+    public int getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    /**
+     * Returns the total size of the files that are not analyzed because they are duplicates.
+     *
+     * @return the size of the duplicates in bytes
+     */
+    public long getSkippedBytes() {
+        return skippedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return filesByRepresentative.size() + " distinct files, " + skippedFiles + " duplicates (" + skippedBytes
+                + " bytes) skipped";
+    }
+}
@@ -0,0 +1,128 @@
+package com.sdg.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes and memoizes SHA-256 hashes of file contents.
+ *
+ * The hash of a file is computed once per instance, so an instance should live no longer than one analysis run,
+ * during which files are not expected to change, unless the files that changed are forgotten. Instances can be shared
+ * between threads.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class FileHashes {
+    private final Map<Path, String> hashes = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the SHA-256 hash of a file's content, computing it on first access.
+     *
+     * @param file the file to hash
+     * @return the hash as a lower case hex string
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public String hash(Path file) {
+        return hashes.computeIfAbsent(file.toAbsolutePath().normalize(), FileHashes::sha256);
+    }
+
+    /**
+     * Records the hash of a file that is known without reading the file, e.g. because version control reports the
+     * file as unchanged since it was last hashed.
+     *
+     * @param file the file
+     * @param hash the SHA-256 hash of the file's content as a lower case hex string
+     */
+    public void remember(Path file, String hash) {
+        hashes.put(file.toAbsolutePath().normalize(), hash);
+    }
+
+    /**
+     * Forgets the hash of a file that changed, so that it is computed again on next access.
+     *
+     * @param file the file
+     */
+    public void forget(Path file) {
+        hashes.remove(file.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Forgets the hashes of all files.
+     */
+    public void clear() {
+        hashes.clear();
+    }
+
+    /**
+     * Records the hash of a file from content that was read for another purpose, unless its hash is already known,
+     * so that the file does not have to be read again to be hashed.
+     *
+     * @param file the file
+     * @param content the content of the file, which is not consumed
+     */
+    public void record(Path file, ByteBuffer content) {
+        hashes.computeIfAbsent(file.toAbsolutePath().normalize(), key -> sha256(content));
+    }
+
+    /**
+     * Computes the SHA-256 hash of a file's content.
+     *
+     * @param file the file to hash
+     * @return the hash as a lower case hex string
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static String sha256(Path file) {
+        try {
+            return sha256(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not hash file " + file, e);
+        }
+    }
+
+    /**
+     * Computes the SHA-256 hash of a string, encoded as UTF-8.
+     *
+     * @param text the text to hash
+     * @return the hash as a lower case hex string
+     */
+    public static String sha256(String text) {
+        return sha256(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes the SHA-256 hash of a byte array.
+     *
+     * @param bytes the bytes to hash
+     * @return the hash as a lower case hex string
+     */
+    public static String sha256(byte[] bytes) {
+        return sha256(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Computes the SHA-256 hash of the remaining bytes of a buffer.
+     *
+     * @param bytes the bytes to hash, which are not consumed
+     * @return the hash as a lower case hex string
+     */
+    public static String sha256(ByteBuffer bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes.duplicate());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
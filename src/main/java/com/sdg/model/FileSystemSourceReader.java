@@ -0,0 +1,66 @@
+package com.sdg.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads source files with a single read per file, from the default file system or from other NIO file systems like
+ * the zip file system of an archive. Large files on the default file system are memory mapped instead of being
+ * copied to the heap. Optionally, the hash of each file is recorded from the bytes that were read.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+final class FileSystemSourceReader implements SourceReader {
+    /**
+     * The size from which files are memory mapped. Mapping has a higher fixed cost than reading, so it only pays off
+     * for large files, which are rare among source files.
+     */
+    private static final long MAPPING_THRESHOLD = 1024 * 1024;
+
+    private final FileHashes fileHashes;
+
+    /**
+     * @param fileHashes the hashes to record the hashes of read files in, or null
+     */
+    FileSystemSourceReader(FileHashes fileHashes) {
+        this.fileHashes = fileHashes;
+    }
+
+    @Override
+    public String read(Path file) throws IOException {
+        ByteBuffer content = readContent(file);
+        if (fileHashes != null) {
+            fileHashes.record(file, content);
+        }
+        return SourceReader.decode(content);
+    }
+
+    private static ByteBuffer readContent(Path file) throws IOException {
+        if (file.getFileSystem() != FileSystems.getDefault()) {
+            // Entries of archives are decompressed while they are read, so they cannot be mapped
+            return ByteBuffer.wrap(Files.readAllBytes(file));
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to be read: " + file);
+            }
+            if (size >= MAPPING_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+
+            ByteBuffer content = ByteBuffer.allocate((int) size);
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // Read until the buffer is full or the file ends
+            }
+            return content.flip();
+        }
+    }
+}
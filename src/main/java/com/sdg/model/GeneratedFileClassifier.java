@@ -0,0 +1,228 @@
+package com.sdg.model;
+
+import com.sdg.logging.LoggerUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Flags Java files that add little to the description of a system but take a large share of the analysis time,
+ * i.e. generated files and oversized files, so that they can be handled apart from the other files.
+ *
+ * A file is oversized if it is larger than a threshold, which is decided from its size alone. Otherwise only the
+ * head of the file is read: it is generated if its first type is annotated with {@code @Generated} of
+ * {@code javax.annotation}, {@code jakarta.annotation} or {@code javax.annotation.processing}, or if it has a header
+ * comment saying that it was generated, e.g. by a parser generator or the protocol buffer compiler. Other
+ * {@code @Generated} annotations, e.g. Hibernate's on entity fields, and mentions in comments or strings do not mark
+ * a file as generated.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class GeneratedFileClassifier {
+    /**
+     * The number of bytes read from the start of a file to find generator markers, which usually covers the
+     * header comment, the imports and the annotations of the first type.
+     */
+    static final int HEAD_BYTES = 16 * 1024;
+
+    private static final Set<String> GENERATED_ANNOTATIONS = Set.of("javax.annotation.Generated",
+            "jakarta.annotation.Generated", "javax.annotation.processing.Generated");
+    private static final String NAME = "[\\w$]+(?:\\s*\\.\\s*[\\w$]+)*";
+    private static final String ANNOTATION = "@(?!\\s*interface\\b)\\s*(" + NAME + ")\\s*"
+            + "(?:\\((?:[^()]|\\([^()]*\\))*\\))?";
+    private static final Pattern ANNOTATION_PATTERN = Pattern.compile(ANNOTATION);
+    private static final Pattern PACKAGE_OR_IMPORT = Pattern.compile(
+            "\\s*(package|import)\\s+(?:static\\s+)?(" + NAME + "(?:\\s*\\.\\s*\\*)?)\\s*;");
+    private static final Pattern TYPE_DECLARATION = Pattern.compile("\\s*((?:" + ANNOTATION + "\\s*"
+            + "|(?:public|protected|private|abstract|static|final|sealed|non-sealed|strictfp)\\s+)*)"
+            + "(?:class|interface|enum|record|@\\s*interface)\\b");
+    private static final Pattern GENERATED_HEADER = Pattern.compile(
+            "@generated\\b|\\bgenerated by\\b|\\bauto-?generated\\b|\\bautomatically generated\\b|\\bdo not edit\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private final long maxFileBytes;
+
+    /**
+     * How a file is handled.
+     */
+    public enum Classification {
+        /** A file that is analyzed like any other file. */
+        REGULAR,
+        /** A file generated by a tool. */
+        GENERATED,
+        /** A file larger than the size threshold. */
+        OVERSIZED
+    }
+
+    /**
+     * Creates a classifier.
+     *
+     * @param maxFileBytes the size above which a file is oversized
+     * @throws IllegalArgumentException if maxFileBytes is not positive
+     */
+    public GeneratedFileClassifier(long maxFileBytes) {
+        if (maxFileBytes < 1) {
+            throw new IllegalArgumentException("Maximum file size must be positive");
+        }
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    /**
+     * Classifies a discovered file, reading only the head of the file.
+     *
+     * @param file the file
+     * @return the classification of the file
+     */
+    public Classification classify(SourceFile file) {
+        return classify(file.path(), file.size(), GeneratedFileClassifier::readHead);
+    }
+
+    /**
+     * Classifies a file whose content is read by a source reader. The file is only read if it is not oversized.
+     * A file that cannot be read is regular, so that the analysis reports the error.
+     *
+     * @param file the path of the file
+     * @param size the size of the file in bytes
+     * @param sourceReader the reader of the file's content
+     * @return the classification of the file
+     */
+    public Classification classify(Path file, long size, SourceReader sourceReader) {
+        if (size > maxFileBytes) {
+            return Classification.OVERSIZED;
+        }
+
+        try {
+            String content = sourceReader.read(file);
+            String head = content.length() > HEAD_BYTES ? content.substring(0, HEAD_BYTES) : content;
+            return isGenerated(head) ? Classification.GENERATED : Classification.REGULAR;
+        } catch (IOException e) {
+            LoggerUtil.warn(getClass(), "Could not read {} to classify it: {}", file, e.getMessage());
+            return Classification.REGULAR;
+        }
+    }
+
+    /**
+     * Checks if the head of a Java file marks the file as generated.
+     *
+     * @param head the start of the file's content
+     * @return true if the first type has a {@code @Generated} annotation or a header comment names a generator
+     */
+    static boolean isGenerated(String head) {
+        return hasGeneratedAnnotation(withoutCommentsAndLiterals(head))
+                || GENERATED_HEADER.matcher(headerComments(head)).find();
+    }
+
+    /**
+     * Checks if the first type declared in code without comments and literals is annotated as generated, given as
+     * a qualified name or as a simple name imported from one of the annotation packages.
+     */
+    private static boolean hasGeneratedAnnotation(String code) {
+        Set<String> imports = new HashSet<>();
+        Matcher statement = PACKAGE_OR_IMPORT.matcher(code);
+        int position = 0;
+        while (statement.region(position, code.length()).lookingAt()) {
+            if (statement.group(1).equals("import")) {
+                imports.add(statement.group(2).replaceAll("\\s", ""));
+            }
+            position = statement.end();
+        }
+
+        Matcher typeDeclaration = TYPE_DECLARATION.matcher(code).region(position, code.length());
+        if (!typeDeclaration.lookingAt()) {
+            return false;
+        }
+        Matcher annotation = ANNOTATION_PATTERN.matcher(typeDeclaration.group(1));
+        while (annotation.find()) {
+            String name = annotation.group(1).replaceAll("\\s", "");
+            if (GENERATED_ANNOTATIONS.contains(name) || name.equals("Generated")
+                    && GENERATED_ANNOTATIONS.stream().anyMatch(type -> imports.contains(type)
+                    || imports.contains(type.substring(0, type.lastIndexOf('.')) + ".*"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the comments and the string, text block and character literals of Java code with spaces.
+     */
+    private static String withoutCommentsAndLiterals(String content) {
+        StringBuilder code = new StringBuilder(content.length());
+        int position = 0;
+        while (position < content.length()) {
+            int end;
+            if (content.startsWith("//", position)) {
+                end = content.indexOf('\n', position);
+            } else if (content.startsWith("/*", position)) {
+                end = content.indexOf("*/", position + 2);
+                end = end < 0 ? end : end + 2;
+            } else if (content.startsWith("\"\"\"", position)) {
+                end = content.indexOf("\"\"\"", position + 3);
+                while (end > 0 && content.charAt(end - 1) == '\\') {
+                    end = content.indexOf("\"\"\"", end + 1);
+                }
+                end = end < 0 ? end : end + 3;
+            } else if (content.charAt(position) == '"' || content.charAt(position) == '\'') {
+                end = endOfLiteral(content, position);
+            } else {
+                code.append(content.charAt(position++));
+                continue;
+            }
+            code.append(' ');
+            position = end < 0 ? content.length() : end;
+        }
+        return code.toString();
+    }
+
+    private static int endOfLiteral(String content, int start) {
+        char quote = content.charAt(start);
+        for (int i = start + 1; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == quote || c == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the comments before the first declaration of a Java file.
+     */
+    private static String headerComments(String content) {
+        StringBuilder comments = new StringBuilder();
+        int position = 0;
+        while (position < content.length()) {
+            if (Character.isWhitespace(content.charAt(position))) {
+                position++;
+            } else if (content.startsWith("//", position)) {
+                int end = content.indexOf('\n', position);
+                end = end < 0 ? content.length() : end;
+                comments.append(content, position, end).append('\n');
+                position = end;
+            } else if (content.startsWith("/*", position)) {
+                int end = content.indexOf("*/", position + 2);
+                end = end < 0 ? content.length() : end + 2;
+                comments.append(content, position, end).append('\n');
+                position = end;
+            } else {
+                break;
+            }
+        }
+        return comments.toString();
+    }
+
+    private static String readHead(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return SourceReader.decode(in.readNBytes(HEAD_BYTES));
+        }
+    }
+}
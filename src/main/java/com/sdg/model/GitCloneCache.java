@@ -0,0 +1,509 @@
+package com.sdg.model;
+
+import com.sdg.logging.LoggerUtil;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.util.FileUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of shallow clones of remote Git repositories, so that a repository is transferred once and
+ * only fetched incrementally by later runs.
+ *
+ * Each repository is kept as a bare repository in a directory named after its URL. Only the requested branch or tag
+ * is fetched, with a depth of 1, so no history and no other branches are transferred. Since Git cannot filter the
+ * transfer by path, the Java sources are selected when the repository is read: {@link #checkoutJavaFiles(String)}
+ * writes only the Java files of the default branch to disk, and nothing is written at all when the files are read
+ * from the object database, see {@link GitTreeSnapshot}.
+ *
+ * Each cache directory is locked while it is updated, so concurrent runs sharing the cache do not corrupt it, and
+ * is leased to the caller until the caller is done with it, see {@link Lease}. The cache is bounded by
+ * {@link #evict(String)}, which removes repositories that were not used for longer than the maximum age, then the
+ * least recently used ones until the cache fits its maximum size. Directories that are leased or being updated by
+ * any run are skipped.
+ *
+ * The lock file of a cache directory has two regions: the update region, which is locked exclusively while the
+ * directory is updated, and the use region, which is locked shared while the directory is leased and exclusively
+ * while it is evicted. File locks are held by the whole JVM, so the threads of a JVM share one lock of the use region
+ * and take turns on the update region.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class GitCloneCache {
+    public static final Path DEFAULT_DIRECTORY = Path.of(System.getProperty("user.home"), ".sdg", "cache", "git-clones");
+    public static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024 * 1024;
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(30);
+
+    private static final String REPOSITORY_DIR = "repository.git";
+    private static final String CHECKOUT_DIR = "java";
+    private static final String CHECKOUT_COMMIT_FILE = "checkout-commit";
+    private static final String LAST_USED_FILE = "last-used";
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final long UPDATE_REGION = 0;
+    private static final long USE_REGION = 1;
+
+    private static final Map<Path, EntryLock> ENTRY_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Duration maxAge;
+
+    /**
+     * Creates a cache in the default directory with the default size and age limits.
+     */
+    public GitCloneCache() {
+        this(DEFAULT_DIRECTORY, DEFAULT_MAX_BYTES, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Creates a cache in the given directory.
+     *
+     * @param directory the directory the repositories are stored in, created if needed
+     * @param maxBytes the size the cache is shrunk to by {@link #evict(String)}
+     * @param maxAge the time after which a repository that was not used is removed by {@link #evict(String)}
+     * @throws IllegalArgumentException if directory or maxAge is null, or maxBytes or maxAge is negative
+     */
+    public GitCloneCache(Path directory, long maxBytes, Duration maxAge) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Git clone cache directory must not be null");
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Maximum cache size must not be negative");
+        }
+        if (maxAge == null || maxAge.isNegative()) {
+            throw new IllegalArgumentException("Maximum age must not be negative");
+        }
+
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Fetches a branch or tag of a remote repository into the cache, cloning the repository if it is not cached yet.
+     * After fetching, the revision can be resolved in the returned repository by the same name.
+     *
+     * @param url the URL of the remote repository
+     * @param revision the name of a branch or tag, a full ref name, or HEAD for the default branch
+     * @return the lease of the cached bare repository, to be closed by the caller
+     * @throws IllegalArgumentException if the revision is not a branch or tag of the remote repository
+     * @throws IOException if the repository cannot be fetched or the cache cannot be written
+     */
+    public Lease<Repository> fetch(String url, String revision) throws IOException {
+        Path entry = entryPath(url);
+        Lease<Repository> lease = lease(entry, () -> update(entry, url, revision));
+        evict(url);
+        return lease;
+    }
+
+    /**
+     * Writes the Java files of the default branch of a remote repository to disk, fetching the branch first. Other
+     * files are not written. The files are only rewritten when the branch moved since they were last written.
+     *
+     * @param url the URL of the remote repository
+     * @return the lease of the directory containing the Java files, laid out as in the repository, to be closed by
+     *         the caller
+     * @throws IOException if the repository cannot be fetched or the files cannot be written
+     */
+    public Lease<Path> checkoutJavaFiles(String url) throws IOException {
+        Path entry = entryPath(url);
+        Lease<Path> lease = lease(entry, () -> {
+            try (Repository repository = update(entry, url, Constants.HEAD)) {
+                return checkout(entry, repository);
+            }
+        });
+        evict(url);
+        return lease;
+    }
+
+    /**
+     * Removes repositories that were not used for longer than the maximum age, then the least recently used ones
+     * until the cache fits its maximum size. Repositories that are leased or being updated are skipped.
+     *
+     * @param inUseUrl the URL of a repository that is in use and must be kept, or null
+     */
+    public void evict(String inUseUrl) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        Path inUse = inUseUrl == null ? null : entryPath(inUseUrl);
+        List<CachedRepository> repositories = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                if (Files.isDirectory(entry) && !entry.equals(inUse)) {
+                    repositories.add(new CachedRepository(entry, sizeOf(entry), lastUsed(entry)));
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LoggerUtil.warn(getClass(), "Could not list Git clone cache {}: {}", directory, e.getMessage());
+            return;
+        }
+
+        long size = repositories.stream().mapToLong(CachedRepository::size).sum() + (inUse == null ? 0 : sizeOf(inUse));
+        Instant expiredBefore = Instant.now().minus(maxAge);
+        repositories.sort(Comparator.comparing(CachedRepository::lastUsed));
+        for (CachedRepository repository : repositories) {
+            boolean expired = repository.lastUsed().toInstant().isBefore(expiredBefore);
+            if ((expired || size > maxBytes) && delete(repository.path())) {
+                LoggerUtil.info(getClass(), "Evicted cached Git repository {}", repository.path());
+                size -= repository.size();
+            }
+        }
+    }
+
+    private Repository update(Path entry, String url, String revision) throws IOException {
+        Path repositoryDir = entry.resolve(REPOSITORY_DIR);
+        boolean cached = Files.isDirectory(repositoryDir);
+        Repository repository;
+        if (cached) {
+            repository = new FileRepositoryBuilder().setGitDir(repositoryDir.toFile()).setBare().build();
+        } else {
+            try {
+                repository = Git.init().setBare(true).setDirectory(repositoryDir.toFile()).call().getRepository();
+            } catch (GitAPIException e) {
+                throw new IOException("Failed to create repository " + repositoryDir, e);
+            }
+        }
+
+        try {
+            String ref = findRemoteRef(url, revision);
+            LoggerUtil.info(getClass(), "{} {} of {} into {}", cached ? "Fetching" : "Cloning", ref, url, repositoryDir);
+            Git.wrap(repository).fetch()
+                    .setRemote(url)
+                    .setRefSpecs(new RefSpec("+" + ref + ":" + ref))
+                    .setDepth(1)
+                    .setTagOpt(TagOpt.NO_TAGS)
+                    .call();
+            if (Constants.HEAD.equals(revision)) {
+                RefUpdate headUpdate = repository.updateRef(Constants.HEAD);
+                headUpdate.disableRefLog();
+                headUpdate.link(ref);
+            }
+            Files.writeString(entry.resolve(LAST_USED_FILE), url);
+            return repository;
+        } catch (GitAPIException e) {
+            repository.close();
+            throw new IOException("Failed to fetch " + revision + " of " + url, e);
+        } catch (IOException | RuntimeException e) {
+            repository.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the name of the remote ref a revision refers to, since a shallow fetch needs a ref to start from.
+     */
+    private String findRemoteRef(String url, String revision) throws GitAPIException {
+        Map<String, Ref> refs = Git.lsRemoteRepository().setRemote(url).callAsMap();
+
+        if (Constants.HEAD.equals(revision)) {
+            Ref head = refs.get(Constants.HEAD);
+            if (head == null) {
+                throw new IllegalArgumentException("Repository has no default branch: " + url);
+            }
+            if (head.isSymbolic()) {
+                return head.getTarget().getName();
+            }
+            // Servers that do not advertise the target of HEAD: use a branch pointing to the same commit
+            return refs.values().stream()
+                    .filter(ref -> ref.getName().startsWith(Constants.R_HEADS))
+                    .filter(ref -> head.getObjectId().equals(ref.getObjectId()))
+                    .map(Ref::getName)
+                    .sorted()
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Cannot find the default branch of " + url));
+        }
+
+        return Stream.of(revision, Constants.R_HEADS + revision, Constants.R_TAGS + revision)
+                .filter(refs::containsKey)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Not a branch or tag of " + url + ": " + revision +
+                        ", only branches and tags can be fetched into a shallow clone"));
+    }
+
+    private Path checkout(Path entry, Repository repository) throws IOException {
+        Path checkout = entry.resolve(CHECKOUT_DIR);
+        Path commitFile = entry.resolve(CHECKOUT_COMMIT_FILE);
+        ObjectId commitId = repository.resolve(Constants.HEAD + "^{commit}");
+        if (readCheckoutCommit(commitFile).filter(commitId.name()::equals).isPresent() && Files.isDirectory(checkout)) {
+            LoggerUtil.debug(getClass(), "Java files of {} are up to date in {}", commitId.name(), checkout);
+            return checkout;
+        }
+
+        // The commit file is only written back once all files are written, so an interrupted checkout is redone
+        Files.deleteIfExists(commitFile);
+        FileUtils.delete(checkout.toFile(), FileUtils.RECURSIVE | FileUtils.SKIP_MISSING | FileUtils.RETRY);
+        Files.createDirectories(checkout);
+
+        int fileCount = 0;
+        try (RevWalk revWalk = new RevWalk(repository);
+             TreeWalk treeWalk = new TreeWalk(repository)) {
+            treeWalk.addTree(revWalk.parseCommit(commitId).getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(PathSuffixFilter.create(".java"));
+            while (treeWalk.next()) {
+                if ((treeWalk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE) {
+                    continue;
+                }
+                Path file = checkout.resolve(treeWalk.getPathString());
+                Files.createDirectories(file.getParent());
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    repository.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).copyTo(out);
+                }
+                fileCount++;
+            }
+        }
+
+        Files.writeString(commitFile, commitId.name());
+        LoggerUtil.info(getClass(), "Wrote {} Java files of {} to {}", fileCount, commitId.name(), checkout);
+        return checkout;
+    }
+
+    private static Optional<String> readCheckoutCommit(Path commitFile) throws IOException {
+        try {
+            return Optional.of(Files.readString(commitFile).trim());
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Path entryPath(String url) {
+        return directory.resolve(FileHashes.sha256(url).substring(0, 32));
+    }
+
+    /**
+     * Returns the lock file of a cache directory, which is kept next to it so that the directory can be deleted
+     * while it is locked.
+     */
+    private static Path lockPath(Path entry) {
+        return entry.resolveSibling(entry.getFileName() + LOCK_SUFFIX);
+    }
+
+    private static EntryLock entryLock(Path entry) {
+        return ENTRY_LOCKS.computeIfAbsent(lockPath(entry).toAbsolutePath().normalize(), EntryLock::new);
+    }
+
+    /**
+     * Runs an action while holding the update lock of a cache directory, which other runs wait for, and leases the
+     * directory with the result of the action.
+     */
+    private static <T> Lease<T> lease(Path entry, LockedAction<T> action) throws IOException {
+        EntryLock lock = entryLock(entry);
+        lock.acquire();
+        try {
+            Files.createDirectories(entry);
+            return new Lease<>(lock.update(action), lock);
+        } catch (IOException | RuntimeException e) {
+            lock.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes a cache directory and its lock file unless a run leases or updates it.
+     */
+    private boolean delete(Path entry) {
+        try {
+            return entryLock(entry).evict(entry);
+        } catch (OverlappingFileLockException e) {
+            return false;
+        } catch (IOException e) {
+            LoggerUtil.warn(GitCloneCache.class, "Could not evict cached Git repository {}: {}", entry, e.getMessage());
+            return false;
+        }
+    }
+
+    private static FileTime lastUsed(Path entry) throws IOException {
+        Path lastUsedFile = entry.resolve(LAST_USED_FILE);
+        return Files.exists(lastUsedFile) ? Files.getLastModifiedTime(lastUsedFile) : Files.getLastModifiedTime(entry);
+    }
+
+    private static long sizeOf(Path entry) {
+        try (Stream<Path> files = Files.walk(entry)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    return 0;
+                }
+            }).sum();
+        } catch (IOException | UncheckedIOException e) {
+            return 0;
+        }
+    }
+
+    @FunctionalInterface
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    private record CachedRepository(Path path, long size, FileTime lastUsed) {}
+
+    /**
+     * A cached repository or checkout in use. Its cache directory is not evicted by any run sharing the cache until
+     * the lease is closed.
+     *
+     * @param <T> the type of the leased value
+     */
+    public static final class Lease<T> implements AutoCloseable {
+        private final T value;
+        private final EntryLock lock;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(T value, EntryLock lock) {
+            this.value = value;
+            this.lock = lock;
+        }
+
+        /**
+         * Returns the leased repository or checkout directory.
+         *
+         * @return the leased value
+         */
+        public T get() {
+            return value;
+        }
+
+        /**
+         * Closes a leased repository and releases its cache directory. Closing a lease again has no effect.
+         */
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                if (value instanceof Repository repository) {
+                    repository.close();
+                }
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * The lock file of a cache directory as used by this JVM. The use region is locked once for all leases of the
+     * JVM and released with the last one, and the update region is guarded by an in-JVM lock, so the JVM never
+     * requests a file lock it already holds. Evicting the directory writes a marker into the lock file before the
+     * file is deleted, so a run that was waiting for the deleted file locks a new one instead.
+     */
+    private static final class EntryLock {
+        private final Path lockFile;
+        private final ReentrantLock updateLock = new ReentrantLock();
+        private FileChannel channel;
+        private int users;
+
+        EntryLock(Path lockFile) {
+            this.lockFile = lockFile;
+        }
+
+        synchronized void acquire() throws IOException {
+            while (users == 0 && channel == null) {
+                FileChannel opened = open();
+                boolean evicted;
+                try {
+                    opened.lock(USE_REGION, 1, true);
+                    evicted = opened.size() > 0;
+                } catch (IOException | RuntimeException e) {
+                    opened.close();
+                    throw e;
+                }
+                if (evicted) {
+                    opened.close();
+                } else {
+                    channel = opened;
+                }
+            }
+            users++;
+        }
+
+        synchronized void release() {
+            if (--users > 0) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LoggerUtil.warn(GitCloneCache.class, "Could not unlock {}: {}", lockFile, e.getMessage());
+            }
+            channel = null;
+        }
+
+        <T> T update(LockedAction<T> action) throws IOException {
+            updateLock.lock();
+            try {
+                FileLock lock = currentChannel().lock(UPDATE_REGION, 1, false);
+                try {
+                    return action.run();
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                updateLock.unlock();
+            }
+        }
+
+        synchronized boolean evict(Path entry) throws IOException {
+            if (users > 0) {
+                return false;
+            }
+            try (FileChannel opened = open()) {
+                if (opened.tryLock(UPDATE_REGION, USE_REGION + 1, false) == null || opened.size() > 0) {
+                    return false;
+                }
+                opened.write(ByteBuffer.wrap(new byte[] {1}), 0);
+                FileUtils.delete(entry.toFile(), FileUtils.RECURSIVE | FileUtils.SKIP_MISSING | FileUtils.RETRY);
+                Files.deleteIfExists(lockFile);
+                return true;
+            }
+        }
+
+        private synchronized FileChannel currentChannel() {
+            return channel;
+        }
+
+        private FileChannel open() throws IOException {
+            Files.createDirectories(lockFile.getParent());
+            return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.sdg.model;
+
+import com.sdg.logging.LoggerUtil;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Java files of a Git revision, read straight from the repository's object database without a checkout.
+ *
+ * Each file is identified by the path it would have in a checkout of the repository, and its content is identified
+ * by its blob id. Blob ids are known without reading the files, so analysis results stored by blob id can be reused
+ * across revisions for all files that did not change.
+ *
+ * Files can be read concurrently. Closing the snapshot closes the repository, or the lease of a repository of the
+ * {@link GitCloneCache}.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class GitTreeSnapshot implements SourceReader, AutoCloseable {
+    private final Repository repository;
+    private final Runnable closer;
+    private final Path root;
+    private final String commitId;
+    private final Map<Path, ObjectId> blobs;
+
+    private GitTreeSnapshot(Repository repository, Runnable closer, Path root, String commitId,
+                            Map<Path, ObjectId> blobs) {
+        this.repository = repository;
+        this.closer = closer;
+        this.root = root;
+        this.commitId = commitId;
+        this.blobs = blobs;
+    }
+
+    /**
+     * Lists the Java files of a revision of a repository. The snapshot takes ownership of the repository.
+     *
+     * @param repository the repository
+     * @param root the path the files are resolved against, e.g. the work tree or the repository directory
+     * @param revision the revision, e.g. a commit id, branch or tag
+     * @return the snapshot of the revision
+     * @throws IllegalArgumentException if the revision cannot be resolved
+     * @throws IOException if the repository cannot be read
+     */
+    static GitTreeSnapshot open(Repository repository, Path root, String revision) throws IOException {
+        return open(repository, repository::close, root, revision);
+    }
+
+    /**
+     * Lists the Java files of a revision of a repository leased from the {@link GitCloneCache}. The snapshot takes
+     * ownership of the lease, so the repository is kept in the cache until the snapshot is closed.
+     *
+     * @param lease the lease of the repository
+     * @param root the path the files are resolved against, e.g. the repository directory
+     * @param revision the revision, e.g. a commit id, branch or tag
+     * @return the snapshot of the revision
+     * @throws IllegalArgumentException if the revision cannot be resolved
+     * @throws IOException if the repository cannot be read
+     */
+    static GitTreeSnapshot open(GitCloneCache.Lease<Repository> lease, Path root, String revision) throws IOException {
+        return open(lease.get(), lease::close, root, revision);
+    }
+
+    private static GitTreeSnapshot open(Repository repository, Runnable closer, Path root, String revision)
+            throws IOException {
+        try {
+            ObjectId revisionId = repository.resolve(revision + "^{commit}");
+            if (revisionId == null) {
+                throw new IllegalArgumentException("Unknown revision: " + revision);
+            }
+
+            Map<Path, ObjectId> blobs = new LinkedHashMap<>();
+            try (RevWalk revWalk = new RevWalk(repository);
+                 TreeWalk treeWalk = new TreeWalk(repository)) {
+                RevCommit commit = revWalk.parseCommit(revisionId);
+                treeWalk.addTree(commit.getTree());
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(PathSuffixFilter.create(".java"));
+                while (treeWalk.next()) {
+                    // Skip gitlinks (submodules) and symbolic links, only regular files are read
+                    if ((treeWalk.getRawMode(0) & FileMode.TYPE_MASK) == FileMode.TYPE_FILE) {
+                        blobs.put(root.resolve(treeWalk.getPathString()), treeWalk.getObjectId(0));
+                    }
+                }
+            }
+
+            LoggerUtil.info(GitTreeSnapshot.class, "Found {} Java files in revision {} ({})", blobs.size(), revision,
+                    revisionId.name());
+            return new GitTreeSnapshot(repository, closer, root, revisionId.name(), blobs);
+        } catch (IOException | RuntimeException e) {
+            closer.run();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the path the files of the snapshot are resolved against.
+     *
+     * @return the root path
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the id of the commit the snapshot was taken from.
+     *
+     * @return the commit id
+     */
+    public String getCommitId() {
+        return commitId;
+    }
+
+    /**
+     * Returns the Java files of the revision, in tree order.
+     *
+     * @return the paths of the Java files
+     */
+    public List<Path> getJavaFiles() {
+        return new ArrayList<>(blobs.keySet());
+    }
+
+    /**
+     * Returns the blob id of a file, which identifies its content.
+     *
+     * @param file the path of the file
+     * @return the blob id as a lower case hex string
+     * @throws IllegalArgumentException if the file is not part of the snapshot
+     */
+    public String getBlobId(Path file) {
+        return blobIdOf(file).name();
+    }
+
+    /**
+     * Returns the size of a file, without reading its content.
+     *
+     * @param file the path of the file
+     * @return the size in bytes
+     * @throws IllegalArgumentException if the file is not part of the snapshot
+     * @throws UncheckedIOException if the repository cannot be read
+     */
+    public long getSize(Path file) {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            return reader.getObjectSize(blobIdOf(file), Constants.OBJ_BLOB);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the size of " + file, e);
+        }
+    }
+
+    @Override
+    public String read(Path file) throws IOException {
+        ObjectLoader loader = repository.open(blobIdOf(file), Constants.OBJ_BLOB);
+        if (!loader.isLarge()) {
+            return SourceReader.decode(loader.getCachedBytes());
+        }
+        try (InputStream in = loader.openStream()) {
+            return SourceReader.decode(in.readAllBytes());
+        }
+    }
+
+    private ObjectId blobIdOf(Path file) {
+        ObjectId blobId = blobs.get(file);
+        if (blobId == null) {
+            throw new IllegalArgumentException("File is not part of revision " + commitId + ": " + file);
+        }
+        return blobId;
+    }
+
+    @Override
+    public void close() {
+        closer.run();
+    }
+}
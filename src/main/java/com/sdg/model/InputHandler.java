@@ -4,57 +4,121 @@ import com.sdg.logging.LoggerUtil;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.schedulers.Schedulers;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 
 import java.io.IOException;
-import java.nio.charset.MalformedInputException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 /**
  * Handles file input processing, including reading Java files from directories, individual files,
- * and cloning Git repositories to extract Java source files.
+ * source archives, and cloning Git repositories to extract Java source files.
  *
  * @author Suraj Karki
  * @author Joakim Colloz
  */
 public class InputHandler {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final GitCloneCache cloneCache;
+    private final SourceTreeScanner scanner = new SourceTreeScanner();
     private String systemName = "Not specified";
 
+    /**
+     * Creates an input handler that keeps clones of remote repositories in the default {@link GitCloneCache}.
+     */
+    public InputHandler() {
+        this(new GitCloneCache());
+    }
+
+    /**
+     * Creates an input handler that keeps clones of remote repositories in the given cache.
+     *
+     * @param cloneCache the cache of remote repositories
+     */
+    public InputHandler(GitCloneCache cloneCache) {
+        this.cloneCache = cloneCache;
+    }
+
     /**
      * Processes files reactively by reading and preprocessing each Java file found in the input path.
      *
-     * @param inputPath The path to a file, directory, or Git repository.
+     * @param inputPath The path to a file, directory, archive, or Git repository.
      * @return An Observable emitting ProcessingResult for each Java file.
      */
     public Observable<ProcessingResult> processFilesRx(String inputPath) {
-        return processInputRx(inputPath)
-                .flattenAsObservable(paths -> paths)  // Emits each file separately
-                .flatMap(file -> readAndPreprocessFileRx(file)
+        return withDiscoveredFiles(inputPath, files -> files
+                .flatMap(file -> readAndPreprocessFileRx(file.path())
                         .subscribeOn(Schedulers.io())  // Process each file on a separate I/O thread
                         .map(content -> {
-                            LoggerUtil.debug(getClass(), "Processing file: {}", file);
-                            return new ProcessingResult(file, content.length(), content);
+                            LoggerUtil.debug(getClass(), "Processing file: {}", file.path());
+                            return new ProcessingResult(file.path(), content.length(), content);
                         })
                         .toObservable()
-                )
+                ))
                 .doOnComplete(() -> LoggerUtil.info(getClass(), "Completed processing all files."));
     }
 
     /**
-     * Processes the given input path reactively and returns a list of Java files found.
+     * Discovers the Java files found in the input path reactively, without reading their content. Each file is
+     * emitted with the metadata reported while the tree is walked, so that later stages can read the content
+     * lazily, once, when they parse the file.
+     *
+     * The entries of an archive are emitted as paths of the archive's zip file system, which is closed when the
+     * stream terminates; use {@link #openArchive(Path)} to read entries after that.
      *
-     * @param inputPath The file path or repository URL.
-     * @return A Single emitting a list of Java file paths.
+     * @param inputPath The path to a file, directory, archive, or Git repository.
+     * @return An Observable emitting each Java file.
+     */
+    public Observable<SourceFile> discoverFilesRx(String inputPath) {
+        return withDiscoveredFiles(inputPath, files -> files);
+    }
+
+    /**
+     * Applies a pipeline to the discovered files of the input path. The zip file system of an archive and the
+     * checkout of a Git repository are kept until the whole pipeline has terminated, so the pipeline can read the
+     * files.
      */
-    private Single<List<Path>> processInputRx(String inputPath) {
-        return Single.fromCallable(() -> processInput(inputPath)).subscribeOn(Schedulers.io());
+    private <T> Observable<T> withDiscoveredFiles(String inputPath,
+                                                  Function<Observable<SourceFile>, Observable<T>> pipeline) {
+        if (inputPath != null && !inputPath.isBlank() && isRemoteRepository(inputPath)) {
+            return Observable.using(() -> cloneGitRepository(inputPath),
+                    checkout -> pipeline.apply(Single.fromCallable(() -> checkout
+                                    .map(lease -> collectJavaFiles(lease.get()))
+                                    .orElseGet(List::of))
+                            .subscribeOn(Schedulers.io())
+                            .flattenAsObservable(files -> files)),
+                    checkout -> checkout.ifPresent(GitCloneCache.Lease::close));
+        }
+
+        if (inputPath == null || !isArchive(inputPath)) {
+            return pipeline.apply(Single.fromCallable(() -> discoverFiles(inputPath))
+                    .subscribeOn(Schedulers.io())
+                    .flattenAsObservable(files -> files));  // Emits each file separately
+        }
+
+        return Observable.using(() -> openArchive(Path.of(inputPath)),
+                archive -> pipeline.apply(Single.fromCallable(() -> collectJavaFiles(archiveRoot(archive)))
+                        .subscribeOn(Schedulers.io())
+                        .flattenAsObservable(files -> files)),
+                FileSystem::close);
     }
 
     /**
@@ -62,33 +126,22 @@ public class InputHandler {
      * then collects the relevant Java source files.
      *
      * @param inputPath The path to a file, directory, or Git repository.
-     * @return A list of Java file paths.
+     * @return A list of Java files.
      */
-    private List<Path> processInput(String inputPath) {
+    private List<SourceFile> discoverFiles(String inputPath) {
         if (inputPath == null || inputPath.isBlank()) {
             LoggerUtil.error(getClass(), "Provided input path is null or empty. Aborting processing.");
             return new ArrayList<>();
         }
 
-        List<Path> javaFiles = new ArrayList<>();
-        // Check if input is a Git repository URL
-        if (inputPath.startsWith("https://") || inputPath.startsWith("git@")) {
-            LoggerUtil.info(getClass(), "Detected Git repository. Cloning from: {}", inputPath);
-            Path repoPath = cloneGitRepository(inputPath);
-            if (repoPath != null) {
-                javaFiles.addAll(collectJavaFiles(repoPath));
-            }
-
-            return javaFiles;
-        }
-
+        List<SourceFile> javaFiles = new ArrayList<>();
         Path path = Paths.get(inputPath);
         if (Files.isDirectory(path)) {
             LoggerUtil.debug(getClass(), "Processing directory: {}", inputPath);
             javaFiles.addAll(collectJavaFiles(path));
         } else if (Files.isRegularFile(path) && inputPath.endsWith(".java")) {
             LoggerUtil.debug(getClass(), "Processing single Java file: {}", inputPath);
-            javaFiles.add(path);
+            javaFiles.addAll(scanner.scan(path).files());
         } else {
             LoggerUtil.error(getClass(), "Invalid input path: {}. Expected a Java file, directory, or Git repository.", inputPath);
         }
@@ -100,45 +153,213 @@ public class InputHandler {
      * Recursively collects Java files from the given directory.
      *
      * @param rootDir The root directory to scan.
-     * @return A list of Java file paths.
+     * @return A list of Java files.
      */
-    private List<Path> collectJavaFiles(Path rootDir) {
-        List<Path> javaFiles = new ArrayList<>();
-        try (Stream<Path> pathStream = Files.walk(rootDir)) {
-            pathStream
-                    .filter(Files::isRegularFile) // Select only files, not directories
-                    .filter(this::isRelevantJavaFile)
-                    .forEach(file -> {
-                        LoggerUtil.debug(getClass(), "Identified Java file: {}", file);
-                        javaFiles.add(file);
-                    });
-        } catch (IOException e) {
-            LoggerUtil.error(getClass(), "Failed to scan directory {}: {}", rootDir, e);
+    private List<SourceFile> collectJavaFiles(Path rootDir) {
+        return getRelevantJavaFiles(scanner.scan(rootDir));
+    }
+
+    /**
+     * Scans a local directory or Java file once for all its Java files, including files that are not processed
+     * themselves but are needed to resolve types, e.g. utility classes. Excluded and ignored directories are pruned.
+     *
+     * @param localPath the path to a directory or Java file
+     * @return the Java files found
+     */
+    public SourceTreeScanner.SourceTree scanSourceTree(String localPath) {
+        return scanSourceTree(Path.of(localPath));
+    }
+
+    /**
+     * Scans a directory or Java file like {@link #scanSourceTree(String)}, on any file system, e.g. the root of an
+     * archive opened with {@link #openArchive(Path)}.
+     *
+     * @param root the directory or Java file
+     * @return the Java files found
+     */
+    public SourceTreeScanner.SourceTree scanSourceTree(Path root) {
+        SourceTreeScanner.SourceTree sourceTree = scanner.scan(root);
+        LoggerUtil.info(getClass(), "Found {} Java files in {}", sourceTree.javaFiles().size(), root.toUri());
+        return sourceTree;
+    }
+
+    /**
+     * Checks if the input path is a source archive, e.g. a {@code -sources.jar} or a zip file, whose entries are
+     * analyzed in place without extracting them.
+     *
+     * @param inputPath the path to a file, directory, archive, or Git repository
+     * @return true if the input path is an existing JAR or ZIP file
+     */
+    public boolean isArchive(String inputPath) {
+        String name = inputPath.toLowerCase();
+        return (name.endsWith(".jar") || name.endsWith(".zip")) && !isRemoteRepository(inputPath)
+                && Files.isRegularFile(Path.of(inputPath));
+    }
+
+    /**
+     * Opens an archive as a read-only zip file system, whose entries can be walked and read like files. The
+     * {@code accessMode} option is honored by the zip file systems of Java 24 and later; older ones open a writable
+     * archive read-write, but nothing is ever written to it.
+     *
+     * @param archive the path of the JAR or ZIP file
+     * @return the file system of the archive, to be closed by the caller
+     * @throws IOException if the archive cannot be opened
+     */
+    public FileSystem openArchive(Path archive) throws IOException {
+        LoggerUtil.debug(getClass(), "Opening archive: {}", archive);
+        return FileSystems.newFileSystem(archive, Map.of("accessMode", "readOnly"));
+    }
+
+    /**
+     * Returns the root directory of an archive opened with {@link #openArchive(Path)}.
+     *
+     * @param archive the file system of the archive
+     * @return the root directory
+     */
+    public Path archiveRoot(FileSystem archive) {
+        return archive.getRootDirectories().iterator().next();
+    }
+
+    /**
+     * Selects the Java files of a scanned source tree that are processed.
+     *
+     * @param sourceTree the scanned source tree
+     * @return the relevant Java files
+     */
+    public List<SourceFile> getRelevantJavaFiles(SourceTreeScanner.SourceTree sourceTree) {
+        List<SourceFile> javaFiles = new ArrayList<>();
+        for (SourceFile file : sourceTree.files()) {
+            if (isRelevantJavaFile(file.path())) {
+                LoggerUtil.debug(getClass(), "Identified Java file: {}", file.path());
+                javaFiles.add(file);
+            }
         }
         return javaFiles;
     }
 
     /**
-     * Clones a Git repository into a temporary directory.
+     * Clones a Git repository, or updates the cached clone of it, and writes its Java files to disk.
      *
      * @param repoUrl The URL of the Git repository.
-     * @return The local path to the cloned repository or null if cloning fails.
+     * @return The lease of the local path to the Java files of the repository or empty if cloning fails.
      */
-    private Path cloneGitRepository(String repoUrl) {
+    private Optional<GitCloneCache.Lease<Path>> cloneGitRepository(String repoUrl) {
+        LoggerUtil.info(getClass(), "Detected Git repository. Cloning from: {}", repoUrl);
         try {
-            Path tempDir = Files.createTempDirectory("git-clone-");
-            Git.cloneRepository()
-                    .setURI(repoUrl)
-                    .setDirectory(tempDir.toFile())
-                    .call();
-            LoggerUtil.info(getClass(), "Successfully cloned repository to: {}", tempDir);
-            return tempDir;
-        } catch (IOException | GitAPIException e) {
+            return Optional.of(checkoutRemoteRepository(repoUrl));
+        } catch (IOException | IllegalArgumentException e) {
             LoggerUtil.error(getClass(), "Failed to clone repository: {}", repoUrl, e);
-            return null;
+            return Optional.empty();
         }
     }
 
+    /**
+     * Writes the Java files of the default branch of a remote repository to a directory in the {@link GitCloneCache}.
+     * Only the branch is fetched, without history, and only if it moved since the last run. The directory stays the
+     * same across runs, so files can be compared with the files stored by earlier runs.
+     *
+     * @param repoUrl the URL of the Git repository
+     * @return the lease of the directory containing the Java files of the repository, to be closed once the files
+     *         are read
+     * @throws IOException if the repository cannot be fetched or the files cannot be written
+     */
+    public GitCloneCache.Lease<Path> checkoutRemoteRepository(String repoUrl) throws IOException {
+        GitCloneCache.Lease<Path> checkout = cloneCache.checkoutJavaFiles(repoUrl);
+        LoggerUtil.info(getClass(), "Java files of repository {} are in: {}", repoUrl, checkout.get());
+        return checkout;
+    }
+
+    /**
+     * Opens the Java files of a revision of a Git repository without checking them out. The revision of a remote
+     * repository is fetched into the {@link GitCloneCache} without history, so it must be a branch or tag.
+     *
+     * @param repository the URL of a remote repository, or the path of a local repository or a directory inside it
+     * @param revision the revision, e.g. a commit id, branch or tag
+     * @return the snapshot of the revision, to be closed by the caller
+     * @throws IllegalArgumentException if the repository cannot be found or the revision cannot be resolved
+     * @throws IOException if the repository cannot be fetched or read
+     */
+    public GitTreeSnapshot openGitRevision(String repository, String revision) throws IOException {
+        if (isRemoteRepository(repository)) {
+            GitCloneCache.Lease<Repository> lease = cloneCache.fetch(repository, revision);
+            return GitTreeSnapshot.open(lease, lease.get().getDirectory().toPath(), revision);
+        }
+
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().readEnvironment()
+                .findGitDir(Path.of(repository).toAbsolutePath().toFile());
+        if (builder.getGitDir() == null) {
+            throw new IllegalArgumentException("Not a Git repository: " + repository);
+        }
+        Repository gitRepository = builder.build();
+        Path root = gitRepository.isBare() ? gitRepository.getDirectory().toPath() : gitRepository.getWorkTree().toPath();
+        return GitTreeSnapshot.open(gitRepository, root, revision);
+    }
+
+    /**
+     * Selects the Java files of a Git revision that are processed, like the files collected from a directory.
+     * Files are selected by their path inside the repository, so the location of the repository does not matter.
+     *
+     * @param snapshot the snapshot of the revision
+     * @return the paths of the relevant Java files
+     */
+    public List<Path> getRelevantJavaFiles(GitTreeSnapshot snapshot) {
+        return snapshot.getJavaFiles().stream()
+                .filter(file -> isRelevantJavaFile(snapshot.getRoot().relativize(file)))
+                .toList();
+    }
+
+    /**
+     * Computes the Java files that differ between two revisions of a local Git repository, with renames detected.
+     *
+     * @param repositoryDir the work tree of the repository, or a directory inside it
+     * @param oldRevision the revision to compare from, e.g. a commit id, branch or tag
+     * @param newRevision the revision to compare to
+     * @return the changed Java files, with paths resolved against the work tree
+     * @throws IllegalArgumentException if the directory is not in a Git work tree or a revision cannot be resolved
+     * @throws IOException if the repository cannot be read
+     */
+    public List<JavaFileChange> diffJavaFiles(Path repositoryDir, String oldRevision, String newRevision)
+            throws IOException {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().readEnvironment()
+                .findGitDir(repositoryDir.toAbsolutePath().toFile());
+        if (builder.getGitDir() == null) {
+            throw new IllegalArgumentException("Not a Git work tree: " + repositoryDir);
+        }
+
+        try (Repository repository = builder.build();
+             ObjectReader reader = repository.newObjectReader();
+             DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            if (repository.isBare()) {
+                throw new IllegalArgumentException("Repository has no work tree: " + repositoryDir);
+            }
+
+            diffFormatter.setRepository(repository);
+            diffFormatter.setDetectRenames(true);
+            diffFormatter.setPathFilter(PathSuffixFilter.create(".java"));
+
+            Path workTree = repository.getWorkTree().toPath();
+            List<JavaFileChange> changes = new ArrayList<>();
+            for (DiffEntry entry : diffFormatter.scan(treeOf(repository, reader, oldRevision),
+                    treeOf(repository, reader, newRevision))) {
+                changes.add(new JavaFileChange(entry.getChangeType(),
+                        DiffEntry.DEV_NULL.equals(entry.getOldPath()) ? null : workTree.resolve(entry.getOldPath()),
+                        DiffEntry.DEV_NULL.equals(entry.getNewPath()) ? null : workTree.resolve(entry.getNewPath())));
+            }
+            LoggerUtil.info(getClass(), "Found {} changed Java files between {} and {}", changes.size(),
+                    oldRevision, newRevision);
+            return changes;
+        }
+    }
+
+    private CanonicalTreeParser treeOf(Repository repository, ObjectReader reader, String revision)
+            throws IOException {
+        ObjectId treeId = repository.resolve(revision + "^{tree}");
+        if (treeId == null) {
+            throw new IllegalArgumentException("Unknown revision: " + revision);
+        }
+        return new CanonicalTreeParser(null, reader, treeId);
+    }
+
     /**
      * Reads and preprocesses the content of a file reactively.
      * If an error occurs, an empty string is returned.
@@ -167,15 +388,8 @@ public class InputHandler {
             return "";
         }
         try {
-            return Files.readString(filePath, StandardCharsets.UTF_8).replaceAll("\\s+", " ").trim();
-        } catch (MalformedInputException e) {
-            LoggerUtil.warn(getClass(), "Malformed input detected in file: {}. Trying ISO-8859-1 as fallback.", filePath);
-            try {
-                return Files.readString(filePath,
-                        StandardCharsets.ISO_8859_1).replaceAll("\\s+", " ").trim();
-            } catch (IOException ex) {
-                LoggerUtil.error(getClass(), "Failed to read file with fallback encoding: {}", filePath, ex);
-            }
+            // Read once; the charset is sniffed from the bytes instead of retrying with another charset
+            return WHITESPACE.matcher(SourceReader.FILE_SYSTEM.read(filePath)).replaceAll(" ").trim();
         } catch (IOException e) {
             LoggerUtil.error(getClass(), "Failed to read file: {}", filePath, e);
         }
@@ -189,6 +403,16 @@ public class InputHandler {
                                    String processedContent) {
     }
 
+    /**
+     * A Java file that differs between two revisions.
+     *
+     * @param changeType the kind of change
+     * @param oldFile the path of the file in the old revision, or null if it was added
+     * @param newFile the path of the file in the new revision, or null if it was deleted
+     */
+    public record JavaFileChange(DiffEntry.ChangeType changeType, Path oldFile, Path newFile) {
+    }
+
     private boolean isRelevantJavaFile(Path file) {
         String filePath = file.toString().toLowerCase();
         return filePath.endsWith(".java") &&
@@ -198,6 +422,16 @@ public class InputHandler {
                 !filePath.contains("utils");
     }
 
+    /**
+     * Checks if the input path is the URL of a Git repository, which is cloned before its files are read.
+     *
+     * @param inputPath the path to a file, directory, or Git repository
+     * @return true if the input path is a Git repository URL
+     */
+    public boolean isRemoteRepository(String inputPath) {
+        return inputPath.startsWith("https://") || inputPath.startsWith("git@") || inputPath.startsWith("file://");
+    }
+
     /**
      * Extracts a system name from the input path.
      * For Git repositories, uses the repository name.
@@ -211,7 +445,7 @@ public class InputHandler {
         }
 
         // For Git repositories
-        if (inputPath.startsWith("https://") || inputPath.startsWith("git@")) {
+        if (isRemoteRepository(inputPath)) {
             // Extract repository name from URL
             String repoName;
             if (inputPath.endsWith(".git")) {
@@ -227,6 +461,10 @@ public class InputHandler {
             if (Files.isDirectory(path)) {
                 systemName = path.getFileName().toString();
                 LoggerUtil.info(getClass(), "Using system name from directory: {}", systemName);
+            } else if (isArchive(inputPath)) {
+                // For archives, use the archive name without extension and sources classifier
+                systemName = path.getFileName().toString().replaceFirst("(?i)(-sources)?\\.(jar|zip)$", "");
+                LoggerUtil.info(getClass(), "Using system name from archive: {}", systemName);
             } else if (Files.isRegularFile(path)) {
                 // For single file, use parent directory name
                 systemName = path.getParent().getFileName().toString();
@@ -243,30 +481,8 @@ public class InputHandler {
      * @return A list of Java file paths.
      */
     public List<Path> getAllJavaFiles(String inputPath) {
-        if (inputPath == null || inputPath.isBlank()) {
-            LoggerUtil.error(getClass(), "Provided input path is null or empty. Aborting processing.");
-            return new ArrayList<>();
-        }
         List<Path> javaFiles = new ArrayList<>();
-        // Check if input is a Git repository URL
-        if (inputPath.startsWith("https://") || inputPath.startsWith("git@")) {
-            LoggerUtil.info(getClass(), "Detected Git repository. Cloning from: {}", inputPath);
-            Path repoPath = cloneGitRepository(inputPath);
-            if (repoPath != null) {
-                javaFiles.addAll(collectJavaFiles(repoPath));
-            }
-            return javaFiles;
-        }
-        Path path = Paths.get(inputPath);
-        if (Files.isDirectory(path)) {
-            LoggerUtil.debug(getClass(), "Processing directory: {}", inputPath);
-            javaFiles.addAll(collectJavaFiles(path));
-        } else if (Files.isRegularFile(path) && inputPath.endsWith(".java")) {
-            LoggerUtil.debug(getClass(), "Processing single Java file: {}", inputPath);
-            javaFiles.add(path);
-        } else {
-            LoggerUtil.error(getClass(), "Invalid input path: {}. Expected a Java file, directory, or Git repository.", inputPath);
-        }
+        discoverFiles(inputPath).forEach(file -> javaFiles.add(file.path()));
         return javaFiles;
     }
 }
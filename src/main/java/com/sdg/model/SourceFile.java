@@ -0,0 +1,18 @@
+package com.sdg.model;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * A Java source file found during discovery, described by the metadata the file system reports for it while the
+ * tree is walked. The content is not read during discovery; it is read by the stage that parses the file, and its
+ * hash is computed on demand by {@link FileHashes}.
+ *
+ * @param path the path of the file
+ * @param size the size of the file in bytes
+ * @param lastModified the time the file was last modified
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public record SourceFile(Path path, long size, FileTime lastModified) {}
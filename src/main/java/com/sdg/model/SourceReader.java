@@ -0,0 +1,117 @@
+package com.sdg.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Reads the content of Java source files, so that the analysis can run on files that are not on the default file
+ * system, e.g. on blobs in a Git object database.
+ *
+ * Files are identified by a path even if they are not read from disk, so that analysis results and graph nodes
+ * can refer to them the same way in all cases.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface SourceReader {
+    /**
+     * Reads files from the default file system.
+     */
+    SourceReader FILE_SYSTEM = new FileSystemSourceReader(null);
+
+    /**
+     * Reads the content of a source file.
+     *
+     * @param file the path of the file
+     * @return the content of the file
+     * @throws IOException if the file cannot be read
+     */
+    String read(Path file) throws IOException;
+
+    /**
+     * Returns a reader of files from the default file system that records the hash of each file it reads, so that
+     * the files do not have to be read again to be hashed.
+     *
+     * @param fileHashes the hashes to record the files' hashes in
+     * @return the reader
+     */
+    static SourceReader fileSystem(FileHashes fileHashes) {
+        return new FileSystemSourceReader(fileHashes);
+    }
+
+    /**
+     * Decodes the content of a source file as UTF-8, or as ISO-8859-1 if it is not valid UTF-8.
+     *
+     * @param bytes the content of the file
+     * @return the decoded content
+     */
+    static String decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes the content of a source file. The charset is sniffed from the content: a byte order mark selects
+     * UTF-8 or UTF-16, content without any non-ASCII byte is decoded without validation, and other content is
+     * decoded as UTF-8, or as ISO-8859-1 if it is not valid UTF-8.
+     *
+     * @param content the content of the file, which is not consumed
+     * @return the decoded content
+     */
+    static String decode(ByteBuffer content) {
+        ByteBuffer bytes = content.duplicate();
+        Charset byteOrderMarkCharset = sniffByteOrderMark(bytes);
+        if (byteOrderMarkCharset != null) {
+            return byteOrderMarkCharset.decode(bytes).toString();
+        }
+        if (isAscii(bytes)) {
+            return StandardCharsets.ISO_8859_1.decode(bytes).toString();
+        }
+
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(bytes.duplicate())
+                    .toString();
+        } catch (CharacterCodingException e) {
+            return StandardCharsets.ISO_8859_1.decode(bytes).toString();
+        }
+    }
+
+    /**
+     * Returns the charset selected by a byte order mark at the start of the content, skipping the mark, or null if
+     * the content has none.
+     */
+    private static Charset sniffByteOrderMark(ByteBuffer bytes) {
+        int position = bytes.position();
+        if (bytes.remaining() >= 3 && (bytes.get(position) & 0xFF) == 0xEF && (bytes.get(position + 1) & 0xFF) == 0xBB
+                && (bytes.get(position + 2) & 0xFF) == 0xBF) {
+            bytes.position(position + 3);
+            return StandardCharsets.UTF_8;
+        }
+        if (bytes.remaining() >= 2) {
+            int first = bytes.get(position) & 0xFF;
+            int second = bytes.get(position + 1) & 0xFF;
+            if ((first == 0xFE && second == 0xFF) || (first == 0xFF && second == 0xFE)) {
+                // The UTF-16 decoder reads the byte order from the mark and skips it
+                return StandardCharsets.UTF_16;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAscii(ByteBuffer bytes) {
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,323 @@
+package com.sdg.model;
+
+import com.sdg.logging.LoggerUtil;
+import org.eclipse.jgit.ignore.IgnoreNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the Java files of a source tree in a single pass, for both the files to analyze and the type index of the
+ * symbol solver.
+ *
+ * Excluded directories, like build output, dependencies, hidden directories and directories ignored by a
+ * {@code .gitignore} file, are pruned when they are entered, so nothing below them is listed. The {@code .gitignore}
+ * files of the tree and of its parent directories up to the root of the Git work tree are honoured.
+ *
+ * If the root is a Maven or Gradle project, only the source directories declared by its {@link BuildModel} are
+ * scanned, and directories below them are not excluded by name, since they are packages.
+ *
+ * Subtrees are scanned in parallel on the common {@link ForkJoinPool}: a subdirectory is handed to another task
+ * while the pool has idle workers, so wide trees are split up while narrow trees are walked by a single task. The
+ * source directories of the modules of a build are scanned in parallel as well.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class SourceTreeScanner {
+    private static final Set<String> EXCLUDED_DIRECTORY_NAMES = Set.of(
+            "target", "build", "out", "bin", "node_modules", "dist", "lib", "logs", "tmp", "test-output", "test",
+            "resources", "scripts", "scala", "python", "javascript", "rust");
+    private static final String GITIGNORE_FILE = ".gitignore";
+
+    /**
+     * The number of queued tasks above which a task keeps walking subdirectories itself instead of forking them.
+     */
+    private static final int SPLIT_THRESHOLD = 2;
+
+    private final boolean pruneExcludedDirectories;
+
+    /**
+     * Creates a scanner that prunes excluded directories and ignored directories.
+     */
+    public SourceTreeScanner() {
+        this(true);
+    }
+
+    /**
+     * Creates a scanner.
+     *
+     * @param pruneExcludedDirectories false to only prune directories ignored by a {@code .gitignore} file
+     */
+    public SourceTreeScanner(boolean pruneExcludedDirectories) {
+        this.pruneExcludedDirectories = pruneExcludedDirectories;
+    }
+
+    /**
+     * The Java files found below a root.
+     *
+     * @param root the scanned root, a directory or a single Java file
+     * @param sourceRoots the directories that were scanned, i.e. the source directories of the modules of a build,
+     *                    or the root itself
+     * @param files the Java files with their metadata, sorted by path
+     */
+    public record SourceTree(Path root, List<Path> sourceRoots, List<SourceFile> files) {
+        public SourceTree(Path root, List<SourceFile> files) {
+            this(root, List.of(root), files);
+        }
+
+        /**
+         * Returns the paths of the Java files.
+         *
+         * @return the paths, sorted
+         */
+        public List<Path> javaFiles() {
+            return files.stream().map(SourceFile::path).toList();
+        }
+
+        /**
+         * Returns the tree with the metadata of changed files read again, without scanning the other files. Changed
+         * files that no longer exist are removed, and new files are added.
+         *
+         * @param changedFiles the Java files that were created, modified or deleted, e.g. reported by a
+         *                     {@link SourceTreeWatcher}
+         * @return the updated tree
+         */
+        public SourceTree withChangedFiles(Collection<Path> changedFiles) {
+            Set<Path> changed = new HashSet<>(changedFiles);
+            List<SourceFile> updatedFiles = new ArrayList<>(files.stream()
+                    .filter(file -> !changed.contains(file.path()))
+                    .toList());
+            changed.stream().filter(Files::exists).forEach(file -> scanFile(file).ifPresent(updatedFiles::add));
+            updatedFiles.sort(Comparator.comparing(SourceFile::path));
+            return new SourceTree(root, sourceRoots, List.copyOf(updatedFiles));
+        }
+    }
+
+    /**
+     * Checks if a directory is excluded by name, e.g. because it contains build output or is hidden.
+     *
+     * @param name the name of the directory
+     * @return true if the directory and everything below it is not scanned
+     */
+    public static boolean isExcludedDirectory(String name) {
+        return EXCLUDED_DIRECTORY_NAMES.contains(name) || name.startsWith(".");
+    }
+
+    /**
+     * Scans a source tree. Only the metadata of the files is read. Directories that cannot be read are skipped with a
+     * warning.
+     *
+     * @param root the root directory, or a single Java file
+     * @return the Java files found
+     */
+    public SourceTree scan(Path root) {
+        if (!Files.isDirectory(root)) {
+            return new SourceTree(root, scanFile(root).map(List::of).orElse(List.of()));
+        }
+
+        Optional<BuildModel> buildModel = BuildModel.detect(root);
+        if (buildModel.isPresent()) {
+            List<Path> sourceRoots = buildModel.get().sourceRoots();
+            return new SourceTree(root, sourceRoots, new SourceTreeScanner(false).scanDirectories(sourceRoots));
+        }
+        return new SourceTree(root, scanDirectories(List.of(root)));
+    }
+
+    private List<SourceFile> scanDirectories(List<Path> directories) {
+        long start = System.currentTimeMillis();
+        Queue<SourceFile> javaFiles = new ConcurrentLinkedQueue<>();
+        List<ScanTask> tasks = directories.stream()
+                .map(directory -> new ScanTask(directory, IgnoreRules.ofParents(directory), javaFiles))
+                .toList();
+        ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        // Source directories may be nested, e.g. a module below the source directory of another module
+        List<SourceFile> sortedFiles = new ArrayList<>(javaFiles.stream().distinct().toList());
+        sortedFiles.sort(Comparator.comparing(SourceFile::path));
+        LoggerUtil.debug(getClass(), "Found {} Java files under {} in {} ms", sortedFiles.size(), directories,
+                System.currentTimeMillis() - start);
+        return sortedFiles;
+    }
+
+    private static Optional<SourceFile> scanFile(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return isJavaFile(file, attributes)
+                    ? Optional.of(new SourceFile(file, attributes.size(), attributes.lastModifiedTime()))
+                    : Optional.empty();
+        } catch (IOException e) {
+            LoggerUtil.warn(SourceTreeScanner.class, "Skipping unreadable path {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isJavaFile(Path file, BasicFileAttributes attributes) {
+        return attributes.isRegularFile() && file.getFileName().toString().endsWith(".java");
+    }
+
+    private boolean isPruned(Path directory, IgnoreRules rules) {
+        return isPruned(directory, rules, pruneExcludedDirectories);
+    }
+
+    /**
+     * Checks if a directory is not scanned, because it is ignored or, if excluded directories are pruned, excluded
+     * by name.
+     */
+    static boolean isPruned(Path directory, IgnoreRules rules, boolean pruneExcludedDirectories) {
+        return (pruneExcludedDirectories && isExcludedDirectory(directory.getFileName().toString()))
+                || rules.isIgnored(directory, true);
+    }
+
+    /**
+     * Walks a subtree, forking tasks for subdirectories while the pool has idle workers.
+     */
+    private final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized
+        private final transient Path directory;
+        private final transient IgnoreRules inheritedRules;
+        private final transient Queue<SourceFile> javaFiles;
+
+        private ScanTask(Path directory, IgnoreRules inheritedRules, Queue<SourceFile> javaFiles) {
+            this.directory = directory;
+            this.inheritedRules = inheritedRules;
+            this.javaFiles = javaFiles;
+        }
+
+        @Override
+        protected void compute() {
+            List<ScanTask> forkedTasks = new ArrayList<>();
+            Deque<IgnoreRules> rules = new ArrayDeque<>();
+            try {
+                Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                        IgnoreRules parentRules = rules.isEmpty() ? inheritedRules : rules.peek();
+                        if (!dir.equals(directory)) {
+                            if (isPruned(dir, parentRules)) {
+                                return FileVisitResult.SKIP_SUBTREE;
+                            }
+                            if (getSurplusQueuedTaskCount() < SPLIT_THRESHOLD) {
+                                ScanTask task = new ScanTask(dir, parentRules, javaFiles);
+                                task.fork();
+                                forkedTasks.add(task);
+                                return FileVisitResult.SKIP_SUBTREE;
+                            }
+                        }
+                        rules.push(parentRules.withGitignoreOf(dir));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        if (isJavaFile(file, attributes) && !rules.peek().isIgnored(file, false)) {
+                            javaFiles.add(new SourceFile(file, attributes.size(), attributes.lastModifiedTime()));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        LoggerUtil.warn(SourceTreeScanner.class, "Skipping unreadable path {}: {}", file, e.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                        if (e != null) {
+                            LoggerUtil.warn(SourceTreeScanner.class, "Could not list directory {}: {}", dir,
+                                    e.getMessage());
+                        }
+                        rules.pop();
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                LoggerUtil.warn(SourceTreeScanner.class, "Failed to scan directory {}: {}", directory, e.getMessage());
+            }
+            forkedTasks.forEach(ForkJoinTask::join);
+        }
+    }
+
+    /**
+     * The rules of the {@code .gitignore} files that apply to a directory, innermost first.
+     */
+    record IgnoreRules(Path directory, IgnoreNode node, IgnoreRules parent) {
+        private static final IgnoreRules NONE = new IgnoreRules(null, null, null);
+
+        /**
+         * Returns the rules of the parent directories of a root, up to the root of the Git work tree it is in.
+         */
+        static IgnoreRules ofParents(Path root) {
+            List<Path> parents = new ArrayList<>();
+            for (Path dir = root.toAbsolutePath().normalize().getParent(); dir != null; dir = dir.getParent()) {
+                parents.add(0, dir);
+                if (Files.exists(dir.resolve(".git"))) {
+                    IgnoreRules rules = NONE;
+                    for (Path parent : parents) {
+                        rules = rules.withGitignoreOf(parent);
+                    }
+                    return rules;
+                }
+            }
+            return NONE;
+        }
+
+        IgnoreRules withGitignoreOf(Path dir) {
+            Path gitignore = dir.resolve(GITIGNORE_FILE);
+            if (!Files.isRegularFile(gitignore)) {
+                return this;
+            }
+
+            IgnoreNode gitignoreNode = new IgnoreNode();
+            try (InputStream in = Files.newInputStream(gitignore)) {
+                gitignoreNode.parse(in);
+            } catch (IOException e) {
+                LoggerUtil.warn(SourceTreeScanner.class, "Could not read {}: {}", gitignore, e.getMessage());
+                return this;
+            }
+            return gitignoreNode.getRules().isEmpty()
+                    ? this
+                    : new IgnoreRules(dir.toAbsolutePath().normalize(), gitignoreNode, this);
+        }
+
+        boolean isIgnored(Path path, boolean isDirectory) {
+            if (node == null) {
+                return false;
+            }
+
+            Path absolutePath = path.toAbsolutePath().normalize();
+            for (IgnoreRules rules = this; rules.node != null; rules = rules.parent) {
+                String relativePath = rules.directory.relativize(absolutePath).toString()
+                        .replace(File.separatorChar, '/');
+                Boolean ignored = rules.node.checkIgnored(relativePath, isDirectory);
+                if (ignored != null) {
+                    return ignored;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.sdg.model;
+
+import com.sdg.logging.LoggerUtil;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the Java files of a source tree for changes, reporting bursts of changes as one batch once no file has
+ * changed for a quiet period, e.g. when an editor saves several files or writes a file in several steps. A batch is
+ * reported at the latest after a maximum latency, so that files changing continuously, e.g. a log written as a
+ * Java file by a build, do not hold back the other changes forever.
+ *
+ * The same directories and files are watched that {@link SourceTreeScanner} scans: the source directories of the
+ * modules of a build, or the root directory without excluded directories, in both cases without the directories
+ * and files ignored by {@code .gitignore} files. The {@code .gitignore} files are read when their directory starts
+ * to be watched. Directories created while watching are watched as well. If the file system drops events, the batch
+ * is marked as overflowed, since changed files may be missing from it.
+ *
+ * @author Joakim Colloz
+ * @version 1.0
+ */
+public class SourceTreeWatcher implements AutoCloseable {
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Map<Path, SourceTreeScanner.IgnoreRules> ignoreRules = new HashMap<>();
+    private final boolean pruneExcludedDirectories;
+    private final Duration quietPeriod;
+    private final Duration maxBatchLatency;
+
+    /**
+     * The files that changed in a burst of changes.
+     *
+     * @param changedFiles the Java files that were created, modified or deleted
+     * @param overflowed true if events were dropped, so that other files may have changed too
+     */
+    public record ChangeBatch(Set<Path> changedFiles, boolean overflowed) {}
+
+    /**
+     * Starts watching a source tree.
+     *
+     * @param root the root directory of the source tree
+     * @param quietPeriod the time without changes after which a batch of changes is reported
+     * @param maxBatchLatency the time after the first change of a batch after which the batch is reported, even if
+     *                        files are still changing
+     * @throws IOException if the directories cannot be watched
+     */
+    public SourceTreeWatcher(Path root, Duration quietPeriod, Duration maxBatchLatency) throws IOException {
+        this.watchService = root.getFileSystem().newWatchService();
+        this.quietPeriod = quietPeriod;
+        this.maxBatchLatency = maxBatchLatency;
+
+        List<Path> sourceRoots = BuildModel.detect(root).map(BuildModel::sourceRoots).orElse(List.of(root));
+        this.pruneExcludedDirectories = sourceRoots.equals(List.of(root));
+        for (Path sourceRoot : sourceRoots) {
+            registerTree(sourceRoot, SourceTreeScanner.IgnoreRules.ofParents(sourceRoot), new TreeSet<>());
+        }
+        LoggerUtil.info(getClass(), "Watching {} directories of {}", watchedDirectories.size(), root);
+    }
+
+    /**
+     * Waits for the next batch of changes.
+     *
+     * @return the files changed since the last batch
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws ClosedWatchServiceException if the watcher is closed while waiting
+     */
+    public ChangeBatch awaitChanges() throws InterruptedException {
+        Set<Path> changedFiles = new TreeSet<>();
+        boolean overflowed = false;
+        WatchKey key = watchService.take();
+        long deadline = System.nanoTime() + maxBatchLatency.toNanos();
+        while (key != null) {
+            overflowed |= processEvents(key, changedFiles);
+            // Keep collecting until no event arrives for the quiet period, or the batch is due. Events that arrive
+            // after that are reported with the next batch
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            key = watchService.poll(Math.min(quietPeriod.toNanos(), remaining), TimeUnit.NANOSECONDS);
+        }
+        return new ChangeBatch(changedFiles, overflowed);
+    }
+
+    /**
+     * Emits each batch of changes that contains a changed Java file or dropped events, until the subscription is
+     * disposed, which closes the watcher.
+     *
+     * @return an Observable emitting the batches of changes
+     */
+    public Observable<ChangeBatch> changes() {
+        return Observable.<ChangeBatch>create(emitter -> {
+                    emitter.setCancellable(this::close);
+                    try {
+                        while (!emitter.isDisposed()) {
+                            ChangeBatch batch = awaitChanges();
+                            if (!batch.changedFiles().isEmpty() || batch.overflowed()) {
+                                emitter.onNext(batch);
+                            }
+                        }
+                    } catch (ClosedWatchServiceException e) {
+                        emitter.onComplete();
+                    }
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private boolean processEvents(WatchKey key, Set<Path> changedFiles) {
+        Path directory = watchedDirectories.get(key);
+        boolean overflowed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                LoggerUtil.warn(getClass(), "Events were dropped while watching {}", directory);
+                overflowed = true;
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+            SourceTreeScanner.IgnoreRules rules = ignoreRules.get(directory);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                if (SourceTreeScanner.isPruned(path, rules, pruneExcludedDirectories)) {
+                    continue;
+                }
+                // Files may have been created in the new directory before it was watched
+                try {
+                    registerTree(path, rules, changedFiles);
+                } catch (IOException e) {
+                    LoggerUtil.warn(getClass(), "Could not watch new directory {}: {}", path, e.getMessage());
+                }
+            } else if (path.getFileName().toString().endsWith(".java") && !rules.isIgnored(path, false)) {
+                changedFiles.add(path);
+            }
+        }
+        if (!key.reset()) {
+            ignoreRules.remove(watchedDirectories.remove(key));
+        }
+        return overflowed;
+    }
+
+    /**
+     * Watches a directory and its subdirectories that are not pruned, adding the Java files found in them that are
+     * not ignored to the changed files.
+     */
+    private void registerTree(Path tree, SourceTreeScanner.IgnoreRules inheritedRules, Set<Path> javaFiles)
+            throws IOException {
+        Deque<SourceTreeScanner.IgnoreRules> rules = new ArrayDeque<>();
+        Files.walkFileTree(tree, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                SourceTreeScanner.IgnoreRules parentRules = rules.isEmpty() ? inheritedRules : rules.peek();
+                if (!dir.equals(tree) && SourceTreeScanner.isPruned(dir, parentRules, pruneExcludedDirectories)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                SourceTreeScanner.IgnoreRules dirRules = parentRules.withGitignoreOf(dir);
+                rules.push(dirRules);
+                watchedDirectories.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+                ignoreRules.put(dir, dirRules);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (file.getFileName().toString().endsWith(".java") && !rules.peek().isIgnored(file, false)) {
+                    javaFiles.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                if (e != null) {
+                    LoggerUtil.warn(SourceTreeWatcher.class, "Could not list directory {}: {}", dir, e.getMessage());
+                }
+                rules.pop();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                LoggerUtil.warn(SourceTreeWatcher.class, "Skipping unreadable path {}: {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
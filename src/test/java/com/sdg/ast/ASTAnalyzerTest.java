@@ -0,0 +1,271 @@
+package com.sdg.ast;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.nodeTypes.NodeWithName;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.sdg.graph.GraphDelta;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the {@link ASTAnalyzer} class, comparing the graph contents collected in a single walk of the AST
+ * with those collected by searching each class and method for the nodes of each kind.
+ */
+class ASTAnalyzerTest {
+
+    private static final String SOURCE = """
+            package com.example;
+
+            import java.util.List;
+            import java.util.function.Supplier;
+
+            public class Outer extends Base implements Runnable {
+                private int count;
+                String name, label;
+
+                public void run() {
+                    if (count > 0) {
+                        helper();
+                    }
+                    for (int i = 0; i < count; i++) {
+                        name.trim();
+                    }
+                    class Local {
+                        Runnable check = () -> {
+                            if (name == null) {
+                                label.length();
+                            }
+                        };
+                    }
+                    Runnable task = new Runnable() {
+                        public void run() {
+                            for (;;) {
+                                helper();
+                            }
+                        }
+                    };
+                    Supplier<String> supplier = () -> {
+                        if (label != null) {
+                            return label.trim();
+                        }
+                        return name;
+                    };
+                }
+
+                private void helper() {
+                    run();
+                }
+
+                protected String describe(List<String> values) {
+                    return values.isEmpty() ? helper2() : values.get(0);
+                }
+
+                private String helper2() {
+                    return name;
+                }
+
+                static class Nested implements Comparable<Nested> {
+                    private long id;
+
+                    public int compareTo(Nested other) {
+                        if (id < other.id) {
+                            return compare();
+                        }
+                        return 0;
+                    }
+
+                    private int compare() {
+                        return Long.compare(id, 0);
+                    }
+
+                    class Inner {
+                        void inner() {
+                            compare();
+                        }
+                    }
+                }
+            }
+
+            class Other {
+                class Inner {
+                    void inner() {
+                        compare();
+                    }
+                }
+            }
+            """;
+
+    /**
+     * Tests that the classes, fields, methods, method calls and control flow of nested, local, anonymous and
+     * identical classes are collected as before.
+     */
+    @Test
+    void testDeltaMatchesSearchingEachMethod() {
+        assertAnalyzedAsBefore(new ASTAnalyzerConfig());
+    }
+
+    /**
+     * Tests that calls to the private methods of the enclosing class are omitted as before.
+     */
+    @Test
+    void testDeltaMatchesSearchingEachMethodWithoutPrivateMethodCalls() {
+        assertAnalyzedAsBefore(new ASTAnalyzerConfig().omitPrivateMethodCalls(true));
+    }
+
+    /**
+     * Tests that only public methods are analyzed as before, and that nothing is collected for the methods when
+     * methods are not analyzed.
+     */
+    @Test
+    void testDeltaMatchesSearchingEachMethodWithRestrictedConfiguration() {
+        assertAnalyzedAsBefore(new ASTAnalyzerConfig().onlyAnalyzePublicMethods(true).analyzeControlFlow(false));
+        assertAnalyzedAsBefore(new ASTAnalyzerConfig().analyzeMethods(false));
+    }
+
+    /**
+     * Tests that the calls and control flow of classes declared inside a method belong to the enclosing method,
+     * and that the methods of a nested class are analyzed on their own.
+     */
+    @Test
+    void testNestedClassNodesBelongToEnclosingMethod() {
+        CompilationUnit cu = StaticJavaParser.parse("""
+                class Outer {
+                    void run() {
+                        class Local {
+                            Runnable check = () -> {
+                                if (ready) {
+                                    start();
+                                }
+                            };
+                        }
+                        new Thread() {
+                            public void run() {
+                                stop();
+                            }
+                        };
+                    }
+
+                    static class Nested {
+                        void nested() {
+                            if (done) {
+                                stop();
+                            }
+                        }
+                    }
+                }
+                """);
+
+        GraphDelta expected = new GraphDelta();
+        expected.createClassNode("Outer", "<None>", "Outer.java");
+        expected.createMethodNode("Outer", "run", "package-private", "void", "");
+        expected.createMethodCallNode("run", "start");
+        expected.createMethodCallNode("run", "stop");
+        expected.createControlFlowNode("run", "if", "ready");
+        expected.createClassNode("Local", "<None>", "Outer.java");
+        expected.createClassField("Local", "check", "Runnable", "package-private");
+        expected.createClassNode("Nested", "<None>", "Outer.java");
+        expected.createMethodNode("Nested", "nested", "package-private", "void", "");
+        expected.createMethodCallNode("nested", "stop");
+        expected.createControlFlowNode("nested", "if", "done");
+
+        GraphDelta delta = new ASTAnalyzer(null).analyze(cu, "Outer.java", calledMethods(cu), Map.of());
+
+        assertEquals(expected, delta);
+    }
+
+    private static void assertAnalyzedAsBefore(ASTAnalyzerConfig config) {
+        CompilationUnit cu = StaticJavaParser.parse(SOURCE);
+        Map<String, Integer> methodCallsMap = calledMethods(cu);
+
+        GraphDelta delta = new ASTAnalyzer(null, config).analyze(cu, "Outer.java", methodCallsMap, Map.of());
+
+        assertEquals(searchEachMethod(cu, config), delta);
+    }
+
+    /**
+     * Counts a call of every method, so that all of them are analyzed.
+     */
+    private static Map<String, Integer> calledMethods(CompilationUnit cu) {
+        Map<String, Integer> methodCallsMap = new HashMap<>();
+        cu.findAll(ClassOrInterfaceDeclaration.class).forEach(classDecl -> classDecl.getMethods().forEach(method ->
+                methodCallsMap.put(classDecl.getFullyQualifiedName().get() + "." + method.getSignature(), 1)));
+        return methodCallsMap;
+    }
+
+    /**
+     * Collects the graph contents by searching the compilation unit for classes and each method for calls and
+     * control flow statements, as the analyzer did before walking the AST once.
+     */
+    private static GraphDelta searchEachMethod(CompilationUnit cu, ASTAnalyzerConfig config) {
+        GraphDelta delta = new GraphDelta();
+        String packageName = cu.getPackageDeclaration().map(NodeWithName::getNameAsString).orElse("<None>");
+
+        cu.findAll(ClassOrInterfaceDeclaration.class).forEach(classDecl -> {
+            String className = classDecl.getNameAsString();
+            delta.createClassNode(className, packageName, "Outer.java");
+
+            if (config.isAnalyzeInheritance()) {
+                classDecl.getExtendedTypes().forEach(extendedType -> {
+                    delta.createClassNode(extendedType.getNameAsString());
+                    delta.createInheritanceRelationship(className, extendedType.getNameAsString());
+                });
+            }
+            if (config.isAnalyzeInterfaceImplementations()) {
+                classDecl.getImplementedTypes().forEach(implementedType ->
+                        delta.createInterfaceImplementation(className, implementedType.getNameAsString()));
+            }
+            if (config.isAnalyzeImports()) {
+                cu.getImports().forEach(importDecl ->
+                        delta.createImportRelationship(className, importDecl.getNameAsString()));
+            }
+            if (config.isAnalyzeClassFields()) {
+                classDecl.getFields().forEach(field -> {
+                    String accessModifier = field.getModifiers().isEmpty() ? "package-private" :
+                            field.getModifiers().get(0).toString().toLowerCase();
+                    field.getVariables().forEach(variable -> delta.createClassField(className,
+                            variable.getNameAsString(), field.getElementType().asString(), accessModifier));
+                });
+            }
+            if (config.isAnalyzeMethods()) {
+                classDecl.getMethods().stream()
+                        .filter(method -> !config.isOnlyAnalyzePublicMethods() || method.isPublic())
+                        .forEach(method -> searchMethod(delta, classDecl, method, config));
+            }
+        });
+        return delta;
+    }
+
+    private static void searchMethod(GraphDelta delta, ClassOrInterfaceDeclaration classDecl, MethodDeclaration method,
+                                     ASTAnalyzerConfig config) {
+        String methodName = method.getNameAsString();
+        String visibility = method.isPublic() ? "public" :
+                method.isPrivate() ? "private" :
+                method.isProtected() ? "protected" : "package-private";
+        StringBuilder parameters = new StringBuilder();
+        method.getParameters().forEach(param -> parameters.append(param.getType().asString()).append(", "));
+        delta.createMethodNode(classDecl.getNameAsString(), methodName, visibility, method.getType().asString(),
+                parameters.toString());
+
+        if (config.isAnalyzeMethodCalls()) {
+            method.findAll(MethodCallExpr.class).stream()
+                    .filter(methodCall -> !config.isOmitPrivateMethodCalls() || classDecl.getMethods().stream()
+                            .noneMatch(m -> m.getNameAsString().equals(methodCall.getNameAsString()) && m.isPrivate()))
+                    .forEach(methodCall -> delta.createMethodCallNode(methodName, methodCall.getNameAsString()));
+        }
+        if (config.isAnalyzeControlFlow()) {
+            method.findAll(IfStmt.class).forEach(ifStmt ->
+                    delta.createControlFlowNode(methodName, "if", ifStmt.getCondition().toString()));
+            method.findAll(ForStmt.class).forEach(forStmt ->
+                    delta.createControlFlowNode(methodName, "for", forStmt.toString()));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.sdg.ast;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the {@link AnalysisTimings} class.
+ */
+class AnalysisTimingsTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that files without recorded timings are ordered by size, largest first.
+     */
+    @Test
+    void testFilesWithoutTimingsAreOrderedBySize() {
+        Path root = tempDir.resolve("project");
+        Map<Path, Long> sizes = Map.of(root.resolve("A.java"), 100L, root.resolve("B.java"), 5_000L,
+                root.resolve("C.java"), 100L);
+
+        AnalysisTimings timings = new AnalysisTimings(tempDir.resolve("timings"), root);
+
+        assertEquals(List.of(root.resolve("B.java"), root.resolve("A.java"), root.resolve("C.java")),
+                timings.orderByCost(List.of(root.resolve("A.java"), root.resolve("B.java"), root.resolve("C.java")),
+                        sizes::get));
+    }
+
+    /**
+     * Tests that timings saved by one run order the files of the next run, with the time per byte of the timed
+     * files estimating the untimed ones.
+     */
+    @Test
+    void testSavedTimingsOrderNextRun() {
+        Path root = tempDir.resolve("project");
+        Path small = root.resolve("Small.java");
+        Path large = root.resolve("Large.java");
+        Path added = root.resolve("Added.java");
+        Map<Path, Long> sizes = Map.of(small, 1_000L, large, 2_000L, added, 1_500L);
+
+        AnalysisTimings firstRun = new AnalysisTimings(tempDir.resolve("timings"), root);
+        firstRun.record(small, 90_000_000L);
+        firstRun.record(large, 10_000_000L);
+        firstRun.save(List.of(small, large));
+
+        // 100 ms for 3000 bytes estimates the added file at 50 ms
+        AnalysisTimings secondRun = new AnalysisTimings(tempDir.resolve("timings"), root);
+
+        assertEquals(List.of(small, added, large), secondRun.orderByCost(List.of(large, added, small), sizes::get));
+    }
+}
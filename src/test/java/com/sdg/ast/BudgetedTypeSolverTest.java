@@ -0,0 +1,53 @@
+package com.sdg.ast;
+
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link BudgetedTypeSolver} class.
+ */
+class BudgetedTypeSolverTest {
+
+    @Test
+    void testLookupsSucceedWithoutDeadline() {
+        BudgetedTypeSolver solver = new BudgetedTypeSolver(new CombinedTypeSolver(new ReflectionTypeSolver()));
+
+        assertTrue(solver.tryToSolveType("java.lang.String").isSolved());
+    }
+
+    @Test
+    void testLookupsFailAfterDeadline() {
+        BudgetedTypeSolver solver = new BudgetedTypeSolver(new CombinedTypeSolver(new ReflectionTypeSolver()));
+
+        solver.setDeadline(System.nanoTime() - 1);
+        assertThrows(ResolutionBudgetExceededException.class, () -> solver.tryToSolveType("java.lang.String"));
+
+        solver.clearDeadline();
+        assertTrue(solver.tryToSolveType("java.lang.String").isSolved());
+    }
+
+    @Test
+    void testSolverIsInstalledAsRoot() {
+        CombinedTypeSolver combinedTypeSolver = new CombinedTypeSolver(new ReflectionTypeSolver());
+        BudgetedTypeSolver solver = new BudgetedTypeSolver(combinedTypeSolver);
+
+        assertSame(solver, combinedTypeSolver.getRoot());
+        assertThrows(IllegalStateException.class, () -> solver.setParent(new ReflectionTypeSolver()));
+    }
+
+    @Test
+    void testWrappedBudgetExceptionsAreRecognized() {
+        ResolutionBudgetExceededException cause = new ResolutionBudgetExceededException("Foo");
+
+        assertTrue(BudgetedTypeSolver.isBudgetExceeded(new UnsolvedSymbolException("Foo", "context", cause)));
+        assertFalse(BudgetedTypeSolver.isBudgetExceeded(new UnsolvedSymbolException("Foo")));
+        assertFalse(BudgetedTypeSolver.isPast(BudgetedTypeSolver.deadlineAfter(System.nanoTime(), 0)));
+    }
+}
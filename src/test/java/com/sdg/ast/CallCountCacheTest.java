@@ -0,0 +1,213 @@
+package com.sdg.ast;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.sdg.model.FileHashes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link CallCountCache} class.
+ */
+class CallCountCacheTest {
+    private static final String SERVICE_CALL = "com.example.Service.run(int)";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCountsAreReadBackForUnchangedFiles() throws IOException {
+        writeSources("public void run(int times) {}");
+        MethodCallAnalyzer analyzer = new MethodCallAnalyzer(tempDir.resolve("src").toString());
+        Path client = tempDir.resolve("src/com/example/Client.java");
+
+        MethodCallAnalyzer.CallCounts counts = storeCounts(analyzer, client);
+        assertEquals(Map.of(SERVICE_CALL, 2), counts.resolvedCalls());
+        assertEquals(Set.of("com.example.Service"), analyzer.findDependencies(analyzer.parse(client), counts));
+
+        CallCountCache nextRun = newCache(analyzer);
+        assertEquals(counts.resolvedCalls(), nextRun.get(client).orElseThrow().resolvedCalls());
+        assertEquals(1, nextRun.getHitCount());
+    }
+
+    @Test
+    void testChangedDependencyInvalidatesEntry() throws IOException {
+        writeSources("public void run(int times) {}");
+        MethodCallAnalyzer analyzer = new MethodCallAnalyzer(tempDir.resolve("src").toString());
+        Path client = tempDir.resolve("src/com/example/Client.java");
+        storeCounts(analyzer, client);
+
+        writeSources("public void run(long times) {}");
+
+        CallCountCache nextRun = newCache(analyzer);
+        assertTrue(nextRun.get(client).isEmpty());
+        assertEquals(1, nextRun.getStaleEntryCount());
+    }
+
+    @Test
+    void testDeclaringMissingTypeInvalidatesEntry() throws IOException {
+        writeSources("public void run(int times) {}");
+        Path client = tempDir.resolve("src/com/example/Client.java");
+        Files.writeString(client, """
+                package com.example;
+
+                public class Client {
+                    void call(Service service, Helper helper) {
+                        service.run(1);
+                    }
+                }
+                """);
+        MethodCallAnalyzer analyzer = new MethodCallAnalyzer(tempDir.resolve("src").toString());
+        storeCounts(analyzer, client);
+        assertTrue(newCache(analyzer).get(client).isPresent());
+
+        Files.writeString(tempDir.resolve("src/com/example/Helper.java"), """
+                package com.example;
+
+                public class Helper {
+                }
+                """);
+
+        MethodCallAnalyzer nextAnalyzer = new MethodCallAnalyzer(tempDir.resolve("src").toString());
+        CallCountCache nextRun = newCache(nextAnalyzer);
+        assertTrue(nextRun.get(client).isEmpty());
+        assertEquals(1, nextRun.getStaleEntryCount());
+    }
+
+    @Test
+    void testTypeAddedToPackageImportedOnDemandInvalidatesEntry() throws IOException {
+        writeSources("public void run(int times) {}");
+        Path client = tempDir.resolve("src/com/example/Client.java");
+        Files.writeString(client, """
+                package com.example;
+
+                import com.example.util.*;
+
+                public class Client {
+                    void call(Service service) {
+                        service.run(Limits.MAX);
+                    }
+                }
+                """);
+        Path utilDir = Files.createDirectories(tempDir.resolve("src/com/example/util"));
+        Files.writeString(utilDir.resolve("Other.java"), """
+                package com.example.util;
+
+                public class Other {
+                }
+                """);
+        MethodCallAnalyzer analyzer = new MethodCallAnalyzer(tempDir.resolve("src").toString());
+        MethodCallAnalyzer.CallCounts counts = storeCounts(analyzer, client);
+        assertTrue(analyzer.findDependencies(analyzer.parse(client), counts)
+                .contains(MethodCallAnalyzer.PACKAGE_DEPENDENCY_PREFIX + "com.example.util"));
+
+        Files.writeString(utilDir.resolve("Limits.java"), """
+                package com.example.util;
+
+                public class Limits {
+                    public static final int MAX = 10;
+                }
+                """);
+
+        CallCountCache nextRun = newCache(new MethodCallAnalyzer(tempDir.resolve("src").toString()));
+        assertTrue(nextRun.get(client).isEmpty());
+        assertEquals(1, nextRun.getStaleEntryCount());
+    }
+
+    @Test
+    void testCorruptEntryIsTreatedAsMiss() throws IOException {
+        writeSources("public void run(int times) {}");
+        MethodCallAnalyzer analyzer = new MethodCallAnalyzer(tempDir.resolve("src").toString());
+        Path client = tempDir.resolve("src/com/example/Client.java");
+        storeCounts(analyzer, client);
+
+        for (Path entry : listEntries()) {
+            Files.write(entry, new byte[] {1, 2, 3});
+        }
+
+        CallCountCache nextRun = newCache(analyzer);
+        assertTrue(nextRun.get(client).isEmpty());
+        assertEquals(0, listEntries().length);
+    }
+
+    @Test
+    void testEvictionRemovesLeastRecentlyUsedEntries() throws IOException {
+        writeSources("public void run(int times) {}");
+        MethodCallAnalyzer analyzer = new MethodCallAnalyzer(tempDir.resolve("src").toString());
+        Path client = tempDir.resolve("src/com/example/Client.java");
+        Path service = tempDir.resolve("src/com/example/Service.java");
+        storeCounts(analyzer, client);
+        for (Path entry : listEntries()) {
+            Files.setLastModifiedTime(entry, FileTime.from(Instant.now().minusSeconds(60)));
+        }
+        storeCounts(analyzer, service);
+        long newestEntrySize = Files.size(newestEntry());
+
+        CallCountCache cache = new CallCountCache(tempDir.resolve("cache"), newestEntrySize, analyzer, new FileHashes());
+        cache.evict();
+
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.get(service).isPresent());
+        assertFalse(cache.get(client).isPresent());
+    }
+
+    private MethodCallAnalyzer.CallCounts storeCounts(MethodCallAnalyzer analyzer, Path file) {
+        CompilationUnit cu = analyzer.parse(file);
+        MethodCallAnalyzer.CallCounts counts = analyzer.countCalls(cu);
+        newCache(analyzer).put(file, counts, analyzer.findDependencies(cu, counts));
+        return counts;
+    }
+
+    private CallCountCache newCache(MethodCallAnalyzer analyzer) {
+        return new CallCountCache(tempDir.resolve("cache"), Long.MAX_VALUE, analyzer, new FileHashes());
+    }
+
+    private Path newestEntry() throws IOException {
+        Path newest = null;
+        for (Path entry : listEntries()) {
+            if (newest == null || Files.getLastModifiedTime(entry).compareTo(Files.getLastModifiedTime(newest)) > 0) {
+                newest = entry;
+            }
+        }
+        return newest;
+    }
+
+    private Path[] listEntries() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir.resolve("cache"))) {
+            return files.filter(file -> file.toString().endsWith(".bin")).toArray(Path[]::new);
+        }
+    }
+
+    private void writeSources(String serviceMethod) throws IOException {
+        Path packageDir = Files.createDirectories(tempDir.resolve("src/com/example"));
+        Files.writeString(packageDir.resolve("Service.java"), """
+                package com.example;
+
+                public class Service {
+                    %s
+                }
+                """.formatted(serviceMethod));
+        Files.writeString(packageDir.resolve("Client.java"), """
+                package com.example;
+
+                public class Client {
+                    void call(Service service) {
+                        service.run(1);
+                        service.run(2);
+                    }
+                }
+                """);
+    }
+}
@@ -0,0 +1,44 @@
+package com.sdg.ast;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link JavaFileParser} class.
+ */
+class JavaFileParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that a file with a syntax error is parsed into the AST recovered from it instead of failing.
+     */
+    @Test
+    void testFileWithSyntaxErrorIsParsedPartially() throws IOException {
+        Path file = tempDir.resolve("Partial.java");
+        Files.writeString(file, """
+                public class Partial {
+                    public void valid() {
+                    }
+
+                    public void invalid() {
+                        int x = ;
+                    }
+                }
+                """);
+
+        CompilationUnit cu = new JavaFileParser().parse(file);
+
+        assertTrue(cu.findAll(MethodDeclaration.class).stream()
+                .anyMatch(method -> method.getNameAsString().equals("valid")));
+    }
+}
@@ -0,0 +1,115 @@
+package com.sdg.ast;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link LexicalTypeResolver} class.
+ */
+class LexicalTypeResolverTest {
+    private static final String SOURCE = """
+            package com.example;
+
+            import com.lib.Client;
+            import com.lib.Factory;
+            import java.util.*;
+
+            class Service {
+                private Client client;
+
+                void run(Client parameter) {
+                    client.send();
+                    this.client.close();
+                    parameter.open();
+                    Factory.create();
+                    Client local = null;
+                    local.flush();
+                    List<String> list = null;
+                    list.size();
+                    var inferred = client;
+                    inferred.send();
+                    for (Client each : clients()) {
+                        each.reset();
+                    }
+                    helper();
+                    String.valueOf(1);
+                    "text".trim();
+                    System.out.println();
+                    list.stream().count();
+                }
+            }
+
+            class Derived extends Base {
+                void run() {
+                    inherited.call();
+                }
+            }
+            """;
+
+    private final CompilationUnit compilationUnit = StaticJavaParser.parse(SOURCE);
+    private final LexicalTypeResolver resolver = new LexicalTypeResolver(compilationUnit, TypeIndex.build(List.of()));
+
+    @Test
+    void testDeclaredVariablesAreResolvedThroughImports() {
+        assertEquals(Optional.of("com.lib.Client"), scopeTypeOf("send"));
+        assertEquals(Optional.of("com.lib.Client"), scopeTypeOf("close"));
+        assertEquals(Optional.of("com.lib.Client"), scopeTypeOf("open"));
+        assertEquals(Optional.of("com.lib.Client"), scopeTypeOf("flush"));
+        assertEquals(Optional.of("com.lib.Client"), scopeTypeOf("reset"));
+    }
+
+    @Test
+    void testTypeNameScopesAreResolvedThroughImports() {
+        assertEquals(Optional.of("com.lib.Factory"), scopeTypeOf("create"));
+    }
+
+    @Test
+    void testStandardLibraryTypesAreResolvedThroughWildcardImportsAndJavaLang() {
+        assertEquals(Optional.of("java.util.List"), scopeTypeOf("size"));
+        assertEquals(Optional.of("java.lang.String"), scopeTypeOf("valueOf"));
+    }
+
+    @Test
+    void testCallsOnStandardLibraryTypesAreClassified() {
+        assertTrue(resolver.hasJdkScope(findCalls("size")[0]));
+        assertTrue(resolver.hasJdkScope(findCalls("valueOf")[0]));
+        assertTrue(resolver.hasJdkScope(findCalls("trim")[0]));
+        assertTrue(resolver.hasJdkScope(findCalls("println")[0]));
+        assertFalse(resolver.hasJdkScope(findCalls("count")[0]));
+        assertFalse(resolver.hasJdkScope(findCalls("send")[0]));
+    }
+
+    @Test
+    void testTypeParametersShadowStandardLibraryTypes() {
+        CompilationUnit generic = StaticJavaParser.parse("class Generic<String> { void run(String value) { value.trim(); } }");
+        LexicalTypeResolver genericResolver = new LexicalTypeResolver(generic, TypeIndex.build(List.of()));
+
+        assertFalse(genericResolver.hasJdkScope(generic.findFirst(MethodCallExpr.class).orElseThrow()));
+    }
+
+    @Test
+    void testTypesThatDependOnOtherFilesAreNotResolved() {
+        // Inferred type, inherited field and call without scope
+        assertEquals(Optional.empty(), resolver.resolveScopeType(findCalls("send")[1]));
+        assertEquals(Optional.empty(), scopeTypeOf("call"));
+        assertEquals(Optional.empty(), scopeTypeOf("helper"));
+    }
+
+    private Optional<String> scopeTypeOf(String methodName) {
+        return resolver.resolveScopeType(findCalls(methodName)[0]);
+    }
+
+    private MethodCallExpr[] findCalls(String methodName) {
+        return compilationUnit.findAll(MethodCallExpr.class, call -> call.getNameAsString().equals(methodName))
+                .toArray(MethodCallExpr[]::new);
+    }
+}
@@ -1,5 +1,6 @@
 package com.sdg.ast;
 
+import io.reactivex.rxjava3.core.Observable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.net.URL;
@@ -114,6 +115,22 @@ class MethodCallAnalyzerTest {
         assertEquals(1, method2CallCount);
     }
 
+    @Test
+    void testParallelAnalysisMatchesSequentialAnalysis() throws Exception {
+        List<Path> testFiles = getTestFiles();
+        Map<String, Integer> parallelMethodCallsMap = new HashMap<>();
+
+        try (MethodCallAnalyzerPool pool = new MethodCallAnalyzerPool(new MethodCallAnalyzer("src", true), 3)) {
+            Observable.fromIterable(testFiles)
+                    .flatMap(file -> Observable.fromCallable(() -> pool.getAnalyzer().analyze(file))
+                            .subscribeOn(pool.getScheduler()), pool.getParallelism())
+                    .blockingForEach(methodCallsMap -> methodCallsMap.forEach((key, count) ->
+                            parallelMethodCallsMap.merge(key, count, Integer::sum)));
+        }
+
+        assertEquals(mergedMethodCallsMap, parallelMethodCallsMap);
+    }
+
     private List<Path> getTestFiles() throws Exception {
         List<Path> testFiles = new ArrayList<>();
         testFiles.add(Paths.get(getResourcePath(CLASS1)));
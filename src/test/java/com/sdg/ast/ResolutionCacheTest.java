@@ -0,0 +1,71 @@
+package com.sdg.ast;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link ResolutionCache} class.
+ */
+class ResolutionCacheTest {
+
+    @Test
+    void testHitsAndMissesAreCounted() {
+        ResolutionCache<String, String> cache = new ResolutionCache<>(1024 * 1024, (key, value) -> 1);
+
+        assertNull(cache.get("a"));
+        cache.put("a", "value");
+        assertEquals("value", cache.get("a"));
+        assertEquals("value", cache.get("a"));
+
+        ResolutionCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.entryCount());
+        assertEquals(2.0 / 3, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    void testWeightStaysBelowMemoryCeiling() {
+        // 16 segments with a ceiling of 10 each
+        ResolutionCache<Integer, String> cache = new ResolutionCache<>(160, (key, value) -> value.length());
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "12345");
+        }
+
+        ResolutionCache.Stats stats = cache.getStats();
+        assertTrue(stats.weight() <= 160);
+        assertTrue(stats.evictionCount() > 0);
+        assertEquals(1000, stats.entryCount() + stats.evictionCount());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        // Keys 0, 16 and 32 map to the same segment, which holds two entries
+        ResolutionCache<Integer, String> cache = new ResolutionCache<>(32, (key, value) -> 1);
+
+        cache.put(0, "a");
+        cache.put(16, "b");
+        cache.get(0);
+        cache.put(32, "c");
+
+        assertEquals("a", cache.get(0));
+        assertNull(cache.get(16));
+        assertEquals("c", cache.get(32));
+    }
+
+    @Test
+    void testDisabledCacheStoresNothing() {
+        ResolutionCache<String, String> cache = new ResolutionCache<>(0, (key, value) -> 1);
+
+        cache.put("a", "value");
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getStats().entryCount());
+        assertThrows(IllegalArgumentException.class, () -> new ResolutionCache<String, String>(-1, (key, value) -> 1));
+    }
+}
@@ -0,0 +1,115 @@
+package com.sdg.ast;
+
+import com.sdg.model.SourceReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link TypeIndex} class.
+ */
+class TypeIndexTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTopLevelTypesAreIndexedByPackage() throws IOException {
+        Path file = writeFile("module-a/src/main/java/com/example/Service.java", """
+                package com.example;
+
+                import java.util.List;
+
+                public class Service {
+                    class Inner {}
+                    interface NestedInterface {}
+                }
+
+                enum Mode { ON, OFF }
+                """);
+
+        TypeIndex typeIndex = TypeIndex.build(List.of(file));
+
+        assertEquals(file, typeIndex.findFile("com.example.Service").orElseThrow());
+        assertEquals(file, typeIndex.findFile("com.example.Mode").orElseThrow());
+        assertFalse(typeIndex.contains("com.example.Inner"));
+        assertFalse(typeIndex.contains("com.example.NestedInterface"));
+        assertEquals(2, typeIndex.size());
+        assertEquals(List.of("com.example.Mode", "com.example.Service"), typeIndex.findTypesInPackage("com.example"));
+        assertEquals(List.of(), typeIndex.findTypesInPackage("com"));
+    }
+
+    @Test
+    void testKeywordsInCommentsAndLiteralsAreIgnored() throws IOException {
+        Path file = writeFile("Records.java", """
+                /* package wrong.pkg; class Fake {} */
+                package com.example.records;
+
+                // class AlsoFake
+                @Deprecated(since = "class NotAType {")
+                public record Point(int x, int y) {
+                    static final Class<?> TYPE = Point.class;
+                }
+
+                @interface Marker {}
+                """);
+
+        List<String> types = TypeIndex.scanDeclaredTypes(file);
+
+        assertEquals(List.of("com.example.records.Point", "com.example.records.Marker"), types);
+    }
+
+    @Test
+    void testTypesFromSeveralSourceRootsAreIndexed() throws IOException {
+        Path fileA = writeFile("module-a/src/main/java/com/example/a/A.java", "package com.example.a; class A {}");
+        Path fileB = writeFile("module-b/src/com/example/b/B.java", "package com.example.b; class B {}");
+        Path defaultPackage = writeFile("Main.java", "public class Main {}");
+
+        TypeIndex typeIndex = TypeIndex.build(List.of(fileA, fileB, defaultPackage));
+
+        assertEquals(fileA, typeIndex.findFile("com.example.a.A").orElseThrow());
+        assertEquals(fileB, typeIndex.findFile("com.example.b.B").orElseThrow());
+        assertTrue(typeIndex.contains("Main"));
+    }
+
+    @Test
+    void testDuplicateTypesResolveToSmallestPath() throws IOException {
+        Path second = writeFile("module-b/Dup.java", "package com.example; class Dup {}");
+        Path first = writeFile("module-a/Dup.java", "package com.example; class Dup {}");
+
+        TypeIndex typeIndex = TypeIndex.build(List.of(second, first));
+
+        assertEquals(first, typeIndex.findFile("com.example.Dup").orElseThrow());
+    }
+
+    @Test
+    void testUpdateScansChangedFilesOnly() throws IOException {
+        Path kept = writeFile("Kept.java", "package com.example; class Kept {}");
+        Path renamed = writeFile("Renamed.java", "package com.example; class Old {}");
+        Path deleted = writeFile("Deleted.java", "package com.example; class Deleted {}");
+        TypeIndex typeIndex = TypeIndex.build(List.of(kept, renamed, deleted));
+
+        Files.writeString(renamed, "package com.example; class New {}");
+        Files.delete(deleted);
+        Path added = writeFile("Added.java", "package com.example; class Deleted {}");
+        TypeIndex updatedIndex = typeIndex.update(List.of(deleted), List.of(renamed, added), SourceReader.FILE_SYSTEM);
+
+        assertEquals(List.of("com.example.Deleted", "com.example.Kept", "com.example.New"),
+                updatedIndex.findTypesInPackage("com.example"));
+        assertEquals(added, updatedIndex.findFile("com.example.Deleted").orElseThrow());
+        assertTrue(typeIndex.contains("com.example.Old"));
+    }
+
+    private Path writeFile(String relativePath, String content) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
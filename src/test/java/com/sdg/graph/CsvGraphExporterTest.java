@@ -0,0 +1,153 @@
+package com.sdg.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link CsvGraphExporter} class.
+ */
+class CsvGraphExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that nodes are written with quoted values, declared classes before placeholder classes, and
+     * relationships connected by the ids of the nodes.
+     */
+    @Test
+    void testWritesNodesAndRelationships() throws IOException {
+        GraphDelta delta = new GraphDelta();
+        delta.createClassNode("Child", "com.example", "src/Child.java");
+        delta.createClassNode("Parent");
+        delta.createInheritanceRelationship("Child", "Parent");
+        delta.createMethodNode("Child", "run", "public", "void", "");
+        delta.createMethodCallNode("run", "stop");
+        delta.createControlFlowNode("run", "if", "name.equals(\"a\")");
+        delta.recordSourceFile("src/Child.java", new SourceFileManifest.Entry("abc", "def"));
+
+        try (CsvGraphExporter exporter = new CsvGraphExporter(tempDir)) {
+            exporter.write(delta);
+        }
+
+        assertEquals(List.of("className:ID(Class),packageName,sourceFile"),
+                Files.readAllLines(tempDir.resolve("Class-header.csv")));
+        assertEquals(List.of("\"Child\",\"com.example\",\"src/Child.java\""),
+                Files.readAllLines(tempDir.resolve("Class.csv")));
+        assertEquals(List.of("\"Parent\",,"), Files.readAllLines(tempDir.resolve("Class-placeholders.csv")));
+        assertEquals(List.of("\"Child\",\"Parent\""), Files.readAllLines(tempDir.resolve("EXTENDS.csv")));
+        assertEquals(List.of("\"src/Child.java\",\"abc\",\"def\""),
+                Files.readAllLines(tempDir.resolve("SourceFile.csv")));
+
+        String controlFlow = Files.readAllLines(tempDir.resolve("ControlFlow.csv")).get(0);
+        assertTrue(controlFlow.endsWith(",\"if\",\"name.equals(\"\"a\"\")\""), controlFlow);
+        String methodId = Files.readAllLines(tempDir.resolve("Method.csv")).get(0).split(",")[0];
+        assertEquals(List.of("\"Child\"," + methodId), Files.readAllLines(tempDir.resolve("HAS_METHOD.csv")));
+        assertEquals(List.of(methodId + ",\"stop\""), Files.readAllLines(tempDir.resolve("CALLS.csv")));
+        assertEquals(List.of(methodId + "," + controlFlow.split(",")[0]),
+                Files.readAllLines(tempDir.resolve("CONTAINS.csv")));
+    }
+
+    /**
+     * Tests that a relationship extracted from several deltas is written once, and that relationships to nodes
+     * matched by name are connected to the nodes of that name written in the same or an earlier delta, as the
+     * database queries connect them. Few rows are sorted at a time, so that the spilled rows are merged from
+     * several runs.
+     */
+    @Test
+    void testRelationshipsAreWrittenOnceAndConnectedAcrossDeltas() throws IOException {
+        GraphDelta first = new GraphDelta();
+        first.createClassNode("Child", "com.example", "src/Child.java");
+        first.createImportRelationship("Child", "java.util.List");
+        first.createMethodNode("Child", "run", "public", "void", "");
+        first.createMethodCallNode("run", "stop");
+
+        GraphDelta second = new GraphDelta();
+        second.createClassNode("Child", "com.example", "src/Child.java");
+        second.createImportRelationship("Child", "java.util.List");
+        second.createClassNode("Other", "com.example", "src/Other.java");
+        second.createMethodNode("Other", "run", "private", "int", "String, ");
+        second.createMethodCallNode("run", "stop");
+
+        try (CsvGraphExporter exporter = new CsvGraphExporter(tempDir, 2)) {
+            exporter.write(first);
+            exporter.write(second);
+        }
+
+        List<String> methods = Files.readAllLines(tempDir.resolve("Method.csv"));
+        String childRunId = methods.get(0).split(",")[0];
+        String otherRunId = methods.get(1).split(",")[0];
+        assertEquals(List.of("\"Child\",\"java.util.List\""), Files.readAllLines(tempDir.resolve("IMPORTS.csv")));
+        assertEquals(sorted("\"Child\"," + childRunId, "\"Other\"," + childRunId, "\"Other\"," + otherRunId),
+                sorted(Files.readAllLines(tempDir.resolve("HAS_METHOD.csv"))));
+        assertEquals(sorted(childRunId + ",\"stop\"", otherRunId + ",\"stop\""),
+                sorted(Files.readAllLines(tempDir.resolve("CALLS.csv"))));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertTrue(files.allMatch(file -> file.toString().endsWith(".csv") || file.endsWith("import.args")),
+                    "Spilled rows should be deleted");
+        }
+    }
+
+    /**
+     * Tests that the relationships of nodes matched by names spilled in many runs are connected to every node of
+     * their name, and written once whatever the order they were spilled in.
+     */
+    @Test
+    void testRelationshipsAreConnectedAcrossRuns() throws IOException {
+        try (CsvGraphExporter exporter = new CsvGraphExporter(tempDir, 3)) {
+            for (int i = 9; i >= 0; i--) {
+                GraphDelta delta = new GraphDelta();
+                delta.createClassNode("Class" + i, "com.example", "src/Class" + i + ".java");
+                delta.createMethodNode("Class" + i, "run", "public", "void", i + ", ");
+                delta.createMethodNode("Class" + i, "stop" + i, "public", "void", "");
+                delta.createMethodCallNode("run", "stop" + i);
+                delta.createControlFlowNode("run", "if", "ready");
+                exporter.write(delta);
+            }
+        }
+
+        // The call of the first delta is made by one run method, the call of the last delta by all ten of them
+        assertEquals(55, Files.readAllLines(tempDir.resolve("CALLS.csv")).stream().distinct().count());
+        assertEquals(55, Files.readAllLines(tempDir.resolve("CALLS.csv")).size());
+        assertEquals(55 + 10, Files.readAllLines(tempDir.resolve("HAS_METHOD.csv")).size());
+        // Every delta connects the run methods written so far to the same control flow
+        assertEquals(10, Files.readAllLines(tempDir.resolve("CONTAINS.csv")).size());
+    }
+
+    /**
+     * Tests that the import options name the header and data files of every label and type, and allow the nodes
+     * shared by several files to be written more than once.
+     */
+    @Test
+    void testWritesImportArguments() throws IOException {
+        new CsvGraphExporter(tempDir).close();
+
+        List<String> arguments = Files.readAllLines(tempDir.resolve("import.args"));
+
+        assertTrue(arguments.contains("--nodes=Class=" + tempDir.resolve("Class-header.csv").toAbsolutePath() + ","
+                + tempDir.resolve("Class.csv").toAbsolutePath() + ","
+                + tempDir.resolve("Class-placeholders.csv").toAbsolutePath()), arguments.toString());
+        assertTrue(arguments.contains("--relationships=IMPORTS=" + tempDir.resolve("IMPORTS-header.csv").toAbsolutePath()
+                + "," + tempDir.resolve("IMPORTS.csv").toAbsolutePath()), arguments.toString());
+        assertEquals(8, arguments.stream().filter(argument -> argument.startsWith("--nodes=")).count());
+        assertEquals(7, arguments.stream().filter(argument -> argument.startsWith("--relationships=")).count());
+        assertTrue(arguments.contains("--skip-duplicate-nodes=true"));
+    }
+
+    private static List<String> sorted(String... lines) {
+        return sorted(List.of(lines));
+    }
+
+    private static List<String> sorted(List<String> lines) {
+        return lines.stream().sorted().toList();
+    }
+}
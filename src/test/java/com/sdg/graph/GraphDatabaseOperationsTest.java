@@ -315,4 +315,246 @@ class GraphDatabaseOperationsTest {
                 "Should have correct visibility");
         }
     }
+
+    @Test
+    void testDeleteFileContentsKeepsSharedNodes() {
+        String childFile = "/project/src/ChildClass.java";
+        String parentFile = "/project/src/ParentClass.java";
+        dbOps.createClassNode(CHILD_CLASS, "com.example", childFile);
+        dbOps.createClassNode(PARENT_CLASS, "com.example", parentFile);
+        dbOps.createInheritanceRelationship(CHILD_CLASS, PARENT_CLASS);
+        dbOps.createImportRelationship(CHILD_CLASS, "java.util.List");
+        dbOps.createImportRelationship(PARENT_CLASS, "java.util.List");
+        dbOps.createClassField(PARENT_CLASS, "parentField", "String", "protected");
+        dbOps.recordSourceFile(parentFile, new SourceFileManifest.Entry("hash", "digest"));
+        dbOps.commitBatchTransaction();
+
+        // Deleting the parent's file keeps the class as placeholder, since the child still extends it
+        dbOps.startBatchTransaction();
+        dbOps.deleteFileContents(parentFile);
+        dbOps.deleteSourceFile(parentFile);
+        dbOps.commitBatchTransaction();
+
+        try (Session session = dbOps.getDriver().session()) {
+            List<String> classNames = session.run(CypherConstants.FIND_ALL_CLASSES)
+                    .list(record -> record.get(CypherConstants.PROP_CLASS_NAME).asString());
+            assertEquals(2, classNames.size(), "Both class nodes should still exist");
+            assertTrue(session.run(CypherConstants.GET_CLASS_FIELDS,
+                    parameters(CypherConstants.PROP_CLASS_NAME, PARENT_CLASS)).list().isEmpty(),
+                    "Fields of the deleted file should be removed");
+            assertEquals(List.of("java.util.List"), session.run(CypherConstants.GET_CLASS_IMPORTS,
+                    parameters(CypherConstants.PROP_CLASS_NAME, CHILD_CLASS))
+                    .list(record -> record.get(CypherConstants.PROP_IMPORT_NAME).asString()),
+                    "Imports shared with other files should be kept");
+        }
+        assertEquals(0, dbOps.getSourceFileManifest("/project").size(), "Manifest entry should be removed");
+    }
+
+    @Test
+    void testWriteGraphDeltaReplacesFileContents() {
+        String childFile = "/project/src/ChildClass.java";
+        dbOps.createClassNode(CHILD_CLASS, "com.example", childFile);
+        dbOps.createClassField(CHILD_CLASS, "oldField", "String", "private");
+        dbOps.commitBatchTransaction();
+
+        GraphDelta delta = new GraphDelta();
+        delta.deleteFileContents(childFile);
+        delta.createClassNode(CHILD_CLASS, "com.example", childFile);
+        delta.createClassNode(PARENT_CLASS);
+        delta.createInheritanceRelationship(CHILD_CLASS, PARENT_CLASS);
+        delta.createMethodNode(CHILD_CLASS, "run", "public", "void", "");
+        delta.createMethodCallNode("run", "start");
+        delta.createClassField(CHILD_CLASS, "newField", "int", "private");
+        delta.recordSourceFile(childFile, new SourceFileManifest.Entry("hash", "digest"));
+
+        dbOps.startBatchTransaction();
+        dbOps.write(delta);
+        dbOps.commitBatchTransaction();
+
+        try (Session session = dbOps.getDriver().session()) {
+            assertEquals(List.of("newField"), session.run(CypherConstants.GET_CLASS_FIELDS,
+                    parameters(CypherConstants.PROP_CLASS_NAME, CHILD_CLASS))
+                    .list(record -> record.get(CypherConstants.PROP_FIELD_NAME).asString()),
+                    "Fields of the earlier version of the file should be replaced");
+            assertEquals(PARENT_CLASS, session.run(CypherConstants.GET_CLASS_INHERITANCE,
+                    parameters(CypherConstants.PROP_CLASS_NAME, CHILD_CLASS))
+                    .single().get(CypherConstants.PROP_PARENT_NAME).asString(), "Should have inheritance");
+            assertEquals(List.of("start"), session.run(CypherConstants.GET_METHOD_CALLS,
+                    parameters(CypherConstants.PROP_METHOD_NAME, "run"))
+                    .list(record -> record.get(CypherConstants.PROP_CALLED_METHOD).asString()),
+                    "Should have the method call");
+        }
+        assertEquals(1, dbOps.getSourceFileManifest("/project").size(), "File should be recorded");
+    }
+
+    @Test
+    void testCreateGraphDeltaDeduplicatesAcrossBatches() {
+        GraphIdentityMap identityMap = new GraphIdentityMap();
+        GraphDelta parentDelta = new GraphDelta();
+        parentDelta.createClassNode(CHILD_CLASS, "com.example", "/project/src/ChildClass.java");
+        parentDelta.createClassNode(PARENT_CLASS);
+        parentDelta.createInheritanceRelationship(CHILD_CLASS, PARENT_CLASS);
+        parentDelta.createImportRelationship(CHILD_CLASS, "java.util.List");
+        dbOps.create(parentDelta, identityMap);
+        dbOps.commitBatchTransaction();
+
+        // The placeholder parent class is completed by the file declaring it, and shared nodes are not created again
+        GraphDelta childDelta = new GraphDelta();
+        childDelta.createClassNode(PARENT_CLASS, "com.example", "/project/src/ParentClass.java");
+        childDelta.createImportRelationship(PARENT_CLASS, "java.util.List");
+        childDelta.createMethodNode(PARENT_CLASS, "run", "public", "void", "");
+        childDelta.createMethodCallNode("run", "start");
+        childDelta.recordSourceFile("/project/src/ParentClass.java", new SourceFileManifest.Entry("hash", "digest"));
+        dbOps.startBatchTransaction();
+        dbOps.create(childDelta, identityMap);
+        dbOps.commitBatchTransaction();
+
+        try (Session session = dbOps.getDriver().session()) {
+            assertEquals(2, session.run(CypherConstants.FIND_ALL_CLASSES).list().size(), "Should have two classes");
+            assertEquals("com.example", session.run(CypherConstants.GET_CLASS_PACKAGE,
+                    parameters(CypherConstants.PROP_CLASS_NAME, PARENT_CLASS))
+                    .single().get(CypherConstants.PROP_PACKAGE_NAME).asString(), "Parent should have its package");
+            assertEquals(1, session.run("MATCH (i:Import) RETURN i").list().size(), "Import should be shared");
+            assertEquals(PARENT_CLASS, session.run(CypherConstants.GET_CLASS_INHERITANCE,
+                    parameters(CypherConstants.PROP_CLASS_NAME, CHILD_CLASS))
+                    .single().get(CypherConstants.PROP_PARENT_NAME).asString(), "Should have inheritance");
+            assertEquals(List.of("start"), session.run(CypherConstants.GET_METHOD_CALLS,
+                    parameters(CypherConstants.PROP_METHOD_NAME, "run"))
+                    .list(record -> record.get(CypherConstants.PROP_CALLED_METHOD).asString()),
+                    "Should have the method call");
+        }
+        assertEquals(1, dbOps.getSourceFileManifest("/project").size(), "File should be recorded");
+        assertThrows(IllegalArgumentException.class, () -> {
+            GraphDelta replacingDelta = new GraphDelta();
+            replacingDelta.deleteFileContents("/project/src/ChildClass.java");
+            dbOps.startBatchTransaction();
+            dbOps.create(replacingDelta, identityMap);
+        }, "Files stored by the load cannot be replaced");
+    }
+
+    @Test
+    void testWriterPoolWritesOverlappingDeltasInParallel() {
+        dbOps.commitBatchTransaction();
+
+        // Every file shares its parent, interface, import, method, call, field and control flow with the others
+        try (GraphWriterPool pool = new GraphWriterPool(dbOps.getDriver(), 4)) {
+            pool.write(childClassFiles(0, 16));
+            pool.write(childClassFiles(8, 24));
+        }
+
+        try (Session session = dbOps.getDriver().session()) {
+            assertEquals(25, count(session, "MATCH (n:Class) RETURN count(n) AS count"), "Classes");
+            assertEquals(25, count(session, "MATCH (n:Class) RETURN count(DISTINCT n.className) AS count"),
+                    "Class names should be unique");
+            assertEquals(1, count(session, "MATCH (n:Interface) RETURN count(n) AS count"), "Interfaces");
+            assertEquals(1, count(session, "MATCH (n:Import) RETURN count(n) AS count"), "Imports");
+            assertEquals(1, count(session, "MATCH (n:Method) RETURN count(n) AS count"), "Methods");
+            assertEquals(1, count(session, "MATCH (n:MethodCall) RETURN count(n) AS count"), "Method calls");
+            assertEquals(1, count(session, "MATCH (n:ClassField) RETURN count(n) AS count"), "Class fields");
+            assertEquals(1, count(session, "MATCH (n:ControlFlow) RETURN count(n) AS count"), "Control flow");
+
+            assertEquals(24, count(session, "MATCH (:Class)-[r:EXTENDS]->(:Class {className: $className}) "
+                    + "RETURN count(r) AS count", PARENT_CLASS), "Every child should extend the parent");
+            assertEquals(24, count(session, "MATCH (:Class)-[r:IMPLEMENTS]->(:Interface) RETURN count(r) AS count"),
+                    "Every child should implement the interface");
+            assertEquals(24, count(session, "MATCH (:Class)-[r:IMPORTS]->(:Import) RETURN count(r) AS count"),
+                    "Every child should import the import");
+            assertEquals(24, count(session, "MATCH (:Class)-[r:HAS_METHOD]->(:Method) RETURN count(r) AS count"),
+                    "Every child should have the method");
+            assertEquals(24, count(session, "MATCH (:Class)-[r:HAS_FIELD]->(:ClassField) RETURN count(r) AS count"),
+                    "Every child should have the field");
+            assertEquals(1, count(session, "MATCH (:Method)-[r:CALLS]->(:MethodCall) RETURN count(r) AS count"),
+                    "The method should call once");
+            assertEquals(1, count(session, "MATCH (:Method)-[r:CONTAINS]->(:ControlFlow) RETURN count(r) AS count"),
+                    "The method should contain the control flow once");
+        }
+        assertEquals(24, dbOps.getSourceFileManifest("/project").size(), "Every file should be recorded");
+    }
+
+    @Test
+    void testWriterPoolFailureLeavesReplacedFileToBeStoredAgain() {
+        dbOps.commitBatchTransaction();
+        String childFile = "/project/src/ChildClass.java";
+        SourceFileManifest.Entry entry = new SourceFileManifest.Entry("hash", "digest");
+
+        try (GraphWriterPool pool = new GraphWriterPool(dbOps.getDriver(), 4)) {
+            pool.write(childClassFile(childFile, entry, "long"));
+            assertEquals(1, dbOps.getSourceFileManifest("/project").size(), "File should be recorded");
+
+            // The unchanged file is replaced, but the fields of its new contents violate a constraint
+            try (Session session = dbOps.getDriver().session()) {
+                session.run("CREATE CONSTRAINT test_field_name IF NOT EXISTS "
+                        + "FOR (f:ClassField) REQUIRE f.fieldName IS UNIQUE").consume();
+            }
+            try {
+                assertThrows(RuntimeException.class, () -> pool.write(childClassFile(childFile, entry, "long", "int")),
+                        "A failed partition should fail the write");
+            } finally {
+                try (Session session = dbOps.getDriver().session()) {
+                    session.run("DROP CONSTRAINT test_field_name IF EXISTS").consume();
+                }
+            }
+            assertEquals(0, dbOps.getSourceFileManifest("/project").size(),
+                    "The replaced file should not be recorded, even though its hash did not change");
+
+            // The next update finds the file missing from the manifest and stores it again
+            pool.write(childClassFile(childFile, entry, "long"));
+        }
+
+        try (Session session = dbOps.getDriver().session()) {
+            assertEquals(List.of("id"), session.run(CypherConstants.GET_CLASS_FIELDS,
+                    parameters(CypherConstants.PROP_CLASS_NAME, CHILD_CLASS))
+                    .list(record -> record.get(CypherConstants.PROP_FIELD_NAME).asString()),
+                    "The contents of the file should be restored");
+        }
+        assertEquals(1, dbOps.getSourceFileManifest("/project").size(), "File should be recorded again");
+    }
+
+    /**
+     * Returns the contents of a file declaring the child class with a field of the same name for each type.
+     */
+    private static GraphDelta childClassFile(String sourceFile, SourceFileManifest.Entry entry, String... fieldTypes) {
+        GraphDelta delta = new GraphDelta();
+        delta.deleteFileContents(sourceFile);
+        delta.createClassNode(CHILD_CLASS, "com.example", sourceFile);
+        for (String fieldType : fieldTypes) {
+            delta.createClassField(CHILD_CLASS, "id", fieldType, "private");
+        }
+        delta.recordSourceFile(sourceFile, entry);
+        return delta;
+    }
+
+    /**
+     * Returns a batch of files declaring a child class each, with the contents of earlier versions replaced.
+     */
+    private static GraphDelta childClassFiles(int from, int to) {
+        GraphDelta batch = new GraphDelta();
+        for (int i = from; i < to; i++) {
+            String className = CHILD_CLASS + i;
+            String sourceFile = "/project/src/" + className + ".java";
+            GraphDelta delta = new GraphDelta();
+            delta.deleteFileContents(sourceFile);
+            delta.createClassNode(className, "com.example", sourceFile);
+            delta.createClassNode(PARENT_CLASS);
+            delta.createInheritanceRelationship(className, PARENT_CLASS);
+            delta.createInterfaceImplementation(className, TEST_INTERFACE);
+            delta.createImportRelationship(className, "java.util.List");
+            delta.createMethodNode(className, "run", "public", "void", "");
+            delta.createMethodCallNode("run", "start");
+            delta.createClassField(className, "id", "long", "private");
+            delta.createControlFlowNode("run", "if", "ready");
+            delta.recordSourceFile(sourceFile, new SourceFileManifest.Entry("hash" + i, "digest"));
+            batch.addAll(delta);
+        }
+        return batch;
+    }
+
+    private static long count(Session session, String query) {
+        return session.run(query).single().get("count").asLong();
+    }
+
+    private static long count(Session session, String query, String className) {
+        return session.run(query, parameters(CypherConstants.PROP_CLASS_NAME, className))
+                .single().get("count").asLong();
+    }
 }
@@ -0,0 +1,65 @@
+package com.sdg.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link GraphDelta} class.
+ */
+class GraphDeltaTest {
+
+    /**
+     * Tests that elements added by several files are written once, and that class properties set by a later file
+     * replace those of an earlier one without removing the ones it does not set.
+     */
+    @Test
+    void testAddAllMergesElementsAndClassProperties() {
+        GraphDelta first = new GraphDelta();
+        first.createClassNode("Child", "com.example", "/project/Child.java");
+        first.createImportRelationship("Child", "java.util.List");
+        first.createImportRelationship("Child", "java.util.List");
+
+        GraphDelta second = new GraphDelta();
+        second.createClassNode("Child");
+        second.createClassNode("Parent", "com.other");
+        second.createImportRelationship("Child", "java.util.List");
+
+        GraphDelta batch = new GraphDelta();
+        batch.addAll(first);
+        batch.addAll(second);
+
+        assertEquals(List.of(
+                Map.of(CypherConstants.PROP_CLASS_NAME, "Child", CypherConstants.PROP_PROPERTIES,
+                        Map.of(CypherConstants.PROP_PACKAGE_NAME, "com.example",
+                                CypherConstants.PROP_SOURCE_FILE, "/project/Child.java")),
+                Map.of(CypherConstants.PROP_CLASS_NAME, "Parent", CypherConstants.PROP_PROPERTIES,
+                        Map.of(CypherConstants.PROP_PACKAGE_NAME, "com.other"))), batch.getClassRows());
+        assertEquals(List.of(Map.of(CypherConstants.PROP_CLASS_NAME, "Child",
+                CypherConstants.PROP_IMPORT_NAME, "java.util.List")), batch.getImportRows());
+    }
+
+    /**
+     * Tests that a file is either recorded in or removed from the manifest, whichever happened last.
+     */
+    @Test
+    void testLaterManifestChangeWins() {
+        GraphDelta delta = new GraphDelta();
+        assertTrue(delta.isEmpty());
+
+        delta.deleteSourceFile("/project/A.java");
+        delta.recordSourceFile("/project/A.java", new SourceFileManifest.Entry("hash", "digest"));
+        delta.recordSourceFile("/project/B.java", new SourceFileManifest.Entry("hash", "digest"));
+        delta.deleteSourceFile("/project/B.java");
+
+        assertEquals(List.of(Map.of(CypherConstants.PROP_PATH, "/project/A.java",
+                        CypherConstants.PROP_CONTENT_HASH, "hash", CypherConstants.PROP_SELECTION_DIGEST, "digest")),
+                delta.getRecordedSourceFileRows());
+        assertEquals(List.of(Map.of(CypherConstants.PROP_PATH, "/project/B.java")),
+                delta.getDeletedSourceFileRows());
+    }
+}
@@ -0,0 +1,61 @@
+package com.sdg.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link GraphIdentityMap} class.
+ */
+class GraphIdentityMapTest {
+
+    /**
+     * Tests that methods are found by their identifying properties and, like the queries connecting them, by name.
+     */
+    @Test
+    void testMethodsAreFoundByKeyAndByName() {
+        GraphIdentityMap identityMap = new GraphIdentityMap();
+        Map<String, Object> run = method("run", "");
+        Map<String, Object> runWithArgument = method("run", "String, ");
+        identityMap.put(CypherConstants.LABEL_METHOD, run, "4:a:1");
+        identityMap.put(CypherConstants.LABEL_METHOD, runWithArgument, "4:a:2");
+
+        assertEquals(Optional.of("4:a:2"), identityMap.getId(CypherConstants.LABEL_METHOD, method("run", "String, ")));
+        assertEquals(List.of("4:a:1", "4:a:2"), identityMap.getIdsMatching(CypherConstants.LABEL_METHOD, "run"));
+        assertEquals(List.of(), identityMap.getIdsMatching(CypherConstants.LABEL_METHOD, "stop"));
+        assertThrows(IllegalArgumentException.class,
+                () -> identityMap.getIdsMatching(CypherConstants.LABEL_CLASS, "Child"));
+
+        identityMap.remove(CypherConstants.LABEL_METHOD, run);
+
+        assertEquals(Optional.empty(), identityMap.getId(CypherConstants.LABEL_METHOD, run));
+        assertEquals(List.of("4:a:2"), identityMap.getIdsMatching(CypherConstants.LABEL_METHOD, "run"));
+    }
+
+    /**
+     * Tests that a relationship is only created once per type.
+     */
+    @Test
+    void testRelationshipIsAddedOnce() {
+        GraphIdentityMap identityMap = new GraphIdentityMap();
+
+        assertTrue(identityMap.addRelationship(CypherConstants.REL_HAS_METHOD, "4:a:1", "4:a:2"));
+        assertFalse(identityMap.addRelationship(CypherConstants.REL_HAS_METHOD, "4:a:1", "4:a:2"));
+        assertTrue(identityMap.addRelationship(CypherConstants.REL_CALLS, "4:a:1", "4:a:2"));
+        assertEquals("0 nodes, 2 relationships", identityMap.toString());
+    }
+
+    private static Map<String, Object> method(String name, String parameters) {
+        return Map.of(CypherConstants.PROP_METHOD_NAME, name,
+                CypherConstants.PROP_METHOD_VISIBILITY, "public",
+                CypherConstants.PROP_METHOD_RETURN_TYPE, "void",
+                CypherConstants.PROP_METHOD_PARAMETERS, parameters);
+    }
+}
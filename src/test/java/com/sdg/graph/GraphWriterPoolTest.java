@@ -0,0 +1,47 @@
+package com.sdg.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the partitioning of the {@link GraphWriterPool} class.
+ */
+class GraphWriterPoolTest {
+
+    /**
+     * Tests that rows with the same partition key are written by the same worker, whatever their order, and that
+     * the rows of each worker are ordered by their order key.
+     */
+    @Test
+    void testRowsArePartitionedByKeyAndOrdered() {
+        Map<String, Object> childRun = row("Child", "run");
+        Map<String, Object> childStop = row("Child", "stop");
+        Map<String, Object> parentInit = row("Parent", "init");
+        Map<String, Object> otherAccept = row("Other", "accept");
+
+        List<List<Map<String, Object>>> partitions = GraphWriterPool.partition(
+                List.of(childStop, parentInit, childRun, otherAccept), 4,
+                GraphWriterPool.key(CypherConstants.PROP_CLASS_NAME),
+                GraphWriterPool.key(CypherConstants.PROP_METHOD_NAME));
+        List<List<Map<String, Object>>> reversedPartitions = GraphWriterPool.partition(
+                List.of(otherAccept, childRun, parentInit, childStop), 4,
+                GraphWriterPool.key(CypherConstants.PROP_CLASS_NAME),
+                GraphWriterPool.key(CypherConstants.PROP_METHOD_NAME));
+
+        assertEquals(partitions, reversedPartitions);
+        assertEquals(4, partitions.stream().mapToInt(List::size).sum());
+        List<Map<String, Object>> childPartition = partitions.stream()
+                .filter(partition -> partition.contains(childRun))
+                .findFirst().orElseThrow();
+        assertTrue(childPartition.indexOf(childRun) < childPartition.indexOf(childStop));
+    }
+
+    private static Map<String, Object> row(String className, String methodName) {
+        return Map.of(CypherConstants.PROP_CLASS_NAME, className, CypherConstants.PROP_METHOD_NAME, methodName);
+    }
+}
@@ -0,0 +1,82 @@
+package com.sdg.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link SourceFileManifest} class.
+ */
+class SourceFileManifestTest {
+    @TempDir
+    Path tempDir;
+
+    private static final SourceFileManifest.Entry UNCHANGED = new SourceFileManifest.Entry("a", "x");
+
+    @Test
+    void testDiffDetectsAddedChangedAndDeletedFiles() {
+        SourceFileManifest stored = new SourceFileManifest(Map.of(
+                "/src/Kept.java", UNCHANGED,
+                "/src/Edited.java", new SourceFileManifest.Entry("b", "x"),
+                "/src/Reselected.java", new SourceFileManifest.Entry("c", "x"),
+                "/src/Removed.java", new SourceFileManifest.Entry("d", "x")));
+        SourceFileManifest current = new SourceFileManifest(Map.of(
+                "/src/Kept.java", UNCHANGED,
+                "/src/Edited.java", new SourceFileManifest.Entry("b2", "x"),
+                "/src/Reselected.java", new SourceFileManifest.Entry("c", "y"),
+                "/src/New.java", new SourceFileManifest.Entry("e", "x")));
+
+        SourceFileManifest.Changes changes = stored.diff(current);
+
+        assertEquals(Set.of("/src/New.java"), changes.added());
+        assertEquals(Set.of("/src/Edited.java", "/src/Reselected.java"), changes.changed());
+        assertEquals(Set.of("/src/Removed.java"), changes.deleted());
+    }
+
+    @Test
+    void testDiffOfIdenticalManifestsIsEmpty() {
+        SourceFileManifest manifest = new SourceFileManifest(Map.of("/src/Kept.java", UNCHANGED));
+
+        assertTrue(manifest.diff(manifest).isEmpty());
+        assertTrue(new SourceFileManifest(Map.of()).diff(new SourceFileManifest(Map.of())).isEmpty());
+    }
+
+    @Test
+    void testSelectionDigestIgnoresOrderButNotContent() {
+        String digest = SourceFileManifest.selectionDigest("config", List.of("a.A.m()", "a.A.n(int)"));
+
+        assertEquals(digest, SourceFileManifest.selectionDigest("config", List.of("a.A.n(int)", "a.A.m()")));
+        assertNotEquals(digest, SourceFileManifest.selectionDigest("config", List.of("a.A.m()")));
+        assertNotEquals(digest, SourceFileManifest.selectionDigest("other", List.of("a.A.m()", "a.A.n(int)")));
+    }
+
+    @Test
+    void testPathOfIsAbsoluteAndNormalized() {
+        String path = SourceFileManifest.pathOf(Path.of("src", "..", "src", "Main.java"));
+
+        assertTrue(path.endsWith("/src/Main.java"));
+        assertEquals(SourceFileManifest.pathOf(Path.of("src/Main.java").toAbsolutePath()), path);
+    }
+
+    @Test
+    void testPathOfArchiveEntryIsBelowArchive() throws IOException {
+        Path archive = tempDir.resolve("sources.zip");
+        try (FileSystem zip = FileSystems.newFileSystem(archive, Map.of("create", "true"))) {
+            Path entry = zip.getPath("com", "example", "Main.java");
+
+            assertEquals(SourceFileManifest.pathOf(archive) + "/com/example/Main.java",
+                    SourceFileManifest.pathOf(entry));
+        }
+    }
+}
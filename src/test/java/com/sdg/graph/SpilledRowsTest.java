@@ -0,0 +1,62 @@
+package com.sdg.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the {@link SpilledRows} class.
+ */
+class SpilledRowsTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that rows spilled in several runs are read back in order, more than once, and that the runs are
+     * deleted when closed.
+     */
+    @Test
+    void testRowsAreMergedInOrderFromRuns() throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (SpilledRows spilledRows = new SpilledRows(tempDir, "rows", 3)) {
+            spilledRows.add("b", "2");
+            spilledRows.add("a", "line\nbreak");
+            spilledRows.add("c", "1");
+            spilledRows.add("a", "");
+            spilledRows.add("b", "1");
+            spilledRows.add("b", "2");
+            spilledRows.add("a", "z");
+
+            readAll(spilledRows, rows);
+            assertEquals(List.of(List.of("a", ""), List.of("a", "line\nbreak"), List.of("a", "z"), List.of("b", "1"),
+                    List.of("b", "2"), List.of("b", "2"), List.of("c", "1")), rows);
+
+            spilledRows.add("0", "0");
+            rows.clear();
+            readAll(spilledRows, rows);
+            assertEquals(List.of("0", "0"), rows.get(0));
+            assertEquals(8, rows.size());
+        }
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count(), "Runs should be deleted");
+        }
+    }
+
+    private static void readAll(SpilledRows spilledRows, List<List<String>> rows) throws IOException {
+        try (SpilledRows.RowReader reader = spilledRows.sorted()) {
+            for (String[] row = reader.next(); row != null; row = reader.next()) {
+                rows.add(List.of(row));
+            }
+        }
+    }
+}
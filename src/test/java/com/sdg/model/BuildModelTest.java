@@ -0,0 +1,137 @@
+package com.sdg.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link BuildModel} class.
+ */
+class BuildModelTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that Maven modules are read recursively, including modules of profiles and declared source directories.
+     */
+    @Test
+    void testMavenModules() throws IOException {
+        writeFile("pom.xml", """
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                    <packaging>pom</packaging>
+                    <modules>
+                        <module>api</module>
+                        <module>services</module>
+                    </modules>
+                    <profiles>
+                        <profile>
+                            <modules>
+                                <module>legacy/pom.xml</module>
+                            </modules>
+                        </profile>
+                    </profiles>
+                </project>
+                """);
+        writeFile("api/pom.xml", "<project/>");
+        writeFile("services/pom.xml", """
+                <project>
+                    <packaging>pom</packaging>
+                    <modules><module>billing</module></modules>
+                </project>
+                """);
+        writeFile("services/billing/pom.xml", """
+                <project>
+                    <build><sourceDirectory>${project.basedir}/src/java</sourceDirectory></build>
+                </project>
+                """);
+        writeFile("legacy/pom.xml", "<project/>");
+        Files.createDirectories(tempDir.resolve("api/src/main/java"));
+        Files.createDirectories(tempDir.resolve("services/billing/src/java"));
+        Files.createDirectories(tempDir.resolve("legacy/src/main/java"));
+
+        BuildModel buildModel = BuildModel.detect(tempDir).orElseThrow();
+
+        assertEquals(List.of(tempDir.resolve("api/src/main/java"), tempDir.resolve("services/billing/src/java"),
+                tempDir.resolve("legacy/src/main/java")), buildModel.sourceRoots());
+        assertEquals(3, buildModel.getModules().size());
+    }
+
+    /**
+     * Tests that Gradle projects are read from the settings, with project directories and source sets.
+     */
+    @Test
+    void testGradleModules() throws IOException {
+        writeFile("settings.gradle", """
+                rootProject.name = 'shop'
+                include 'app', ':lib:core'
+                // include 'disabled'
+                include(":web")
+                project(':web').projectDir = file('frontend/web')
+                """);
+        writeFile("lib/core/build.gradle", """
+                sourceSets {
+                    main {
+                        java {
+                            srcDirs = ['src']
+                        }
+                    }
+                }
+                """);
+        writeFile("frontend/web/build.gradle.kts", """
+                sourceSets.main.java.srcDir("generated/java")
+                """);
+        Files.createDirectories(tempDir.resolve("app/src/main/java"));
+        Files.createDirectories(tempDir.resolve("lib/core/src"));
+        Files.createDirectories(tempDir.resolve("lib/core/src/main/java"));
+        Files.createDirectories(tempDir.resolve("frontend/web/src/main/java"));
+        Files.createDirectories(tempDir.resolve("frontend/web/generated/java"));
+        Files.createDirectories(tempDir.resolve("disabled/src/main/java"));
+
+        BuildModel buildModel = BuildModel.detect(tempDir).orElseThrow();
+
+        assertEquals(List.of(tempDir.resolve("app/src/main/java"), tempDir.resolve("lib/core/src"),
+                tempDir.resolve("frontend/web/src/main/java"), tempDir.resolve("frontend/web/generated/java")),
+                buildModel.sourceRoots());
+    }
+
+    /**
+     * Tests that the conventional source directory is used if the declared one does not exist, e.g. because it uses
+     * a property that is not resolved.
+     */
+    @Test
+    void testUnresolvedMavenSourceDirectoryFallsBackToConvention() throws IOException {
+        writeFile("pom.xml", """
+                <project>
+                    <build><sourceDirectory>${src.dir}/java</sourceDirectory></build>
+                </project>
+                """);
+        Files.createDirectories(tempDir.resolve("src/main/java"));
+
+        BuildModel buildModel = BuildModel.detect(tempDir).orElseThrow();
+
+        assertEquals(List.of(tempDir.resolve("src/main/java")), buildModel.sourceRoots());
+    }
+
+    /**
+     * Tests that a directory without build files has no build model.
+     */
+    @Test
+    void testNoBuildFiles() throws IOException {
+        Files.createDirectories(tempDir.resolve("src/main/java"));
+
+        assertTrue(BuildModel.detect(tempDir).isEmpty());
+    }
+
+    private void writeFile(String path, String content) throws IOException {
+        Path file = tempDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
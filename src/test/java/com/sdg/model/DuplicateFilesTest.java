@@ -0,0 +1,82 @@
+package com.sdg.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the {@link DuplicateFiles} class.
+ */
+class DuplicateFilesTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that files with identical content are grouped under the file with the smallest path.
+     */
+    @Test
+    void testIdenticalFilesAreGrouped() throws IOException {
+        List<SourceFile> files = List.of(
+                writeFile("b/Stub.java", "class Stub {}"),
+                writeFile("a/Stub.java", "class Stub {}"),
+                writeFile("c/Stub.java", "class Stub {}"),
+                writeFile("a/Other.java", "class Stubs {}"),
+                writeFile("a/Main.java", "class Main { void run() {} }"));
+
+        DuplicateFiles duplicateFiles = DuplicateFiles.find(files, new FileHashes());
+
+        Path representative = tempDir.resolve("a/Stub.java");
+        assertEquals(List.of(representative, tempDir.resolve("a/Other.java"), tempDir.resolve("a/Main.java")),
+                duplicateFiles.representatives());
+        assertEquals(List.of(representative, tempDir.resolve("b/Stub.java"), tempDir.resolve("c/Stub.java")),
+                duplicateFiles.filesOf(representative));
+        assertEquals(representative, duplicateFiles.representativeOf(tempDir.resolve("c/Stub.java")));
+        assertEquals(List.of(tempDir.resolve("a/Main.java")), duplicateFiles.filesOf(tempDir.resolve("a/Main.java")));
+        assertEquals(2, duplicateFiles.getSkippedFiles());
+        assertEquals(2 * "class Stub {}".length(), duplicateFiles.getSkippedBytes());
+        assertThrows(IllegalArgumentException.class, () -> duplicateFiles.filesOf(tempDir.resolve("b/Stub.java")));
+    }
+
+    /**
+     * Tests that only files sharing their size with another file are hashed.
+     */
+    @Test
+    void testFilesOfUniqueSizeAreNotHashed() throws IOException {
+        List<SourceFile> files = List.of(
+                writeFile("A.java", "class A {}"),
+                writeFile("B.java", "class B {}"),
+                writeFile("Main.java", "class Main {}"));
+        List<Path> hashedFiles = new ArrayList<>();
+        FileHashes fileHashes = new FileHashes() {
+            @Override
+            public String hash(Path file) {
+                synchronized (hashedFiles) {
+                    hashedFiles.add(file);
+                }
+                return super.hash(file);
+            }
+        };
+
+        DuplicateFiles duplicateFiles = DuplicateFiles.find(files, fileHashes);
+
+        assertEquals(3, duplicateFiles.representatives().size());
+        assertEquals(0, duplicateFiles.getSkippedFiles());
+        hashedFiles.sort(null);
+        assertEquals(List.of(tempDir.resolve("A.java"), tempDir.resolve("B.java")), hashedFiles);
+    }
+
+    private SourceFile writeFile(String path, String content) throws IOException {
+        Path file = tempDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return new SourceFile(file, Files.size(file), Files.getLastModifiedTime(file));
+    }
+}
@@ -0,0 +1,125 @@
+package com.sdg.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the {@link GeneratedFileClassifier} class.
+ */
+class GeneratedFileClassifierTest {
+    @TempDir
+    Path tempDir;
+
+    private final GeneratedFileClassifier classifier = new GeneratedFileClassifier(1024);
+
+    /**
+     * Tests that files are flagged as generated by their annotations and header comments.
+     */
+    @Test
+    void testGeneratedFilesAreFlagged() throws IOException {
+        assertEquals(GeneratedFileClassifier.Classification.GENERATED, classify("Annotated.java", """
+                package com.example;
+
+                import javax.annotation.processing.Generated;
+
+                @Generated("org.immutables.processor.ProxyProcessor")
+                class Annotated {}
+                """));
+        assertEquals(GeneratedFileClassifier.Classification.GENERATED, classify("Proto.java", """
+                // Generated by the protocol buffer compiler.  DO NOT EDIT!
+                // source: example.proto
+                package com.example;
+
+                public final class Proto {}
+                """));
+        assertEquals(GeneratedFileClassifier.Classification.GENERATED, classify("Parser.java", """
+                /* Parser.java */
+                /* Generated By:JavaCC: Do not edit this line. Parser.java */
+                package com.example;
+
+                public class Parser {}
+                """));
+    }
+
+    /**
+     * Tests that a file mentioning generation outside its header comment is regular.
+     */
+    @Test
+    void testRegularFileIsNotFlagged() throws IOException {
+        assertEquals(GeneratedFileClassifier.Classification.REGULAR, classify("Order.java", """
+                /*
+                 * Copyright (c) Example
+                 */
+                package com.example;
+
+                /**
+                 * An order, whose id is generated by the database.
+                 */
+                class Order {
+                    // Do not edit the id
+                    long id;
+                }
+                """));
+    }
+
+    /**
+     * Tests that {@code @Generated} only marks a file as generated on its type, and only the annotation of the
+     * annotation packages, not e.g. Hibernate's on an entity field or a mention in Javadoc or a string.
+     */
+    @Test
+    void testGeneratedAnnotationOutsideTypeDeclarationIsNotFlagged() throws IOException {
+        assertEquals(GeneratedFileClassifier.Classification.REGULAR, classify("Customer.java", """
+                package com.example;
+
+                import jakarta.persistence.Entity;
+                import org.hibernate.annotations.Generated;
+
+                /**
+                 * A customer. Its number is {@code @Generated} by the database.
+                 */
+                @Entity
+                public class Customer {
+                    @Generated
+                    private long number;
+
+                    private String note = "@Generated";
+                }
+                """));
+        assertEquals(GeneratedFileClassifier.Classification.REGULAR, classify("Audited.java", """
+                package com.example;
+
+                @com.example.audit.Generated
+                public class Audited {}
+                """));
+        assertEquals(GeneratedFileClassifier.Classification.GENERATED, classify("Mapper.java", """
+                package com.example;
+
+                import java.util.List;
+
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                @jakarta.annotation.Generated(value = "org.mapstruct.ap.MappingProcessor", date = "2024-01-01")
+                public final class Mapper {}
+                """));
+    }
+
+    /**
+     * Tests that files above the size threshold are flagged as oversized.
+     */
+    @Test
+    void testLargeFileIsOversized() throws IOException {
+        assertEquals(GeneratedFileClassifier.Classification.OVERSIZED,
+                classify("Large.java", "class Large {}\n" + "//\n".repeat(512)));
+    }
+
+    private GeneratedFileClassifier.Classification classify(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return classifier.classify(new SourceFile(file, Files.size(file), Files.getLastModifiedTime(file)));
+    }
+}
@@ -0,0 +1,223 @@
+package com.sdg.model;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link GitCloneCache} class, with local repositories standing in for remote ones.
+ */
+class GitCloneCacheTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that only the Java files of the latest commit are written, and that only that commit is fetched.
+     */
+    @Test
+    void testCheckoutWritesJavaFilesOfLatestCommitOnly() throws IOException, GitAPIException {
+        Path upstream = tempDir.resolve("upstream");
+        try (Git git = initRepository(upstream)) {
+            writeFile(upstream.resolve("src/Main.java"), "class Main {}");
+            writeFile(upstream.resolve("README.md"), "readme");
+            commitAll(git, "first");
+            writeFile(upstream.resolve("src/Main.java"), "class Main { int x; }");
+            commitAll(git, "second");
+        }
+        GitCloneCache cache = newCache(Long.MAX_VALUE);
+
+        try (GitCloneCache.Lease<Path> lease = cache.checkoutJavaFiles(urlOf(upstream))) {
+            Path checkout = lease.get();
+            assertEquals(List.of(checkout.resolve("src/Main.java")), listFiles(checkout));
+            assertEquals("class Main { int x; }", Files.readString(checkout.resolve("src/Main.java")));
+        }
+        try (GitCloneCache.Lease<Repository> lease = cache.fetch(urlOf(upstream), "HEAD")) {
+            Repository repository = lease.get();
+            ObjectId head = repository.resolve("HEAD^{commit}");
+            assertEquals(Set.of(head), repository.getObjectDatabase().getShallowCommits());
+        }
+    }
+
+    /**
+     * Tests that a later run reuses the cached repository and picks up new commits.
+     */
+    @Test
+    void testLaterRunFetchesNewCommits() throws IOException, GitAPIException {
+        Path upstream = tempDir.resolve("upstream");
+        GitCloneCache cache = newCache(Long.MAX_VALUE);
+        try (Git git = initRepository(upstream)) {
+            writeFile(upstream.resolve("Main.java"), "class Main {}");
+            writeFile(upstream.resolve("Removed.java"), "class Removed {}");
+            commitAll(git, "first");
+            Path firstCheckout = checkout(cache, urlOf(upstream));
+
+            writeFile(upstream.resolve("Main.java"), "class Main { int x; }");
+            Files.delete(upstream.resolve("Removed.java"));
+            commitAll(git, "second");
+            Path secondCheckout = checkout(cache, urlOf(upstream));
+
+            assertEquals(firstCheckout, secondCheckout);
+            assertEquals(List.of(secondCheckout.resolve("Main.java")), listFiles(secondCheckout));
+            assertEquals("class Main { int x; }", Files.readString(secondCheckout.resolve("Main.java")));
+        }
+    }
+
+    /**
+     * Tests that tags can be fetched and that revisions other than branches and tags are rejected.
+     */
+    @Test
+    void testFetchTagOrUnknownRevision() throws IOException, GitAPIException {
+        Path upstream = tempDir.resolve("upstream");
+        try (Git git = initRepository(upstream)) {
+            writeFile(upstream.resolve("Main.java"), "class Main {}");
+            commitAll(git, "first");
+            git.tag().setName("v1").setMessage("Release").setSigned(false).call();
+            writeFile(upstream.resolve("Main.java"), "class Main { int x; }");
+            commitAll(git, "second");
+        }
+        GitCloneCache cache = newCache(Long.MAX_VALUE);
+
+        try (GitTreeSnapshot snapshot = GitTreeSnapshot.open(cache.fetch(urlOf(upstream), "v1"), tempDir, "v1")) {
+            assertEquals("class Main {}", snapshot.read(tempDir.resolve("Main.java")));
+        }
+        assertThrows(IllegalArgumentException.class, () -> cache.fetch(urlOf(upstream), "no-such-branch"));
+    }
+
+    /**
+     * Tests that the least recently used repositories are removed when the cache is too large.
+     */
+    @Test
+    void testEvictionRemovesLeastRecentlyUsedRepositories() throws IOException, GitAPIException {
+        Path first = tempDir.resolve("first");
+        Path second = tempDir.resolve("second");
+        for (Path upstream : List.of(first, second)) {
+            try (Git git = initRepository(upstream)) {
+                writeFile(upstream.resolve("Main.java"), "class Main {}");
+                commitAll(git, "first");
+            }
+        }
+        GitCloneCache cache = newCache(0);
+
+        Path firstCheckout = checkout(cache, urlOf(first));
+        Path secondCheckout = checkout(cache, urlOf(second));
+
+        assertFalse(Files.exists(firstCheckout));
+        assertTrue(Files.exists(secondCheckout.resolve("Main.java")));
+    }
+
+    /**
+     * Tests that a leased repository is not evicted, and that its directory and lock file are removed once the
+     * lease is closed.
+     */
+    @Test
+    void testEvictionSkipsLeasedRepositories() throws IOException, GitAPIException {
+        Path first = tempDir.resolve("first");
+        Path second = tempDir.resolve("second");
+        for (Path upstream : List.of(first, second)) {
+            try (Git git = initRepository(upstream)) {
+                writeFile(upstream.resolve("Main.java"), "class Main {}");
+                commitAll(git, "first");
+            }
+        }
+        GitCloneCache cache = newCache(0);
+
+        Path firstCheckout;
+        try (GitCloneCache.Lease<Path> firstLease = cache.checkoutJavaFiles(urlOf(first))) {
+            firstCheckout = firstLease.get();
+            checkout(cache, urlOf(second));
+
+            assertEquals("class Main {}", Files.readString(firstCheckout.resolve("Main.java")));
+        }
+        cache.evict(null);
+
+        Path entry = firstCheckout.getParent();
+        assertFalse(Files.exists(entry));
+        assertFalse(Files.exists(entry.resolveSibling(entry.getFileName() + ".lock")));
+    }
+
+    /**
+     * Tests that threads of the same JVM can lease and update the same repository concurrently.
+     */
+    @Test
+    void testConcurrentLeasesOfSameRepository() throws Exception {
+        Path upstream = tempDir.resolve("upstream");
+        try (Git git = initRepository(upstream)) {
+            writeFile(upstream.resolve("Main.java"), "class Main {}");
+            commitAll(git, "first");
+        }
+        GitCloneCache cache = newCache(Long.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> contents = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                contents.add(executor.submit(() -> {
+                    try (GitCloneCache.Lease<Path> lease = cache.checkoutJavaFiles(urlOf(upstream))) {
+                        return Files.readString(lease.get().resolve("Main.java"));
+                    }
+                }));
+            }
+
+            for (Future<String> content : contents) {
+                assertEquals("class Main {}", content.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Path checkout(GitCloneCache cache, String url) throws IOException {
+        try (GitCloneCache.Lease<Path> lease = cache.checkoutJavaFiles(url)) {
+            return lease.get();
+        }
+    }
+
+    private GitCloneCache newCache(long maxBytes) {
+        return new GitCloneCache(tempDir.resolve("cache"), maxBytes, Duration.ofDays(1));
+    }
+
+    private static String urlOf(Path repository) {
+        return repository.toUri().toString();
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).sorted().toList();
+        }
+    }
+
+    private static Git initRepository(Path dir) throws GitAPIException {
+        return Git.init().setDirectory(dir.toFile()).setInitialBranch("main").call();
+    }
+
+    private static void writeFile(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static void commitAll(Git git, String message) throws GitAPIException {
+        git.add().addFilepattern(".").call();
+        git.add().addFilepattern(".").setUpdate(true).call();
+        git.commit().setMessage(message).setAuthor("Test", "test@example.com")
+                .setCommitter("Test", "test@example.com").setSign(false).call();
+    }
+}
@@ -1,14 +1,23 @@
 package com.sdg.model;
 
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -165,4 +174,155 @@ public class InputHandlerTest {
         String actualMessage = exception.getMessage();
         assertTrue(actualMessage.contains(expectedMessage));
     }
+
+    /**
+     * Tests that the Java files changed between two commits are found, including renames and deletions.
+     */
+    @Test
+    void testDiffJavaFilesBetweenRevisions() throws IOException, GitAPIException {
+        Path repoDir = tempDir.resolve("repo");
+        try (Git git = Git.init().setDirectory(repoDir.toFile()).setInitialBranch("main").call()) {
+            writeFile(repoDir.resolve("src/Kept.java"), "class Kept {}");
+            writeFile(repoDir.resolve("src/Edited.java"), "class Edited {}");
+            writeFile(repoDir.resolve("src/Removed.java"), "class Removed {}");
+            writeFile(repoDir.resolve("src/Moved.java"), "class Moved { void a() {} void b() {} void c() {} }");
+            writeFile(repoDir.resolve("README.md"), "readme");
+            commitAll(git, "first");
+
+            writeFile(repoDir.resolve("src/Edited.java"), "class Edited { int x; }");
+            Files.delete(repoDir.resolve("src/Removed.java"));
+            Files.move(repoDir.resolve("src/Moved.java"), Files.createDirectories(repoDir.resolve("src/pkg"))
+                    .resolve("Moved.java"));
+            writeFile(repoDir.resolve("src/Added.java"), "class Added {}");
+            writeFile(repoDir.resolve("README.md"), "changed readme");
+            commitAll(git, "second");
+        }
+
+        List<InputHandler.JavaFileChange> changes = inputHandler.diffJavaFiles(repoDir.resolve("src"),
+                "HEAD~1", "HEAD");
+        changes = changes.stream().sorted(Comparator.comparing(change -> change.changeType().name())).toList();
+
+        Path workTree = repoDir.toRealPath();
+        assertEquals(List.of(
+                new InputHandler.JavaFileChange(DiffEntry.ChangeType.ADD, null, workTree.resolve("src/Added.java")),
+                new InputHandler.JavaFileChange(DiffEntry.ChangeType.DELETE, workTree.resolve("src/Removed.java"), null),
+                new InputHandler.JavaFileChange(DiffEntry.ChangeType.MODIFY, workTree.resolve("src/Edited.java"),
+                        workTree.resolve("src/Edited.java")),
+                new InputHandler.JavaFileChange(DiffEntry.ChangeType.RENAME, workTree.resolve("src/Moved.java"),
+                        workTree.resolve("src/pkg/Moved.java"))), changes);
+    }
+
+    /**
+     * Tests that an IllegalArgumentException is thrown for an unknown revision.
+     */
+    @Test
+    void testDiffJavaFilesWithUnknownRevision() throws IOException, GitAPIException {
+        Path repoDir = tempDir.resolve("repo");
+        try (Git git = Git.init().setDirectory(repoDir.toFile()).call()) {
+            writeFile(repoDir.resolve("Main.java"), "class Main {}");
+            commitAll(git, "first");
+        }
+
+        assertThrows(IllegalArgumentException.class, () ->
+                inputHandler.diffJavaFiles(repoDir, "HEAD", "no-such-branch"));
+    }
+
+    /**
+     * Tests that the Java files of a revision are read from the repository, not from the work tree.
+     */
+    @Test
+    void testOpenGitRevisionReadsCommittedContent() throws IOException, GitAPIException {
+        Path repoDir = tempDir.resolve("repo");
+        try (Git git = Git.init().setDirectory(repoDir.toFile()).setInitialBranch("main").call()) {
+            writeFile(repoDir.resolve("src/Main.java"), "class Main {}");
+            writeFile(repoDir.resolve("src/Shared.java"), "class Shared {}");
+            writeFile(repoDir.resolve("src/test/MainTest.java"), "class MainTest {}");
+            commitAll(git, "first");
+            writeFile(repoDir.resolve("src/Main.java"), "class Main { int x; }");
+            commitAll(git, "second");
+        }
+        writeFile(repoDir.resolve("src/Main.java"), "class Main { uncommitted }");
+
+        try (GitTreeSnapshot first = inputHandler.openGitRevision(repoDir.toString(), "HEAD~1");
+             GitTreeSnapshot second = inputHandler.openGitRevision(repoDir.resolve("src").toString(), "main")) {
+            Path main = first.getRoot().resolve("src/Main.java");
+            Path shared = first.getRoot().resolve("src/Shared.java");
+            assertEquals(List.of(main, shared), inputHandler.getRelevantJavaFiles(first));
+            assertEquals(3, first.getJavaFiles().size());
+
+            assertEquals("class Main {}", first.read(main));
+            assertEquals("class Main { int x; }", second.read(main));
+            assertEquals(first.getBlobId(shared), second.getBlobId(shared));
+            assertNotEquals(first.getBlobId(main), second.getBlobId(main));
+        }
+    }
+
+    /**
+     * Tests that an IllegalArgumentException is thrown when opening a directory outside a Git repository.
+     */
+    @Test
+    void testOpenGitRevisionOutsideRepository() throws IOException {
+        Path dir = Files.createDirectories(tempDir.resolve("plain"));
+
+        assertThrows(IllegalArgumentException.class, () -> inputHandler.openGitRevision(dir.toString(), "HEAD"));
+    }
+
+    /**
+     * Tests that discovery emits the relevant Java files with their metadata, without excluded directories.
+     */
+    @Test
+    void testDiscoverFilesEmitsMetadata() throws IOException {
+        Path srcDir = tempDir.resolve("project/src");
+        writeFile(srcDir.resolve("Main.java"), "class Main {}");
+        writeFile(srcDir.resolve("util/StringUtil.java"), "class StringUtil {}");
+        writeFile(tempDir.resolve("project/target/Generated.java"), "class Generated {}");
+
+        List<SourceFile> files = inputHandler.discoverFilesRx(tempDir.resolve("project").toString())
+                .toList().blockingGet();
+
+        assertEquals(1, files.size());
+        assertEquals(srcDir.resolve("Main.java"), files.get(0).path());
+        assertEquals(Files.size(srcDir.resolve("Main.java")), files.get(0).size());
+        assertEquals(Files.getLastModifiedTime(srcDir.resolve("Main.java")), files.get(0).lastModified());
+    }
+
+    /**
+     * Tests that the Java files of a source archive are processed in place, without excluded directories.
+     */
+    @Test
+    void testProcessFilesReadsArchiveEntries() throws IOException {
+        Path archive = tempDir.resolve("lib-sources.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+            writeEntry(out, "com/example/Main.java", "class Main {}");
+            writeEntry(out, "com/example/readme.txt", "not Java");
+            writeEntry(out, "target/Generated.java", "class Generated {}");
+        }
+
+        assertTrue(inputHandler.isArchive(archive.toString()));
+        assertEquals("lib", inputHandler.extractSystemName(archive.toString()));
+
+        List<InputHandler.ProcessingResult> results = inputHandler.processFilesRx(archive.toString()).toList().blockingGet();
+
+        assertEquals(1, results.size());
+        assertEquals("/com/example/Main.java", results.get(0).file().toString());
+        assertEquals("class Main {}", results.get(0).processedContent());
+    }
+
+    private static void writeEntry(ZipOutputStream out, String name, String content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+
+    private static void writeFile(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static void commitAll(Git git, String message) throws GitAPIException {
+        git.add().addFilepattern(".").call();
+        git.add().addFilepattern(".").setUpdate(true).call();
+        git.commit().setMessage(message).setAuthor("Test", "test@example.com")
+                .setCommitter("Test", "test@example.com").setSign(false).call();
+    }
 }
@@ -0,0 +1,61 @@
+package com.sdg.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the {@link SourceReader} interface and its file system implementation.
+ */
+class SourceReaderTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that the charset is sniffed from byte order marks and from the content.
+     */
+    @Test
+    void testCharsetIsSniffed() {
+        String text = "class Café {}";
+
+        assertEquals("class Main {}", SourceReader.decode("class Main {}".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(text, SourceReader.decode(text.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(text, SourceReader.decode(text.getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(text, SourceReader.decode(concat(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF},
+                text.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(text, SourceReader.decode(text.getBytes(StandardCharsets.UTF_16)));
+        assertEquals(text, SourceReader.decode(concat(new byte[] {(byte) 0xFF, (byte) 0xFE},
+                text.getBytes(StandardCharsets.UTF_16LE))));
+    }
+
+    /**
+     * Tests that reading a file records the same hash as hashing the file, for small and memory mapped files.
+     */
+    @Test
+    void testReadingRecordsFileHash() throws IOException {
+        Path small = Files.writeString(tempDir.resolve("Small.java"), "class Small {}");
+        Path large = Files.writeString(tempDir.resolve("Large.java"),
+                "class Large {}\n" + "// filler\n".repeat(200_000));
+        FileHashes fileHashes = new FileHashes();
+        SourceReader reader = SourceReader.fileSystem(fileHashes);
+
+        assertEquals("class Small {}", reader.read(small));
+        assertEquals(Files.readString(large), reader.read(large));
+
+        assertEquals(FileHashes.sha256(small), fileHashes.hash(small));
+        assertEquals(FileHashes.sha256(large), fileHashes.hash(large));
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = new byte[first.length + second.length];
+        System.arraycopy(first, 0, bytes, 0, first.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,135 @@
+package com.sdg.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the {@link SourceTreeScanner} class.
+ */
+class SourceTreeScannerTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that build output, dependencies and hidden directories are not scanned.
+     */
+    @Test
+    void testExcludedDirectoriesArePruned() throws IOException {
+        writeFile(tempDir.resolve("src/com/example/Main.java"));
+        writeFile(tempDir.resolve("target/generated/Generated.java"));
+        writeFile(tempDir.resolve("node_modules/pkg/Vendor.java"));
+        writeFile(tempDir.resolve(".git/objects/Object.java"));
+        writeFile(tempDir.resolve("src/com/example/README.md"));
+
+        assertEquals(List.of(tempDir.resolve("src/com/example/Main.java")),
+                new SourceTreeScanner().scan(tempDir).javaFiles());
+        assertEquals(4, new SourceTreeScanner(false).scan(tempDir).javaFiles().size());
+    }
+
+    /**
+     * Tests that files and directories ignored by .gitignore files are not scanned, including negated patterns and
+     * the .gitignore file of a parent directory of the scanned root.
+     */
+    @Test
+    void testGitignoreIsHonoured() throws IOException {
+        Files.createDirectories(tempDir.resolve(".git"));
+        Files.writeString(tempDir.resolve(".gitignore"), "generated/\n*Ignored.java\n");
+        Files.writeString(writeFile(tempDir.resolve("src/sub/Kept.java")).resolveSibling(".gitignore"),
+                "!NotIgnored.java\nLocal.java\n");
+        writeFile(tempDir.resolve("src/generated/Generated.java"));
+        writeFile(tempDir.resolve("src/Ignored.java"));
+        writeFile(tempDir.resolve("src/sub/NotIgnored.java"));
+        writeFile(tempDir.resolve("src/sub/Local.java"));
+        writeFile(tempDir.resolve("src/Local.java"));
+
+        List<Path> javaFiles = new SourceTreeScanner().scan(tempDir.resolve("src")).javaFiles();
+
+        assertEquals(List.of(tempDir.resolve("src/Local.java"), tempDir.resolve("src/sub/Kept.java"),
+                tempDir.resolve("src/sub/NotIgnored.java")), javaFiles);
+    }
+
+    /**
+     * Tests that all files of a wide tree are found when it is scanned in parallel, in a stable order.
+     */
+    @Test
+    void testWideTreeIsScannedCompletely() throws IOException {
+        List<Path> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 5; j++) {
+                expected.add(writeFile(tempDir.resolve("module" + i + "/pkg" + j + "/Type" + j + ".java")));
+            }
+        }
+        expected.sort(null);
+
+        assertEquals(expected, new SourceTreeScanner().scan(tempDir).javaFiles());
+    }
+
+    /**
+     * Tests that a single Java file can be scanned.
+     */
+    @Test
+    void testSingleFileRoot() throws IOException {
+        Path file = writeFile(tempDir.resolve("Main.java"));
+
+        assertEquals(List.of(file), new SourceTreeScanner().scan(file).javaFiles());
+    }
+
+    /**
+     * Tests that only the source directories of the modules of a build are scanned, without excluding packages
+     * whose names are excluded directory names.
+     */
+    @Test
+    void testBuildSourceRootsAreScanned() throws IOException {
+        Files.writeString(tempDir.resolve("pom.xml"), """
+                <project>
+                    <packaging>pom</packaging>
+                    <modules>
+                        <module>core</module>
+                    </modules>
+                </project>
+                """);
+        Files.createDirectories(tempDir.resolve("core"));
+        Files.writeString(tempDir.resolve("core/pom.xml"), "<project/>");
+        Path main = writeFile(tempDir.resolve("core/src/main/java/com/example/Main.java"));
+        Path lib = writeFile(tempDir.resolve("core/src/main/java/com/example/lib/Library.java"));
+        writeFile(tempDir.resolve("core/src/test/java/com/example/MainTest.java"));
+        writeFile(tempDir.resolve("tools/Tool.java"));
+
+        SourceTreeScanner.SourceTree sourceTree = new SourceTreeScanner().scan(tempDir);
+
+        assertEquals(List.of(tempDir.resolve("core/src/main/java")), sourceTree.sourceRoots());
+        assertEquals(List.of(main, lib), sourceTree.javaFiles());
+    }
+
+    /**
+     * Tests that changed files are added, updated and removed without scanning the other files again.
+     */
+    @Test
+    void testTreeIsUpdatedWithChangedFiles() throws IOException {
+        Path kept = writeFile(tempDir.resolve("src/Kept.java"));
+        Path modified = writeFile(tempDir.resolve("src/Modified.java"));
+        Path deleted = writeFile(tempDir.resolve("src/Deleted.java"));
+        SourceTreeScanner.SourceTree sourceTree = new SourceTreeScanner().scan(tempDir);
+
+        Files.writeString(modified, "class Modified { int x; }");
+        Files.delete(deleted);
+        Path added = writeFile(tempDir.resolve("src/Added.java"));
+        SourceTreeScanner.SourceTree updatedTree = sourceTree.withChangedFiles(List.of(modified, deleted, added));
+
+        assertEquals(List.of(added, kept, modified), updatedTree.javaFiles());
+        assertEquals(Files.size(modified), updatedTree.files().get(2).size());
+    }
+
+    private static Path writeFile(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, "class " + file.getFileName().toString().replace(".java", "") + " {}");
+    }
+}
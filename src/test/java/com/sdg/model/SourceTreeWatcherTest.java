@@ -0,0 +1,108 @@
+package com.sdg.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link SourceTreeWatcher} class.
+ */
+class SourceTreeWatcherTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that a burst of changes is reported as one batch of changed Java files, including files in new
+     * directories and without files in excluded directories.
+     */
+    @Test
+    void testBurstOfChangesIsOneBatch() throws IOException, InterruptedException {
+        Path main = tempDir.resolve("src/Main.java");
+        Files.createDirectories(main.getParent());
+        Files.writeString(main, "class Main {}");
+
+        try (SourceTreeWatcher watcher = new SourceTreeWatcher(tempDir, Duration.ofMillis(500),
+                Duration.ofSeconds(30))) {
+            Files.writeString(main, "class Main { void run() {} }");
+            Files.writeString(tempDir.resolve("src/notes.txt"), "not Java");
+            Path added = tempDir.resolve("src/util/Helper.java");
+            Files.createDirectories(added.getParent());
+            Files.writeString(added, "class Helper {}");
+            Files.createDirectories(tempDir.resolve("target"));
+            Files.writeString(tempDir.resolve("target/Generated.java"), "class Generated {}");
+
+            SourceTreeWatcher.ChangeBatch batch = watcher.awaitChanges();
+
+            assertEquals(Set.of(main, added), batch.changedFiles());
+        }
+    }
+
+    /**
+     * Tests that directories and files ignored by a .gitignore file are not reported, like they are not scanned.
+     */
+    @Test
+    void testIgnoredFilesAreNotReported() throws IOException, InterruptedException {
+        Files.createDirectories(tempDir.resolve(".git"));
+        Files.writeString(tempDir.resolve(".gitignore"), "generated/\n*Ignored.java\n");
+        Path main = tempDir.resolve("src/Main.java");
+        Files.createDirectories(main.getParent());
+        Files.writeString(main, "class Main {}");
+
+        try (SourceTreeWatcher watcher = new SourceTreeWatcher(tempDir, Duration.ofMillis(500),
+                Duration.ofSeconds(30))) {
+            Files.writeString(tempDir.resolve("src/MainIgnored.java"), "class MainIgnored {}");
+            Files.createDirectories(tempDir.resolve("src/generated"));
+            Files.writeString(tempDir.resolve("src/generated/Stub.java"), "class Stub {}");
+            Files.writeString(main, "class Main { void run() {} }");
+
+            SourceTreeWatcher.ChangeBatch batch = watcher.awaitChanges();
+
+            assertEquals(Set.of(main), batch.changedFiles());
+        }
+    }
+
+    /**
+     * Tests that a batch is reported after the maximum latency while a file keeps changing.
+     */
+    @Test
+    void testBatchIsReportedAfterMaximumLatency() throws Exception {
+        Path main = tempDir.resolve("src/Main.java");
+        Files.createDirectories(main.getParent());
+        Files.writeString(main, "class Main {}");
+
+        try (SourceTreeWatcher watcher = new SourceTreeWatcher(tempDir, Duration.ofSeconds(2),
+                Duration.ofMillis(500))) {
+            AtomicBoolean writing = new AtomicBoolean(true);
+            Thread writer = new Thread(() -> {
+                for (int i = 0; writing.get(); i++) {
+                    try {
+                        Files.writeString(main, "class Main { int x = " + i + "; }");
+                        Thread.sleep(100);
+                    } catch (IOException | InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            writer.start();
+            try {
+                long start = System.nanoTime();
+                SourceTreeWatcher.ChangeBatch batch = watcher.awaitChanges();
+
+                assertEquals(Set.of(main), batch.changedFiles());
+                assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2)) < 0);
+            } finally {
+                writing.set(false);
+                writer.join();
+            }
+        }
+    }
+}